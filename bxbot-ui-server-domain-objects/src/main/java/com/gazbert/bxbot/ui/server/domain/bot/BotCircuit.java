@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.domain.bot;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Domain object representing the state of the circuit breaker guarding the calls to a Bot.
+ * <p>
+ * While the circuit is closed, the Bot is called as normal. It opens when too many of the Bot's recent calls have
+ * failed or been slow; while it is open, calls to the Bot fail straight away without it being called. Once it has been
+ * open for a while it goes half-open and lets a few trial calls through, which either close it again or re-open it.
+ *
+ * @author gazbert
+ */
+public class BotCircuit {
+
+    /**
+     * The states of a circuit.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String botId;
+    private final State state;
+    private final float failureRate;
+    private final float slowCallRate;
+    private final int recordedCalls;
+    private final long openUntil;
+
+    /**
+     * Creates a circuit.
+     *
+     * @param botId         the id of the Bot the circuit guards.
+     * @param state         the state of the circuit.
+     * @param failureRate   the percentage of the recorded calls that failed.
+     * @param slowCallRate  the percentage of the recorded calls that were slow.
+     * @param recordedCalls the number of recent calls the rates are worked out from.
+     * @param openUntil     when an open circuit will let trial calls through, in millis since the epoch; 0 unless the
+     *                      circuit is open.
+     */
+    public BotCircuit(String botId, State state, float failureRate, float slowCallRate, int recordedCalls,
+                      long openUntil) {
+        this.botId = botId;
+        this.state = state;
+        this.failureRate = failureRate;
+        this.slowCallRate = slowCallRate;
+        this.recordedCalls = recordedCalls;
+        this.openUntil = openUntil;
+    }
+
+    public String getBotId() {
+        return botId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public float getFailureRate() {
+        return failureRate;
+    }
+
+    public float getSlowCallRate() {
+        return slowCallRate;
+    }
+
+    public int getRecordedCalls() {
+        return recordedCalls;
+    }
+
+    public long getOpenUntil() {
+        return openUntil;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("botId", botId)
+                .add("state", state)
+                .add("failureRate", failureRate)
+                .add("slowCallRate", slowCallRate)
+                .add("recordedCalls", recordedCalls)
+                .add("openUntil", openUntil)
+                .toString();
+    }
+}
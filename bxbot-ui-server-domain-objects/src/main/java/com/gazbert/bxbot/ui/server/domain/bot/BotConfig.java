@@ -27,6 +27,9 @@ import com.google.common.base.MoreObjects;
 
 /**
  * Domain object representing a Bot's config.
+ * <p>
+ * The version is incremented every time the config is changed. An update that carries a version is only applied if
+ * the stored config still has that version, so concurrent edits cannot silently overwrite each other.
  *
  * @author gazbert
  */
@@ -37,6 +40,7 @@ public class BotConfig {
     private String baseUrl;
     private String username;
     private String password;
+    private Long version;
 
     // required for Jackson
     public BotConfig() {
@@ -48,6 +52,7 @@ public class BotConfig {
         this.baseUrl = other.baseUrl;
         this.username = other.username;
         this.password = other.password;
+        this.version = other.version;
     }
 
     public BotConfig(String id, String alias, String baseUrl, String username, String password) {
@@ -98,6 +103,14 @@ public class BotConfig {
         this.password = password;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
@@ -106,6 +119,7 @@ public class BotConfig {
                 .add("baseUrl", baseUrl)
                 .add("username", username)
                 .add("password", password)
+                .add("version", version)
                 .toString();
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.domain.bot;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Domain object representing a request for one page of Bots.
+ * <p>
+ * Pages are addressed by cursor rather than by offset: the cursor returned with a page marks where the page ended, so
+ * the next page is found directly rather than by skipping over the ones before it, and stays stable while Bots are
+ * being added and removed.
+ *
+ * @author gazbert
+ */
+public class BotPageRequest {
+
+    /**
+     * What a page of Bots is sorted by. Bots with the same alias are sorted by id; Bots without an alias sort first.
+     */
+    public enum SortField {
+        ID,
+        ALIAS
+    }
+
+    private final int limit;
+    private final String cursor;
+    private final SortField sortField;
+    private final boolean descending;
+    private final String aliasPrefix;
+    private final String host;
+
+    /**
+     * Creates a page request.
+     *
+     * @param limit       the most Bots to return; at least 1.
+     * @param cursor      the cursor returned with the previous page, or null for the first page.
+     * @param sortField   what to sort by; defaults to the id if null.
+     * @param descending  whether to sort in descending order.
+     * @param aliasPrefix only return Bots whose alias starts with this, if not null.
+     * @param host        only return Bots whose base URL is on this host, optionally with a port, if not null.
+     * @throws IllegalArgumentException if the limit is less than 1.
+     */
+    public BotPageRequest(int limit, String cursor, SortField sortField, boolean descending, String aliasPrefix,
+                          String host) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be at least 1 but was: " + limit);
+        }
+        this.limit = limit;
+        this.cursor = cursor;
+        this.sortField = sortField == null ? SortField.ID : sortField;
+        this.descending = descending;
+        this.aliasPrefix = aliasPrefix;
+        this.host = host;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public SortField getSortField() {
+        return sortField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public String getAliasPrefix() {
+        return aliasPrefix;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("limit", limit)
+                .add("cursor", cursor)
+                .add("sortField", sortField)
+                .add("descending", descending)
+                .add("aliasPrefix", aliasPrefix)
+                .add("host", host)
+                .toString();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.domain.bot;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Domain object representing the retries of failed reads from a Bot, or from all the Bots.
+ * <p>
+ * Reads that fail with an error that may not happen again are retried, but only while there is retry budget left:
+ * each read earns a fraction of a retry, and each retry spends one. The budget stops retries from multiplying the load
+ * on Bots that are already struggling.
+ *
+ * @author gazbert
+ */
+public class BotRetryStats {
+
+    private final String botId;
+    private final long requests;
+    private final long retries;
+    private final long budgetExhausted;
+    private final float retryBudget;
+
+    /**
+     * Creates the retry stats.
+     *
+     * @param botId           the id of the Bot, or null for the stats of all the Bots.
+     * @param requests        the number of reads made, not counting retries.
+     * @param retries         the number of retries made.
+     * @param budgetExhausted the number of retries that were not made because the budget had run out.
+     * @param retryBudget     the number of retries left in the budget.
+     */
+    public BotRetryStats(String botId, long requests, long retries, long budgetExhausted, float retryBudget) {
+        this.botId = botId;
+        this.requests = requests;
+        this.retries = retries;
+        this.budgetExhausted = budgetExhausted;
+        this.retryBudget = retryBudget;
+    }
+
+    public String getBotId() {
+        return botId;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    public long getBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    public float getRetryBudget() {
+        return retryBudget;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("botId", botId)
+                .add("requests", requests)
+                .add("retries", retries)
+                .add("budgetExhausted", budgetExhausted)
+                .add("retryBudget", retryBudget)
+                .toString();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.domain.bot;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Domain object representing the Bot configs saved by a bulk write, e.g. an import, and which of them were created
+ * rather than updated.
+ *
+ * @author gazbert
+ */
+public class SavedBotConfigs {
+
+    private final List<BotConfig> botConfigs;
+    private final Set<String> createdIds;
+
+    /**
+     * Creates the result of a bulk write.
+     *
+     * @param botConfigs the saved Bot configs, in the order they were given.
+     * @param createdIds the ids of the saved Bot configs that did not exist before the write.
+     */
+    public SavedBotConfigs(List<BotConfig> botConfigs, Set<String> createdIds) {
+        this.botConfigs = Collections.unmodifiableList(botConfigs);
+        this.createdIds = Collections.unmodifiableSet(createdIds);
+    }
+
+    public List<BotConfig> getBotConfigs() {
+        return botConfigs;
+    }
+
+    public Set<String> getCreatedIds() {
+        return createdIds;
+    }
+
+    public boolean isCreated(String id) {
+        return createdIds.contains(id);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("botConfigs", botConfigs)
+                .add("createdIds", createdIds)
+                .toString();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.domain.change;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.emailalerts.EmailAlertsConfig;
+import com.gazbert.bxbot.ui.server.domain.engine.EngineConfig;
+import com.gazbert.bxbot.ui.server.domain.exchange.ExchangeConfig;
+import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
+import com.gazbert.bxbot.ui.server.domain.strategy.StrategyConfig;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Domain object representing one change to the config of a Bot, as recorded in the change log.
+ * <p>
+ * Changes are numbered with a sequence that increases by one for each change, so clients can ask for everything
+ * after the last change they saw.
+ *
+ * @author gazbert
+ */
+public class ConfigChange {
+
+    /**
+     * The kind of config that was changed.
+     */
+    public enum ConfigType {
+
+        BOT(BotConfig.class),
+        MARKET(MarketConfig.class),
+        STRATEGY(StrategyConfig.class),
+        ENGINE(EngineConfig.class),
+        EXCHANGE(ExchangeConfig.class),
+        EMAIL_ALERTS(EmailAlertsConfig.class);
+
+        private final Class<?> configClass;
+
+        ConfigType(Class<?> configClass) {
+            this.configClass = configClass;
+        }
+
+        /**
+         * Returns the domain class of this kind of config, e.g. to read one back from JSON.
+         *
+         * @return the config class.
+         */
+        public Class<?> getConfigClass() {
+            return configClass;
+        }
+    }
+
+    /**
+     * What happened to the config. Saves that may have created or replaced the config, e.g. bulk imports, are
+     * recorded as UPDATED.
+     */
+    public enum Operation {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final long sequence;
+    private final ConfigType configType;
+    private final Operation operation;
+    private final String botId;
+    private final String configId;
+    private final Object config;
+
+    /**
+     * Creates a change.
+     *
+     * @param sequence   the change's sequence number.
+     * @param configType the kind of config that was changed.
+     * @param operation  what happened to the config.
+     * @param botId      the id of the Bot the config belongs to.
+     * @param configId   the id of the config within the Bot, e.g. a market id, or null for a Bot's single configs,
+     *                   e.g. its engine config.
+     * @param config     the config after the change, or null if it was deleted.
+     */
+    public ConfigChange(long sequence, ConfigType configType, Operation operation, String botId, String configId,
+                        Object config) {
+        this.sequence = sequence;
+        this.configType = configType;
+        this.operation = operation;
+        this.botId = botId;
+        this.configId = configId;
+        this.config = config;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ConfigType getConfigType() {
+        return configType;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getBotId() {
+        return botId;
+    }
+
+    public String getConfigId() {
+        return configId;
+    }
+
+    public Object getConfig() {
+        return config;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("sequence", sequence)
+                .add("configType", configType)
+                .add("operation", operation)
+                .add("botId", botId)
+                .add("configId", configId)
+                .add("config", config)
+                .toString();
+    }
+}
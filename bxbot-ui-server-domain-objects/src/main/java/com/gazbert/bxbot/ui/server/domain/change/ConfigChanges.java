@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.domain.change;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Domain object representing the changes made after a given sequence number.
+ * <p>
+ * The change log only holds the most recent changes. If some of the changes asked for have already been dropped from
+ * it, resyncRequired is set and there are no changes: the client must reload the config it holds and then ask for
+ * the changes after latestSequence.
+ *
+ * @author gazbert
+ */
+public class ConfigChanges {
+
+    private final List<ConfigChange> changes;
+    private final long latestSequence;
+    private final boolean resyncRequired;
+
+    /**
+     * Creates the changes after a sequence number.
+     *
+     * @param changes        the changes, in sequence order.
+     * @param latestSequence the sequence number of the latest change in the log.
+     */
+    public ConfigChanges(List<ConfigChange> changes, long latestSequence) {
+        this(changes, latestSequence, false);
+    }
+
+    private ConfigChanges(List<ConfigChange> changes, long latestSequence, boolean resyncRequired) {
+        this.changes = Collections.unmodifiableList(changes);
+        this.latestSequence = latestSequence;
+        this.resyncRequired = resyncRequired;
+    }
+
+    /**
+     * Returns the marker telling the client that the changes it asked for are no longer in the log.
+     *
+     * @param latestSequence the sequence number of the latest change in the log.
+     * @return the resync marker.
+     */
+    public static ConfigChanges resyncRequired(long latestSequence) {
+        return new ConfigChanges(Collections.emptyList(), latestSequence, true);
+    }
+
+    public List<ConfigChange> getChanges() {
+        return changes;
+    }
+
+    public long getLatestSequence() {
+        return latestSequence;
+    }
+
+    public boolean isResyncRequired() {
+        return resyncRequired;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("changes", changes)
+                .add("latestSequence", latestSequence)
+                .add("resyncRequired", resyncRequired)
+                .toString();
+    }
+}
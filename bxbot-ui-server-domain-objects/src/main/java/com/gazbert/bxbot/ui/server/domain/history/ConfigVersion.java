@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.domain.history;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Domain object representing one version of a Bot's config in the config history.
+ * <p>
+ * Every change made to a Bot's config gets the next version number for that Bot, starting at 1. The config itself is
+ * stored once per distinct content and referenced by its content hash, so a version is small and identical configs
+ * on different Bots share their storage.
+ *
+ * @author gazbert
+ */
+public class ConfigVersion {
+
+    private final String botId;
+    private final long version;
+    private final long timestamp;
+    private final ConfigChange.ConfigType configType;
+    private final ConfigChange.Operation operation;
+    private final String configId;
+    private final String contentHash;
+    private final Object config;
+
+    /**
+     * Creates a version.
+     *
+     * @param botId       the id of the Bot the config belongs to.
+     * @param version     the version number, unique for the Bot.
+     * @param timestamp   when the change was made, in millis since the epoch.
+     * @param configType  the kind of config that was changed.
+     * @param operation   what happened to the config.
+     * @param configId    the id of the config within the Bot, or null for a Bot's single configs.
+     * @param contentHash the hash of the config's content, or null if it was deleted.
+     * @param config      the config, or null if it has not been loaded or was deleted.
+     */
+    public ConfigVersion(String botId, long version, long timestamp, ConfigChange.ConfigType configType,
+                         ConfigChange.Operation operation, String configId, String contentHash, Object config) {
+        this.botId = botId;
+        this.version = version;
+        this.timestamp = timestamp;
+        this.configType = configType;
+        this.operation = operation;
+        this.configId = configId;
+        this.contentHash = contentHash;
+        this.config = config;
+    }
+
+    /**
+     * Returns a copy of this version holding the given config.
+     *
+     * @param config the config loaded from the version's content.
+     * @return the copy.
+     */
+    public ConfigVersion withConfig(Object config) {
+        return new ConfigVersion(botId, version, timestamp, configType, operation, configId, contentHash, config);
+    }
+
+    public String getBotId() {
+        return botId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public ConfigChange.ConfigType getConfigType() {
+        return configType;
+    }
+
+    public ConfigChange.Operation getOperation() {
+        return operation;
+    }
+
+    public String getConfigId() {
+        return configId;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public Object getConfig() {
+        return config;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("botId", botId)
+                .add("version", version)
+                .add("timestamp", timestamp)
+                .add("configType", configType)
+                .add("operation", operation)
+                .add("configId", configId)
+                .add("contentHash", contentHash)
+                .add("config", config)
+                .toString();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.domain.bot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests BotCircuit domain object behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestBotCircuit {
+
+    private static final String BOT_ID = "gdax-bot-1";
+    private static final float FAILURE_RATE = 60.0f;
+    private static final float SLOW_CALL_RATE = 10.0f;
+    private static final int RECORDED_CALLS = 20;
+    private static final long OPEN_UNTIL = 1510000030000L;
+
+    @Test
+    public void testInitialisationWorksAsExpected() {
+
+        final BotCircuit botCircuit = new BotCircuit(BOT_ID, BotCircuit.State.OPEN, FAILURE_RATE, SLOW_CALL_RATE,
+                RECORDED_CALLS, OPEN_UNTIL);
+
+        assertEquals(BOT_ID, botCircuit.getBotId());
+        assertEquals(BotCircuit.State.OPEN, botCircuit.getState());
+        assertEquals(FAILURE_RATE, botCircuit.getFailureRate(), 0);
+        assertEquals(SLOW_CALL_RATE, botCircuit.getSlowCallRate(), 0);
+        assertEquals(RECORDED_CALLS, botCircuit.getRecordedCalls());
+        assertEquals(OPEN_UNTIL, botCircuit.getOpenUntil());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.domain.bot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests BotPageRequest domain object behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestBotPageRequest {
+
+    private static final int LIMIT = 20;
+    private static final String CURSOR = "aWQrCmdkYXgtYm90LTE";
+    private static final String ALIAS_PREFIX = "GDAX";
+    private static final String HOST = "hostname.two:8080";
+
+    @Test
+    public void testInitialisationWorksAsExpected() {
+
+        final BotPageRequest pageRequest = new BotPageRequest(LIMIT, CURSOR, BotPageRequest.SortField.ALIAS, true,
+                ALIAS_PREFIX, HOST);
+        assertEquals(LIMIT, pageRequest.getLimit());
+        assertEquals(CURSOR, pageRequest.getCursor());
+        assertEquals(BotPageRequest.SortField.ALIAS, pageRequest.getSortField());
+        assertTrue(pageRequest.isDescending());
+        assertEquals(ALIAS_PREFIX, pageRequest.getAliasPrefix());
+        assertEquals(HOST, pageRequest.getHost());
+    }
+
+    @Test
+    public void testSortDefaultsToAscendingId() {
+
+        final BotPageRequest pageRequest = new BotPageRequest(LIMIT, null, null, false, null, null);
+        assertEquals(BotPageRequest.SortField.ID, pageRequest.getSortField());
+        assertFalse(pageRequest.isDescending());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLimitMustBePositive() {
+        new BotPageRequest(0, null, null, false, null, null);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.domain.bot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests BotRetryStats domain object behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestBotRetryStats {
+
+    private static final String BOT_ID = "gdax-bot-1";
+    private static final long REQUESTS = 250L;
+    private static final long RETRIES = 25L;
+    private static final long BUDGET_EXHAUSTED = 3L;
+    private static final float RETRY_BUDGET = 0.5f;
+
+    @Test
+    public void testInitialisationWorksAsExpected() {
+
+        final BotRetryStats botRetryStats = new BotRetryStats(BOT_ID, REQUESTS, RETRIES, BUDGET_EXHAUSTED,
+                RETRY_BUDGET);
+
+        assertEquals(BOT_ID, botRetryStats.getBotId());
+        assertEquals(REQUESTS, botRetryStats.getRequests());
+        assertEquals(RETRIES, botRetryStats.getRetries());
+        assertEquals(BUDGET_EXHAUSTED, botRetryStats.getBudgetExhausted());
+        assertEquals(RETRY_BUDGET, botRetryStats.getRetryBudget(), 0);
+    }
+}
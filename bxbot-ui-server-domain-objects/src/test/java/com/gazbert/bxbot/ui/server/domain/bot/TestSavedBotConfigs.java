@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.domain.bot;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests SavedBotConfigs domain object behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestSavedBotConfigs {
+
+    private static final String CREATED_BOT_ID = "gdax-bot-1";
+    private static final String UPDATED_BOT_ID = "bitstamp-bot-1";
+
+    @Test
+    public void testInitialisationWorksAsExpected() {
+
+        final List<BotConfig> botConfigs = Arrays.asList(new BotConfig(UPDATED_BOT_ID, "Bitstamp", null, null, null),
+                new BotConfig(CREATED_BOT_ID, "GDAX", null, null, null));
+
+        final SavedBotConfigs savedBotConfigs =
+                new SavedBotConfigs(botConfigs, Collections.singleton(CREATED_BOT_ID));
+
+        assertEquals(botConfigs, savedBotConfigs.getBotConfigs());
+        assertEquals(Collections.singleton(CREATED_BOT_ID), savedBotConfigs.getCreatedIds());
+        assertTrue(savedBotConfigs.isCreated(CREATED_BOT_ID));
+        assertFalse(savedBotConfigs.isCreated(UPDATED_BOT_ID));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.domain.change;
+
+import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests ConfigChange and ConfigChanges domain objects behave as expected.
+ *
+ * @author gazbert
+ */
+public class TestConfigChange {
+
+    private static final long SEQUENCE = 42L;
+    private static final String BOT_ID = "gdax-bot-1";
+    private static final String MARKET_ID = "btc_usd";
+
+    @Test
+    public void testInitialisationWorksAsExpected() {
+
+        final MarketConfig marketConfig = new MarketConfig();
+        final ConfigChange configChange = new ConfigChange(SEQUENCE, ConfigChange.ConfigType.MARKET,
+                ConfigChange.Operation.UPDATED, BOT_ID, MARKET_ID, marketConfig);
+
+        assertEquals(SEQUENCE, configChange.getSequence());
+        assertEquals(ConfigChange.ConfigType.MARKET, configChange.getConfigType());
+        assertEquals(ConfigChange.Operation.UPDATED, configChange.getOperation());
+        assertEquals(BOT_ID, configChange.getBotId());
+        assertEquals(MARKET_ID, configChange.getConfigId());
+        assertEquals(marketConfig, configChange.getConfig());
+    }
+
+    @Test
+    public void testChangesAndResyncMarkerInitialisationWorksAsExpected() {
+
+        final ConfigChange configChange = new ConfigChange(SEQUENCE, ConfigChange.ConfigType.BOT,
+                ConfigChange.Operation.DELETED, BOT_ID, BOT_ID, null);
+
+        final ConfigChanges configChanges = new ConfigChanges(Collections.singletonList(configChange), SEQUENCE);
+        assertEquals(Collections.singletonList(configChange), configChanges.getChanges());
+        assertEquals(SEQUENCE, configChanges.getLatestSequence());
+        assertFalse(configChanges.isResyncRequired());
+
+        final ConfigChanges resyncRequired = ConfigChanges.resyncRequired(SEQUENCE);
+        assertTrue(resyncRequired.getChanges().isEmpty());
+        assertEquals(SEQUENCE, resyncRequired.getLatestSequence());
+        assertTrue(resyncRequired.isResyncRequired());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.domain.history;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests ConfigVersion domain object behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestConfigVersion {
+
+    private static final String BOT_ID = "gdax-bot-1";
+    private static final long VERSION = 7L;
+    private static final long TIMESTAMP = 1510000000000L;
+    private static final String MARKET_ID = "btc_usd";
+    private static final String CONTENT_HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @Test
+    public void testInitialisationWorksAsExpected() {
+
+        final ConfigVersion configVersion = new ConfigVersion(BOT_ID, VERSION, TIMESTAMP,
+                ConfigChange.ConfigType.MARKET, ConfigChange.Operation.UPDATED, MARKET_ID, CONTENT_HASH, null);
+
+        assertEquals(BOT_ID, configVersion.getBotId());
+        assertEquals(VERSION, configVersion.getVersion());
+        assertEquals(TIMESTAMP, configVersion.getTimestamp());
+        assertEquals(ConfigChange.ConfigType.MARKET, configVersion.getConfigType());
+        assertEquals(ConfigChange.Operation.UPDATED, configVersion.getOperation());
+        assertEquals(MARKET_ID, configVersion.getConfigId());
+        assertEquals(CONTENT_HASH, configVersion.getContentHash());
+        assertNull(configVersion.getConfig());
+    }
+
+    @Test
+    public void testWithConfigKeepsEverythingElse() {
+
+        final MarketConfig marketConfig = new MarketConfig();
+        final ConfigVersion configVersion = new ConfigVersion(BOT_ID, VERSION, TIMESTAMP,
+                ConfigChange.ConfigType.MARKET, ConfigChange.Operation.UPDATED, MARKET_ID, CONTENT_HASH, null)
+                .withConfig(marketConfig);
+
+        assertEquals(marketConfig, configVersion.getConfig());
+        assertEquals(VERSION, configVersion.getVersion());
+        assertEquals(CONTENT_HASH, configVersion.getContentHash());
+        assertEquals(MarketConfig.class, configVersion.getConfigType().getConfigClass());
+    }
+}
@@ -24,8 +24,13 @@
 package com.gazbert.bxbot.ui.server.repository.local;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
+import com.gazbert.bxbot.ui.server.domain.bot.SavedBotConfigs;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The Bot configuration repository.
@@ -40,8 +45,60 @@ public interface BotConfigRepository {
 
     BotConfig findById(String id);
 
+    List<BotConfig> findByAlias(String alias);
+
+    /**
+     * Returns all the Bots whose base URL is on the given host.
+     *
+     * @param host the host name, optionally with a port, e.g. localhost:8080. If no port is given, bots on the
+     *             default http and https ports are returned.
+     * @return the Bots on the host; an empty list if there are none.
+     */
+    List<BotConfig> findByHost(String host);
+
+    /**
+     * Returns one page of Bots, sorted and filtered as requested. The page is served from an ordered index, starting
+     * at the request's cursor, so fetching a page costs roughly the size of the page rather than the number of Bots.
+     *
+     * @param request the page to fetch.
+     * @return the page, with the cursor for the next page if there is one.
+     * @throws IllegalArgumentException if the request's cursor is not valid for its sort order.
+     */
+    BotPage<BotConfig> findPage(BotPageRequest request);
+
+    /**
+     * Creates or updates a Bot config. A config without an id is created with a new id and version 1; otherwise the
+     * Bot with the same id is updated and its version incremented.
+     *
+     * @param config the Bot config to save. If it is an update that carries a version, it is only applied if the
+     *               stored Bot still has that version.
+     * @return the saved Bot config, with its new version; an empty config if there is no Bot to update.
+     * @throws OptimisticLockingFailureException if the stored Bot's version does not match the update's version.
+     */
     BotConfig save(BotConfig config);
 
+    /**
+     * Creates or updates all the given Bot configs in a single write, e.g. for a bulk import. Configs without an id are
+     * created with a new id; the others replace the Bot with the same id, or are created with that id if there is no
+     * such Bot. A config that carries a version and replaces a stored Bot is only applied if the stored Bot still has
+     * that version, as with {@link #save(BotConfig)}; if any config's version does not match, none of them are saved.
+     * Configs without a version are applied unconditionally.
+     *
+     * @param configs the Bot configs to save. The ids that are given must be distinct.
+     * @return the saved Bot configs, with their ids and new versions, in the same order as they were given, and the
+     *         ids of the ones that were created rather than updated.
+     * @throws OptimisticLockingFailureException naming every Bot whose stored version does not match its config's.
+     */
+    SavedBotConfigs saveAll(List<BotConfig> configs);
+
     BotConfig delete(String id);
+
+    /**
+     * Passes every Bot config to the consumer, in the same order as {@link #findAll()}, without building a list of
+     * them all first, e.g. for a streaming export.
+     *
+     * @param consumer the consumer each Bot config is passed to.
+     */
+    void streamAll(Consumer<BotConfig> consumer);
 }
 
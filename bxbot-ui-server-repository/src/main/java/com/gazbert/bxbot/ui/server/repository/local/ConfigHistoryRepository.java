@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.history.ConfigVersion;
+
+import java.util.List;
+
+/**
+ * The config history repository.
+ * <p>
+ * It is an append-only store of every version of every Bot's config. Config content is stored once per distinct
+ * content, addressed by its hash, and each Bot has an index of its versions in the order they were made.
+ *
+ * @author gazbert
+ */
+public interface ConfigHistoryRepository {
+
+    /**
+     * Stores config content, unless the same content is already stored.
+     *
+     * @param content the content to store.
+     * @return the content's hash, which it can be fetched by.
+     */
+    String saveContent(byte[] content);
+
+    /**
+     * Fetches stored config content.
+     *
+     * @param contentHash the content's hash.
+     * @return the content, or null if there is no content with the hash.
+     */
+    byte[] findContent(String contentHash);
+
+    /**
+     * Appends a new version to a Bot's history. It gets the Bot's next version number.
+     *
+     * @param botId       the id of the Bot.
+     * @param timestamp   when the change was made, in millis since the epoch.
+     * @param configType  the kind of config that was changed.
+     * @param operation   what happened to the config.
+     * @param configId    the id of the config within the Bot, or null for a Bot's single configs.
+     * @param contentHash the hash of the config's stored content, or null if it was deleted.
+     * @return the new version, without its config.
+     */
+    ConfigVersion append(String botId, long timestamp, ConfigChange.ConfigType configType,
+                         ConfigChange.Operation operation, String configId, String contentHash);
+
+    /**
+     * Returns a Bot's history.
+     *
+     * @param botId the id of the Bot.
+     * @return the Bot's versions, oldest first and without their configs; empty if it has no history.
+     */
+    List<ConfigVersion> findByBotId(String botId);
+}
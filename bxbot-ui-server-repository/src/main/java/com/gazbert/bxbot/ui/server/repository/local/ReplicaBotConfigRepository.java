@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+
+import java.util.List;
+
+/**
+ * A read-only copy of a primary BX-bot UI Server's Bot configuration repository.
+ * <p>
+ * It serves all the usual queries locally, but the Bots can only be changed by replicating the primary's changes:
+ * the write methods of {@link BotConfigRepository} throw UnsupportedOperationException.
+ *
+ * @author gazbert
+ */
+public interface ReplicaBotConfigRepository extends BotConfigRepository {
+
+    /**
+     * Replaces all the Bots with the given snapshot of the primary's Bots.
+     *
+     * @param configs all the primary's Bot configs, in the primary's order.
+     */
+    void replaceAll(List<BotConfig> configs);
+
+    /**
+     * Applies a Bot that was created or updated on the primary. The config is stored as it is, including its id and
+     * version.
+     *
+     * @param config the Bot config as the primary saved it.
+     */
+    void applySave(BotConfig config);
+
+    /**
+     * Applies a Bot that was deleted on the primary.
+     *
+     * @param id the id of the deleted Bot.
+     */
+    void applyDelete(String id);
+}
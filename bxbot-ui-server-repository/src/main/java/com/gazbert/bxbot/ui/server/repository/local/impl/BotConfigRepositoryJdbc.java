@@ -0,0 +1,463 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local.impl;
+
+import com.gazbert.bxbot.ui.server.datastore.BotsConfigStreamer;
+import com.gazbert.bxbot.ui.server.datastore.FileLocations;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
+import com.gazbert.bxbot.ui.server.domain.bot.SavedBotConfigs;
+import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * An embedded H2 database implementation of the Bot config repository.
+ * <p>
+ * The Bots are kept in a single table, keyed on id and indexed on alias and on the host:port of the base URL, so
+ * lookups are indexed queries and each write only touches the Bot's own row. Writes that need more than one
+ * statement run in a transaction. Bulk saves are sent as JDBC batches in a single transaction.
+ * <p>
+ * Pages are keyset queries: they start after the cursor's key and are ordered on the primary key, or on an index of
+ * the alias (empty for Bots without one) and id, so the database reads no more than a page of rows.
+ * <p>
+ * Each row carries the Bot's version. An update for a given version only matches the row if it is still at that
+ * version, so concurrent edits are detected without locking rows up front.
+ * <p>
+ * The first time the database is used, the table is created and seeded from the XML config file, if there is one.
+ * From then on the database is the master copy and the XML file is left alone.
+ * <p>
+ * It is selected by setting the botconfig.repository property to jdbc; the database URL can be set using the
+ * botconfig.jdbc.url property and defaults to a file-based database in the config directory.
+ *
+ * @author gazbert
+ */
+@Repository("botConfigRepository")
+@ConditionalOnProperty(name = "botconfig.repository", havingValue = "jdbc")
+public class BotConfigRepositoryJdbc implements BotConfigRepository {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final String DEFAULT_JDBC_URL = "jdbc:h2:./config/bots";
+
+    private static final String[] CREATE_SCHEMA_SQL = {
+            "CREATE SEQUENCE IF NOT EXISTS bot_config_insertion_seq",
+            "CREATE TABLE IF NOT EXISTS bot_config (" +
+                    "id VARCHAR(255) PRIMARY KEY, " +
+                    "insertion_order BIGINT NOT NULL, " +
+                    "alias VARCHAR(255), " +
+                    "base_url VARCHAR(2048), " +
+                    "host_key VARCHAR(300), " +
+                    "username VARCHAR(255), " +
+                    "password VARCHAR(255), " +
+                    "version BIGINT DEFAULT 0 NOT NULL, " +
+                    "alias_key VARCHAR(255) AS COALESCE(alias, ''))",
+            // Databases created before Bots had versions
+            "ALTER TABLE bot_config ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL",
+            // Databases created before Bots could be paged by alias
+            "ALTER TABLE bot_config ADD COLUMN IF NOT EXISTS alias_key VARCHAR(255) AS COALESCE(alias, '')",
+            "CREATE INDEX IF NOT EXISTS bot_config_alias_idx ON bot_config(alias)",
+            "CREATE INDEX IF NOT EXISTS bot_config_alias_key_idx ON bot_config(alias_key, id)",
+            "CREATE INDEX IF NOT EXISTS bot_config_host_key_idx ON bot_config(host_key)",
+            "CREATE TABLE IF NOT EXISTS bot_config_seed (seeded_from VARCHAR(2048), seeded_at TIMESTAMP)"
+    };
+
+    private static final String SEEDED_SQL = "SELECT COUNT(*) FROM bot_config_seed";
+    private static final String MARK_SEEDED_SQL =
+            "INSERT INTO bot_config_seed (seeded_from, seeded_at) VALUES (?, CURRENT_TIMESTAMP())";
+
+    private static final String SELECT_SQL =
+            "SELECT id, alias, base_url, username, password, version FROM bot_config";
+    private static final String SELECT_VERSION_SQL = "SELECT version FROM bot_config WHERE id = ?";
+    private static final String SELECT_VERSIONS_SQL = "SELECT id, version FROM bot_config WHERE id IN ";
+    private static final String ORDER_BY_SQL = " ORDER BY insertion_order";
+    private static final String LIKE_ESCAPE_SQL = " ESCAPE '\\'";
+
+    private static final String INSERT_SQL = "INSERT INTO bot_config " +
+            "(id, insertion_order, alias, base_url, host_key, username, password, version) " +
+            "VALUES (?, NEXT VALUE FOR bot_config_insertion_seq, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL = "UPDATE bot_config " +
+            "SET alias = ?, base_url = ?, host_key = ?, username = ?, password = ?, version = version + 1 WHERE id = ?";
+    private static final String VERSION_MATCHES_SQL = " AND version = ?";
+
+    private static final long FIRST_VERSION = 1L;
+
+    private static final String DELETE_SQL = "DELETE FROM bot_config WHERE id = ?";
+
+    private static final RowMapper<BotConfig> BOT_CONFIG_ROW_MAPPER = (resultSet, rowNum) -> {
+        final BotConfig botConfig = new BotConfig(
+                resultSet.getString("id"),
+                resultSet.getString("alias"),
+                resultSet.getString("base_url"),
+                resultSet.getString("username"),
+                resultSet.getString("password"));
+        botConfig.setVersion(resultSet.getLong("version"));
+        return botConfig;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcConnectionPool ownedConnectionPool;
+
+    @Autowired
+    public BotConfigRepositoryJdbc(@Value("${botconfig.jdbc.url:" + DEFAULT_JDBC_URL + "}") String jdbcUrl) {
+        this(JdbcConnectionPool.create(jdbcUrl, "sa", ""), FileLocations.BOTS_CONFIG_XML_FILENAME, true);
+    }
+
+    public BotConfigRepositoryJdbc(DataSource dataSource, String seedXmlConfigFile) {
+        this(dataSource, seedXmlConfigFile, false);
+    }
+
+    private BotConfigRepositoryJdbc(DataSource dataSource, String seedXmlConfigFile, boolean ownsDataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // Not @Transactional: that would use the app's primary transaction manager, which is not for this database.
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.ownedConnectionPool = ownsDataSource ? (JdbcConnectionPool) dataSource : null;
+        createSchema(seedXmlConfigFile);
+    }
+
+    @Override
+    public List<BotConfig> findAll() {
+
+        LOG.info(() -> "Fetching all Bot configs...");
+        return jdbcTemplate.query(SELECT_SQL + ORDER_BY_SQL, BOT_CONFIG_ROW_MAPPER);
+    }
+
+    @Override
+    public BotConfig findById(String id) {
+
+        LOG.info(() -> "Fetching Bot config for id: " + id);
+        final List<BotConfig> botConfigs =
+                jdbcTemplate.query(SELECT_SQL + " WHERE id = ?", BOT_CONFIG_ROW_MAPPER, id);
+        return botConfigs.isEmpty() ? new BotConfig() : botConfigs.get(0);
+    }
+
+    @Override
+    public List<BotConfig> findByAlias(String alias) {
+
+        LOG.info(() -> "Fetching Bot configs for alias: " + alias);
+        return jdbcTemplate.query(SELECT_SQL + " WHERE alias = ?" + ORDER_BY_SQL, BOT_CONFIG_ROW_MAPPER, alias);
+    }
+
+    @Override
+    public List<BotConfig> findByHost(String host) {
+
+        LOG.info(() -> "Fetching Bot configs for host: " + host);
+        final List<String> hostKeys = BotHosts.hostKeysToFind(host);
+        final String placeholders = String.join(", ", Collections.nCopies(hostKeys.size(), "?"));
+        return jdbcTemplate.query(SELECT_SQL + " WHERE host_key IN (" + placeholders + ")" + ORDER_BY_SQL,
+                BOT_CONFIG_ROW_MAPPER, hostKeys.toArray());
+    }
+
+    @Override
+    public BotPage<BotConfig> findPage(BotPageRequest request) {
+
+        LOG.info(() -> "Fetching page of Bot configs: " + request);
+
+        final String afterKey = BotPageCursors.afterKey(request);
+        final boolean byAlias = request.getSortField() == BotPageRequest.SortField.ALIAS;
+        final String after = request.isDescending() ? " < ?" : " > ?";
+        final String direction = request.isDescending() ? " DESC" : " ASC";
+
+        final List<String> conditions = new ArrayList<>();
+        final List<Object> args = new ArrayList<>();
+        if (request.getHost() != null) {
+            final List<String> hostKeys = BotHosts.hostKeysToFind(request.getHost());
+            conditions.add("host_key IN (" + String.join(", ", Collections.nCopies(hostKeys.size(), "?")) + ")");
+            args.addAll(hostKeys);
+        }
+        if (request.getAliasPrefix() != null) {
+            conditions.add("alias LIKE ?" + LIKE_ESCAPE_SQL);
+            args.add(escapeLike(request.getAliasPrefix()) + "%");
+        }
+        if (afterKey != null && byAlias) {
+            conditions.add("(alias_key" + after + " OR (alias_key = ? AND id" + after + "))");
+            final String afterAlias = BotPageCursors.aliasOf(afterKey);
+            args.addAll(Arrays.asList(afterAlias, afterAlias, BotPageCursors.idOf(afterKey)));
+        } else if (afterKey != null) {
+            conditions.add("id" + after);
+            args.add(afterKey);
+        }
+
+        final String sql = SELECT_SQL
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + (byAlias ? " ORDER BY alias_key" + direction + ", id" + direction : " ORDER BY id" + direction)
+                + " LIMIT ?";
+        args.add(request.getLimit() + 1);
+
+        return BotPageCursors.toPage(request, jdbcTemplate.query(sql, BOT_CONFIG_ROW_MAPPER, args.toArray()));
+    }
+
+    @Override
+    public BotConfig save(BotConfig config) {
+
+        if (config.getId() == null || config.getId().isEmpty()) {
+
+            LOG.info(() -> "About to create Bot config: " + config);
+
+            final BotConfig newBotConfig = new BotConfig(config);
+            newBotConfig.setId(generateUuid());
+            newBotConfig.setVersion(FIRST_VERSION);
+            try {
+                insert(newBotConfig);
+                return new BotConfig(newBotConfig);
+            } catch (DuplicateKeyException e) {
+                throw new IllegalStateException("Trying to create new BotConfig but generated id already exists. " +
+                        "BotConfig: " + newBotConfig, e);
+            }
+
+        } else {
+
+            LOG.info(() -> "About to update Bot Config: " + config);
+
+            return transactionTemplate.execute(status -> update(config));
+        }
+    }
+
+    @Override
+    public BotConfig delete(String id) {
+
+        LOG.info(() -> "Deleting Bot config for id: " + id);
+
+        return transactionTemplate.execute(status -> {
+            final List<BotConfig> botConfigs =
+                    jdbcTemplate.query(SELECT_SQL + " WHERE id = ? FOR UPDATE", BOT_CONFIG_ROW_MAPPER, id);
+            if (!botConfigs.isEmpty()) {
+                jdbcTemplate.update(DELETE_SQL, id);
+                return botConfigs.get(0);
+            } else {
+                LOG.warn("Trying to delete BotConfig but id does not exist. BotConfig id: " + id);
+                return new BotConfig();
+            }
+        });
+    }
+
+    @Override
+    public SavedBotConfigs saveAll(List<BotConfig> configs) {
+
+        LOG.info(() -> "About to save " + configs.size() + " Bot configs");
+
+        final List<BotConfig> savedBotConfigs = new ArrayList<>(configs.size());
+        for (final BotConfig config : configs) {
+            final BotConfig savedBotConfig = new BotConfig(config);
+            if (savedBotConfig.getId() == null || savedBotConfig.getId().isEmpty()) {
+                savedBotConfig.setId(generateUuid());
+            }
+            savedBotConfigs.add(savedBotConfig);
+        }
+        if (savedBotConfigs.isEmpty()) {
+            return new SavedBotConfigs(savedBotConfigs, Collections.emptySet());
+        }
+
+        return transactionTemplate.execute(status -> {
+
+            // Lock the rows being replaced so their versions cannot move under the batch.
+            final Map<String, Long> currentVersions = new HashMap<>();
+            final List<String> ids = ids(savedBotConfigs);
+            final String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+            jdbcTemplate.query(SELECT_VERSIONS_SQL + "(" + placeholders + ") FOR UPDATE",
+                    (RowCallbackHandler) resultSet -> currentVersions.put(resultSet.getString("id"),
+                            resultSet.getLong("version")), ids.toArray());
+
+            final List<String> conflicts = new ArrayList<>();
+            for (final BotConfig botConfig : savedBotConfigs) {
+                final Long currentVersion = currentVersions.get(botConfig.getId());
+                if (currentVersion != null && botConfig.getVersion() != null
+                        && !currentVersion.equals(botConfig.getVersion())) {
+                    conflicts.add("Bot config " + botConfig.getId() + " has changed since version "
+                            + botConfig.getVersion());
+                }
+            }
+            if (!conflicts.isEmpty()) {
+                throw new OptimisticLockingFailureException(String.join("; ", conflicts));
+            }
+
+            final List<Object[]> inserts = new ArrayList<>();
+            final List<Object[]> updates = new ArrayList<>();
+            final Set<String> createdIds = new HashSet<>();
+            for (final BotConfig botConfig : savedBotConfigs) {
+                final Long currentVersion = currentVersions.get(botConfig.getId());
+                if (currentVersion == null) {
+                    botConfig.setVersion(FIRST_VERSION);
+                    inserts.add(insertArgs(botConfig));
+                    createdIds.add(botConfig.getId());
+                } else {
+                    botConfig.setVersion(currentVersion + 1);
+                    updates.add(updateArgs(botConfig));
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            return new SavedBotConfigs(savedBotConfigs, createdIds);
+        });
+    }
+
+    @Override
+    public void streamAll(Consumer<BotConfig> consumer) {
+
+        LOG.info(() -> "Streaming all Bot configs...");
+        jdbcTemplate.query(SELECT_SQL + ORDER_BY_SQL,
+                (RowCallbackHandler) resultSet -> consumer.accept(BOT_CONFIG_ROW_MAPPER.mapRow(resultSet, 0)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ownedConnectionPool != null) {
+            ownedConnectionPool.dispose();
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Schema management
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * Creates the tables if they do not exist yet and, the first time round, seeds them from the XML config file.
+     * H2 commits DDL straight away, so whether the table has been seeded is recorded in the same transaction as the
+     * seed Bots: a failed seed is rolled back and retried on the next startup.
+     */
+    private void createSchema(String seedXmlConfigFile) {
+
+        jdbcTemplate.batchUpdate(CREATE_SCHEMA_SQL);
+
+        transactionTemplate.execute(status -> {
+            if (jdbcTemplate.queryForObject(SEEDED_SQL, Integer.class) > 0) {
+                return null;
+            }
+
+            if (seedXmlConfigFile != null && Files.exists(Paths.get(seedXmlConfigFile))) {
+                final List<BotType> seedBots = new ArrayList<>();
+                BotsConfigStreamer.readBots(seedXmlConfigFile, FileLocations.BOTS_CONFIG_XSD_FILENAME, seedBots::add);
+                for (final BotType seedBot : seedBots) {
+                    final BotConfig seedBotConfig = new BotConfig(seedBot.getId(), seedBot.getAlias(),
+                            seedBot.getBaseUrl(), seedBot.getUsername(), seedBot.getPassword());
+                    seedBotConfig.setVersion(seedBot.getVersion() == null ? 0L : seedBot.getVersion());
+                    insert(seedBotConfig);
+                }
+                LOG.info(() -> "Seeded Bot config table with " + seedBots.size() + " Bots from " + seedXmlConfigFile);
+            }
+            jdbcTemplate.update(MARK_SEEDED_SQL, seedXmlConfigFile);
+            return null;
+        });
+    }
+
+    private void insert(BotConfig botConfig) {
+        jdbcTemplate.update(INSERT_SQL, insertArgs(botConfig));
+    }
+
+    private static Object[] insertArgs(BotConfig botConfig) {
+        return new Object[]{botConfig.getId(), botConfig.getAlias(), botConfig.getBaseUrl(),
+                BotHosts.hostKey(botConfig.getBaseUrl()), botConfig.getUsername(), botConfig.getPassword(),
+                botConfig.getVersion()};
+    }
+
+    /*
+     * Arguments for an unconditional UPDATE_SQL; the row's version is incremented by the statement itself.
+     */
+    private static Object[] updateArgs(BotConfig botConfig) {
+        return new Object[]{botConfig.getAlias(), botConfig.getBaseUrl(), BotHosts.hostKey(botConfig.getBaseUrl()),
+                botConfig.getUsername(), botConfig.getPassword(), botConfig.getId()};
+    }
+
+    /*
+     * Updates a Bot's row and increments its version. An update that carries a version only matches the row if it
+     * still has that version, so a concurrent change is detected by the update itself rather than by locking the row
+     * beforehand. Must be called in a transaction.
+     */
+    private BotConfig update(BotConfig config) {
+
+        final List<Object> args = new ArrayList<>(Arrays.asList(updateArgs(config)));
+        String updateSql = UPDATE_SQL;
+        if (config.getVersion() != null) {
+            updateSql += VERSION_MATCHES_SQL;
+            args.add(config.getVersion());
+        }
+
+        if (jdbcTemplate.update(updateSql, args.toArray()) == 1) {
+            final BotConfig updatedBotConfig = new BotConfig(config);
+            updatedBotConfig.setVersion(config.getVersion() != null
+                    ? config.getVersion() + 1
+                    : jdbcTemplate.queryForObject(SELECT_VERSION_SQL, Long.class, config.getId()));
+            return updatedBotConfig;
+        }
+
+        final List<Long> currentVersions = jdbcTemplate.queryForList(SELECT_VERSION_SQL, Long.class, config.getId());
+        if (currentVersions.isEmpty()) {
+            LOG.warn("Trying to update BotConfig but id does not exist BotConfig: " + config);
+            return new BotConfig();
+        }
+        throw new OptimisticLockingFailureException("Bot config " + config.getId() + " is at version "
+                + currentVersions.get(0) + " but the update was for version " + config.getVersion());
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Util methods
+    // ------------------------------------------------------------------------------------------------
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static List<String> ids(List<BotConfig> botConfigs) {
+        final List<String> ids = new ArrayList<>(botConfigs.size());
+        for (final BotConfig botConfig : botConfigs) {
+            ids.add(botConfig.getId());
+        }
+        return ids;
+    }
+
+    private String generateUuid() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local.impl;
+
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
+import com.gazbert.bxbot.ui.server.domain.bot.SavedBotConfigs;
+import com.gazbert.bxbot.ui.server.repository.local.ReplicaBotConfigRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * An in-memory implementation of the Bot config repository for a read replica of a primary BX-bot UI Server.
+ * <p>
+ * The Bots are held in a {@link BotRegistry}, the same immutable, indexed snapshot the XML datastore uses, so reads
+ * never lock and pages are served from its sorted indexes. The replica sync service fills it from a snapshot of the
+ * primary's Bots and then applies the primary's changes as they are made; nothing is written to disk. Applying
+ * changes is serialized, so none are lost, and swaps in a new snapshot.
+ * <p>
+ * It is selected by setting the botconfig.repository property to replica.
+ *
+ * @author gazbert
+ */
+@Repository("botConfigRepository")
+@ConditionalOnProperty(name = "botconfig.repository", havingValue = "replica")
+public class BotConfigRepositoryReplica implements ReplicaBotConfigRepository {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final String READ_ONLY_MSG = "Bot config cannot be changed on a read replica - " +
+            "changes must be made on the primary";
+
+    private volatile BotRegistry registry = BotRegistry.EMPTY;
+
+    @Override
+    public List<BotConfig> findAll() {
+
+        LOG.info(() -> "Fetching all Bot configs...");
+        return adaptInternalToExternalConfigs(registry.findAll());
+    }
+
+    @Override
+    public BotConfig findById(String id) {
+
+        LOG.info(() -> "Fetching Bot config for id: " + id);
+        return BotConfigRepositoryXmlDatastore.adaptInternalToExternalConfig(registry.findById(id));
+    }
+
+    @Override
+    public List<BotConfig> findByAlias(String alias) {
+
+        LOG.info(() -> "Fetching Bot configs for alias: " + alias);
+        return adaptInternalToExternalConfigs(registry.findByAlias(alias));
+    }
+
+    @Override
+    public List<BotConfig> findByHost(String host) {
+
+        LOG.info(() -> "Fetching Bot configs for host: " + host);
+        return adaptInternalToExternalConfigs(registry.findByHost(host));
+    }
+
+    @Override
+    public BotPage<BotConfig> findPage(BotPageRequest request) {
+
+        LOG.info(() -> "Fetching page of Bot configs: " + request);
+        final List<BotType> botsAfterCursor =
+                registry.findPage(request, BotPageCursors.afterKey(request), request.getLimit() + 1);
+        return BotPageCursors.toPage(request, adaptInternalToExternalConfigs(botsAfterCursor));
+    }
+
+    @Override
+    public BotConfig save(BotConfig config) {
+        throw new UnsupportedOperationException(READ_ONLY_MSG);
+    }
+
+    @Override
+    public SavedBotConfigs saveAll(List<BotConfig> configs) {
+        throw new UnsupportedOperationException(READ_ONLY_MSG);
+    }
+
+    @Override
+    public BotConfig delete(String id) {
+        throw new UnsupportedOperationException(READ_ONLY_MSG);
+    }
+
+    @Override
+    public void streamAll(Consumer<BotConfig> consumer) {
+        registry.findAll().forEach(
+                bot -> consumer.accept(BotConfigRepositoryXmlDatastore.adaptInternalToExternalConfig(bot)));
+    }
+
+    @Override
+    public synchronized void replaceAll(List<BotConfig> configs) {
+
+        LOG.info(() -> "Replacing all Bot configs with snapshot of " + configs.size() + " Bots from the primary");
+        final BotRegistry.Builder builder = BotRegistry.builder();
+        configs.forEach(config -> builder.add(BotConfigRepositoryXmlDatastore.adaptExternalToInternalConfig(config)));
+        registry = builder.build();
+    }
+
+    @Override
+    public synchronized void applySave(BotConfig config) {
+
+        LOG.info(() -> "Applying Bot config saved on the primary: " + config);
+        registry = registry.withBot(BotConfigRepositoryXmlDatastore.adaptExternalToInternalConfig(config));
+    }
+
+    @Override
+    public synchronized void applyDelete(String id) {
+
+        LOG.info(() -> "Applying Bot config deleted on the primary for id: " + id);
+        registry = registry.withoutBot(id);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static List<BotConfig> adaptInternalToExternalConfigs(List<BotType> internalBotConfigs) {
+        return internalBotConfigs.stream()
+                .map(BotConfigRepositoryXmlDatastore::adaptInternalToExternalConfig)
+                .collect(Collectors.toList());
+    }
+}
@@ -23,123 +23,206 @@
 
 package com.gazbert.bxbot.ui.server.repository.local.impl;
 
-import com.gazbert.bxbot.ui.server.datastore.ConfigurationManager;
+import com.gazbert.bxbot.ui.server.datastore.BotsJournal;
+import com.gazbert.bxbot.ui.server.datastore.BotsSnapshot;
 import com.gazbert.bxbot.ui.server.datastore.FileLocations;
 import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
-import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotsType;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
+import com.gazbert.bxbot.ui.server.domain.bot.SavedBotConfigs;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * An XML datastore implementation of the Bot config repository.
+ * <p>
+ * The Bots are held in one or more {@link BotRegistryShard}s. Each shard is an XML file with its own journal, binary
+ * snapshot, and lock, and an immutable in-memory snapshot that serves all its reads without locking. Writes only
+ * lock the shard they go to, so writes to different shards proceed in parallel, and concurrent writes to the same
+ * shard share a journal fsync. See {@link BotRegistryShard} for the details.
+ * <p>
+ * Updates are checked against the Bot's version inside the shard's write, so an update based on a stale copy of a Bot
+ * is rejected rather than overwriting a concurrent change.
+ * <p>
+ * By default there is a single shard: the config/bots.xml file. Setting the botconfig.xml.shards property to N
+ * spreads the Bots over N files, config/bots-0-of-N.xml and so on, by hashing their ids. The first time the
+ * repository is started with a sharded layout, the Bots in config/bots.xml are moved into the shards and the file
+ * is renamed to config/bots.xml.pre-sharding. Changing the number of shards after that is not supported.
+ * <p>
+ * All the shards are loaded, in parallel, on first access. Queries that are not by id are run against every shard
+ * and the results merged, in shard order. Pages are fetched from every shard's sorted indexes and merged, so a page
+ * costs the page size times the number of shards.
+ * <p>
+ * A background compactor periodically folds the journals back into the XML files, and also runs once a journal has
+ * grown past a threshold and when the repository is shut down.
+ * <p>
+ * The XML files are watched for edits made by hand, which are reloaded in the background. Only the Bots an edit
+ * actually adds, changes, or removes are written, and they get new versions; every other Bot is left as it is. Hot
+ * reloading can be turned off with the botconfig.xml.hot-reload property.
+ * <p>
+ * This is the default Bot config repository; it is used unless the botconfig.repository property selects another.
  *
  * @author gazbert
  */
 @Repository("botConfigRepository")
+@ConditionalOnProperty(name = "botconfig.repository", havingValue = "xml", matchIfMissing = true)
 @Transactional
 public class BotConfigRepositoryXmlDatastore implements BotConfigRepository {
 
     private static final Logger LOG = LogManager.getLogger();
 
+    private static final long COMPACTION_INTERVAL_SECONDS = 60;
+    private static final String PRE_SHARDING_EXTENSION = ".pre-sharding";
+
+    private final String xmlConfigFile;
+    private final BotRegistryShard[] shards;
+    private final boolean hotReload;
+
+    private volatile boolean loaded;
+    private ScheduledExecutorService compactor;
+    private BotsConfigWatcher watcher;
+
+    @Autowired
+    public BotConfigRepositoryXmlDatastore(@Value("${botconfig.xml.shards:1}") int shardCount,
+                                           @Value("${botconfig.xml.hot-reload:true}") boolean hotReload) {
+        this(FileLocations.BOTS_CONFIG_XML_FILENAME, shardCount, hotReload);
+    }
+
+    public BotConfigRepositoryXmlDatastore(String xmlConfigFile, int shardCount) {
+        this(xmlConfigFile, shardCount, true);
+    }
+
+    public BotConfigRepositoryXmlDatastore(String xmlConfigFile, int shardCount, boolean hotReload) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Number of Bots shards must be at least 1 but was: " + shardCount);
+        }
+        this.xmlConfigFile = xmlConfigFile;
+        this.hotReload = hotReload;
+        this.shards = new BotRegistryShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = BotRegistryShard.forXmlConfigFile(
+                    BotRegistryShard.shardXmlConfigFile(xmlConfigFile, i, shardCount));
+        }
+    }
+
+    public BotConfigRepositoryXmlDatastore(BotsJournal journal, BotsSnapshot botsSnapshot) {
+        this(journal, botsSnapshot, FileLocations.BOTS_CONFIG_XML_FILENAME);
+    }
+
+    public BotConfigRepositoryXmlDatastore(BotsJournal journal, BotsSnapshot botsSnapshot, String xmlConfigFile) {
+        this.xmlConfigFile = xmlConfigFile;
+        this.hotReload = false;
+        this.shards = new BotRegistryShard[]{new BotRegistryShard(journal, botsSnapshot, xmlConfigFile)};
+    }
+
     @Override
     public List<BotConfig> findAll() {
 
         LOG.info(() -> "Fetching all Bot configs...");
-
-        final BotsType internalBotsConfig = ConfigurationManager.loadConfig(BotsType.class,
-                FileLocations.BOTS_CONFIG_XML_FILENAME, FileLocations.BOTS_CONFIG_XSD_FILENAME);
-        return adaptAllInternalToAllExternalConfig(internalBotsConfig);
+        return findInAllShards(BotRegistry::findAll);
     }
 
     @Override
     public BotConfig findById(String id) {
 
         LOG.info(() -> "Fetching Bot config for id: " + id);
+        return adaptInternalToExternalConfig(id == null ? null : shardFor(id).getRegistry().findById(id));
+    }
 
-        final BotsType internalBotsConfig = ConfigurationManager.loadConfig(BotsType.class,
-                FileLocations.BOTS_CONFIG_XML_FILENAME, FileLocations.BOTS_CONFIG_XSD_FILENAME);
+    @Override
+    public List<BotConfig> findByAlias(String alias) {
 
-        return adaptInternalToExternalConfig(
-                internalBotsConfig.getBots()
-                        .stream()
-                        .filter((item) -> item.getId().equals(id))
-                        .distinct()
-                        .collect(Collectors.toList()));
+        LOG.info(() -> "Fetching Bot configs for alias: " + alias);
+        return findInAllShards(registry -> registry.findByAlias(alias));
     }
 
     @Override
-    public BotConfig save(BotConfig config) {
+    public List<BotConfig> findByHost(String host) {
 
-        final BotsType internalBotsConfig = ConfigurationManager.loadConfig(BotsType.class,
-                FileLocations.BOTS_CONFIG_XML_FILENAME, FileLocations.BOTS_CONFIG_XSD_FILENAME);
+        LOG.info(() -> "Fetching Bot configs for host: " + host);
+        return findInAllShards(registry -> registry.findByHost(host));
+    }
 
-        final List<BotType> botTypes = internalBotsConfig.getBots()
-                .stream()
-                .filter((item) -> item.getId().equals(config.getId()))
-                .distinct()
+    @Override
+    public BotPage<BotConfig> findPage(BotPageRequest request) {
+
+        LOG.info(() -> "Fetching page of Bot configs: " + request);
+
+        final String afterKey = BotPageCursors.afterKey(request);
+        final int fetchLimit = request.getLimit() + 1;
+        final Comparator<BotConfig> pageOrder = Comparator.comparing(
+                botConfig -> BotPageCursors.sortKey(request.getSortField(), botConfig.getId(), botConfig.getAlias()),
+                BotPageCursors.keyOrder(request));
+
+        // Each shard's page is in order, but the shards' pages interleave.
+        final List<BotConfig> botsAfterCursor = Arrays.stream(loadedShards())
+                .parallel()
+                .flatMap(shard -> shard.getRegistry().findPage(request, afterKey, fetchLimit).stream())
+                .map(BotConfigRepositoryXmlDatastore::adaptInternalToExternalConfig)
+                .sorted(pageOrder)
+                .limit(fetchLimit)
                 .collect(Collectors.toList());
+        return BotPageCursors.toPage(request, botsAfterCursor);
+    }
+
+    @Override
+    public BotConfig save(BotConfig config) {
 
         if (config.getId() == null || config.getId().isEmpty()) {
 
             LOG.info(() -> "About to create Bot config: " + config);
 
-            if (botTypes.isEmpty()) {
-
-                final BotConfig newBotConfig = new BotConfig(config);
-                newBotConfig.setId(generateUuid());
-
-                internalBotsConfig.getBots().add(adaptExternalToInternalConfig(newBotConfig));
-                ConfigurationManager.saveConfig(BotsType.class, internalBotsConfig,
-                        FileLocations.BOTS_CONFIG_XML_FILENAME);
+            final BotConfig newBotConfig = new BotConfig(config);
+            newBotConfig.setId(generateUuid());
 
-                final BotsType updatedInternalBotsConfig = ConfigurationManager.loadConfig(
-                        BotsType.class, FileLocations.BOTS_CONFIG_XML_FILENAME, FileLocations.BOTS_CONFIG_XSD_FILENAME);
-
-                return adaptInternalToExternalConfig(
-                        updatedInternalBotsConfig.getBots()
-                        .stream()
-                        .filter((item) -> item.getId().equals(newBotConfig.getId()))
-                        .distinct()
-                        .collect(Collectors.toList()));
+            final BotType newBotType = adaptExternalToInternalConfig(newBotConfig);
+            if (shardFor(newBotType.getId()).create(newBotType)) {
+                return adaptInternalToExternalConfig(newBotType);
             } else {
-                throw new IllegalStateException("Trying to create new BotConfig but null/empty id already exists. " +
-                        "BotConfig: " + config + " Existing BotConfigs: "
-                        + adaptAllInternalToAllExternalConfig(internalBotsConfig));
+                throw new IllegalStateException("Trying to create new BotConfig but generated id already exists. " +
+                        "BotConfig: " + newBotConfig + " Existing BotConfigs: "
+                        + findInAllShards(BotRegistry::findAll));
             }
 
         } else {
 
             LOG.info(() -> "About to update Bot Config: " + config);
 
-            if (!botTypes.isEmpty()) {
-
-                internalBotsConfig.getBots().remove(botTypes.get(0)); // will only be 1 unique bot
-                internalBotsConfig.getBots().add(adaptExternalToInternalConfig(config));
-                ConfigurationManager.saveConfig(BotsType.class, internalBotsConfig,
-                        FileLocations.BOTS_CONFIG_XML_FILENAME);
-
-                final BotsType updatedInternalBotsConfig = ConfigurationManager.loadConfig(
-                        BotsType.class, FileLocations.BOTS_CONFIG_XML_FILENAME, FileLocations.BOTS_CONFIG_XSD_FILENAME);
-
-                return adaptInternalToExternalConfig(
-                        updatedInternalBotsConfig.getBots()
-                                .stream()
-                                .filter((item) -> item.getId().equals(config.getId()))
-                                .distinct()
-                                .collect(Collectors.toList()));
+            final BotType updatedBotType = adaptExternalToInternalConfig(config);
+            if (shardFor(updatedBotType.getId()).update(updatedBotType)) {
+                return adaptInternalToExternalConfig(updatedBotType);
             } else {
                 LOG.warn("Trying to update BotConfig but id does not exist BotConfig: " + config +
-                        " Existing BotConfigs: " + adaptAllInternalToAllExternalConfig(internalBotsConfig));
+                        " Existing BotConfigs: " + findInAllShards(BotRegistry::findAll));
                 return new BotConfig();
             }
         }
@@ -150,69 +233,271 @@ public class BotConfigRepositoryXmlDatastore implements BotConfigRepository {
 
         LOG.info(() -> "Deleting Bot config for id: " + id);
 
-        final BotsType internalBotsConfig = ConfigurationManager.loadConfig(BotsType.class,
-                FileLocations.BOTS_CONFIG_XML_FILENAME, FileLocations.BOTS_CONFIG_XSD_FILENAME);
+        final BotType deletedBotType = id == null ? null : shardFor(id).delete(id);
+        if (deletedBotType != null) {
+            return adaptInternalToExternalConfig(deletedBotType);
+        } else {
+            LOG.warn("Trying to delete BotConfig but id does not exist. BotConfig id: " + id +
+                    " Existing BotConfigs: " + findInAllShards(BotRegistry::findAll));
+            return new BotConfig();
+        }
+    }
 
-        final List<BotType> botTypes = internalBotsConfig.getBots()
-                .stream()
-                .filter((item) -> item.getId().equals(id))
-                .distinct()
-                .collect(Collectors.toList());
+    @Override
+    public SavedBotConfigs saveAll(List<BotConfig> configs) {
 
-        if (!botTypes.isEmpty()) {
+        LOG.info(() -> "About to save " + configs.size() + " Bot configs");
 
-            final BotType botToRemove = botTypes.get(0); // will only be 1 unique strat
-            internalBotsConfig.getBots().remove(botToRemove);
-            ConfigurationManager.saveConfig(BotsType.class, internalBotsConfig,
-                    FileLocations.BOTS_CONFIG_XML_FILENAME);
+        final List<BotType> botTypes = new ArrayList<>(configs.size());
+        final List<List<BotType>> botsByShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            botsByShard.add(new ArrayList<>());
+        }
+        for (final BotConfig config : configs) {
+            final BotType botType = adaptExternalToInternalConfig(config);
+            if (botType.getId() == null || botType.getId().isEmpty()) {
+                botType.setId(generateUuid());
+            }
+            botTypes.add(botType);
+            botsByShard.get(shardIndex(botType.getId(), shards.length)).add(botType);
+        }
 
-            return adaptInternalToExternalConfig(Collections.singletonList(botToRemove));
-        } else {
-            LOG.warn("Trying to delete BotConfig but id does not exist. BotConfig id: " + id + " Existing BotConfigs: "
-                    + adaptAllInternalToAllExternalConfig(internalBotsConfig));
-            return new BotConfig();
+        // Each shard takes its share of the Bots in one journal write, and the shards are synced in parallel.
+        final BotRegistryShard[] loadedShards = loadedShards();
+        final long[] journalSequences = new long[loadedShards.length];
+        final Set<String> createdIds = new HashSet<>();
+        appendToShards(loadedShards, botsByShard, 0, journalSequences, createdIds);
+        IntStream.range(0, loadedShards.length)
+                .parallel()
+                .forEach(i -> loadedShards[i].awaitDurable(journalSequences[i]));
+
+        return new SavedBotConfigs(botTypes.stream()
+                .map(BotConfigRepositoryXmlDatastore::adaptInternalToExternalConfig)
+                .collect(Collectors.toList()), createdIds);
+    }
+
+    @Override
+    public void streamAll(Consumer<BotConfig> consumer) {
+
+        LOG.info(() -> "Streaming all Bot configs...");
+        for (final BotRegistryShard shard : loadedShards()) {
+            for (final BotType botType : shard.getRegistry().findAll()) {
+                consumer.accept(adaptInternalToExternalConfig(botType));
+            }
+        }
+    }
+
+    /**
+     * Folds the journals into the XML files: writes each shard's current snapshot to its XML file and then drops the
+     * journal records it includes. Writers are only blocked while a snapshot is captured, not while it is written.
+     */
+    public void compact() {
+        for (final BotRegistryShard shard : shards) {
+            shard.compact();
+        }
+    }
+
+    /**
+     * Picks up any edits made to the XML files by something other than the repository, e.g. by hand, without waiting
+     * for the watcher to notice them. Only the Bots an edit actually adds, changes, or removes are written.
+     *
+     * @throws IllegalArgumentException if an edited file is not valid; the Bots are left as they were.
+     */
+    public void reload() {
+        for (final BotRegistryShard shard : loadedShards()) {
+            shard.reload();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            if (watcher != null) {
+                watcher.close();
+                watcher = null;
+            }
+            if (compactor != null) {
+                compactor.shutdownNow();
+                compactor = null;
+            }
+        }
+        for (final BotRegistryShard shard : shards) {
+            shard.close();
         }
     }
 
     // ------------------------------------------------------------------------------------------------
-    // Adapter methods
+    // Shard management
     // ------------------------------------------------------------------------------------------------
 
-    private static List<BotConfig> adaptAllInternalToAllExternalConfig(BotsType internalBotsConfig) {
+    /*
+     * Returns the shard a Bot belongs in, loading all the shards on first access. String hash codes are the same on
+     * every JVM, so a Bot always maps to the same shard for a given number of shards.
+     */
+    private BotRegistryShard shardFor(String id) {
+        return loadedShards()[shardIndex(id, shards.length)];
+    }
 
-        final List<BotConfig> botConfigItems = new ArrayList<>();
+    private static int shardIndex(String id, int shardCount) {
+        return Math.floorMod(id.hashCode(), shardCount);
+    }
 
-        final List<BotType> internalBotConfig = internalBotsConfig.getBots();
-        internalBotConfig.forEach((item) -> {
-            final BotConfig botConfig = new BotConfig();
-            botConfig.setId(item.getId());
-            botConfig.setAlias(item.getAlias());
-            botConfig.setBaseUrl(item.getBaseUrl());
-            botConfig.setUsername(item.getUsername());
-            botConfig.setPassword(item.getPassword());
-            botConfigItems.add(botConfig);
-        });
-        return botConfigItems;
+    private List<BotConfig> findInAllShards(Function<BotRegistry, List<BotType>> query) {
+        return Arrays.stream(loadedShards())
+                .parallel()
+                .flatMap(shard -> query.apply(shard.getRegistry()).stream())
+                .map(BotConfigRepositoryXmlDatastore::adaptInternalToExternalConfig)
+                .collect(Collectors.toList());
     }
 
-    private static BotConfig adaptInternalToExternalConfig(List<BotType> internalBotsConfigItems) {
+    /*
+     * Takes the monitors of the shards from the given index on, in index order, and appends each shard's share of the
+     * Bots to its journal. The versions of the Bots in every shard are checked before any shard is written, so a batch
+     * with a stale version is rejected as a whole. Shard writers only ever hold one shard's monitor, so taking them in
+     * order cannot deadlock. The ids of the Bots that are created rather than replaced are added to createdIds.
+     */
+    private static void appendToShards(BotRegistryShard[] shards, List<List<BotType>> botsByShard, int shard,
+                                       long[] journalSequences, Set<String> createdIds) {
+        if (shard < shards.length) {
+            synchronized (shards[shard]) {
+                appendToShards(shards, botsByShard, shard + 1, journalSequences, createdIds);
+            }
+            return;
+        }
 
-        final BotConfig botConfig = new BotConfig();
+        final List<String> conflicts = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            for (final BotType conflictingBot : shards[i].findVersionConflicts(botsByShard.get(i))) {
+                conflicts.add("Bot config " + conflictingBot.getId() + " has changed since version "
+                        + conflictingBot.getVersion());
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new OptimisticLockingFailureException(String.join("; ", conflicts));
+        }
+        for (int i = 0; i < shards.length; i++) {
+            createdIds.addAll(shards[i].findNewBotIds(botsByShard.get(i)));
+            journalSequences[i] = shards[i].appendAll(botsByShard.get(i));
+        }
+    }
+
+    private BotRegistryShard[] loadedShards() {
+        if (!loaded) {
+            loadShards();
+        }
+        return shards;
+    }
+
+    private synchronized void loadShards() {
+        if (!loaded) {
+            if (shards.length > 1) {
+                migrateToShards();
+            }
+            Arrays.stream(shards).parallel().forEach(BotRegistryShard::getRegistry);
+            startCompactor();
+            if (hotReload) {
+                startWatcher();
+            }
+            loaded = true;
+        }
+    }
+
+    /*
+     * Moves the Bots in the single XML config file - and its journal - into the shards, the first time the repository
+     * is started with a sharded layout. The single file is only renamed out of the way once all the shard files have
+     * been written, so an interrupted migration is simply run again on the next startup.
+     */
+    private void migrateToShards() {
+
+        final Path singleXmlConfigFile = Paths.get(xmlConfigFile);
+        if (!Files.exists(singleXmlConfigFile)) {
+            if (!Files.exists(Paths.get(shards[0].getXmlConfigFile()))) {
+                throw new IllegalStateException("Failed to find Bots config: neither [" +
+                        shards[0].getXmlConfigFile() + "] nor [" + xmlConfigFile + "] exists. The number of " +
+                        "Bots shards cannot be changed once the Bots have been sharded.");
+            }
+            return;
+        }
+
+        LOG.info(() -> "Migrating Bots config " + xmlConfigFile + " into " + shards.length + " shards");
+
+        final BotRegistryShard singleShard = BotRegistryShard.forXmlConfigFile(xmlConfigFile);
+        final List<List<BotType>> botsByShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            botsByShard.add(new ArrayList<>());
+        }
+        for (final BotType bot : singleShard.getRegistry().findAll()) {
+            botsByShard.get(shardIndex(bot.getId(), shards.length)).add(bot);
+        }
+        for (int i = 0; i < shards.length; i++) {
+            shards[i].initialise(botsByShard.get(i));
+        }
+
+        // The shards now hold everything in the journal, so it is closed without compacting it into the old file.
+        singleShard.closeWithoutCompaction();
+        try {
+            Files.move(singleXmlConfigFile, Paths.get(xmlConfigFile + PRE_SHARDING_EXTENSION),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(Paths.get(BotRegistryShard.journalFileFor(xmlConfigFile)));
+            Files.deleteIfExists(Paths.get(BotRegistryShard.snapshotFileFor(xmlConfigFile)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to move migrated Bots config [" + xmlConfigFile + "] aside", e);
+        }
+
+        LOG.info(() -> "Migrated Bots config " + xmlConfigFile + " into " + shards.length + " shards");
+    }
+
+    private synchronized void startCompactor() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "bots-journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (final BotRegistryShard shard : shards) {
+                shard.startCompaction(compactor);
+            }
+            compactor.scheduleWithFixedDelay(this::compactQuietly,
+                    COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
 
-        if (!internalBotsConfigItems.isEmpty()) {
+    private synchronized void startWatcher() {
+        if (watcher == null) {
+            for (final BotRegistryShard shard : shards) {
+                shard.startReloading();
+            }
+            watcher = new BotsConfigWatcher(shards);
+        }
+    }
+
+    private void compactQuietly() {
+        for (final BotRegistryShard shard : shards) {
+            shard.compactQuietly();
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Adapter methods
+    // ------------------------------------------------------------------------------------------------
+
+    static BotConfig adaptInternalToExternalConfig(BotType internalBotConfig) {
+
+        final BotConfig botConfig = new BotConfig();
 
-            // Should only ever be 1 unique Bot id
-            final BotType internalBotConfig = internalBotsConfigItems.get(0);
+        if (internalBotConfig != null) {
             botConfig.setId(internalBotConfig.getId());
             botConfig.setAlias(internalBotConfig.getAlias());
             botConfig.setBaseUrl(internalBotConfig.getBaseUrl());
             botConfig.setUsername(internalBotConfig.getUsername());
             botConfig.setPassword(internalBotConfig.getPassword());
+            // Bots created before they had versions are at version 0
+            botConfig.setVersion(internalBotConfig.getVersion() == null ? 0L : internalBotConfig.getVersion());
         }
         return botConfig;
     }
 
-    private static BotType adaptExternalToInternalConfig(BotConfig externalBotConfig) {
+    static BotType adaptExternalToInternalConfig(BotConfig externalBotConfig) {
 
         final BotType botType = new BotType();
         botType.setId(externalBotConfig.getId());
@@ -220,6 +505,7 @@ public class BotConfigRepositoryXmlDatastore implements BotConfigRepository {
         botType.setBaseUrl(externalBotConfig.getBaseUrl());
         botType.setUsername(externalBotConfig.getUsername());
         botType.setPassword(externalBotConfig.getPassword());
+        botType.setVersion(externalBotConfig.getVersion());
         return botType;
     }
 
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local.impl;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Works out the host:port keys the Bot config repositories use to look up Bots by the host of their base URL.
+ *
+ * @author gazbert
+ */
+final class BotHosts {
+
+    private static final int DEFAULT_HTTP_PORT = 80;
+    private static final int DEFAULT_HTTPS_PORT = 443;
+
+    private BotHosts() {
+    }
+
+    /*
+     * Returns the lower case host:port for a base URL, filling in the scheme's default port if none is given.
+     * Returns null if the URL cannot be parsed.
+     */
+    static String hostKey(String baseUrl) {
+
+        if (baseUrl == null) {
+            return null;
+        }
+        try {
+            final URI uri = new URI(baseUrl);
+            if (uri.getHost() == null) {
+                return null;
+            }
+            int port = uri.getPort();
+            if (port == -1) {
+                port = "https".equalsIgnoreCase(uri.getScheme()) ? DEFAULT_HTTPS_PORT : DEFAULT_HTTP_PORT;
+            }
+            return uri.getHost().toLowerCase(Locale.ROOT) + ':' + port;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Returns the keys to look up for a host that can optionally include a port. If it does not, the default ports
+     * for http and https are both looked up, e.g. host.one matches https://host.one/api.
+     */
+    static List<String> hostKeysToFind(String host) {
+        final String lowerCaseHost = host.toLowerCase(Locale.ROOT);
+        if (lowerCaseHost.indexOf(':') != -1) {
+            return Collections.singletonList(lowerCaseHost);
+        }
+        return Arrays.asList(lowerCaseHost + ':' + DEFAULT_HTTP_PORT, lowerCaseHost + ':' + DEFAULT_HTTPS_PORT);
+    }
+}
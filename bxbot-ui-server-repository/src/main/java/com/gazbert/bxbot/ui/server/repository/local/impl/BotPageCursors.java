@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local.impl;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The sort keys that pages of Bots are ordered by, and the cursors that mark where a page ended.
+ * <p>
+ * A Bot's sort key is its id, or its alias followed by its id when sorting by alias, so every Bot has a distinct key
+ * and a page can always pick up exactly where the last one ended. A cursor is the sort order and the sort key of the
+ * last Bot on the page, Base64 encoded so it is safe to pass around in a URL. The key is compared to the keys of the
+ * Bots now in the repository, so a cursor stays valid while Bots are added or removed, even the Bot it came from.
+ *
+ * @author gazbert
+ */
+final class BotPageCursors {
+
+    /* Sorts before any other character, so a shorter alias sorts before a longer one that starts with it. */
+    private static final char ALIAS_KEY_SEPARATOR = '\u0000';
+    private static final char CURSOR_SEPARATOR = '\n';
+
+    private BotPageCursors() {
+    }
+
+    static String sortKey(BotPageRequest.SortField sortField, String id, String alias) {
+        return sortField == BotPageRequest.SortField.ID
+                ? id
+                : (alias == null ? "" : alias) + ALIAS_KEY_SEPARATOR + id;
+    }
+
+    static Comparator<String> keyOrder(BotPageRequest request) {
+        return request.isDescending() ? Comparator.<String>reverseOrder() : Comparator.<String>naturalOrder();
+    }
+
+    static boolean matchesAliasPrefix(String alias, String aliasPrefix) {
+        return aliasPrefix == null || (alias != null && alias.startsWith(aliasPrefix));
+    }
+
+    /*
+     * Returns the sort key of the last Bot on the previous page, or null if the request is for the first page.
+     * Throws an IllegalArgumentException if the cursor is not one of ours or was made for a different sort order.
+     */
+    static String afterKey(BotPageRequest request) {
+
+        if (request.getCursor() == null) {
+            return null;
+        }
+
+        final String cursor;
+        try {
+            cursor = new String(Base64.getUrlDecoder().decode(request.getCursor()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + request.getCursor(), e);
+        }
+        final int separator = cursor.indexOf(CURSOR_SEPARATOR);
+        if (separator < 0 || !cursor.substring(0, separator).equals(sortOrderOf(request))) {
+            throw new IllegalArgumentException("Page cursor is not for sort order " + sortOrderOf(request) + ": "
+                    + request.getCursor());
+        }
+        return cursor.substring(separator + 1);
+    }
+
+    static String idOf(String aliasSortKey) {
+        return aliasSortKey.substring(aliasSortKey.lastIndexOf(ALIAS_KEY_SEPARATOR) + 1);
+    }
+
+    static String aliasOf(String aliasSortKey) {
+        final int separator = aliasSortKey.lastIndexOf(ALIAS_KEY_SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid alias sort key in page cursor");
+        }
+        return aliasSortKey.substring(0, separator);
+    }
+
+    /*
+     * Builds a page from the Bots that follow the cursor, in order. Repositories fetch one more Bot than the page
+     * limit: if it is there, there is a next page, and its cursor is the key of the last Bot on this page.
+     */
+    static BotPage<BotConfig> toPage(BotPageRequest request, List<BotConfig> botsAfterCursor) {
+
+        if (botsAfterCursor.size() <= request.getLimit()) {
+            return new BotPage<>(botsAfterCursor, null);
+        }
+        final List<BotConfig> pageBots = botsAfterCursor.subList(0, request.getLimit());
+        final BotConfig lastBot = pageBots.get(pageBots.size() - 1);
+        final String lastKey = sortKey(request.getSortField(), lastBot.getId(), lastBot.getAlias());
+        final String nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (sortOrderOf(request) + CURSOR_SEPARATOR + lastKey).getBytes(StandardCharsets.UTF_8));
+        return new BotPage<>(pageBots, nextCursor);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static String sortOrderOf(BotPageRequest request) {
+        return request.getSortField().name() + (request.isDescending() ? '-' : '+');
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local.impl;
+
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest.SortField;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable, indexed snapshot of all the Bots in the registry.
+ * <p>
+ * The BotType entries are private copies that are never mutated once the snapshot has been built; mutations
+ * produce a new snapshot. Bots are indexed by id (the primary index), by their position in the registry order, by
+ * alias, and by the host:port of their base URL.
+ * <p>
+ * The indexes are {@link PersistentTreeMap}s, so a new snapshot shares all but O(log n) of its indexes with the one it
+ * was made from: adding, replacing or removing a Bot costs O(log n) however many Bots there are, and writers holding
+ * an older snapshot never see it change. The list of all the Bots is only built when it is first asked for.
+ * <p>
+ * Pages of Bots are served from two sorted indexes, by id and by alias then id. A page is a range scan that starts at
+ * the page's cursor, so it costs the size of the page rather than the size of the registry.
+ *
+ * @author gazbert
+ */
+final class BotRegistry {
+
+    static final BotRegistry EMPTY = new BotRegistry(PersistentTreeMap.empty(), PersistentTreeMap.empty(),
+            PersistentTreeMap.empty(), PersistentTreeMap.empty(), PersistentTreeMap.empty(), 0L);
+
+    private final PersistentTreeMap<String, PositionedBot> botsById; // also the sorted index by id
+    private final PersistentTreeMap<Long, BotType> botsByPosition;
+    private final PersistentTreeMap<String, BotType> botsSortedByAlias;
+    private final PersistentTreeMap<IndexKey, BotType> botsByAlias;
+    private final PersistentTreeMap<IndexKey, BotType> botsByHost;
+    private final long nextPosition;
+    private volatile List<BotType> allBots;
+
+    private BotRegistry(PersistentTreeMap<String, PositionedBot> botsById,
+                        PersistentTreeMap<Long, BotType> botsByPosition,
+                        PersistentTreeMap<String, BotType> botsSortedByAlias,
+                        PersistentTreeMap<IndexKey, BotType> botsByAlias,
+                        PersistentTreeMap<IndexKey, BotType> botsByHost,
+                        long nextPosition) {
+        this.botsById = botsById;
+        this.botsByPosition = botsByPosition;
+        this.botsSortedByAlias = botsSortedByAlias;
+        this.botsByAlias = botsByAlias;
+        this.botsByHost = botsByHost;
+        this.nextPosition = nextPosition;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /*
+     * Returns all the Bots in the registry order. The list is built on first use, which costs O(n) once per snapshot.
+     */
+    List<BotType> findAll() {
+        List<BotType> bots = allBots;
+        if (bots == null) {
+            final List<BotType> botsInOrder = new ArrayList<>(size());
+            botsByPosition.forEachInRange(null, true, null, false, botsInOrder::add);
+            bots = Collections.unmodifiableList(botsInOrder);
+            allBots = bots;
+        }
+        return bots;
+    }
+
+    BotType findById(String id) {
+        if (id == null) {
+            return null;
+        }
+        final PositionedBot positionedBot = botsById.get(id);
+        return positionedBot == null ? null : positionedBot.bot;
+    }
+
+    List<BotType> findByAlias(String alias) {
+        return alias == null ? Collections.emptyList() : findByIndexKey(botsByAlias, alias);
+    }
+
+    /*
+     * Returns all the bots whose base URL is on the given host. The host can optionally include a port; if it does
+     * not, the default port for the base URL's scheme is assumed, e.g. host.one matches https://host.one/api.
+     */
+    List<BotType> findByHost(String host) {
+        final List<BotType> bots = new ArrayList<>();
+        for (final String hostKey : BotHosts.hostKeysToFind(host)) {
+            bots.addAll(findByIndexKey(botsByHost, hostKey));
+        }
+        return bots;
+    }
+
+    /*
+     * Returns up to limit Bots that match the request's filters, in the request's sort order, starting after the Bot
+     * with the given sort key - or from the start if it is null.
+     * Filtering by alias prefix is part of the range scan when sorting by alias; otherwise the Bots that do not match
+     * are skipped as the index is scanned. Filtering by host starts from the host index instead, which only holds the
+     * Bots on that host.
+     */
+    List<BotType> findPage(BotPageRequest request, String afterKey, int limit) {
+
+        final SortField sortField = request.getSortField();
+        final String aliasPrefix = request.getAliasPrefix();
+
+        if (request.getHost() != null) {
+            final Comparator<String> keyOrder = BotPageCursors.keyOrder(request);
+            return findByHost(request.getHost()).stream()
+                    .filter(bot -> BotPageCursors.matchesAliasPrefix(bot.getAlias(), aliasPrefix))
+                    .filter(bot -> afterKey == null || keyOrder.compare(sortKeyOf(bot, sortField), afterKey) > 0)
+                    .sorted(Comparator.comparing(bot -> sortKeyOf(bot, sortField), keyOrder))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        String fromKey = null;
+        boolean fromInclusive = true;
+        String toKey = null; // always exclusive
+        if (aliasPrefix != null && sortField == SortField.ALIAS) {
+            fromKey = aliasPrefix;
+            toKey = aliasPrefix + Character.MAX_VALUE;
+        }
+        if (afterKey != null) {
+            if (!request.isDescending() && (fromKey == null || afterKey.compareTo(fromKey) >= 0)) {
+                fromKey = afterKey;
+                fromInclusive = false;
+            } else if (request.isDescending() && (toKey == null || afterKey.compareTo(toKey) < 0)) {
+                toKey = afterKey;
+            }
+        }
+        if (fromKey != null && toKey != null && fromKey.compareTo(toKey) >= 0) {
+            return Collections.emptyList();
+        }
+
+        final List<BotType> page = new ArrayList<>(Math.min(limit, size()));
+        final Predicate<BotType> addToPage = bot -> {
+            if (page.size() == limit) {
+                return false;
+            }
+            if (BotPageCursors.matchesAliasPrefix(bot.getAlias(), aliasPrefix)) {
+                page.add(bot);
+            }
+            return true;
+        };
+        if (sortField == SortField.ID) {
+            botsById.forEachInRange(fromKey, fromInclusive, toKey, request.isDescending(),
+                    positionedBot -> addToPage.test(positionedBot.bot));
+        } else {
+            botsSortedByAlias.forEachInRange(fromKey, fromInclusive, toKey, request.isDescending(), addToPage);
+        }
+        return page;
+    }
+
+    /*
+     * Returns a new snapshot with the given bot added, or replacing the existing bot with the same id.
+     */
+    BotRegistry withBot(BotType botToPut) {
+        return withBots(Collections.singletonList(botToPut));
+    }
+
+    /*
+     * Returns a new snapshot with all the given bots added or replaced. A replaced bot keeps its position.
+     */
+    BotRegistry withBots(Collection<BotType> botsToPut) {
+        return withChanges(Collections.emptyList(), botsToPut);
+    }
+
+    /*
+     * Returns a new snapshot without the bot with the given id.
+     */
+    BotRegistry withoutBot(String id) {
+        return withChanges(Collections.singletonList(id), Collections.emptyList());
+    }
+
+    /*
+     * Returns a new snapshot with the bots with the given ids removed, and then the given bots added or replaced.
+     * It costs O(log n) for each bot removed or put.
+     */
+    BotRegistry withChanges(Collection<String> idsToRemove, Collection<BotType> botsToPut) {
+        final Editor editor = new Editor(this);
+        idsToRemove.forEach(editor::remove);
+        botsToPut.forEach(botToPut -> editor.put(copyOf(botToPut)));
+        return editor.toRegistry();
+    }
+
+    int size() {
+        return botsById.size();
+    }
+
+    /*
+     * Returns a private copy of a Bot, e.g. to change one held by a snapshot.
+     */
+    static BotType copyOf(BotType other) {
+        final BotType botType = new BotType();
+        botType.setId(other.getId());
+        botType.setAlias(other.getAlias());
+        botType.setBaseUrl(other.getBaseUrl());
+        botType.setUsername(other.getUsername());
+        botType.setPassword(other.getPassword());
+        botType.setVersion(other.getVersion());
+        return botType;
+    }
+
+    /**
+     * Builds a registry one Bot at a time, e.g. as the Bots are streamed in from the XML config file.
+     * The builder takes ownership of the Bots it is given; they must not be modified afterwards.
+     */
+    static final class Builder {
+
+        private final Editor editor = new Editor(EMPTY);
+
+        private Builder() {
+        }
+
+        Builder add(BotType bot) {
+            editor.put(bot);
+            return this;
+        }
+
+        BotRegistry build() {
+            return editor.toRegistry();
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static String sortKeyOf(BotType bot, SortField sortField) {
+        return BotPageCursors.sortKey(sortField, bot.getId(), bot.getAlias());
+    }
+
+    /*
+     * Returns the Bots with the given key in an alias or host index, in the registry order.
+     */
+    private static List<BotType> findByIndexKey(PersistentTreeMap<IndexKey, BotType> index, String key) {
+        final List<BotType> bots = new ArrayList<>(1);
+        index.forEachInRange(new IndexKey(key, Long.MIN_VALUE), true, new IndexKey(key, Long.MAX_VALUE), false,
+                bots::add);
+        return bots;
+    }
+
+    /*
+     * Applies changes to the indexes of a snapshot, leaving the snapshot itself unchanged.
+     */
+    private static final class Editor {
+
+        private PersistentTreeMap<String, PositionedBot> botsById;
+        private PersistentTreeMap<Long, BotType> botsByPosition;
+        private PersistentTreeMap<String, BotType> botsSortedByAlias;
+        private PersistentTreeMap<IndexKey, BotType> botsByAlias;
+        private PersistentTreeMap<IndexKey, BotType> botsByHost;
+        private long nextPosition;
+
+        private Editor(BotRegistry registry) {
+            botsById = registry.botsById;
+            botsByPosition = registry.botsByPosition;
+            botsSortedByAlias = registry.botsSortedByAlias;
+            botsByAlias = registry.botsByAlias;
+            botsByHost = registry.botsByHost;
+            nextPosition = registry.nextPosition;
+        }
+
+        /*
+         * Adds the bot at the end of the registry order, or replaces the bot with the same id in its position.
+         */
+        private void put(BotType bot) {
+            final PositionedBot replaced = botsById.get(bot.getId());
+            final long position;
+            if (replaced != null) {
+                position = replaced.position;
+                removeFromSecondaryIndexes(replaced);
+            } else {
+                position = nextPosition++;
+            }
+            botsById = botsById.put(bot.getId(), new PositionedBot(position, bot));
+            botsByPosition = botsByPosition.put(position, bot);
+            botsSortedByAlias = botsSortedByAlias.put(sortKeyOf(bot, SortField.ALIAS), bot);
+            if (bot.getAlias() != null) {
+                botsByAlias = botsByAlias.put(new IndexKey(bot.getAlias(), position), bot);
+            }
+            final String hostKey = BotHosts.hostKey(bot.getBaseUrl());
+            if (hostKey != null) {
+                botsByHost = botsByHost.put(new IndexKey(hostKey, position), bot);
+            }
+        }
+
+        private void remove(String id) {
+            final PositionedBot removed = botsById.get(id);
+            if (removed != null) {
+                removeFromSecondaryIndexes(removed);
+                botsById = botsById.remove(id);
+                botsByPosition = botsByPosition.remove(removed.position);
+            }
+        }
+
+        private void removeFromSecondaryIndexes(PositionedBot positionedBot) {
+            final BotType bot = positionedBot.bot;
+            botsSortedByAlias = botsSortedByAlias.remove(sortKeyOf(bot, SortField.ALIAS));
+            if (bot.getAlias() != null) {
+                botsByAlias = botsByAlias.remove(new IndexKey(bot.getAlias(), positionedBot.position));
+            }
+            final String hostKey = BotHosts.hostKey(bot.getBaseUrl());
+            if (hostKey != null) {
+                botsByHost = botsByHost.remove(new IndexKey(hostKey, positionedBot.position));
+            }
+        }
+
+        private BotRegistry toRegistry() {
+            return new BotRegistry(botsById, botsByPosition, botsSortedByAlias, botsByAlias, botsByHost,
+                    nextPosition);
+        }
+    }
+
+    /*
+     * A Bot and its position in the registry order.
+     */
+    private static final class PositionedBot {
+
+        private final long position;
+        private final BotType bot;
+
+        private PositionedBot(long position, BotType bot) {
+            this.position = position;
+            this.bot = bot;
+        }
+    }
+
+    /*
+     * A key in the alias and host indexes. The Bots with the same alias or host are ordered by their position.
+     */
+    private static final class IndexKey implements Comparable<IndexKey> {
+
+        private final String key;
+        private final long position;
+
+        private IndexKey(String key, long position) {
+            this.key = key;
+            this.position = position;
+        }
+
+        @Override
+        public int compareTo(IndexKey other) {
+            final int keyComparison = key.compareTo(other.key);
+            return keyComparison != 0 ? keyComparison : Long.compare(position, other.position);
+        }
+    }
+}
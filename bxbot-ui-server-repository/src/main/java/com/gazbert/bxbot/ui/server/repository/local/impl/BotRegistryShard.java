@@ -0,0 +1,727 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local.impl;
+
+import com.gazbert.bxbot.ui.server.datastore.BotsConfigStreamer;
+import com.gazbert.bxbot.ui.server.datastore.BotsJournal;
+import com.gazbert.bxbot.ui.server.datastore.BotsJournalRecord;
+import com.gazbert.bxbot.ui.server.datastore.BotsSnapshot;
+import com.gazbert.bxbot.ui.server.datastore.FileLocations;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * One shard of the XML datastore: a Bots XML file together with its own {@link BotsJournal}, {@link BotsSnapshot},
+ * and lock. Shards share nothing, so writes to different shards never wait for each other.
+ * <p>
+ * The shard holds an immutable, indexed in-memory snapshot of its Bots. The XML file is read once, on first access,
+ * and the journal is replayed over it; all reads are served from the snapshot. The XML file is streamed straight into
+ * the snapshot's index one Bot at a time, so loading does not build a second copy of the registry. If the binary
+ * snapshot kept alongside the XML file still matches it, it is loaded instead, which saves parsing and validating
+ * the XML.
+ * <p>
+ * The snapshot is published through a single volatile reference: readers never lock and always see a complete
+ * snapshot. Writers are serialized on the shard's monitor only while they build the new snapshot and append their
+ * mutation to the journal. They then wait for the journal to be synced outside the monitor, so concurrent writers
+ * share a single fsync (group commit), and the snapshot is only published once its mutation is durable. Readers
+ * therefore never see a change that could be lost in a crash.
+ * <p>
+ * The journal is folded back into the XML file by {@link #compact()}, which also runs on the compactor once the
+ * journal has grown past a threshold.
+ * <p>
+ * Edits made to the XML file by hand are picked up by {@link #reload()}. The shard remembers the Bots it last read from
+ * or wrote to the file, so a reload only writes the Bots the edit actually added, changed, or removed; every other
+ * Bot keeps its entry in the snapshot.
+ *
+ * @author gazbert
+ */
+final class BotRegistryShard {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final int COMPACTION_THRESHOLD_RECORDS = 1000;
+
+    /* Bots created before they had versions are at version 0 */
+    private static final long UNVERSIONED = 0L;
+    private static final long FIRST_VERSION = 1L;
+
+    static final long NO_JOURNAL_SEQUENCE = -1L;
+
+    private static final String XML_EXTENSION = ".xml";
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    private final BotsJournal journal;
+    private final BotsSnapshot botsSnapshot;
+    private final String xmlConfigFile;
+    private final Object compactionLock = new Object();
+
+    private volatile BotRegistry registry;
+    private volatile boolean reloadsXmlFile;
+
+    /* Guarded by the shard's monitor */
+    private Executor compactor;
+    private BotRegistry xmlFileRegistry;
+    private FileStamp xmlFileStamp;
+    private long lastJournalSequence;
+    private int uncompactedRecordCount;
+    private BotRegistry latestRegistry;
+    private final Deque<PendingRegistry> pendingRegistries = new ArrayDeque<>();
+
+    BotRegistryShard(BotsJournal journal, BotsSnapshot botsSnapshot, String xmlConfigFile) {
+        this.journal = journal;
+        this.botsSnapshot = botsSnapshot;
+        this.xmlConfigFile = xmlConfigFile;
+    }
+
+    /*
+     * Creates the shard for an XML config file; its journal and snapshot live next to it, e.g. config/bots.journal
+     * and config/bots.snapshot for config/bots.xml.
+     */
+    static BotRegistryShard forXmlConfigFile(String xmlConfigFile) {
+        return new BotRegistryShard(new BotsJournal(journalFileFor(xmlConfigFile)),
+                new BotsSnapshot(snapshotFileFor(xmlConfigFile), xmlConfigFile), xmlConfigFile);
+    }
+
+    /*
+     * Returns the XML config file for a shard of the given layout. A layout with a single shard uses the XML config
+     * file as is, e.g. config/bots.xml; otherwise the shard number and count are added, e.g. config/bots-2-of-4.xml.
+     */
+    static String shardXmlConfigFile(String xmlConfigFile, int shard, int shardCount) {
+        if (shardCount == 1) {
+            return xmlConfigFile;
+        }
+        return baseNameOf(xmlConfigFile) + '-' + shard + "-of-" + shardCount + XML_EXTENSION;
+    }
+
+    static String journalFileFor(String xmlConfigFile) {
+        return baseNameOf(xmlConfigFile) + JOURNAL_EXTENSION;
+    }
+
+    static String snapshotFileFor(String xmlConfigFile) {
+        return baseNameOf(xmlConfigFile) + SNAPSHOT_EXTENSION;
+    }
+
+    String getXmlConfigFile() {
+        return xmlConfigFile;
+    }
+
+    /*
+     * Returns the current snapshot without locking, lazy loading it from the XML file on first access.
+     */
+    BotRegistry getRegistry() {
+        final BotRegistry currentRegistry = registry;
+        return currentRegistry != null ? currentRegistry : loadRegistry();
+    }
+
+    /*
+     * Adds a new Bot, at version 1. Returns false, without changing anything, if there is already a Bot with its id.
+     */
+    boolean create(BotType newBot) {
+        final long journalSequence;
+        synchronized (this) {
+            final BotRegistry currentRegistry = getLatestRegistry();
+            if (currentRegistry.findById(newBot.getId()) != null) {
+                return false;
+            }
+            newBot.setVersion(FIRST_VERSION);
+            journalSequence = journal(() -> journal.appendCreate(newBot), 1, currentRegistry.withBot(newBot));
+        }
+        awaitDurable(journalSequence);
+        return true;
+    }
+
+    /*
+     * Replaces the Bot with the same id and increments its version. If the updated Bot carries a version, it must
+     * match the current Bot's version - which includes writes still waiting to be synced - or the update is rejected.
+     * Returns false, without changing anything, if there is no such Bot.
+     */
+    boolean update(BotType updatedBot) {
+        final long journalSequence;
+        synchronized (this) {
+            final BotRegistry currentRegistry = getLatestRegistry();
+            final BotType currentBot = currentRegistry.findById(updatedBot.getId());
+            if (currentBot == null) {
+                return false;
+            }
+            final long currentVersion = versionOf(currentBot);
+            if (updatedBot.getVersion() != null && updatedBot.getVersion() != currentVersion) {
+                throw new OptimisticLockingFailureException("Bot config " + updatedBot.getId() + " is at version "
+                        + currentVersion + " but the update was for version " + updatedBot.getVersion());
+            }
+            updatedBot.setVersion(currentVersion + 1);
+            journalSequence = journal(() -> journal.appendUpdate(updatedBot), 1,
+                    currentRegistry.withBot(updatedBot));
+        }
+        awaitDurable(journalSequence);
+        return true;
+    }
+
+    /*
+     * Creates or replaces each of the given Bots, which must have distinct ids, with a single journal write and a
+     * single sync. New Bots start at version 1 and replaced Bots have their version incremented. A Bot that carries a
+     * version and replaces a stored Bot is only written if the stored Bot still has that version - which includes
+     * writes still waiting to be synced; the others are skipped. Returns the skipped Bots.
+     */
+    List<BotType> putAll(List<BotType> bots) {
+        final List<BotType> conflictingBots;
+        final long journalSequence;
+        synchronized (this) {
+            conflictingBots = findVersionConflicts(bots);
+            final List<BotType> botsToPut = new ArrayList<>(bots);
+            botsToPut.removeAll(conflictingBots);
+            journalSequence = appendAll(botsToPut);
+        }
+        awaitDurable(journalSequence);
+        return conflictingBots;
+    }
+
+    /*
+     * Returns the given Bots that carry a version other than the version of the stored Bot they would replace,
+     * including writes still waiting to be synced. Bots without a version, and Bots that are not stored yet, never
+     * conflict. Must be called holding the shard's monitor.
+     */
+    List<BotType> findVersionConflicts(List<BotType> bots) {
+        final BotRegistry currentRegistry = getLatestRegistry();
+        final List<BotType> conflictingBots = new ArrayList<>();
+        for (final BotType bot : bots) {
+            final BotType currentBot = currentRegistry.findById(bot.getId());
+            if (currentBot != null && bot.getVersion() != null && bot.getVersion() != versionOf(currentBot)) {
+                conflictingBots.add(bot);
+            }
+        }
+        return conflictingBots;
+    }
+
+    /*
+     * Returns the ids of the given Bots that are not stored yet, including writes still waiting to be synced - the
+     * Bots that appendAll would create rather than replace. Must be called holding the shard's monitor.
+     */
+    Set<String> findNewBotIds(List<BotType> bots) {
+        final BotRegistry currentRegistry = getLatestRegistry();
+        final Set<String> newBotIds = new HashSet<>();
+        for (final BotType bot : bots) {
+            if (currentRegistry.findById(bot.getId()) == null) {
+                newBotIds.add(bot.getId());
+            }
+        }
+        return newBotIds;
+    }
+
+    /*
+     * Creates or replaces each of the given Bots, regardless of the versions they carry, with a single journal write.
+     * The write is not durable until awaitDurable is called with the returned journal sequence number, which is
+     * NO_JOURNAL_SEQUENCE if there are no Bots. Must be called holding the shard's monitor.
+     */
+    long appendAll(List<BotType> bots) {
+        if (bots.isEmpty()) {
+            return NO_JOURNAL_SEQUENCE;
+        }
+        final BotRegistry currentRegistry = getLatestRegistry();
+        final List<BotType> createdBots = new ArrayList<>();
+        final List<BotType> updatedBots = new ArrayList<>();
+        for (final BotType bot : bots) {
+            final BotType currentBot = currentRegistry.findById(bot.getId());
+            if (currentBot == null) {
+                bot.setVersion(FIRST_VERSION);
+                createdBots.add(bot);
+            } else {
+                bot.setVersion(versionOf(currentBot) + 1);
+                updatedBots.add(bot);
+            }
+        }
+        return journal(() -> journal.appendBatch(createdBots, updatedBots), bots.size(),
+                currentRegistry.withBots(bots));
+    }
+
+    /*
+     * Removes the Bot with the given id. Returns the removed Bot, or null if there is no such Bot.
+     */
+    BotType delete(String id) {
+        final BotType deletedBot;
+        final long journalSequence;
+        synchronized (this) {
+            final BotRegistry currentRegistry = getLatestRegistry();
+            deletedBot = currentRegistry.findById(id);
+            if (deletedBot == null) {
+                return null;
+            }
+            journalSequence = journal(() -> journal.appendDelete(id), 1, currentRegistry.withoutBot(id));
+        }
+        awaitDurable(journalSequence);
+        return deletedBot;
+    }
+
+    /*
+     * Replaces the shard's XML file with the given Bots and throws away any journal and binary snapshot left next to
+     * it. Used when the shard files are (re)built from another layout, before the shard has been loaded.
+     */
+    void initialise(List<BotType> bots) {
+        BotsConfigStreamer.writeBots(bots, xmlConfigFile);
+        try {
+            Files.deleteIfExists(Paths.get(journalFileFor(xmlConfigFile)));
+            Files.deleteIfExists(Paths.get(snapshotFileFor(xmlConfigFile)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to initialise Bots shard [" + xmlConfigFile + "]", e);
+        }
+    }
+
+    /*
+     * Hands the shard the executor to run its threshold compactions on. Until then, it only compacts when asked to.
+     */
+    synchronized void startCompaction(Executor compactor) {
+        this.compactor = compactor;
+    }
+
+    /*
+     * Has the shard check for edits to its XML file before each compaction, so that an edit that has not been reloaded
+     * yet is not overwritten.
+     */
+    void startReloading() {
+        reloadsXmlFile = true;
+    }
+
+    /*
+     * Picks up edits made to the XML file since the shard last read or wrote it. The Bots in the file are diffed
+     * against the ones the shard last read or wrote, and only the Bots the edit added, changed, or removed are written.
+     * They go through the journal like any other write, so changed Bots get a new version. An edit to a Bot is based
+     * on the version the shard last read or wrote to the file: if the Bot has been written since, e.g. through the
+     * API, the edit to it is skipped and logged rather than overwriting that write. Edits to other Bots still apply.
+     * Returns the ids of the Bots that changed, which is empty if the file has not changed or the shard is not loaded.
+     */
+    Set<String> reload() {
+
+        synchronized (compactionLock) {
+
+            final BotRegistry previousXmlFileRegistry;
+            final FileStamp previousXmlFileStamp;
+            synchronized (this) {
+                if (registry == null) {
+                    return Collections.emptySet(); // the edited file will be read when the shard is loaded
+                }
+                previousXmlFileRegistry = xmlFileRegistry;
+                previousXmlFileStamp = xmlFileStamp;
+            }
+
+            final FileStamp editedXmlFileStamp = FileStamp.of(xmlConfigFile);
+            if (editedXmlFileStamp != null && editedXmlFileStamp.equals(previousXmlFileStamp)) {
+                return Collections.emptySet();
+            }
+
+            final BotRegistry.Builder xmlBuilder = BotRegistry.builder();
+            BotsConfigStreamer.readBots(xmlConfigFile, FileLocations.BOTS_CONFIG_XSD_FILENAME, xmlBuilder::add);
+            final BotRegistry editedXmlFileRegistry = xmlBuilder.build();
+
+            final List<BotType> changedBots = new ArrayList<>();
+            for (final BotType editedBot : editedXmlFileRegistry.findAll()) {
+                final BotType previousBot = previousXmlFileRegistry.findById(editedBot.getId());
+                if (previousBot == null || !sameConfig(previousBot, editedBot)) {
+                    // The edited registry's Bots must not be touched. The edit is based on the Bot as last read or
+                    // written, whatever version the file says.
+                    final BotType changedBot = BotRegistry.copyOf(editedBot);
+                    changedBot.setVersion(previousBot == null ? null : versionOf(previousBot));
+                    changedBots.add(changedBot);
+                }
+            }
+            final List<String> removedIds = new ArrayList<>();
+            for (final BotType previousBot : previousXmlFileRegistry.findAll()) {
+                if (editedXmlFileRegistry.findById(previousBot.getId()) == null) {
+                    removedIds.add(previousBot.getId());
+                }
+            }
+
+            final List<BotType> conflictingBots = putAll(changedBots);
+            for (final BotType conflictingBot : conflictingBots) {
+                LOG.warn("Skipped edit to Bot " + conflictingBot.getId() + " in Bots config " + xmlConfigFile
+                        + " - the Bot has been changed since version " + conflictingBot.getVersion()
+                        + " was written to the file");
+            }
+            changedBots.removeAll(conflictingBots);
+            for (final String removedId : removedIds) {
+                delete(removedId);
+            }
+            synchronized (this) {
+                // The written Bots carry their new versions, which the next edit to them is based on.
+                xmlFileRegistry = editedXmlFileRegistry.withBots(changedBots);
+                xmlFileStamp = editedXmlFileStamp;
+            }
+
+            final Set<String> changedIds = new LinkedHashSet<>();
+            changedBots.forEach(bot -> changedIds.add(bot.getId()));
+            changedIds.addAll(removedIds);
+            LOG.info(() -> "Reloaded Bots config " + xmlConfigFile + " - " + changedIds.size() + " Bots changed: "
+                    + changedIds);
+            return changedIds;
+        }
+    }
+
+    void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // Most likely the file is invalid, e.g. half written; the edit is picked up once the file is complete.
+            LOG.error("Failed to reload Bots config " + xmlConfigFile + " - keeping the current Bots", e);
+        }
+    }
+
+    /*
+     * Compacts the journal one last time and closes it.
+     */
+    void close() {
+        synchronized (this) {
+            compactor = null;
+        }
+        compactQuietly();
+        journal.close();
+    }
+
+    /*
+     * Closes the journal without compacting it. Used when the shard's Bots have been copied elsewhere.
+     */
+    void closeWithoutCompaction() {
+        journal.close();
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Registry management
+    // ------------------------------------------------------------------------------------------------
+
+    private synchronized BotRegistry loadRegistry() {
+        if (registry == null) {
+            // Stamped before reading, so that an edit made while the file is being read is picked up by a reload.
+            xmlFileStamp = FileStamp.of(xmlConfigFile);
+            xmlFileRegistry = loadSnapshotOrXml();
+            registry = replayJournal(xmlFileRegistry);
+        }
+        return registry;
+    }
+
+    /*
+     * Loads the Bots in the XML file. The binary snapshot is only used if it still matches the XML file, so either way
+     * the result is what is in the XML file.
+     */
+    private BotRegistry loadSnapshotOrXml() {
+
+        final BotRegistry.Builder snapshotBuilder = BotRegistry.builder();
+        if (botsSnapshot.load(snapshotBuilder::add)) {
+            return snapshotBuilder.build();
+        }
+
+        final BotRegistry.Builder xmlBuilder = BotRegistry.builder();
+        BotsConfigStreamer.readBots(xmlConfigFile, FileLocations.BOTS_CONFIG_XSD_FILENAME, xmlBuilder::add);
+        final BotRegistry xmlRegistry = xmlBuilder.build();
+        saveSnapshotQuietly(xmlRegistry);
+        return xmlRegistry;
+    }
+
+    /*
+     * Applies the journal records over the snapshot loaded from the XML file. Records already folded into the XML
+     * file by an interrupted compaction are harmless: each one holds a Bot's complete state, so applying it again
+     * gives the same result.
+     * The records are folded into one set of changes first, so the registry is only updated once: only a Bot's last
+     * record counts, and a Bot deleted and then saved again is removed before it is re-added at the end.
+     */
+    private BotRegistry replayJournal(BotRegistry loadedRegistry) {
+
+        final List<BotsJournalRecord> records = journal.replay();
+        final Set<String> idsToRemove = new LinkedHashSet<>();
+        final Map<String, BotType> botsToPut = new LinkedHashMap<>();
+        for (final BotsJournalRecord record : records) {
+            if (record.getOperation() == BotsJournalRecord.Operation.DELETE) {
+                botsToPut.remove(record.getBotId());
+                idsToRemove.add(record.getBotId());
+            } else {
+                botsToPut.put(record.getBot().getId(), record.getBot());
+            }
+            lastJournalSequence = record.getSequence();
+        }
+        uncompactedRecordCount = records.size();
+        final BotRegistry replayed = loadedRegistry.withChanges(idsToRemove, botsToPut.values());
+
+        if (!records.isEmpty()) {
+            LOG.info("Replayed " + records.size() + " Bots journal records up to sequence: " + lastJournalSequence);
+        }
+        return replayed;
+    }
+
+    /*
+     * Returns the snapshot that includes all the writes appended so far, durable or not. Writers build on this one,
+     * so they see each other's changes while these are waiting to be synced.
+     * Must be called holding the shard's monitor.
+     */
+    private BotRegistry getLatestRegistry() {
+        return latestRegistry != null ? latestRegistry : getRegistry();
+    }
+
+    /*
+     * Appends a mutation - made up of the given number of journal records - to the journal and queues the updated
+     * registry to be published once the mutation has been synced. Returns the mutation's last journal sequence number.
+     * Must be called holding the shard's monitor.
+     */
+    private long journal(LongSupplier append, int recordCount, BotRegistry updatedRegistry) {
+        final long journalSequence;
+        try {
+            journalSequence = append.getAsLong();
+        } catch (RuntimeException e) {
+            discardPendingWrites();
+            throw e;
+        }
+        latestRegistry = updatedRegistry;
+        pendingRegistries.addLast(new PendingRegistry(journalSequence, recordCount, updatedRegistry));
+        return journalSequence;
+    }
+
+    /*
+     * Waits for a mutation to be synced to the journal - along with any others appended in the meantime - and then
+     * publishes the registry that includes it. If the sync fails, the exception propagates and the published
+     * snapshot is left unchanged. Must not be called holding the shard's monitor.
+     */
+    void awaitDurable(long journalSequence) {
+        if (journalSequence == NO_JOURNAL_SEQUENCE) {
+            return;
+        }
+        try {
+            journal.sync(journalSequence);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                discardPendingWrites();
+            }
+            throw e;
+        }
+        publish(journalSequence);
+    }
+
+    /*
+     * Publishes the latest registry whose mutations are all durable. Writers in the same group commit may publish in
+     * any order; whichever comes first publishes for all of them.
+     */
+    private synchronized void publish(long durableSequence) {
+        PendingRegistry pending;
+        while ((pending = pendingRegistries.peekFirst()) != null && pending.journalSequence <= durableSequence) {
+            pendingRegistries.removeFirst();
+            registry = pending.registry;
+            lastJournalSequence = pending.journalSequence;
+            final boolean reachedThreshold = uncompactedRecordCount < COMPACTION_THRESHOLD_RECORDS
+                    && uncompactedRecordCount + pending.recordCount >= COMPACTION_THRESHOLD_RECORDS;
+            uncompactedRecordCount += pending.recordCount;
+            if (reachedThreshold && compactor != null) {
+                compactor.execute(this::compactQuietly);
+            }
+        }
+        if (pendingRegistries.isEmpty()) {
+            latestRegistry = null;
+        }
+    }
+
+    /*
+     * Drops the writes that are waiting to be synced after the journal failed. The journal discards them too, so the
+     * published snapshot still matches what is on disk. Only the first writer to see the failure does the recovery.
+     * Must be called holding the shard's monitor.
+     */
+    private void discardPendingWrites() {
+        try {
+            if (journal.recover()) {
+                LOG.warn("Discarded " + pendingRegistries.size() + " Bot config writes after a journal failure");
+                pendingRegistries.clear();
+                latestRegistry = null;
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Failed to recover Bots journal", e);
+        }
+    }
+
+    /*
+     * A registry waiting for the journal to sync the mutation that produced it.
+     */
+    private static final class PendingRegistry {
+
+        private final long journalSequence;
+        private final int recordCount;
+        private final BotRegistry registry;
+
+        private PendingRegistry(long journalSequence, int recordCount, BotRegistry registry) {
+            this.journalSequence = journalSequence;
+            this.recordCount = recordCount;
+            this.registry = registry;
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Journal compaction
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * Folds the journal into the XML file: writes the current snapshot to the XML file and then drops the journal
+     * records it includes. Writers are only blocked while the snapshot is captured, not while it is written.
+     */
+    void compact() {
+
+        synchronized (compactionLock) {
+
+            if (reloadsXmlFile) {
+                reload();
+            }
+
+            final BotRegistry compactedRegistry;
+            final long snapshotSequence;
+            final int snapshotRecordCount;
+            synchronized (this) {
+                if (registry == null || uncompactedRecordCount == 0) {
+                    return;
+                }
+                compactedRegistry = registry;
+                snapshotSequence = lastJournalSequence;
+                snapshotRecordCount = uncompactedRecordCount;
+            }
+
+            LOG.info(() -> "Compacting Bots journal for " + xmlConfigFile + " up to sequence: " + snapshotSequence);
+
+            BotsConfigStreamer.writeBots(compactedRegistry.findAll(), xmlConfigFile);
+            final FileStamp compactedXmlFileStamp = FileStamp.of(xmlConfigFile);
+            saveSnapshotQuietly(compactedRegistry);
+            journal.truncateUpTo(snapshotSequence);
+
+            synchronized (this) {
+                uncompactedRecordCount -= snapshotRecordCount;
+                xmlFileRegistry = compactedRegistry;
+                xmlFileStamp = compactedXmlFileStamp;
+            }
+        }
+    }
+
+    void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            // The journal is left intact, so nothing is lost - compaction will be retried next time round.
+            LOG.error("Failed to compact Bots journal for " + xmlConfigFile, e);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * The binary snapshot is only an optimisation, so failing to write it must not fail the load or compaction.
+     */
+    private void saveSnapshotQuietly(BotRegistry savedRegistry) {
+        try {
+            botsSnapshot.save(savedRegistry.findAll());
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to save Bots snapshot - the XML config will be parsed on next startup", e);
+        }
+    }
+
+    /*
+     * Whether two Bots have the same config. Versions are managed by the shard, so they are not compared.
+     */
+    private static boolean sameConfig(BotType bot, BotType otherBot) {
+        return Objects.equals(bot.getId(), otherBot.getId())
+                && Objects.equals(bot.getAlias(), otherBot.getAlias())
+                && Objects.equals(bot.getBaseUrl(), otherBot.getBaseUrl())
+                && Objects.equals(bot.getUsername(), otherBot.getUsername())
+                && Objects.equals(bot.getPassword(), otherBot.getPassword());
+    }
+
+    private static long versionOf(BotType bot) {
+        return bot.getVersion() == null ? UNVERSIONED : bot.getVersion();
+    }
+
+    private static String baseNameOf(String xmlConfigFile) {
+        return xmlConfigFile.endsWith(XML_EXTENSION)
+                ? xmlConfigFile.substring(0, xmlConfigFile.length() - XML_EXTENSION.length())
+                : xmlConfigFile;
+    }
+
+    /*
+     * Identifies a version of a file by its size, last modified time and file key (the inode, where there is one).
+     * Files are replaced by renaming a new file over them, which changes the file key even within a single tick of a
+     * coarse last modified time.
+     */
+    private static final class FileStamp {
+
+        private final long size;
+        private final FileTime lastModifiedTime;
+        private final Object fileKey;
+
+        private FileStamp(BasicFileAttributes attributes) {
+            this.size = attributes.size();
+            this.lastModifiedTime = attributes.lastModifiedTime();
+            this.fileKey = attributes.fileKey();
+        }
+
+        /*
+         * Returns the stamp of the given file, or null if it cannot be read; a null stamp never matches, so the file is
+         * read again next time.
+         */
+        private static FileStamp of(String file) {
+            try {
+                return new FileStamp(Files.readAttributes(Paths.get(file), BasicFileAttributes.class));
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final FileStamp that = (FileStamp) o;
+            return size == that.size
+                    && Objects.equals(lastModifiedTime, that.lastModifiedTime)
+                    && Objects.equals(fileKey, that.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, lastModifiedTime, fileKey);
+        }
+    }
+}
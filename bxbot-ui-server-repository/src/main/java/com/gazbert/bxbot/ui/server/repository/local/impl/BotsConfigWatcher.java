@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local.impl;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the shards' XML files for edits made by something other than the repository, e.g. by hand, and has the
+ * shards reload them in the background.
+ * <p>
+ * Editors often save a file in several steps, so the watcher waits for the directory to settle before reloading.
+ * Each shard works out for itself whether its file really changed, so events caused by the repository's own
+ * compactions, or by other files in the directory, cost no more than a look at the file's attributes.
+ *
+ * @author gazbert
+ */
+final class BotsConfigWatcher {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final long SETTLE_MILLIS = 500;
+
+    private final Path configDirectory;
+    private final Map<Path, BotRegistryShard> shardsByFileName = new HashMap<>();
+    private final WatchService watchService;
+    private final Thread watcherThread;
+
+    private volatile boolean closed;
+
+    /*
+     * Starts watching the given shards' XML files, which must all be in the same directory.
+     */
+    BotsConfigWatcher(BotRegistryShard[] shards) {
+
+        configDirectory = Paths.get(shards[0].getXmlConfigFile()).toAbsolutePath().getParent();
+        for (final BotRegistryShard shard : shards) {
+            shardsByFileName.put(Paths.get(shard.getXmlConfigFile()).getFileName(), shard);
+        }
+
+        try {
+            watchService = configDirectory.getFileSystem().newWatchService();
+            configDirectory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to watch Bots config directory [" + configDirectory + "]", e);
+        }
+
+        watcherThread = new Thread(this::watch, "bots-config-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        LOG.info(() -> "Watching " + configDirectory + " for edits to the Bots config");
+    }
+
+    void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOG.warn("Failed to close Bots config watcher", e);
+        }
+        watcherThread.interrupt();
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private void watch() {
+        try {
+            while (!closed) {
+                final Set<BotRegistryShard> editedShards = new LinkedHashSet<>();
+                WatchKey watchKey = watchService.take();
+                do {
+                    collectEditedShards(watchKey, editedShards);
+                    watchKey = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (watchKey != null);
+
+                for (final BotRegistryShard shard : editedShards) {
+                    shard.reloadQuietly();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void collectEditedShards(WatchKey watchKey, Set<BotRegistryShard> editedShards) {
+        for (final WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                editedShards.addAll(shardsByFileName.values()); // events were lost - have every shard check
+            } else {
+                final BotRegistryShard shard = shardsByFileName.get((Path) event.context());
+                if (shard != null) {
+                    editedShards.add(shard);
+                }
+            }
+        }
+        if (!watchKey.reset()) {
+            LOG.warn("Stopped watching Bots config directory " + configDirectory + " - it is no longer accessible");
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local.impl;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.history.ConfigVersion;
+import com.gazbert.bxbot.ui.server.repository.local.ConfigHistoryRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StreamUtils;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local file store implementation of the config history repository.
+ * <p>
+ * Config content is gzipped and stored under the SHA-256 hash of its uncompressed bytes, in
+ * content/ab/cdef...json.gz, so identical content, e.g. the same market config on many Bots, is only stored once.
+ * Content files are written to a temp file and moved into place, and never change after that.
+ * <p>
+ * Each Bot's history is an append-only index file, index/botId.idx, with one tab separated line per version:
+ * version, timestamp, config type, operation, config id and content hash. Content is always stored before the line
+ * that refers to it is appended, and each line is forced to disk before the append returns. A line left half written
+ * by a crash is skipped when the index is read back. A Bot's index is read on first use and then kept in memory.
+ * <p>
+ * The store lives in config/history by default; the config.history.dir property moves it.
+ *
+ * @author gazbert
+ */
+@Repository("configHistoryRepository")
+public class ConfigHistoryRepositoryFileStore implements ConfigHistoryRepository {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final String DEFAULT_HISTORY_DIR = "config/history";
+    private static final String CONTENT_DIR = "content";
+    private static final String INDEX_DIR = "index";
+    private static final String CONTENT_FILE_SUFFIX = ".json.gz";
+    private static final String INDEX_FILE_SUFFIX = ".idx";
+
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final String LINE_SEPARATOR = "\n";
+    private static final String NO_VALUE = "-";
+    private static final int FIELD_COUNT = 6;
+
+    private static final Pattern CONTENT_HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Path contentDir;
+    private final Path indexDir;
+    private final ConcurrentMap<String, BotHistory> botHistories = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConfigHistoryRepositoryFileStore(
+            @Value("${config.history.dir:" + DEFAULT_HISTORY_DIR + "}") String historyDir) {
+
+        // The directories are created by the first write to them.
+        this.contentDir = Paths.get(historyDir, CONTENT_DIR);
+        this.indexDir = Paths.get(historyDir, INDEX_DIR);
+    }
+
+    @Override
+    public String saveContent(byte[] content) {
+
+        final String contentHash = sha256Hex(content);
+        final Path contentFile = contentFileFor(contentHash);
+        if (Files.exists(contentFile)) {
+            LOG.debug(() -> "Config content already stored: " + contentHash);
+            return contentHash;
+        }
+
+        try {
+            Files.createDirectories(contentFile.getParent());
+            final Path tempFile = Files.createTempFile(contentFile.getParent(), contentHash, ".tmp");
+            try {
+                try (FileOutputStream fileOut = new FileOutputStream(tempFile.toFile());
+                     GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut)) {
+                    gzipOut.write(content);
+                    gzipOut.finish();
+                    fileOut.getFD().sync();
+                }
+                // Racing saves of the same content write identical files, so it does not matter whose move wins.
+                Files.move(tempFile, contentFile, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store config content: " + contentHash, e);
+        }
+
+        LOG.info(() -> "Stored config content: " + contentHash);
+        return contentHash;
+    }
+
+    @Override
+    public byte[] findContent(String contentHash) {
+
+        if (contentHash == null || !CONTENT_HASH_PATTERN.matcher(contentHash).matches()) {
+            return null;
+        }
+        final Path contentFile = contentFileFor(contentHash);
+        if (!Files.exists(contentFile)) {
+            return null;
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(contentFile))) {
+            return StreamUtils.copyToByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read config content: " + contentHash, e);
+        }
+    }
+
+    @Override
+    public ConfigVersion append(String botId, long timestamp, ConfigChange.ConfigType configType,
+                                ConfigChange.Operation operation, String configId, String contentHash) {
+        return historyFor(botId).append(timestamp, configType, operation, configId, contentHash);
+    }
+
+    @Override
+    public List<ConfigVersion> findByBotId(String botId) {
+        return botId == null ? Collections.emptyList() : historyFor(botId).getVersions();
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * The history of a single Bot. Appends to the same Bot are serialized; different Bots never contend.
+     */
+    private static final class BotHistory {
+
+        private final String botId;
+        private final Path indexFile;
+
+        // guarded by this; null until the index file has been read
+        private List<ConfigVersion> versions;
+        private boolean lastLineIncomplete;
+
+        private BotHistory(String botId, Path indexFile) {
+            this.botId = botId;
+            this.indexFile = indexFile;
+        }
+
+        synchronized List<ConfigVersion> getVersions() {
+            load();
+            return Collections.unmodifiableList(new ArrayList<>(versions));
+        }
+
+        synchronized ConfigVersion append(long timestamp, ConfigChange.ConfigType configType,
+                                          ConfigChange.Operation operation, String configId, String contentHash) {
+            load();
+            final long versionNumber = versions.isEmpty() ? 1 : versions.get(versions.size() - 1).getVersion() + 1;
+            final ConfigVersion version = new ConfigVersion(botId, versionNumber, timestamp, configType, operation,
+                    configId, contentHash, null);
+
+            // Start a fresh line rather than run on from a line a crash left half written.
+            final String line = (lastLineIncomplete ? LINE_SEPARATOR : "") + toIndexLine(version) + LINE_SEPARATOR;
+            try {
+                Files.createDirectories(indexFile.getParent());
+                try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    final ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to config history index: " + indexFile, e);
+            }
+
+            lastLineIncomplete = false;
+            versions.add(version);
+            LOG.info(() -> "Appended to config history: " + version);
+            return version;
+        }
+
+        private void load() {
+            if (versions != null) {
+                return;
+            }
+            final List<ConfigVersion> loaded = new ArrayList<>();
+            if (Files.exists(indexFile)) {
+                final String index;
+                try {
+                    index = new String(Files.readAllBytes(indexFile), StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read config history index: " + indexFile, e);
+                }
+                lastLineIncomplete = !index.isEmpty() && !index.endsWith(LINE_SEPARATOR);
+                for (final String line : index.split(LINE_SEPARATOR)) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    final ConfigVersion version = fromIndexLine(botId, line);
+                    if (version == null) {
+                        LOG.warn("Skipping unreadable line in config history index " + indexFile + ": " + line);
+                    } else {
+                        loaded.add(version);
+                    }
+                }
+            }
+            versions = loaded;
+        }
+    }
+
+    private BotHistory historyFor(String botId) {
+        return botHistories.computeIfAbsent(botId,
+                id -> new BotHistory(id, indexDir.resolve(encode(id) + INDEX_FILE_SUFFIX)));
+    }
+
+    private Path contentFileFor(String contentHash) {
+        return contentDir.resolve(contentHash.substring(0, 2)).resolve(contentHash.substring(2) + CONTENT_FILE_SUFFIX);
+    }
+
+    private static String toIndexLine(ConfigVersion version) {
+        return String.join(FIELD_SEPARATOR,
+                Long.toString(version.getVersion()),
+                Long.toString(version.getTimestamp()),
+                version.getConfigType().name(),
+                version.getOperation().name(),
+                version.getConfigId() == null ? NO_VALUE : encode(version.getConfigId()),
+                version.getContentHash() == null ? NO_VALUE : version.getContentHash());
+    }
+
+    /*
+     * Returns null if the line cannot be parsed, e.g. it was cut short by a crash.
+     */
+    private static ConfigVersion fromIndexLine(String botId, String line) {
+        final String[] fields = line.split(FIELD_SEPARATOR, -1);
+        if (fields.length != FIELD_COUNT || !(NO_VALUE.equals(fields[5])
+                || CONTENT_HASH_PATTERN.matcher(fields[5]).matches())) {
+            return null;
+        }
+        try {
+            return new ConfigVersion(botId,
+                    Long.parseLong(fields[0]),
+                    Long.parseLong(fields[1]),
+                    ConfigChange.ConfigType.valueOf(fields[2]),
+                    ConfigChange.Operation.valueOf(fields[3]),
+                    NO_VALUE.equals(fields[4]) ? null : decode(fields[4]),
+                    NO_VALUE.equals(fields[5]) ? null : fields[5],
+                    null);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Encodes ids so they are safe to use as file names and index fields.
+     */
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name()).replace(".", "%2E").replace("*", "%2A");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sha256Hex(byte[] content) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        final char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local.impl;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * An immutable sorted map that shares structure with the map it was made from.
+ * <p>
+ * It is a treap: a binary search tree on the keys that is also a heap on random node priorities, which keeps it
+ * balanced with high probability. Putting or removing a key copies only the nodes on the path to it, so it costs
+ * O(log n) time and space, and the map it was made from is left unchanged - readers holding it are never affected.
+ *
+ * @author gazbert
+ */
+final class PersistentTreeMap<K extends Comparable<? super K>, V> {
+
+    private static final PersistentTreeMap<?, ?> EMPTY = new PersistentTreeMap<>(null);
+
+    private final Node<K, V> root;
+
+    private PersistentTreeMap(Node<K, V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<? super K>, V> PersistentTreeMap<K, V> empty() {
+        return (PersistentTreeMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return sizeOf(root);
+    }
+
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            final int comparison = key.compareTo(node.key);
+            if (comparison == 0) {
+                return node.value;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /*
+     * Returns a map with the given key mapped to the given value, replacing any value it had.
+     */
+    PersistentTreeMap<K, V> put(K key, V value) {
+        final Split<K, V> split = split(root, key);
+        final Node<K, V> node = new Node<>(key, value, ThreadLocalRandom.current().nextInt(), null, null);
+        return new PersistentTreeMap<>(merge(merge(split.lower, node), split.higher));
+    }
+
+    /*
+     * Returns a map without the given key, or this map if it does not have the key.
+     */
+    PersistentTreeMap<K, V> remove(K key) {
+        if (get(key) == null) {
+            return this;
+        }
+        final Split<K, V> split = split(root, key);
+        return new PersistentTreeMap<>(merge(split.lower, split.higher));
+    }
+
+    /*
+     * Passes the values whose keys are in the given range to the visitor, in key order - or reverse key order if
+     * descending - until the visitor returns false. A null fromKey or toKey leaves that end of the range open; toKey is
+     * always exclusive. It costs O(log n) plus the number of values visited.
+     */
+    void forEachInRange(K fromKey, boolean fromInclusive, K toKey, boolean descending, Predicate<V> visitor) {
+        visit(root, fromKey, fromInclusive, toKey, descending, visitor);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static <K extends Comparable<? super K>, V> boolean visit(Node<K, V> node, K fromKey,
+                                                                      boolean fromInclusive, K toKey,
+                                                                      boolean descending, Predicate<V> visitor) {
+        if (node == null) {
+            return true;
+        }
+        final int fromComparison = fromKey == null ? 1 : node.key.compareTo(fromKey);
+        final int toComparison = toKey == null ? -1 : node.key.compareTo(toKey);
+        final boolean lowerMayBeInRange = fromComparison > 0;
+        final boolean higherMayBeInRange = toComparison < 0;
+        final boolean inRange = (fromComparison > 0 || (fromInclusive && fromComparison == 0)) && toComparison < 0;
+
+        if (descending) {
+            return (!higherMayBeInRange || visit(node.right, fromKey, fromInclusive, toKey, true, visitor))
+                    && (!inRange || visitor.test(node.value))
+                    && (!lowerMayBeInRange || visit(node.left, fromKey, fromInclusive, toKey, true, visitor));
+        }
+        return (!lowerMayBeInRange || visit(node.left, fromKey, fromInclusive, toKey, false, visitor))
+                && (!inRange || visitor.test(node.value))
+                && (!higherMayBeInRange || visit(node.right, fromKey, fromInclusive, toKey, false, visitor));
+    }
+
+    /*
+     * Splits a tree into the nodes with keys lower than the given key and those with keys higher than it, dropping
+     * the node with the key itself.
+     */
+    private static <K extends Comparable<? super K>, V> Split<K, V> split(Node<K, V> node, K key) {
+        if (node == null) {
+            return new Split<>(null, null);
+        }
+        final int comparison = key.compareTo(node.key);
+        if (comparison == 0) {
+            return new Split<>(node.left, node.right);
+        }
+        if (comparison < 0) {
+            final Split<K, V> leftSplit = split(node.left, key);
+            return new Split<>(leftSplit.lower, node.withChildren(leftSplit.higher, node.right));
+        }
+        final Split<K, V> rightSplit = split(node.right, key);
+        return new Split<>(node.withChildren(node.left, rightSplit.lower), rightSplit.higher);
+    }
+
+    /*
+     * Joins two trees, all of whose lower tree's keys are lower than the higher tree's keys.
+     */
+    private static <K extends Comparable<? super K>, V> Node<K, V> merge(Node<K, V> lower, Node<K, V> higher) {
+        if (lower == null) {
+            return higher;
+        }
+        if (higher == null) {
+            return lower;
+        }
+        if (lower.priority > higher.priority) {
+            return lower.withChildren(lower.left, merge(lower.right, higher));
+        }
+        return higher.withChildren(merge(lower, higher.left), higher.right);
+    }
+
+    private static int sizeOf(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final V value;
+        private final int priority;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int size;
+
+        private Node(K key, V value, int priority, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + sizeOf(left) + sizeOf(right);
+        }
+
+        private Node<K, V> withChildren(Node<K, V> newLeft, Node<K, V> newRight) {
+            return new Node<>(key, value, priority, newLeft, newRight);
+        }
+    }
+
+    private static final class Split<K, V> {
+
+        private final Node<K, V> lower;
+        private final Node<K, V> higher;
+
+        private Split(Node<K, V> lower, Node<K, V> higher) {
+            this.lower = lower;
+            this.higher = higher;
+        }
+    }
+}
@@ -25,10 +25,19 @@ package com.gazbert.bxbot.ui.server.repository.remote.config;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.emailalerts.EmailAlertsConfig;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The remote Email Alerts configuration repository.
  * <p>
  * It provides access to Email Alerts config stored on remote BX-bot nodes.
+ * <p>
+ * Each call has an async variant that returns as soon as the request has been sent. Its future completes with
+ * the same result the blocking call returns, including when the call to the Bot fails.
+ * <p>
+ * If the Bot's circuit breaker refuses the call, the blocking call throws a
+ * {@link com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException} and the async variant's future
+ * completes exceptionally with it, rather than returning the result for a failed call.
  *
  * @author gazbert
  */
@@ -36,5 +45,9 @@ public interface EmailAlertsConfigRepository {
 
     EmailAlertsConfig get(BotConfig botConfig);
 
+    CompletableFuture<EmailAlertsConfig> getAsync(BotConfig botConfig);
+
     EmailAlertsConfig save(BotConfig botConfig, EmailAlertsConfig config);
+
+    CompletableFuture<EmailAlertsConfig> saveAsync(BotConfig botConfig, EmailAlertsConfig config);
 }
@@ -28,11 +28,19 @@ import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The remote Market configuration repository.
  *
  * It provides access to Markets config stored on remote BX-bot nodes.
+ * <p>
+ * Each call has an async variant that returns as soon as the request has been sent. Its future completes with
+ * the same result the blocking call returns, including when the call to the Bot fails.
+ * <p>
+ * If the Bot's circuit breaker refuses the call, the blocking call throws a
+ * {@link com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException} and the async variant's future
+ * completes exceptionally with it, rather than returning the result for a failed call.
  *
  * @author gazbert
  */
@@ -40,9 +48,17 @@ public interface MarketConfigRepository {
 
     List<MarketConfig> findAll(BotConfig botConfig);
 
+    CompletableFuture<List<MarketConfig>> findAllAsync(BotConfig botConfig);
+
     MarketConfig findById(BotConfig botConfig, String marketId);
 
+    CompletableFuture<MarketConfig> findByIdAsync(BotConfig botConfig, String marketId);
+
     MarketConfig save(BotConfig botConfig, MarketConfig config);
 
+    CompletableFuture<MarketConfig> saveAsync(BotConfig botConfig, MarketConfig config);
+
     boolean delete(BotConfig botConfig, String marketId);
+
+    CompletableFuture<Boolean> deleteAsync(BotConfig botConfig, String marketId);
 }
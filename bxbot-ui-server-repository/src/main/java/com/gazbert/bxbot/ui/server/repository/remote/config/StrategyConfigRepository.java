@@ -28,11 +28,19 @@ import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.strategy.StrategyConfig;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The remote Strategy configuration repository.
  *
  * It provides access to Strategies config stored on remote BX-bot nodes.
+ * <p>
+ * Each call has an async variant that returns as soon as the request has been sent. Its future completes with
+ * the same result the blocking call returns, including when the call to the Bot fails.
+ * <p>
+ * If the Bot's circuit breaker refuses the call, the blocking call throws a
+ * {@link com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException} and the async variant's future
+ * completes exceptionally with it, rather than returning the result for a failed call.
  *
  * @author gazbert
  */
@@ -40,9 +48,17 @@ public interface StrategyConfigRepository {
 
     List<StrategyConfig> findAll(BotConfig botConfig);
 
+    CompletableFuture<List<StrategyConfig>> findAllAsync(BotConfig botConfig);
+
     StrategyConfig findById(BotConfig botConfig, String strategyId);
 
+    CompletableFuture<StrategyConfig> findByIdAsync(BotConfig botConfig, String strategyId);
+
     StrategyConfig save(BotConfig botConfig, StrategyConfig config);
 
+    CompletableFuture<StrategyConfig> saveAsync(BotConfig botConfig, StrategyConfig config);
+
     boolean delete(BotConfig botConfig, String strategyId);
+
+    CompletableFuture<Boolean> deleteAsync(BotConfig botConfig, String strategyId);
 }
@@ -23,9 +23,8 @@
 
 package com.gazbert.bxbot.ui.server.repository.remote.config.impl;
 
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
 
 /**
  * Base class for all config repository rest clients.
@@ -37,11 +36,10 @@ public class AbstractConfigRepositoryRestClient {
 
     static final String CONFIG_RESOURCE_PATH = "/config";
     static final String REMOTE_RESPONSE_RECEIVED_LOG_MSG = "Response received from remote Bot: ";
-    static final String FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG = "Failed to invoke remote bot! Details: ";
 
-    RestTemplate restTemplate;
+    final BotRestClient botRestClient;
 
-    public AbstractConfigRepositoryRestClient(RestTemplateBuilder restTemplateBuilder) {
-        this.restTemplate = restTemplateBuilder.build();
+    public AbstractConfigRepositoryRestClient(BotRestClient botRestClient) {
+        this.botRestClient = botRestClient;
     }
-}
\ No newline at end of file
+}
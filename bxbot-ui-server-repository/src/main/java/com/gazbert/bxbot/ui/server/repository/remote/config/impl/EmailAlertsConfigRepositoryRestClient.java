@@ -25,17 +25,18 @@ package com.gazbert.bxbot.ui.server.repository.remote.config.impl;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.emailalerts.EmailAlertsConfig;
-import com.gazbert.bxbot.ui.server.domain.engine.EngineConfig;
 import com.gazbert.bxbot.ui.server.repository.remote.config.EmailAlertsConfigRepository;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.support.BasicAuthorizationInterceptor;
 import org.springframework.stereotype.Repository;
-import org.springframework.web.client.RestClientException;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.join;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.logFailure;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.rethrowIfRefusedByCircuitBreaker;
 
 /**
  * A REST client implementation of the remote Email Alerts config repository.
@@ -48,58 +49,57 @@ public class EmailAlertsConfigRepositoryRestClient extends AbstractConfigReposit
     private static final Logger LOG = LogManager.getLogger();
     private static final String EMAIL_ALERTS_RESOURCE_PATH = CONFIG_RESOURCE_PATH + "/email-alerts";
 
-    public EmailAlertsConfigRepositoryRestClient(RestTemplateBuilder restTemplateBuilder) {
-        super(restTemplateBuilder);
+    public EmailAlertsConfigRepositoryRestClient(BotRestClient botRestClient) {
+        super(botRestClient);
     }
 
     @Override
     public EmailAlertsConfig get(BotConfig botConfig) {
+        return join(getAsync(botConfig));
+    }
 
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + EMAIL_ALERTS_RESOURCE_PATH;
-            LOG.info(() -> "Fetching EmailAlertsConfig from: " + endpointUrl);
-
-            final EmailAlertsConfig config = restTemplate.getForObject(endpointUrl, EmailAlertsConfig.class);
-
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + config);
-            config.setId(botConfig.getId());
-            return config;
-
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+    @Override
+    public CompletableFuture<EmailAlertsConfig> getAsync(BotConfig botConfig) {
+
+        final String endpointUrl = botConfig.getBaseUrl() + EMAIL_ALERTS_RESOURCE_PATH;
+        LOG.info(() -> "Fetching EmailAlertsConfig from: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.GET, null, EmailAlertsConfig.class)
+                .handle((config, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + config);
+                    config.setId(botConfig.getId());
+                    return config;
+                });
     }
 
     @Override
     public EmailAlertsConfig save(BotConfig botConfig, EmailAlertsConfig emailAlertsConfig) {
+        return join(saveAsync(botConfig, emailAlertsConfig));
+    }
 
-        try {
-            LOG.info(() -> "About to save EmailAlertsConfig: " + emailAlertsConfig);
-
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + EMAIL_ALERTS_RESOURCE_PATH;
-            LOG.info(() -> "Sending EmailAlertsConfig to: " + endpointUrl);
-
-            final HttpEntity<EmailAlertsConfig> requestUpdate = new HttpEntity<>(emailAlertsConfig);
-            final ResponseEntity<EmailAlertsConfig> savedConfig = restTemplate.exchange(
-                    endpointUrl, HttpMethod.PUT, requestUpdate, EmailAlertsConfig.class);
-
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + savedConfig);
-            final EmailAlertsConfig savedConfigBody = savedConfig.getBody();
-            savedConfigBody.setId(botConfig.getId());
-            return savedConfigBody;
-
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+    @Override
+    public CompletableFuture<EmailAlertsConfig> saveAsync(BotConfig botConfig, EmailAlertsConfig emailAlertsConfig) {
+
+        LOG.info(() -> "About to save EmailAlertsConfig: " + emailAlertsConfig);
+
+        final String endpointUrl = botConfig.getBaseUrl() + EMAIL_ALERTS_RESOURCE_PATH;
+        LOG.info(() -> "Sending EmailAlertsConfig to: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.PUT, emailAlertsConfig, EmailAlertsConfig.class)
+                .handle((savedConfig, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + savedConfig);
+                    savedConfig.setId(botConfig.getId());
+                    return savedConfig;
+                });
     }
-}
\ No newline at end of file
+}
@@ -26,15 +26,17 @@ package com.gazbert.bxbot.ui.server.repository.remote.config.impl;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.engine.EngineConfig;
 import com.gazbert.bxbot.ui.server.repository.remote.config.EngineConfigRepository;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.support.BasicAuthorizationInterceptor;
 import org.springframework.stereotype.Repository;
-import org.springframework.web.client.RestClientException;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.join;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.logFailure;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.rethrowIfRefusedByCircuitBreaker;
 
 /**
  * A REST client implementation of the remote Engine config repository.
@@ -47,58 +49,57 @@ public class EngineConfigRepositoryRestClient extends AbstractConfigRepositoryRe
     private static final Logger LOG = LogManager.getLogger();
     private static final String ENGINE_RESOURCE_PATH = CONFIG_RESOURCE_PATH + "/engine";
 
-    public EngineConfigRepositoryRestClient(RestTemplateBuilder restTemplateBuilder) {
-        super(restTemplateBuilder);
+    public EngineConfigRepositoryRestClient(BotRestClient botRestClient) {
+        super(botRestClient);
     }
 
     @Override
     public EngineConfig get(BotConfig botConfig) {
+        return join(getAsync(botConfig));
+    }
 
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + ENGINE_RESOURCE_PATH;
-            LOG.info(() -> "Fetching EngineConfig from: " + endpointUrl);
-
-            final EngineConfig config = restTemplate.getForObject(endpointUrl, EngineConfig.class);
-
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + config);
-            config.setId(botConfig.getId());
-            return config;
-
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+    @Override
+    public CompletableFuture<EngineConfig> getAsync(BotConfig botConfig) {
+
+        final String endpointUrl = botConfig.getBaseUrl() + ENGINE_RESOURCE_PATH;
+        LOG.info(() -> "Fetching EngineConfig from: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.GET, null, EngineConfig.class)
+                .handle((config, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + config);
+                    config.setId(botConfig.getId());
+                    return config;
+                });
     }
 
     @Override
     public EngineConfig save(BotConfig botConfig, EngineConfig engineConfig) {
+        return join(saveAsync(botConfig, engineConfig));
+    }
 
-        try {
-            LOG.info(() -> "About to save EngineConfig: " + engineConfig);
-
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + ENGINE_RESOURCE_PATH;
-            LOG.info(() -> "Sending EngineConfig to: " + endpointUrl);
-
-            final HttpEntity<EngineConfig> requestUpdate = new HttpEntity<>(engineConfig);
-            final ResponseEntity<EngineConfig> savedConfig = restTemplate.exchange(
-                    endpointUrl, HttpMethod.PUT, requestUpdate, EngineConfig.class);
-
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + savedConfig);
-            final EngineConfig savedConfigBody = savedConfig.getBody();
-            savedConfigBody.setId(botConfig.getId());
-            return savedConfigBody;
-
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+    @Override
+    public CompletableFuture<EngineConfig> saveAsync(BotConfig botConfig, EngineConfig engineConfig) {
+
+        LOG.info(() -> "About to save EngineConfig: " + engineConfig);
+
+        final String endpointUrl = botConfig.getBaseUrl() + ENGINE_RESOURCE_PATH;
+        LOG.info(() -> "Sending EngineConfig to: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.PUT, engineConfig, EngineConfig.class)
+                .handle((savedConfig, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + savedConfig);
+                    savedConfig.setId(botConfig.getId());
+                    return savedConfig;
+                });
     }
-}
\ No newline at end of file
+}
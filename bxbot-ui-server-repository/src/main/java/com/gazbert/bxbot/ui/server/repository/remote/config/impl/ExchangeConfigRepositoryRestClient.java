@@ -26,15 +26,17 @@ package com.gazbert.bxbot.ui.server.repository.remote.config.impl;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.exchange.ExchangeConfig;
 import com.gazbert.bxbot.ui.server.repository.remote.config.ExchangeConfigRepository;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.support.BasicAuthorizationInterceptor;
 import org.springframework.stereotype.Repository;
-import org.springframework.web.client.RestClientException;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.join;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.logFailure;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.rethrowIfRefusedByCircuitBreaker;
 
 /**
  * A REST client implementation of the remote Exchange config repository.
@@ -47,55 +49,55 @@ public class ExchangeConfigRepositoryRestClient extends AbstractConfigRepository
     private static final Logger LOG = LogManager.getLogger();
     private static final String EXCHANGE_RESOURCE_PATH = CONFIG_RESOURCE_PATH + "/exchange";
 
-    public ExchangeConfigRepositoryRestClient(RestTemplateBuilder restTemplateBuilder) {
-        super(restTemplateBuilder);
+    public ExchangeConfigRepositoryRestClient(BotRestClient botRestClient) {
+        super(botRestClient);
     }
 
     @Override
     public ExchangeConfig get(BotConfig botConfig) {
+        return join(getAsync(botConfig));
+    }
 
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + EXCHANGE_RESOURCE_PATH;
-            LOG.info(() -> "Fetching ExchangeConfig from: " + endpointUrl);
-
-            final ExchangeConfig config = restTemplate.getForObject(endpointUrl, ExchangeConfig.class);
-
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + config);
-            return config;
-
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+    @Override
+    public CompletableFuture<ExchangeConfig> getAsync(BotConfig botConfig) {
+
+        final String endpointUrl = botConfig.getBaseUrl() + EXCHANGE_RESOURCE_PATH;
+        LOG.info(() -> "Fetching ExchangeConfig from: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.GET, null, ExchangeConfig.class)
+                .handle((config, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + config);
+                    return config;
+                });
     }
 
     @Override
     public ExchangeConfig save(BotConfig botConfig, ExchangeConfig exchangeConfig) {
+        return join(saveAsync(botConfig, exchangeConfig));
+    }
 
-        try {
-            LOG.info(() -> "About to save ExchangeConfig: " + exchangeConfig);
-
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + EXCHANGE_RESOURCE_PATH;
-            LOG.info(() -> "Sending ExchangeConfig to: " + endpointUrl);
-
-            final HttpEntity<ExchangeConfig> requestUpdate = new HttpEntity<>(exchangeConfig);
-            final ResponseEntity<ExchangeConfig> savedConfig = restTemplate.exchange(
-                    endpointUrl, HttpMethod.PUT, requestUpdate, ExchangeConfig.class);
-
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + savedConfig);
-            return savedConfig.getBody();
-
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+    @Override
+    public CompletableFuture<ExchangeConfig> saveAsync(BotConfig botConfig, ExchangeConfig exchangeConfig) {
+
+        LOG.info(() -> "About to save ExchangeConfig: " + exchangeConfig);
+
+        final String endpointUrl = botConfig.getBaseUrl() + EXCHANGE_RESOURCE_PATH;
+        LOG.info(() -> "Sending ExchangeConfig to: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.PUT, exchangeConfig, ExchangeConfig.class)
+                .handle((savedConfig, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + savedConfig);
+                    return savedConfig;
+                });
     }
-}
\ No newline at end of file
+}
@@ -26,18 +26,19 @@ package com.gazbert.bxbot.ui.server.repository.remote.config.impl;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
 import com.gazbert.bxbot.ui.server.repository.remote.config.MarketConfigRepository;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.support.BasicAuthorizationInterceptor;
 import org.springframework.stereotype.Repository;
-import org.springframework.web.client.RestClientException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.join;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.logFailure;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.rethrowIfRefusedByCircuitBreaker;
 
 /**
  * Implementation of the remote Market config repository.
@@ -50,99 +51,104 @@ public class MarketConfigRepositoryRestClient extends AbstractConfigRepositoryRe
     private static final Logger LOG = LogManager.getLogger();
     private static final String MARKET_RESOURCE_PATH = CONFIG_RESOURCE_PATH + "/markets";
 
-    public MarketConfigRepositoryRestClient(RestTemplateBuilder restTemplateBuilder) {
-        super(restTemplateBuilder);
+    public MarketConfigRepositoryRestClient(BotRestClient botRestClient) {
+        super(botRestClient);
     }
 
     @Override
     public List<MarketConfig> findAll(BotConfig botConfig) {
+        return join(findAllAsync(botConfig));
+    }
 
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + MARKET_RESOURCE_PATH;
-            LOG.info(() -> "Fetching all MarketConfig from: " + endpointUrl);
-
-            @SuppressWarnings("unchecked") final List<MarketConfig> allTheMarketConfig = restTemplate.getForObject(endpointUrl, List.class);
-
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + allTheMarketConfig);
-            return allTheMarketConfig;
-
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return new ArrayList<>();
-        }
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<List<MarketConfig>> findAllAsync(BotConfig botConfig) {
+
+        final String endpointUrl = botConfig.getBaseUrl() + MARKET_RESOURCE_PATH;
+        LOG.info(() -> "Fetching all MarketConfig from: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.GET, null, List.class)
+                .thenApply(all -> (List<MarketConfig>) all)
+                .handle((allTheMarketConfig, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return new ArrayList<>();
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + allTheMarketConfig);
+                    return allTheMarketConfig;
+                });
     }
 
     @Override
     public MarketConfig findById(BotConfig botConfig, String marketId) {
+        return join(findByIdAsync(botConfig, marketId));
+    }
 
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + MARKET_RESOURCE_PATH + '/' + marketId;
-            LOG.info(() -> "Fetching MarketConfig from: " + endpointUrl);
-
-            @SuppressWarnings("unchecked") final MarketConfig marketConfig = restTemplate.getForObject(endpointUrl, MarketConfig.class);
-
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + marketConfig);
-            return marketConfig;
-
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+    @Override
+    public CompletableFuture<MarketConfig> findByIdAsync(BotConfig botConfig, String marketId) {
+
+        final String endpointUrl = botConfig.getBaseUrl() + MARKET_RESOURCE_PATH + '/' + marketId;
+        LOG.info(() -> "Fetching MarketConfig from: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.GET, null, MarketConfig.class)
+                .handle((marketConfig, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + marketConfig);
+                    return marketConfig;
+                });
     }
 
     @Override
     public MarketConfig save(BotConfig botConfig, MarketConfig marketConfig) {
+        return join(saveAsync(botConfig, marketConfig));
+    }
 
-        LOG.info(() -> "Saving MarketConfig: " + marketConfig + " for botId: " + botConfig.getId());
-
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + MARKET_RESOURCE_PATH;
-            LOG.info(() -> "Sending MarketConfig to: " + endpointUrl);
-
-            final HttpEntity<MarketConfig> requestUpdate = new HttpEntity<>(marketConfig);
-            final ResponseEntity<MarketConfig> savedConfig = restTemplate.exchange(
-                    endpointUrl, HttpMethod.PUT, requestUpdate, MarketConfig.class);
+    @Override
+    public CompletableFuture<MarketConfig> saveAsync(BotConfig botConfig, MarketConfig marketConfig) {
 
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + savedConfig.getBody());
-            return savedConfig.getBody();
+        LOG.info(() -> "Saving MarketConfig: " + marketConfig + " for botId: " + botConfig.getId());
 
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+        final String endpointUrl = botConfig.getBaseUrl() + MARKET_RESOURCE_PATH;
+        LOG.info(() -> "Sending MarketConfig to: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.PUT, marketConfig, MarketConfig.class)
+                .handle((savedConfig, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + savedConfig);
+                    return savedConfig;
+                });
     }
 
     @Override
     public boolean delete(BotConfig botConfig, String marketId) {
+        return join(deleteAsync(botConfig, marketId));
+    }
 
-        LOG.info(() -> "Deleting MarketConfig for marketId: " + marketId + " for botId: " + botConfig.getId());
-
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + MARKET_RESOURCE_PATH + '/' + marketId;
-            LOG.info(() -> "Deleting MarketConfig from: " + endpointUrl);
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(BotConfig botConfig, String marketId) {
 
-            restTemplate.delete(endpointUrl);
-            return true;
+        LOG.info(() -> "Deleting MarketConfig for marketId: " + marketId + " for botId: " + botConfig.getId());
 
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return false;
-        }
+        final String endpointUrl = botConfig.getBaseUrl() + MARKET_RESOURCE_PATH + '/' + marketId;
+        LOG.info(() -> "Deleting MarketConfig from: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.DELETE, null, Void.class)
+                .handle((noContent, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return false;
+                    }
+                    return true;
+                });
     }
-}
\ No newline at end of file
+}
@@ -26,18 +26,19 @@ package com.gazbert.bxbot.ui.server.repository.remote.config.impl;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.strategy.StrategyConfig;
 import com.gazbert.bxbot.ui.server.repository.remote.config.StrategyConfigRepository;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.support.BasicAuthorizationInterceptor;
 import org.springframework.stereotype.Repository;
-import org.springframework.web.client.RestClientException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.join;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.logFailure;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.rethrowIfRefusedByCircuitBreaker;
 
 /**
  * Implementation of the remote Strategy config repository.
@@ -50,99 +51,104 @@ public class StrategyConfigRepositoryRestClient extends AbstractConfigRepository
     private static final Logger LOG = LogManager.getLogger();
     private static final String STRATEGY_RESOURCE_PATH = CONFIG_RESOURCE_PATH + "/strategies";
 
-    public StrategyConfigRepositoryRestClient(RestTemplateBuilder restTemplateBuilder) {
-        super(restTemplateBuilder);
+    public StrategyConfigRepositoryRestClient(BotRestClient botRestClient) {
+        super(botRestClient);
     }
 
     @Override
     public List<StrategyConfig> findAll(BotConfig botConfig) {
+        return join(findAllAsync(botConfig));
+    }
 
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + STRATEGY_RESOURCE_PATH;
-            LOG.info(() -> "Fetching all StrategyConfig from: " + endpointUrl);
-
-            @SuppressWarnings("unchecked") final List<StrategyConfig> allTheStrategyConfig = restTemplate.getForObject(endpointUrl, List.class);
-
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + allTheStrategyConfig);
-            return allTheStrategyConfig;
-
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return new ArrayList<>();
-        }
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<List<StrategyConfig>> findAllAsync(BotConfig botConfig) {
+
+        final String endpointUrl = botConfig.getBaseUrl() + STRATEGY_RESOURCE_PATH;
+        LOG.info(() -> "Fetching all StrategyConfig from: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.GET, null, List.class)
+                .thenApply(all -> (List<StrategyConfig>) all)
+                .handle((allTheStrategyConfig, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return new ArrayList<>();
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + allTheStrategyConfig);
+                    return allTheStrategyConfig;
+                });
     }
 
     @Override
     public StrategyConfig findById(BotConfig botConfig, String strategyId) {
+        return join(findByIdAsync(botConfig, strategyId));
+    }
 
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + STRATEGY_RESOURCE_PATH + '/' + strategyId;
-            LOG.info(() -> "Fetching StrategyConfig from: " + endpointUrl);
-
-            @SuppressWarnings("unchecked") final StrategyConfig strategyConfig = restTemplate.getForObject(endpointUrl, StrategyConfig.class);
-
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + strategyConfig);
-            return strategyConfig;
-
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+    @Override
+    public CompletableFuture<StrategyConfig> findByIdAsync(BotConfig botConfig, String strategyId) {
+
+        final String endpointUrl = botConfig.getBaseUrl() + STRATEGY_RESOURCE_PATH + '/' + strategyId;
+        LOG.info(() -> "Fetching StrategyConfig from: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.GET, null, StrategyConfig.class)
+                .handle((strategyConfig, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + strategyConfig);
+                    return strategyConfig;
+                });
     }
 
     @Override
     public StrategyConfig save(BotConfig botConfig, StrategyConfig strategyConfig) {
+        return join(saveAsync(botConfig, strategyConfig));
+    }
 
-        LOG.info(() -> "Saving StrategyConfig: " + strategyConfig + " for botId: " + botConfig.getId());
-
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + STRATEGY_RESOURCE_PATH;
-            LOG.info(() -> "Sending StrategyConfig to: " + endpointUrl);
-
-            final HttpEntity<StrategyConfig> requestUpdate = new HttpEntity<>(strategyConfig);
-            final ResponseEntity<StrategyConfig> savedConfig = restTemplate.exchange(
-                    endpointUrl, HttpMethod.PUT, requestUpdate, StrategyConfig.class);
+    @Override
+    public CompletableFuture<StrategyConfig> saveAsync(BotConfig botConfig, StrategyConfig strategyConfig) {
 
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + savedConfig.getBody());
-            return savedConfig.getBody();
+        LOG.info(() -> "Saving StrategyConfig: " + strategyConfig + " for botId: " + botConfig.getId());
 
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+        final String endpointUrl = botConfig.getBaseUrl() + STRATEGY_RESOURCE_PATH;
+        LOG.info(() -> "Sending StrategyConfig to: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.PUT, strategyConfig, StrategyConfig.class)
+                .handle((savedConfig, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + savedConfig);
+                    return savedConfig;
+                });
     }
 
     @Override
     public boolean delete(BotConfig botConfig, String strategyId) {
+        return join(deleteAsync(botConfig, strategyId));
+    }
 
-        LOG.info(() -> "Deleting StrategyConfig for strategyId: " + strategyId + " for botId: " + botConfig.getId());
-
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + STRATEGY_RESOURCE_PATH + '/' + strategyId;
-            LOG.info(() -> "Deleting StrategyConfig from: " + endpointUrl);
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(BotConfig botConfig, String strategyId) {
 
-            restTemplate.delete(endpointUrl);
-            return true;
+        LOG.info(() -> "Deleting StrategyConfig for strategyId: " + strategyId + " for botId: " + botConfig.getId());
 
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return false;
-        }
+        final String endpointUrl = botConfig.getBaseUrl() + STRATEGY_RESOURCE_PATH + '/' + strategyId;
+        LOG.info(() -> "Deleting StrategyConfig from: " + endpointUrl);
+
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.DELETE, null, Void.class)
+                .handle((noContent, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        rethrowIfRefusedByCircuitBreaker(e);
+                        return false;
+                    }
+                    return true;
+                });
     }
-}
\ No newline at end of file
+}
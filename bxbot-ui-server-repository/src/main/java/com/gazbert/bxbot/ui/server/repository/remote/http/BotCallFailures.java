@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers the remote repositories use for calls to a Bot that have failed.
+ * <p>
+ * A call refused by the Bot's circuit breaker fails with a {@link BotUnavailableException}, usually wrapped in a
+ * {@link CompletionException} by the time it reaches the repository.
+ *
+ * @author gazbert
+ */
+public final class BotCallFailures {
+
+    private static final String FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG = "Failed to invoke remote bot! Details: ";
+
+    private BotCallFailures() {
+    }
+
+    /**
+     * Logs a failed call to a Bot. A call refused by the Bot's circuit breaker is expected while the Bot is down, so it
+     * gets a one line warning rather than an error with a stack trace.
+     */
+    public static void logFailure(Logger log, Throwable e) {
+        final Throwable cause = unwrap(e);
+        if (cause instanceof BotUnavailableException) {
+            log.warn(cause.getMessage());
+        } else {
+            log.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Returns true if the call to a Bot was refused by its circuit breaker.
+     */
+    public static boolean isRefusedByCircuitBreaker(Throwable e) {
+        return unwrap(e) instanceof BotUnavailableException;
+    }
+
+    /**
+     * Rethrows the {@link BotUnavailableException} if the call to a Bot was refused by its circuit breaker, so callers
+     * can tell a Bot that is down from one that answered with nothing.
+     *
+     * @throws BotUnavailableException if the call was refused by the Bot's circuit breaker.
+     */
+    public static void rethrowIfRefusedByCircuitBreaker(Throwable e) {
+        final Throwable cause = unwrap(e);
+        if (cause instanceof BotUnavailableException) {
+            throw (BotUnavailableException) cause;
+        }
+    }
+
+    /**
+     * Waits for a call to a Bot and returns its result, throwing a {@link BotUnavailableException} as it is rather than
+     * wrapped in a {@link CompletionException}.
+     *
+     * @throws BotUnavailableException if the call was refused by the Bot's circuit breaker.
+     */
+    public static <T> T join(CompletableFuture<T> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            rethrowIfRefusedByCircuitBreaker(e);
+            throw e;
+        }
+    }
+
+    /*
+     * Returns the failure a CompletableFuture was completed with, without the CompletionException it wraps it in.
+     */
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotCircuit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The circuit breaker guarding the calls to one Bot.
+ * <p>
+ * While closed, it records whether each of the Bot's most recent calls failed or was slow, in a window of a fixed
+ * number of calls. Once the window holds at least the minimum number of calls and the failure rate or slow call rate
+ * reaches its threshold, the circuit opens and calls are refused. After the open time, the circuit goes half-open and
+ * lets a few trial calls through: if their rates are under the thresholds it closes with an empty window, otherwise
+ * it opens again.
+ * <p>
+ * Each permit carries the generation of the circuit it was handed out in, which moves on with every change of state,
+ * so calls that complete after the state they were let through in has gone are not recorded against the new one.
+ *
+ * @author gazbert
+ */
+final class BotCircuitBreaker {
+
+    static final long NO_PERMIT = -1L;
+
+    private final String botId;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // guarded by this
+    private BotCircuit.State state = BotCircuit.State.CLOSED;
+    private long generation;
+    private long openedAtNanos;
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int nextCall;
+    private int recordedCalls;
+    private int failedCallCount;
+    private int slowCallCount;
+    private int trialCallsPermitted;
+    private int trialCalls;
+    private int failedTrialCalls;
+    private int slowTrialCalls;
+
+    BotCircuitBreaker(String botId, int windowSize, int minimumCalls, float failureRateThreshold,
+                      float slowCallRateThreshold, long slowCallMillis, long openMillis, int halfOpenCalls) {
+        this.botId = botId;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenCalls = halfOpenCalls;
+        this.failedCalls = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    /*
+     * Returns a permit to call the Bot, or NO_PERMIT if the circuit is refusing calls. Every permit must be handed
+     * back to onResult() once its call has completed.
+     */
+    synchronized long acquirePermit() {
+        if (state == BotCircuit.State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) {
+                return NO_PERMIT;
+            }
+            transitionTo(BotCircuit.State.HALF_OPEN);
+        }
+        if (state == BotCircuit.State.HALF_OPEN) {
+            if (trialCallsPermitted == halfOpenCalls) {
+                return NO_PERMIT;
+            }
+            trialCallsPermitted++;
+        }
+        return generation;
+    }
+
+    /*
+     * Records the outcome of a call made with the given permit.
+     */
+    synchronized void onResult(long permit, long durationNanos, boolean failed) {
+        if (permit != generation) {
+            return;
+        }
+        final boolean slow = durationNanos >= slowCallNanos;
+
+        if (state == BotCircuit.State.HALF_OPEN) {
+            trialCalls++;
+            failedTrialCalls += failed ? 1 : 0;
+            slowTrialCalls += slow ? 1 : 0;
+            if (trialCalls == halfOpenCalls) {
+                transitionTo(exceedsThresholds(failedTrialCalls, slowTrialCalls, trialCalls)
+                        ? BotCircuit.State.OPEN : BotCircuit.State.CLOSED);
+            }
+            return;
+        }
+
+        if (recordedCalls == failedCalls.length) {
+            failedCallCount -= failedCalls[nextCall] ? 1 : 0;
+            slowCallCount -= slowCalls[nextCall] ? 1 : 0;
+        } else {
+            recordedCalls++;
+        }
+        failedCalls[nextCall] = failed;
+        slowCalls[nextCall] = slow;
+        failedCallCount += failed ? 1 : 0;
+        slowCallCount += slow ? 1 : 0;
+        nextCall = (nextCall + 1) % failedCalls.length;
+
+        if (recordedCalls >= minimumCalls && exceedsThresholds(failedCallCount, slowCallCount, recordedCalls)) {
+            transitionTo(BotCircuit.State.OPEN);
+        }
+    }
+
+    synchronized BotCircuit toBotCircuit() {
+        if (state == BotCircuit.State.HALF_OPEN) {
+            return new BotCircuit(botId, state, rate(failedTrialCalls, trialCalls), rate(slowTrialCalls, trialCalls),
+                    trialCalls, 0L);
+        }
+        final long openUntil = state == BotCircuit.State.OPEN
+                ? System.currentTimeMillis()
+                + TimeUnit.NANOSECONDS.toMillis(Math.max(0L, openedAtNanos + openNanos - System.nanoTime()))
+                : 0L;
+        return new BotCircuit(botId, state, rate(failedCallCount, recordedCalls), rate(slowCallCount, recordedCalls),
+                recordedCalls, openUntil);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * The window is kept when the circuit opens, so its rates can still be seen; it is emptied when it closes.
+     */
+    private void transitionTo(BotCircuit.State newState) {
+        state = newState;
+        generation++;
+        trialCallsPermitted = 0;
+        trialCalls = 0;
+        failedTrialCalls = 0;
+        slowTrialCalls = 0;
+        if (newState == BotCircuit.State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        } else if (newState == BotCircuit.State.CLOSED) {
+            nextCall = 0;
+            recordedCalls = 0;
+            failedCallCount = 0;
+            slowCallCount = 0;
+        }
+    }
+
+    private boolean exceedsThresholds(int failed, int slow, int calls) {
+        return rate(failed, calls) >= failureRateThreshold || rate(slow, calls) >= slowCallRateThreshold;
+    }
+
+    private static float rate(int count, int calls) {
+        return calls == 0 ? 0.0f : count * 100.0f / calls;
+    }
+}
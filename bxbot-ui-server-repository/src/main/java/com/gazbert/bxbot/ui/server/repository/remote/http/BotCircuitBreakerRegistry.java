@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotCircuit;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.repository.remote.runtime.BotCircuitRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the circuit breaker for each Bot, created the first time the Bot is called.
+ * <p>
+ * The breakers are set up using the remote.circuit properties: the number of recent calls in each breaker's window,
+ * the minimum number of calls before the rates are checked, the failure and slow call rate thresholds in percent, how
+ * long a call must take to count as slow, how long a circuit stays open, and how many trial calls a half-open circuit
+ * lets through.
+ *
+ * @author gazbert
+ */
+@Component("botCircuitRepository")
+public class BotCircuitBreakerRegistry implements BotCircuitRepository {
+
+    private final ConcurrentMap<String, BotCircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+    private final int halfOpenCalls;
+
+    public BotCircuitBreakerRegistry(@Value("${remote.circuit.window-size:20}") int windowSize,
+                                     @Value("${remote.circuit.minimum-calls:10}") int minimumCalls,
+                                     @Value("${remote.circuit.failure-rate-threshold:50}") float failureRateThreshold,
+                                     @Value("${remote.circuit.slow-call-rate-threshold:100}")
+                                             float slowCallRateThreshold,
+                                     @Value("${remote.circuit.slow-call-millis:5000}") long slowCallMillis,
+                                     @Value("${remote.circuit.open-millis:30000}") long openMillis,
+                                     @Value("${remote.circuit.half-open-calls:3}") int halfOpenCalls) {
+
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Circuit minimum calls must be between 1 and the window size - window: "
+                    + windowSize + " minimum calls: " + minimumCalls);
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100
+                || slowCallRateThreshold <= 0 || slowCallRateThreshold > 100) {
+            throw new IllegalArgumentException("Circuit rate thresholds must be above 0 and at most 100 - failure: "
+                    + failureRateThreshold + " slow call: " + slowCallRateThreshold);
+        }
+        if (slowCallMillis < 1 || openMillis < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Circuit slow call time, open time and half-open calls must be positive"
+                    + " - slow call millis: " + slowCallMillis + " open millis: " + openMillis
+                    + " half-open calls: " + halfOpenCalls);
+        }
+
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    @Override
+    public BotCircuit getBotCircuit(BotConfig botConfig) {
+        final BotCircuitBreaker breaker = breakers.get(botConfig.getId());
+        return breaker == null
+                ? new BotCircuit(botConfig.getId(), BotCircuit.State.CLOSED, 0.0f, 0.0f, 0, 0L)
+                : breaker.toBotCircuit();
+    }
+
+    BotCircuitBreaker forBot(String botId) {
+        return breakers.computeIfAbsent(botId, id -> new BotCircuitBreaker(id, windowSize, minimumCalls,
+                failureRateThreshold, slowCallRateThreshold, slowCallMillis, openMillis, halfOpenCalls));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Builds the request entities the remote repositories send to the Bots, carrying each Bot's credentials.
+ * <p>
+ * The credentials go on each request, rather than on the shared RestTemplates, so concurrent calls to different Bots
+ * always send their own Bot's credentials. The Basic Authorization header is encoded afresh for every request, so no
+ * copy of a Bot's password outlives the request, and a changed or deleted Bot's credentials are never sent again.
+ *
+ * @author gazbert
+ */
+public final class BotCredentials {
+
+    private BotCredentials() {
+    }
+
+    /**
+     * Returns a request entity with the given body, which may be null, and the Bot's credentials.
+     */
+    public static <T> HttpEntity<T> requestEntity(BotConfig botConfig, T body) {
+        return new HttpEntity<>(body, headersFor(botConfig));
+    }
+
+    /*
+     * Returns the Basic Authorization header value for the Bot.
+     */
+    static String authorizationHeader(BotConfig botConfig) {
+        final String credentials = botConfig.getUsername() + ":" + botConfig.getPassword();
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * HttpHeaders are mutable, so every request gets its own.
+     */
+    private static HttpHeaders headersFor(BotConfig botConfig) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, authorizationHeader(botConfig));
+        return headers;
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AsyncClientHttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out pooled HTTP clients for calling the remote Bots.
+ * <p>
+ * It is both request factories of the remote repositories' AsyncRestTemplate. All the Bots share one non-blocking
+ * HTTP client, whose single I/O reactor has a fixed number of I/O threads however many Bots there are; a call in
+ * flight does not hold a thread while it waits for its Bot. Connections are pooled per route - a Bot base URL's
+ * scheme, host and port - so they, and their TCP and TLS handshakes, are reused across calls to that Bot. Each route
+ * can have up to the max connections per Bot, so a Bot with many calls in flight cannot take connections from the
+ * others, and all the routes together can have up to the max connections. Blocking requests, which the remote
+ * repositories never make, go through a shared pool with the same limits that opens no connections until it is used.
+ * <p>
+ * Connections that have been idle for longer than the idle eviction time are closed by a background sweeper. When a
+ * Bot's base URL changes, calls go to a new route for the new URL; the sweeper drops the old route once nothing has
+ * used it for the idle eviction time, by when its connections have been closed too.
+ *
+ * @author gazbert
+ */
+@Component("botHttpClientRegistry")
+public class BotHttpClientRegistry implements AsyncClientHttpRequestFactory, ClientHttpRequestFactory,
+        DisposableBean {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final String IO_THREAD_NAME_PREFIX = "bot-http-io-";
+
+    private final int maxConnectionsPerBot;
+    private final long idleEvictionMillis;
+    private final long keepAliveMillis;
+
+    private final PoolingNHttpClientConnectionManager asyncConnectionManager;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final HttpComponentsAsyncClientHttpRequestFactory requestFactory;
+
+    private final ConcurrentMap<String, BotRoute> routesByOrigin = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    public BotHttpClientRegistry(@Value("${remote.http.max-connections-per-bot:20}") int maxConnectionsPerBot,
+                                 @Value("${remote.http.max-connections:1000}") int maxConnections,
+                                 @Value("${remote.http.idle-eviction-millis:30000}") long idleEvictionMillis,
+                                 @Value("${remote.http.keep-alive-millis:60000}") long keepAliveMillis,
+                                 @Value("${remote.http.connect-timeout-millis:5000}") int connectTimeoutMillis,
+                                 @Value("${remote.http.read-timeout-millis:30000}") int readTimeoutMillis) {
+
+        if (maxConnectionsPerBot < 1) {
+            throw new IllegalArgumentException("Max connections per Bot must be at least 1 but was: "
+                    + maxConnectionsPerBot);
+        }
+        if (maxConnections < maxConnectionsPerBot) {
+            throw new IllegalArgumentException("Max connections must be at least the max connections per Bot but was: "
+                    + maxConnections);
+        }
+        if (idleEvictionMillis < 1) {
+            throw new IllegalArgumentException("Idle eviction time must be positive but was: " + idleEvictionMillis);
+        }
+
+        this.maxConnectionsPerBot = maxConnectionsPerBot;
+        this.idleEvictionMillis = idleEvictionMillis;
+        this.keepAliveMillis = keepAliveMillis;
+        final RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .build();
+
+        final AtomicInteger ioThreadCount = new AtomicInteger();
+        try {
+            asyncConnectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(
+                    IOReactorConfig.DEFAULT,
+                    runnable -> new Thread(runnable, IO_THREAD_NAME_PREFIX + ioThreadCount.incrementAndGet())));
+        } catch (IOReactorException e) {
+            throw new UncheckedIOException("Failed to start the I/O reactor for calling the Bots", e);
+        }
+        asyncConnectionManager.setMaxTotal(maxConnections);
+        asyncConnectionManager.setDefaultMaxPerRoute(maxConnectionsPerBot);
+        final CloseableHttpAsyncClient asyncHttpClient = HttpAsyncClients.custom()
+                .setConnectionManager(asyncConnectionManager)
+                .setThreadFactory(runnable -> new Thread(runnable, IO_THREAD_NAME_PREFIX + "reactor"))
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+        asyncHttpClient.start();
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerBot);
+        final CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+
+        requestFactory = new HttpComponentsAsyncClientHttpRequestFactory(httpClient, asyncHttpClient);
+
+        LOG.info(() -> "Started HTTP client for calling the Bots with max connections per Bot: " + maxConnectionsPerBot
+                + " and max connections: " + maxConnections);
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "bot-http-client-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long sweepIntervalMillis = Math.max(1L, idleEvictionMillis / 2);
+        sweeper.scheduleWithFixedDelay(() -> sweep(System.currentTimeMillis()),
+                sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public AsyncClientHttpRequest createAsyncRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        markUsed(uri);
+        return requestFactory.createAsyncRequest(uri, httpMethod);
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        markUsed(uri);
+        return requestFactory.createRequest(uri, httpMethod);
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+        routesByOrigin.clear();
+        try {
+            requestFactory.destroy();
+        } catch (Exception e) {
+            LOG.warn("Failed to close HTTP client cleanly: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Returns the number of routes currently in use, one per Bot base URL origin.
+     */
+    int size() {
+        return routesByOrigin.size();
+    }
+
+    /*
+     * Closes the idle and expired connections, then drops the routes that have no connections in use and have not
+     * been used since the idle eviction time.
+     */
+    void sweep(long nowMillis) {
+        asyncConnectionManager.closeExpiredConnections();
+        asyncConnectionManager.closeIdleConnections(idleEvictionMillis, TimeUnit.MILLISECONDS);
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleEvictionMillis, TimeUnit.MILLISECONDS);
+
+        for (final String origin : routesByOrigin.keySet()) {
+            routesByOrigin.computeIfPresent(origin, (key, route) -> {
+                if (route.lastUsedMillis < nowMillis - idleEvictionMillis && !isInUse(route.httpRoute)) {
+                    LOG.info(() -> "Dropping unused HTTP route for Bot origin: " + origin);
+                    return null;
+                }
+                return route;
+            });
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * The route is marked as used inside compute(), as the sweeper drops routes inside compute() too; it can never
+     * drop a route that has just been used.
+     */
+    private void markUsed(URI uri) {
+        final String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase(Locale.ROOT);
+        final String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+        final int port = uri.getPort() != -1 ? uri.getPort() : "https".equals(scheme) ? 443 : 80;
+        final String origin = scheme + "://" + host + ":" + port;
+        final long nowMillis = System.currentTimeMillis();
+        routesByOrigin.compute(origin, (key, route) -> {
+            if (route == null) {
+                LOG.info(() -> "Opening HTTP route for Bot origin: " + origin + " with max connections: "
+                        + maxConnectionsPerBot);
+                final HttpRoute httpRoute = new HttpRoute(new HttpHost(host, port, scheme), null,
+                        "https".equals(scheme));
+                asyncConnectionManager.setMaxPerRoute(httpRoute, maxConnectionsPerBot);
+                connectionManager.setMaxPerRoute(httpRoute, maxConnectionsPerBot);
+                return new BotRoute(httpRoute, nowMillis);
+            }
+            route.lastUsedMillis = nowMillis;
+            return route;
+        });
+    }
+
+    private boolean isInUse(HttpRoute httpRoute) {
+        final PoolStats asyncStats = asyncConnectionManager.getStats(httpRoute);
+        return asyncStats.getLeased() > 0 || asyncStats.getPending() > 0
+                || connectionManager.getStats(httpRoute).getLeased() > 0;
+    }
+
+    /*
+     * Keeps connections alive for as long as the Bot asks in its Keep-Alive header, or the configured time if it
+     * does not say.
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            final long botKeepAliveMillis = DefaultConnectionKeepAliveStrategy.INSTANCE
+                    .getKeepAliveDuration(response, context);
+            return botKeepAliveMillis > 0 ? botKeepAliveMillis : keepAliveMillis;
+        };
+    }
+
+    /*
+     * The route for one Bot origin. Its state is only changed inside the registry map's compute() calls.
+     */
+    private static final class BotRoute {
+
+        private final HttpRoute httpRoute;
+        private volatile long lastUsedMillis;
+
+        BotRoute(HttpRoute httpRoute, long lastUsedMillis) {
+            this.httpRoute = httpRoute;
+            this.lastUsedMillis = lastUsedMillis;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Makes the non-blocking calls to the remote Bots for the remote repositories.
+ * <p>
+ * Each call is sent with its Bot's credentials and returns as soon as the request has been handed to the HTTP client.
+ * The returned future completes with the response body, or exceptionally with a RestClientException if the call
+ * fails, on one of the HTTP client's I/O threads - so the stages chained on to it must not block.
+ * <p>
+ * Every call goes through its Bot's circuit breaker. While the circuit is refusing calls, the returned future fails
+ * straight away with a {@link BotUnavailableException} and the Bot is not called. A call counts as failed if the Bot
+ * could not be reached or answered with a server error; a client error is the Bot answering, so it does not count.
+ * <p>
+ * Reads - GET calls, which are safe to repeat - that fail because the Bot could not be reached or answered with a
+ * server error are retried after a backoff, while the retry budgets allow; see {@link BotRetryBudgetRegistry}. Each
+ * retry goes through the circuit breaker like any other call, and a call refused by it is not retried.
+ *
+ * @author gazbert
+ */
+@Component("botRestClient")
+public class BotRestClient {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private final AsyncRestTemplate asyncRestTemplate;
+    private final BotCircuitBreakerRegistry botCircuitBreakerRegistry;
+    private final BotRetryBudgetRegistry botRetryBudgetRegistry;
+
+    public BotRestClient(BotHttpClientRegistry botHttpClientRegistry,
+                         BotCircuitBreakerRegistry botCircuitBreakerRegistry,
+                         BotRetryBudgetRegistry botRetryBudgetRegistry) {
+        // The registry pools the blocking requests of getRestOperations() per Bot too, though nothing here makes any
+        this.asyncRestTemplate = new AsyncRestTemplate(botHttpClientRegistry, botHttpClientRegistry);
+        this.botCircuitBreakerRegistry = botCircuitBreakerRegistry;
+        this.botRetryBudgetRegistry = botRetryBudgetRegistry;
+    }
+
+    /**
+     * Calls a Bot.
+     *
+     * @param botConfig    the Bot to call.
+     * @param endpointUrl  the URL to call.
+     * @param method       the HTTP method.
+     * @param body         the request body; null if there is none.
+     * @param responseType the type of the response body.
+     * @param <T>          the type of the response body.
+     * @return the response body, once it has been received.
+     */
+    public <T> CompletableFuture<T> exchange(BotConfig botConfig, String endpointUrl, HttpMethod method, Object body,
+                                             Class<T> responseType) {
+
+        final CompletableFuture<T> responseBody = new CompletableFuture<>();
+        if (method == HttpMethod.GET) {
+            botRetryBudgetRegistry.onRequest(botConfig.getId());
+        }
+        attempt(botConfig, endpointUrl, method, body, responseType, 1, responseBody);
+        return responseBody;
+    }
+
+    /**
+     * Returns the AsyncRestTemplate the calls are made with, e.g. for binding a mock server to in tests.
+     *
+     * @return the AsyncRestTemplate.
+     */
+    public AsyncRestTemplate getAsyncRestTemplate() {
+        return asyncRestTemplate;
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * Makes one attempt at a call, completing the response body with its outcome unless the call is to be retried.
+     */
+    private <T> void attempt(BotConfig botConfig, String endpointUrl, HttpMethod method, Object body,
+                             Class<T> responseType, int attempt, CompletableFuture<T> responseBody) {
+
+        send(botConfig, endpointUrl, method, body, responseType).whenComplete((result, e) -> {
+            if (e == null) {
+                responseBody.complete(result);
+                return;
+            }
+            if (method != HttpMethod.GET || attempt >= botRetryBudgetRegistry.maxAttempts() || !isTransient(e)
+                    || !botRetryBudgetRegistry.tryAcquireRetry(botConfig.getId())) {
+                responseBody.completeExceptionally(e);
+                return;
+            }
+
+            LOG.warn("Attempt " + attempt + " to call " + endpointUrl + " failed - will retry. Details: "
+                    + e.getMessage());
+            final boolean scheduled = botRetryBudgetRegistry.scheduleRetry(attempt,
+                    () -> retry(botConfig, endpointUrl, method, body, responseType, attempt + 1, responseBody));
+            if (!scheduled) {
+                responseBody.completeExceptionally(e); // shutting down
+            }
+        });
+    }
+
+    private <T> void retry(BotConfig botConfig, String endpointUrl, HttpMethod method, Object body,
+                           Class<T> responseType, int attempt, CompletableFuture<T> responseBody) {
+        try {
+            attempt(botConfig, endpointUrl, method, body, responseType, attempt, responseBody);
+        } catch (RuntimeException e) {
+            responseBody.completeExceptionally(e); // nothing else would complete it on the retry scheduler's thread
+        }
+    }
+
+    /*
+     * Sends a call through the Bot's circuit breaker.
+     */
+    private <T> CompletableFuture<T> send(BotConfig botConfig, String endpointUrl, HttpMethod method, Object body,
+                                          Class<T> responseType) {
+
+        final CompletableFuture<T> responseBody = new CompletableFuture<>();
+        final BotCircuitBreaker circuitBreaker = botCircuitBreakerRegistry.forBot(botConfig.getId());
+        final long permit = circuitBreaker.acquirePermit();
+        if (permit == BotCircuitBreaker.NO_PERMIT) {
+            responseBody.completeExceptionally(new BotUnavailableException(botConfig.getId()));
+            return responseBody;
+        }
+
+        final long startNanos = System.nanoTime();
+        final ListenableFuture<ResponseEntity<T>> response;
+        try {
+            response = asyncRestTemplate.exchange(
+                    endpointUrl, method, BotCredentials.requestEntity(botConfig, body), responseType);
+        } catch (RestClientException e) {
+            circuitBreaker.onResult(permit, System.nanoTime() - startNanos, true);
+            responseBody.completeExceptionally(e); // the request could not be sent
+            return responseBody;
+        }
+        response.addCallback(
+                responseEntity -> {
+                    circuitBreaker.onResult(permit, System.nanoTime() - startNanos, false);
+                    responseBody.complete(responseEntity.getBody());
+                },
+                e -> {
+                    circuitBreaker.onResult(permit, System.nanoTime() - startNanos,
+                            !(e instanceof HttpClientErrorException));
+                    responseBody.completeExceptionally(e);
+                });
+        return responseBody;
+    }
+
+    /*
+     * A failure that may not happen again: the Bot could not be reached, or answered with a server error.
+     */
+    private static boolean isTransient(Throwable e) {
+        return e instanceof HttpServerErrorException || e instanceof ResourceAccessException
+                || e instanceof IOException;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotRetryStats;
+import com.gazbert.bxbot.ui.server.repository.remote.runtime.BotRetryRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the retry budget for each Bot and the budget shared by all the Bots, and schedules the retries.
+ * <p>
+ * A read is tried up to remote.retry.max-attempts times. Before each retry it waits for a random time between 0 and
+ * an exponential backoff - base-backoff-millis doubled for each retry already made, up to max-backoff-millis - so the
+ * retries of many reads that failed together are spread out rather than arriving at the Bot at once.
+ * <p>
+ * A retry spends one retry from its Bot's budget and one from the shared budget, and is only made if both have one to
+ * spend. Each read earns budget-percent of a retry in both; a Bot's budget saves up to bot-budget-max-retries retries,
+ * and the shared one up to total-budget-max-retries.
+ *
+ * @author gazbert
+ */
+@Component("botRetryRepository")
+public class BotRetryBudgetRegistry implements BotRetryRepository, DisposableBean {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private final ConcurrentMap<String, RetryBudget> botBudgets = new ConcurrentHashMap<>();
+    private final RetryBudget totalBudget;
+
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final float retriesPerRequest;
+    private final int botBudgetMaxRetries;
+
+    private final ScheduledExecutorService retryScheduler;
+
+    public BotRetryBudgetRegistry(@Value("${remote.retry.max-attempts:3}") int maxAttempts,
+                                  @Value("${remote.retry.base-backoff-millis:100}") long baseBackoffMillis,
+                                  @Value("${remote.retry.max-backoff-millis:2000}") long maxBackoffMillis,
+                                  @Value("${remote.retry.budget-percent:10}") float budgetPercent,
+                                  @Value("${remote.retry.bot-budget-max-retries:10}") int botBudgetMaxRetries,
+                                  @Value("${remote.retry.total-budget-max-retries:100}") int totalBudgetMaxRetries) {
+
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be at least 1 but was: " + maxAttempts);
+        }
+        if (baseBackoffMillis < 1 || maxBackoffMillis < baseBackoffMillis) {
+            throw new IllegalArgumentException("Backoff must be positive and the max at least the base - base: "
+                    + baseBackoffMillis + " max: " + maxBackoffMillis);
+        }
+        if (budgetPercent < 0 || budgetPercent > 100 || botBudgetMaxRetries < 0 || totalBudgetMaxRetries < 0) {
+            throw new IllegalArgumentException("Retry budget percent must be between 0 and 100 and its max retries not"
+                    + " negative - percent: " + budgetPercent + " bot max retries: " + botBudgetMaxRetries
+                    + " total max retries: " + totalBudgetMaxRetries);
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retriesPerRequest = budgetPercent / 100;
+        this.botBudgetMaxRetries = botBudgetMaxRetries;
+        this.totalBudget = new RetryBudget(retriesPerRequest, totalBudgetMaxRetries);
+
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "bot-retry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public BotRetryStats getBotRetryStats(BotConfig botConfig) {
+        final RetryBudget botBudget = botBudgets.get(botConfig.getId());
+        return botBudget == null
+                ? new BotRetryStats(botConfig.getId(), 0L, 0L, 0L, botBudgetMaxRetries)
+                : botBudget.toBotRetryStats(botConfig.getId());
+    }
+
+    @Override
+    public BotRetryStats getTotalRetryStats() {
+        return totalBudget.toBotRetryStats(null);
+    }
+
+    @Override
+    public void destroy() {
+        retryScheduler.shutdownNow();
+    }
+
+    int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /*
+     * Records a read from a Bot, not counting its retries.
+     */
+    void onRequest(String botId) {
+        botBudget(botId).onRequest();
+        totalBudget.onRequest();
+    }
+
+    /*
+     * Spends a retry from the Bot's budget and the shared budget, returning false without spending from either if
+     * one of them has run out. Only the budget, or budgets, that had run out count the refused retry as exhausted.
+     */
+    boolean tryAcquireRetry(String botId) {
+        final RetryBudget botBudget = botBudget(botId);
+        final boolean botCanRetry;
+        final boolean totalCanRetry;
+        synchronized (totalBudget) {
+            botCanRetry = botBudget.canRetry();
+            totalCanRetry = totalBudget.canRetry();
+            if (botCanRetry && totalCanRetry) {
+                botBudget.onRetry();
+                totalBudget.onRetry();
+                return true;
+            }
+            if (!botCanRetry) {
+                botBudget.onBudgetExhausted();
+            }
+            if (!totalCanRetry) {
+                totalBudget.onBudgetExhausted();
+            }
+        }
+        LOG.warn((botCanRetry ? "Shared" : totalCanRetry ? "Bot" : "Bot and shared")
+                + " retry budget exhausted - not retrying read from Bot " + botId);
+        return false;
+    }
+
+    /*
+     * Runs the given retry once its backoff has passed. The retry number starts at 1 for the first retry.
+     * Returns false if the retry could not be scheduled because the server is shutting down.
+     */
+    boolean scheduleRetry(int retry, Runnable retryCall) {
+        final long backoffCapMillis = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(retry - 1, 30));
+        final long backoffMillis = ThreadLocalRandom.current().nextLong(backoffCapMillis + 1);
+        try {
+            retryScheduler.schedule(retryCall, backoffMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private RetryBudget botBudget(String botId) {
+        return botBudgets.computeIfAbsent(botId, id -> new RetryBudget(retriesPerRequest, botBudgetMaxRetries));
+    }
+}
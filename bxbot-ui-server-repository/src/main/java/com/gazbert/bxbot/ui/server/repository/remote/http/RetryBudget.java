@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotRetryStats;
+
+/**
+ * A budget of retries, and the counts of the requests and retries made against it.
+ * <p>
+ * Each request earns a fraction of a retry, up to the most retries that can be saved, and each retry spends one. So
+ * over time retries are capped at that fraction of requests, with the saved retries allowing for a short burst. The
+ * budget starts full, so a quiet Bot can still have a few of its reads retried.
+ *
+ * @author gazbert
+ */
+final class RetryBudget {
+
+    private final float retriesPerRequest;
+    private final float maxSavedRetries;
+
+    // guarded by this
+    private float savedRetries;
+    private long requests;
+    private long retries;
+    private long budgetExhausted;
+
+    RetryBudget(float retriesPerRequest, int maxSavedRetries) {
+        this.retriesPerRequest = retriesPerRequest;
+        this.maxSavedRetries = maxSavedRetries;
+        this.savedRetries = maxSavedRetries;
+    }
+
+    synchronized void onRequest() {
+        requests++;
+        savedRetries = Math.min(maxSavedRetries, savedRetries + retriesPerRequest);
+    }
+
+    synchronized boolean canRetry() {
+        return savedRetries >= 1.0f;
+    }
+
+    synchronized void onRetry() {
+        retries++;
+        savedRetries -= 1.0f;
+    }
+
+    synchronized void onBudgetExhausted() {
+        budgetExhausted++;
+    }
+
+    synchronized BotRetryStats toBotRetryStats(String botId) {
+        return new BotRetryStats(botId, requests, retries, budgetExhausted, savedRetries);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.repository.remote.runtime;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotCircuit;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+
+/**
+ * The Bot circuit breaker repository.
+ * <p>
+ * Every call to a Bot goes through that Bot's circuit breaker. Its state is kept in memory, so it starts closed each
+ * time the server starts.
+ *
+ * @author gazbert
+ */
+public interface BotCircuitRepository {
+
+    /**
+     * Returns the state of a Bot's circuit breaker. A Bot that has not been called yet has a closed circuit.
+     *
+     * @param botConfig the Bot.
+     * @return the state of the Bot's circuit breaker.
+     */
+    BotCircuit getBotCircuit(BotConfig botConfig);
+}
@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.repository.remote.runtime;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotRetryStats;
+
+/**
+ * The Bot retry repository.
+ * <p>
+ * Reads from a Bot that fail with a server error, or because the Bot could not be reached, are retried while both the
+ * Bot's retry budget and the budget shared by all the Bots have retries left. The stats are kept in memory, so they
+ * start again each time the server starts.
+ *
+ * @author gazbert
+ */
+public interface BotRetryRepository {
+
+    /**
+     * Returns the retry stats of a Bot. A Bot that has not been called yet has a full budget and no requests.
+     *
+     * @param botConfig the Bot.
+     * @return the Bot's retry stats.
+     */
+    BotRetryStats getBotRetryStats(BotConfig botConfig);
+
+    /**
+     * Returns the retry stats of all the Bots together, with the budget they share.
+     *
+     * @return the retry stats of all the Bots; its Bot id is null.
+     */
+    BotRetryStats getTotalRetryStats();
+}
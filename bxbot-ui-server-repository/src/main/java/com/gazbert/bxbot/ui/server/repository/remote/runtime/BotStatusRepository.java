@@ -25,14 +25,24 @@ package com.gazbert.bxbot.ui.server.repository.remote.runtime;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.bot.BotStatus;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The remote Bot Status repository.
  * <p>
  * It sends runtime status commands to remote BX-bot nodes.
+ * <p>
+ * Each call has an async variant that returns as soon as the request has been sent. Its future completes with
+ * the same result the blocking call returns, including when the call to the Bot fails.
+ * <p>
+ * The status is null if the call to the Bot fails, and "unavailable" if the Bot's circuit breaker is open so it was
+ * not called at all.
  *
  * @author gazbert
  */
 public interface BotStatusRepository {
 
     BotStatus getBotStatus(BotConfig botConfig);
+
+    CompletableFuture<BotStatus> getBotStatusAsync(BotConfig botConfig);
 }
@@ -25,13 +25,17 @@ package com.gazbert.bxbot.ui.server.repository.remote.runtime.impl;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.bot.BotStatus;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
 import com.gazbert.bxbot.ui.server.repository.remote.runtime.BotStatusRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.client.support.BasicAuthorizationInterceptor;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Repository;
-import org.springframework.web.client.RestClientException;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.isRefusedByCircuitBreaker;
+import static com.gazbert.bxbot.ui.server.repository.remote.http.BotCallFailures.logFailure;
 
 /**
  * A REST client implementation of the remote Bot status repository.
@@ -43,30 +47,33 @@ public class BotStatusRepositoryRestClient extends AbstractRuntimeRepositoryRest
 
     private static final Logger LOG = LogManager.getLogger();
     private static final String STATUS_RESOURCE_PATH = RUNTIME_RESOURCE_PATH + "/status";
+    private static final String UNAVAILABLE_STATUS = "unavailable"; // the Bot's circuit breaker is open
 
-    public BotStatusRepositoryRestClient(RestTemplateBuilder restTemplateBuilder) {
-        super(restTemplateBuilder);
+    public BotStatusRepositoryRestClient(BotRestClient botRestClient) {
+        super(botRestClient);
     }
 
     @Override
     public BotStatus getBotStatus(BotConfig botConfig) {
+        return getBotStatusAsync(botConfig).join();
+    }
 
-        try {
-            restTemplate.getInterceptors().clear();
-            restTemplate.getInterceptors().add(new BasicAuthorizationInterceptor(
-                    botConfig.getUsername(), botConfig.getPassword()));
-
-            final String endpointUrl = botConfig.getBaseUrl() + STATUS_RESOURCE_PATH;
-            LOG.info(() -> "Fetching BotStatus from: " + endpointUrl);
-
-            final BotStatus botStatus = restTemplate.getForObject(endpointUrl, BotStatus.class);
+    @Override
+    public CompletableFuture<BotStatus> getBotStatusAsync(BotConfig botConfig) {
 
-            LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + botStatus);
-            return botStatus;
+        final String endpointUrl = botConfig.getBaseUrl() + STATUS_RESOURCE_PATH;
+        LOG.info(() -> "Fetching BotStatus from: " + endpointUrl);
 
-        } catch (RestClientException e) {
-            LOG.error(FAILED_TO_INVOKE_REMOTE_BOT_LOG_MSG + e.getMessage(), e);
-            return null;
-        }
+        return botRestClient.exchange(botConfig, endpointUrl, HttpMethod.GET, null, BotStatus.class)
+                .handle((botStatus, e) -> {
+                    if (e != null) {
+                        logFailure(LOG, e);
+                        return isRefusedByCircuitBreaker(e)
+                                ? new BotStatus(botConfig.getId(), botConfig.getAlias(), UNAVAILABLE_STATUS)
+                                : null;
+                    }
+                    LOG.info(() -> REMOTE_RESPONSE_RECEIVED_LOG_MSG + botStatus);
+                    return botStatus;
+                });
     }
-}
\ No newline at end of file
+}
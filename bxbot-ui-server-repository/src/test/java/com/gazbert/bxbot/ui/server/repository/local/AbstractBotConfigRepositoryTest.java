@@ -0,0 +1,492 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local;
+
+import com.gazbert.bxbot.ui.server.datastore.BotsConfigStreamer;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
+import com.gazbert.bxbot.ui.server.domain.bot.SavedBotConfigs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests shared by all the Bot configuration repository implementations. They run against the real datastore, which
+ * is seeded from an XML config file holding two Bots.
+ *
+ * @author gazbert
+ */
+public abstract class AbstractBotConfigRepositoryTest {
+
+    protected static final String UNKNOWN_BOT_ID = "unknown-or-new-bot-id";
+
+    protected static final String BOT_1_ID = "bitstamp-bot-1";
+    protected static final String BOT_1_ALIAS = "Bitstamp Bot";
+    protected static final String BOT_1_UPDATED_ALIAS = "Bitstamp Bot Updated";
+    protected static final String BOT_1_BASE_URL = "https://hostname.one/api";
+    protected static final String BOT_1_HOST = "hostname.one";
+    protected static final String BOT_1_USERNAME = "admin";
+    protected static final String BOT_1_PASSWORD = "password";
+
+    protected static final String BOT_2_ID = "gdax-bot-1";
+    protected static final String BOT_2_ALIAS = "GDAX Bot";
+    protected static final String BOT_2_BASE_URL = "http://hostname.two:8080/api";
+    protected static final String BOT_2_HOST = "hostname.two:8080";
+    protected static final String BOT_2_USERNAME = "admin";
+    protected static final String BOT_2_PASSWORD = "password";
+
+    protected static final String IMPORTED_BOT_ID = "kraken-bot-1";
+
+    protected static final String NEW_BOT_ALIAS = "Gemini Bot";
+    protected static final String NEW_BOT_URL = "https://hostname.new/api";
+    protected static final String NEW_BOT_HOST = "hostname.new";
+    protected static final String NEW_BOT_USERNAME = "admin";
+    protected static final String NEW_BOT_PASSWORD = "password";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected String xmlConfigFile;
+    private BotConfigRepository botConfigRepository;
+
+    @Before
+    public void setupRepository() throws Exception {
+        xmlConfigFile = folder.getRoot().toPath().resolve("bots.xml").toString();
+        BotsConfigStreamer.writeBots(allTheInternalBotsConfig(), xmlConfigFile);
+        botConfigRepository = openRepository();
+    }
+
+    @After
+    public void closeRepository() throws Exception {
+        closeRepository(botConfigRepository);
+    }
+
+    /*
+     * Opens the repository under test on the datastore in the temporary folder, seeded from xmlConfigFile.
+     */
+    protected abstract BotConfigRepository openRepository() throws Exception;
+
+    protected abstract void closeRepository(BotConfigRepository repository) throws Exception;
+
+    /*
+     * Whether findAll returns the Bots in the order they were created. Repositories that spread the Bots over
+     * several stores return them in store order instead.
+     */
+    protected boolean keepsCreationOrder() {
+        return true;
+    }
+
+    @Test
+    public void whenFindAllCalledThenExpectRepositoryToReturnAllBotConfigs() throws Exception {
+
+        final List<BotConfig> botConfigItems = botConfigRepository.findAll();
+
+        assertAllIds(botConfigItems, BOT_1_ID, BOT_2_ID);
+        final BotConfig bot1 = botConfigItems.get(ids(botConfigItems).indexOf(BOT_1_ID));
+        assertBot1(bot1, BOT_1_ALIAS);
+        final BotConfig bot2 = botConfigItems.get(ids(botConfigItems).indexOf(BOT_2_ID));
+        assertThat(bot2.getAlias()).isEqualTo(BOT_2_ALIAS);
+        assertThat(bot2.getBaseUrl()).isEqualTo(BOT_2_BASE_URL);
+        assertThat(bot2.getUsername()).isEqualTo(BOT_2_USERNAME);
+        assertThat(bot2.getPassword()).isEqualTo(BOT_2_PASSWORD);
+    }
+
+    @Test
+    public void whenFindByIdCalledWithKnownIdThenReturnMatchingBotConfig() throws Exception {
+        assertBot1(botConfigRepository.findById(BOT_1_ID), BOT_1_ALIAS);
+    }
+
+    @Test
+    public void whenFindByIdCalledWithUnknownIdThenReturnEmptyBotConfig() throws Exception {
+        assertEmpty(botConfigRepository.findById(UNKNOWN_BOT_ID));
+    }
+
+    @Test
+    public void whenFindByAliasCalledThenReturnMatchingBotConfigs() throws Exception {
+
+        assertThat(ids(botConfigRepository.findByAlias(BOT_2_ALIAS))).containsExactly(BOT_2_ID);
+        assertThat(botConfigRepository.findByAlias(NEW_BOT_ALIAS)).isEmpty();
+    }
+
+    @Test
+    public void whenFindByHostCalledThenReturnBotConfigsOnThatHost() throws Exception {
+
+        assertThat(ids(botConfigRepository.findByHost(BOT_1_HOST))).containsExactly(BOT_1_ID);
+        assertThat(ids(botConfigRepository.findByHost(BOT_1_HOST.toUpperCase() + ":443"))).containsExactly(BOT_1_ID);
+        assertThat(ids(botConfigRepository.findByHost(BOT_2_HOST))).containsExactly(BOT_2_ID);
+        assertThat(botConfigRepository.findByHost("hostname.two")).isEmpty(); // not on the default port
+        assertThat(botConfigRepository.findByHost(NEW_BOT_HOST)).isEmpty();
+    }
+
+    @Test
+    public void whenSaveCalledWithKnownIdThenExpectUpdatedBotConfigToBeReturnedAndIndexed() throws Exception {
+
+        final BotConfig botConfig = botConfigRepository.save(
+                new BotConfig(BOT_1_ID, BOT_1_UPDATED_ALIAS, NEW_BOT_URL, BOT_1_USERNAME, BOT_1_PASSWORD));
+
+        assertThat(botConfig.getId()).isEqualTo(BOT_1_ID);
+        assertThat(botConfig.getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+        assertThat(botConfig.getBaseUrl()).isEqualTo(NEW_BOT_URL);
+
+        assertThat(botConfigRepository.findById(BOT_1_ID).getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+        assertThat(botConfigRepository.findByAlias(BOT_1_ALIAS)).isEmpty();
+        assertThat(ids(botConfigRepository.findByAlias(BOT_1_UPDATED_ALIAS))).containsExactly(BOT_1_ID);
+        assertThat(botConfigRepository.findByHost(BOT_1_HOST)).isEmpty();
+        assertThat(ids(botConfigRepository.findByHost(NEW_BOT_HOST))).containsExactly(BOT_1_ID);
+
+        // updating a Bot keeps its place
+        assertAllIds(botConfigRepository.findAll(), BOT_1_ID, BOT_2_ID);
+    }
+
+    @Test
+    public void whenSaveCalledWithEmptyIdThenExpectCreatedBotConfigToBeReturned() throws Exception {
+
+        final BotConfig botConfig = botConfigRepository.save(
+                new BotConfig("", NEW_BOT_ALIAS, NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD));
+
+        assertThat(botConfig.getId()).isNotEmpty();
+        assertThat(botConfig.getAlias()).isEqualTo(NEW_BOT_ALIAS);
+        assertThat(botConfig.getBaseUrl()).isEqualTo(NEW_BOT_URL);
+        assertThat(botConfig.getUsername()).isEqualTo(NEW_BOT_USERNAME);
+        assertThat(botConfig.getPassword()).isEqualTo(NEW_BOT_PASSWORD);
+
+        assertThat(botConfigRepository.findById(botConfig.getId()).getAlias()).isEqualTo(NEW_BOT_ALIAS);
+        assertAllIds(botConfigRepository.findAll(), BOT_1_ID, BOT_2_ID, botConfig.getId());
+    }
+
+    @Test
+    public void whenSaveCalledWithUnknownIdThenExpectEmptyBotConfigToBeReturned() throws Exception {
+
+        assertEmpty(botConfigRepository.save(
+                new BotConfig(UNKNOWN_BOT_ID, BOT_1_ALIAS, BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD)));
+        assertThat(botConfigRepository.findAll().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenDeleteCalledWithKnownIdThenReturnDeletedBotConfig() throws Exception {
+
+        assertBot1(botConfigRepository.delete(BOT_1_ID), BOT_1_ALIAS);
+        assertEmpty(botConfigRepository.findById(BOT_1_ID));
+        assertThat(botConfigRepository.findByHost(BOT_1_HOST)).isEmpty();
+        assertThat(ids(botConfigRepository.findAll())).containsExactly(BOT_2_ID);
+    }
+
+    @Test
+    public void whenDeleteCalledWithUnknownIdThenReturnEmptyBotConfig() throws Exception {
+
+        assertEmpty(botConfigRepository.delete(UNKNOWN_BOT_ID));
+        assertThat(botConfigRepository.findAll().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenSaveCalledThenExpectBotConfigVersionToBeIncremented() throws Exception {
+
+        assertThat(botConfigRepository.findById(BOT_1_ID).getVersion()).isEqualTo(0L); // seeded without a version
+
+        final BotConfig newBotConfig = botConfigRepository.save(
+                new BotConfig(null, NEW_BOT_ALIAS, NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD));
+        assertThat(newBotConfig.getVersion()).isEqualTo(1L);
+
+        final BotConfig unconditionalUpdate = new BotConfig(newBotConfig);
+        unconditionalUpdate.setVersion(null);
+        assertThat(botConfigRepository.save(unconditionalUpdate).getVersion()).isEqualTo(2L);
+
+        final BotConfig conditionalUpdate = botConfigRepository.findById(newBotConfig.getId());
+        assertThat(conditionalUpdate.getVersion()).isEqualTo(2L);
+        conditionalUpdate.setAlias(BOT_1_UPDATED_ALIAS);
+        assertThat(botConfigRepository.save(conditionalUpdate).getVersion()).isEqualTo(3L);
+        assertThat(botConfigRepository.findById(newBotConfig.getId()).getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    public void whenSaveCalledWithStaleVersionThenExpectUpdateToBeRejected() throws Exception {
+
+        final BotConfig firstEdit = botConfigRepository.findById(BOT_1_ID);
+        final BotConfig secondEdit = botConfigRepository.findById(BOT_1_ID);
+
+        firstEdit.setAlias(BOT_1_UPDATED_ALIAS);
+        assertThat(botConfigRepository.save(firstEdit).getVersion()).isEqualTo(1L);
+
+        secondEdit.setAlias(NEW_BOT_ALIAS);
+        try {
+            botConfigRepository.save(secondEdit);
+            fail("Expected the update of a stale Bot config to be rejected");
+        } catch (OptimisticLockingFailureException e) {
+            // expected
+        }
+
+        final BotConfig storedBotConfig = botConfigRepository.findById(BOT_1_ID);
+        assertThat(storedBotConfig.getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+        assertThat(storedBotConfig.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    public void whenSaveAllCalledThenExpectBotConfigsToBeCreatedOrUpdatedAndReturnedInOrder() throws Exception {
+
+        final List<BotConfig> botConfigs = new ArrayList<>();
+        botConfigs.add(new BotConfig(null, NEW_BOT_ALIAS, NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD));
+        botConfigs.add(new BotConfig(BOT_1_ID, BOT_1_UPDATED_ALIAS, BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD));
+        botConfigs.add(new BotConfig(IMPORTED_BOT_ID, NEW_BOT_ALIAS, NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD));
+
+        final SavedBotConfigs saved = botConfigRepository.saveAll(botConfigs);
+        final List<BotConfig> savedBotConfigs = saved.getBotConfigs();
+
+        assertThat(savedBotConfigs.size()).isEqualTo(3);
+        final String newBotId = savedBotConfigs.get(0).getId();
+        assertThat(newBotId).isNotEmpty();
+        assertThat(saved.getCreatedIds()).containsOnly(newBotId, IMPORTED_BOT_ID);
+        assertThat(ids(savedBotConfigs)).containsExactly(newBotId, BOT_1_ID, IMPORTED_BOT_ID);
+        assertThat(savedBotConfigs.get(0).getVersion()).isEqualTo(1L);
+        assertThat(savedBotConfigs.get(1).getVersion()).isEqualTo(1L); // seeded at version 0
+        assertThat(savedBotConfigs.get(2).getVersion()).isEqualTo(1L);
+
+        closeRepository(botConfigRepository);
+        botConfigRepository = openRepository();
+
+        assertThat(ids(botConfigRepository.findAll())).containsOnly(BOT_1_ID, BOT_2_ID, newBotId, IMPORTED_BOT_ID);
+        assertBot1(botConfigRepository.findById(BOT_1_ID), BOT_1_UPDATED_ALIAS);
+        assertThat(ids(botConfigRepository.findByAlias(NEW_BOT_ALIAS))).containsOnly(newBotId, IMPORTED_BOT_ID);
+    }
+
+    @Test
+    public void whenSaveAllCalledWithVersionsThenExpectOnlyMatchingVersionsToBeApplied() throws Exception {
+
+        final BotConfig bot1 = botConfigRepository.findById(BOT_1_ID);
+        final BotConfig bot2 = botConfigRepository.findById(BOT_2_ID);
+        bot1.setAlias(BOT_1_UPDATED_ALIAS);
+        bot2.setAlias(NEW_BOT_ALIAS);
+
+        final List<BotConfig> savedBotConfigs = botConfigRepository.saveAll(Arrays.asList(bot1, bot2)).getBotConfigs();
+        assertThat(savedBotConfigs.get(0).getVersion()).isEqualTo(1L);
+        assertThat(savedBotConfigs.get(1).getVersion()).isEqualTo(1L);
+
+        // bot1 is still at the version it was read at, but bot2 has changed since
+        final BotConfig staleBot2 = new BotConfig(bot2);
+        staleBot2.setAlias(BOT_2_ALIAS);
+        final BotConfig newBot = new BotConfig(null, NEW_BOT_ALIAS, NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD);
+        try {
+            botConfigRepository.saveAll(Arrays.asList(newBot, savedBotConfigs.get(0), staleBot2));
+            fail("Expected the import of a stale Bot config to be rejected");
+        } catch (OptimisticLockingFailureException e) {
+            assertThat(e.getMessage()).contains(BOT_2_ID).doesNotContain(BOT_1_ID);
+        }
+
+        assertThat(ids(botConfigRepository.findAll())).containsOnly(BOT_1_ID, BOT_2_ID);
+        assertThat(botConfigRepository.findById(BOT_1_ID).getVersion()).isEqualTo(1L);
+        assertThat(botConfigRepository.findById(BOT_2_ID).getAlias()).isEqualTo(NEW_BOT_ALIAS);
+    }
+
+    @Test
+    public void whenStreamAllCalledThenExpectAllBotConfigsInFindAllOrder() throws Exception {
+
+        botConfigRepository.save(new BotConfig(null, NEW_BOT_ALIAS, NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD));
+
+        final List<BotConfig> streamedBotConfigs = new ArrayList<>();
+        botConfigRepository.streamAll(streamedBotConfigs::add);
+
+        assertThat(ids(streamedBotConfigs)).containsExactly(ids(botConfigRepository.findAll()).toArray(new String[0]));
+        assertThat(streamedBotConfigs.get(0).getVersion()).isNotNull();
+    }
+
+    @Test
+    public void whenFindPageCalledThenExpectAllBotConfigsPagedInIdOrder() throws Exception {
+
+        saveKrakenBots();
+
+        final List<String> pagedIds = new ArrayList<>();
+        final int pageCount = fetchAllPages(BotPageRequest.SortField.ID, false, null, null, 2, pagedIds);
+
+        assertThat(pagedIds).containsExactly(BOT_1_ID, BOT_2_ID, "kraken-bot-a", "kraken-bot-b", "kraken-bot-c");
+        assertThat(pageCount).isEqualTo(3);
+    }
+
+    @Test
+    public void whenFindPageCalledWithAliasPrefixThenExpectMatchingBotConfigsInDescendingAliasOrder()
+            throws Exception {
+
+        saveKrakenBots();
+
+        final List<String> pagedIds = new ArrayList<>();
+        final int pageCount = fetchAllPages(BotPageRequest.SortField.ALIAS, true, "Kraken", null, 2, pagedIds);
+
+        // Bots with the same alias are sorted by id
+        assertThat(pagedIds).containsExactly("kraken-bot-a", "kraken-bot-c", "kraken-bot-b");
+        assertThat(pageCount).isEqualTo(2);
+    }
+
+    @Test
+    public void whenFindPageCalledWithHostThenExpectOnlyBotConfigsOnThatHost() throws Exception {
+
+        saveKrakenBots();
+
+        final List<String> pagedIds = new ArrayList<>();
+        fetchAllPages(BotPageRequest.SortField.ALIAS, false, null, NEW_BOT_HOST, 1, pagedIds);
+
+        assertThat(pagedIds).containsExactly("kraken-bot-b", "kraken-bot-c");
+    }
+
+    @Test
+    public void whenBotOnPageIsDeletedThenExpectNextPageToCarryOnAfterIt() throws Exception {
+
+        saveKrakenBots();
+
+        final BotPage<BotConfig> firstPage = botConfigRepository.findPage(
+                new BotPageRequest(3, null, BotPageRequest.SortField.ID, false, null, null));
+        assertThat(ids(firstPage.getItems())).containsExactly(BOT_1_ID, BOT_2_ID, "kraken-bot-a");
+        botConfigRepository.delete("kraken-bot-a");
+
+        final BotPage<BotConfig> secondPage = botConfigRepository.findPage(
+                new BotPageRequest(3, firstPage.getNextCursor(), BotPageRequest.SortField.ID, false, null, null));
+        assertThat(ids(secondPage.getItems())).containsExactly("kraken-bot-b", "kraken-bot-c");
+        assertThat(secondPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void whenFindPageCalledWithCursorForAnotherSortThenExpectItToBeRejected() throws Exception {
+
+        final BotPage<BotConfig> firstPage = botConfigRepository.findPage(
+                new BotPageRequest(1, null, BotPageRequest.SortField.ID, false, null, null));
+        assertThat(firstPage.getNextCursor()).isNotNull();
+
+        for (final String cursor : Arrays.asList(firstPage.getNextCursor(), "not-a-cursor!")) {
+            try {
+                botConfigRepository.findPage(
+                        new BotPageRequest(1, cursor, BotPageRequest.SortField.ALIAS, false, null, null));
+                fail("Expected cursor to be rejected: " + cursor);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void whenRepositoryIsReopenedThenExpectChangesToHaveBeenKept() throws Exception {
+
+        botConfigRepository.save(new BotConfig(BOT_1_ID, BOT_1_UPDATED_ALIAS, BOT_1_BASE_URL, BOT_1_USERNAME,
+                BOT_1_PASSWORD));
+        botConfigRepository.delete(BOT_2_ID);
+        final BotConfig newBotConfig = botConfigRepository.save(
+                new BotConfig(null, NEW_BOT_ALIAS, NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD));
+
+        closeRepository(botConfigRepository);
+        botConfigRepository = openRepository();
+
+        assertAllIds(botConfigRepository.findAll(), BOT_1_ID, newBotConfig.getId());
+        assertBot1(botConfigRepository.findById(BOT_1_ID), BOT_1_UPDATED_ALIAS);
+        assertThat(botConfigRepository.findById(BOT_1_ID).getVersion()).isEqualTo(1L);
+        assertThat(ids(botConfigRepository.findByHost(NEW_BOT_HOST))).containsExactly(newBotConfig.getId());
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private void assertAllIds(List<BotConfig> botConfigs, String... expectedIds) {
+        if (keepsCreationOrder()) {
+            assertThat(ids(botConfigs)).containsExactly(expectedIds);
+        } else {
+            assertThat(ids(botConfigs)).containsOnly(expectedIds);
+            assertThat(botConfigs.size()).isEqualTo(expectedIds.length);
+        }
+    }
+
+    /*
+     * Adds three Bots: two on the new host, and two with the same alias.
+     */
+    private void saveKrakenBots() {
+        botConfigRepository.saveAll(Arrays.asList(
+                new BotConfig("kraken-bot-c", "Kraken", NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD),
+                new BotConfig("kraken-bot-a", "Kraken EU", BOT_1_BASE_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD),
+                new BotConfig("kraken-bot-b", "Kraken", NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD)));
+    }
+
+    /*
+     * Fetches every page for the given sort and filters, adding the ids on each page to pagedIds in order, and
+     * returns the number of pages.
+     */
+    private int fetchAllPages(BotPageRequest.SortField sortField, boolean descending, String aliasPrefix, String host,
+                              int limit, List<String> pagedIds) {
+        int pageCount = 0;
+        String cursor = null;
+        do {
+            final BotPage<BotConfig> page = botConfigRepository.findPage(
+                    new BotPageRequest(limit, cursor, sortField, descending, aliasPrefix, host));
+            assertThat(page.getItems().size()).isLessThanOrEqualTo(limit);
+            pagedIds.addAll(ids(page.getItems()));
+            cursor = page.getNextCursor();
+            pageCount++;
+        } while (cursor != null);
+        return pageCount;
+    }
+
+    private static void assertBot1(BotConfig botConfig, String expectedAlias) {
+        assertThat(botConfig.getId()).isEqualTo(BOT_1_ID);
+        assertThat(botConfig.getAlias()).isEqualTo(expectedAlias);
+        assertThat(botConfig.getBaseUrl()).isEqualTo(BOT_1_BASE_URL);
+        assertThat(botConfig.getUsername()).isEqualTo(BOT_1_USERNAME);
+        assertThat(botConfig.getPassword()).isEqualTo(BOT_1_PASSWORD);
+    }
+
+    private static void assertEmpty(BotConfig botConfig) {
+        assertThat(botConfig.getId()).isEqualTo(null);
+        assertThat(botConfig.getAlias()).isEqualTo(null);
+        assertThat(botConfig.getBaseUrl()).isEqualTo(null);
+        assertThat(botConfig.getUsername()).isEqualTo(null);
+        assertThat(botConfig.getPassword()).isEqualTo(null);
+    }
+
+    protected static List<String> ids(List<BotConfig> botConfigs) {
+        return botConfigs.stream().map(BotConfig::getId).collect(Collectors.toList());
+    }
+
+    protected static List<BotType> allTheInternalBotsConfig() {
+        final List<BotType> bots = new ArrayList<>();
+        bots.add(botType(BOT_1_ID, BOT_1_ALIAS, BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD));
+        bots.add(botType(BOT_2_ID, BOT_2_ALIAS, BOT_2_BASE_URL, BOT_2_USERNAME, BOT_2_PASSWORD));
+        return bots;
+    }
+
+    protected static BotType botType(String id, String alias, String baseUrl, String username, String password) {
+        final BotType botType = new BotType();
+        botType.setId(id);
+        botType.setAlias(alias);
+        botType.setBaseUrl(baseUrl);
+        botType.setUsername(username);
+        botType.setPassword(password);
+        return botType;
+    }
+}
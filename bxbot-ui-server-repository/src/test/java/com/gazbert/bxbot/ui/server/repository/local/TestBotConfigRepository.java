@@ -23,24 +23,38 @@
 
 package com.gazbert.bxbot.ui.server.repository.local;
 
-import com.gazbert.bxbot.ui.server.datastore.ConfigurationManager;
+import com.gazbert.bxbot.ui.server.datastore.BotsConfigStreamer;
+import com.gazbert.bxbot.ui.server.datastore.BotsJournal;
+import com.gazbert.bxbot.ui.server.datastore.BotsJournalRecord;
+import com.gazbert.bxbot.ui.server.datastore.BotsSnapshot;
 import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
 import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotsType;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.repository.local.impl.BotConfigRepositoryXmlDatastore;
 import org.junit.Before;
 import org.junit.Test;
+import org.easymock.IAnswer;
 import org.junit.runner.RunWith;
 import org.powermock.api.easymock.PowerMock;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.gazbert.bxbot.ui.server.datastore.FileLocations.BOTS_CONFIG_XML_FILENAME;
 import static com.gazbert.bxbot.ui.server.datastore.FileLocations.BOTS_CONFIG_XSD_FILENAME;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.fail;
 
 /**
  * Tests the Bot configuration repository behaves as expected.
@@ -48,7 +62,7 @@ import static org.easymock.EasyMock.*;
  * @author gazbert
  */
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({ConfigurationManager.class, BotConfigRepositoryXmlDatastore.class})
+@PrepareForTest({BotsConfigStreamer.class, BotConfigRepositoryXmlDatastore.class})
 public class TestBotConfigRepository {
 
     // Mocked out methods
@@ -59,39 +73,49 @@ public class TestBotConfigRepository {
 
     private static final String BOT_1_ID = "bitstamp-bot-1";
     private static final String BOT_1_ALIAS = "Bitstamp Bot";
+    private static final String BOT_1_UPDATED_ALIAS = "Bitstamp Bot Updated";
     private static final String BOT_1_BASE_URL = "https://hostname.one/api";
+    private static final String BOT_1_HOST = "hostname.one";
     private static final String BOT_1_USERNAME = "admin";
     private static final String BOT_1_PASSWORD = "password";
 
     private static final String BOT_2_ID = "gdax-bot-1";
     private static final String BOT_2_ALIAS = "GDAX Bot";
     private static final String BOT_2_BASE_URL = "https://hostname.two/api";
+    private static final String BOT_2_HOST = "hostname.two";
     private static final String BOT_2_USERNAME = "admin";
     private static final String BOT_2_PASSWORD = "password";
 
     private static final String NEW_BOT_NAME = "Gemini Bot";
     private static final String NEW_BOT_URL = "https://hostname.new/api";
+    private static final String NEW_BOT_HOST = "hostname.new";
     private static final String NEW_BOT_USERNAME = "admin";
     private static final String NEW_BOT_PASSWORD = "password";
 
 
+    private BotsJournal botsJournal;
+    private BotsSnapshot botsSnapshot;
+
     @Before
     public void setup() throws Exception {
-        PowerMock.mockStatic(ConfigurationManager.class);
+        PowerMock.mockStatic(BotsConfigStreamer.class);
+        botsJournal = PowerMock.createMock(BotsJournal.class);
+        botsSnapshot = PowerMock.createNiceMock(BotsSnapshot.class); // no binary snapshot unless a test says so
     }
 
     @Test
     public void whenFindAllCalledThenExpectRepositoryToReturnAllBotConfigs() throws Exception {
 
-        expect(ConfigurationManager.loadConfig(
-                eq(BotsType.class),
+        expect(BotsConfigStreamer.readBots(
                 eq(BOTS_CONFIG_XML_FILENAME),
-                eq(BOTS_CONFIG_XSD_FILENAME))).
-                andReturn(allTheInternalBotsConfig());
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
 
         PowerMock.replayAll();
 
-        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore();
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
         final List<BotConfig> botConfigItems = botConfigRepository.findAll();
 
         assertThat(botConfigItems.size()).isEqualTo(2);
@@ -114,15 +138,16 @@ public class TestBotConfigRepository {
     @Test
     public void whenFindByIdCalledWithKnownIdThenReturnMatchingBotConfig() throws Exception {
 
-        expect(ConfigurationManager.loadConfig(
-                eq(BotsType.class),
+        expect(BotsConfigStreamer.readBots(
                 eq(BOTS_CONFIG_XML_FILENAME),
-                eq(BOTS_CONFIG_XSD_FILENAME))).
-                andReturn(allTheInternalBotsConfig());
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
 
         PowerMock.replayAll();
 
-        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore();
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
         final BotConfig botConfig = botConfigRepository.findById(BOT_1_ID);
 
         assertThat(botConfig.getId()).isEqualTo(BOT_1_ID);
@@ -137,15 +162,16 @@ public class TestBotConfigRepository {
     @Test
     public void whenFindByIdCalledWithUnknownIdThenReturnEmptyBotConfig() throws Exception {
 
-        expect(ConfigurationManager.loadConfig(
-                eq(BotsType.class),
+        expect(BotsConfigStreamer.readBots(
                 eq(BOTS_CONFIG_XML_FILENAME),
-                eq(BOTS_CONFIG_XSD_FILENAME))).
-                andReturn(allTheInternalBotsConfig());
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
 
         PowerMock.replayAll();
 
-        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore();
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
         final BotConfig botConfig = botConfigRepository.findById(UNKNOWN_BOT_ID);
 
         assertThat(botConfig.getId()).isEqualTo(null);
@@ -158,32 +184,372 @@ public class TestBotConfigRepository {
     }
 
     @Test
-    public void whenSaveCalledWithKnownIdThenExpectUpdatedBotConfigToBeReturned() throws Exception {
+    public void whenFindByAliasCalledWithKnownAliasThenReturnMatchingBotConfigs() throws Exception {
+
+        expect(BotsConfigStreamer.readBots(
+                eq(BOTS_CONFIG_XML_FILENAME),
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+        final List<BotConfig> botConfigItems = botConfigRepository.findByAlias(BOT_2_ALIAS);
+
+        assertThat(botConfigItems.size()).isEqualTo(1);
+        assertThat(botConfigItems.get(0).getId()).isEqualTo(BOT_2_ID);
+        assertThat(botConfigRepository.findByAlias(NEW_BOT_NAME)).isEmpty();
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    public void whenFindByHostCalledThenReturnBotConfigsOnThatHost() throws Exception {
+
+        expect(BotsConfigStreamer.readBots(
+                eq(BOTS_CONFIG_XML_FILENAME),
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+
+        final List<BotConfig> botConfigItems = botConfigRepository.findByHost(BOT_1_HOST);
+        assertThat(botConfigItems.size()).isEqualTo(1);
+        assertThat(botConfigItems.get(0).getId()).isEqualTo(BOT_1_ID);
+
+        // the default https port is filled in for base URLs without one
+        assertThat(botConfigRepository.findByHost(BOT_1_HOST + ":443").get(0).getId()).isEqualTo(BOT_1_ID);
+        assertThat(botConfigRepository.findByHost(BOT_1_HOST + ":8080")).isEmpty();
+        assertThat(botConfigRepository.findByHost(NEW_BOT_HOST)).isEmpty();
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    public void whenBotConfigIsUpdatedOrDeletedThenExpectIndexesToBeMaintained() throws Exception {
+
+        expect(BotsConfigStreamer.readBots(
+                eq(BOTS_CONFIG_XML_FILENAME),
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        expect(botsJournal.appendUpdate(anyObject(BotType.class))).andReturn(1L);
+        botsJournal.sync(1L);
+        expect(botsJournal.appendDelete(BOT_2_ID)).andReturn(2L);
+        botsJournal.sync(2L);
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+
+        botConfigRepository.save(new BotConfig(BOT_2_ID, BOT_2_ALIAS, NEW_BOT_URL, BOT_2_USERNAME, BOT_2_PASSWORD));
+        assertThat(botConfigRepository.findByHost(BOT_2_HOST)).isEmpty();
+        assertThat(botConfigRepository.findByHost(NEW_BOT_HOST).get(0).getId()).isEqualTo(BOT_2_ID);
+
+        botConfigRepository.delete(BOT_2_ID);
+        assertThat(botConfigRepository.findByHost(NEW_BOT_HOST)).isEmpty();
+        assertThat(botConfigRepository.findByAlias(BOT_2_ALIAS)).isEmpty();
+        assertThat(botConfigRepository.findById(BOT_2_ID).getId()).isNull();
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void whenBinarySnapshotMatchesXmlConfigThenExpectXmlConfigNotToBeParsed() throws Exception {
+
+        botsSnapshot = PowerMock.createMock(BotsSnapshot.class);
+        expect(botsSnapshot.load(anyObject())).andAnswer(() -> {
+            allTheInternalBotsConfig().getBots().forEach((Consumer<BotType>) getCurrentArguments()[0]);
+            return true;
+        });
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+        final List<BotConfig> botConfigItems = botConfigRepository.findAll();
+
+        assertThat(botConfigItems.size()).isEqualTo(2);
+        assertThat(botConfigItems.get(0).getId()).isEqualTo(BOT_1_ID);
+        assertThat(botConfigItems.get(1).getId()).isEqualTo(BOT_2_ID);
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    public void whenBinarySnapshotIsStaleThenExpectXmlConfigToBeParsedAndSnapshotRewritten() throws Exception {
+
+        botsSnapshot = PowerMock.createMock(BotsSnapshot.class);
+        expect(botsSnapshot.load(anyObject())).andReturn(false);
+        expect(BotsConfigStreamer.readBots(
+                eq(BOTS_CONFIG_XML_FILENAME),
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        botsSnapshot.save(anyObject());
+        expectLastCall().andThrow(new IllegalStateException("disk full")); // must not fail the load
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+        assertThat(botConfigRepository.findAll().size()).isEqualTo(2);
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    public void whenFindCalledRepeatedlyThenExpectXmlConfigToBeLoadedOnlyOnce() throws Exception {
+
+        expect(BotsConfigStreamer.readBots(
+                eq(BOTS_CONFIG_XML_FILENAME),
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+        assertThat(botConfigRepository.findAll().size()).isEqualTo(2);
+        assertThat(botConfigRepository.findById(BOT_1_ID).getId()).isEqualTo(BOT_1_ID);
+        assertThat(botConfigRepository.findById(BOT_2_ID).getId()).isEqualTo(BOT_2_ID);
+        assertThat(botConfigRepository.findAll().size()).isEqualTo(2);
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    public void whenSaveCalledThenExpectSubsequentReadsToBeServedFromMemory() throws Exception {
+
+        expect(BotsConfigStreamer.readBots(
+                eq(BOTS_CONFIG_XML_FILENAME),
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        expect(botsJournal.appendUpdate(anyObject(BotType.class))).andReturn(1L);
+        botsJournal.sync(1L);
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+        botConfigRepository.save(someUpdatedExternalBotConfig());
 
-        expect(ConfigurationManager.loadConfig(
-                eq(BotsType.class),
+        final BotConfig botConfig = botConfigRepository.findById(BOT_1_ID);
+        assertThat(botConfig.getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+
+        final List<BotConfig> botConfigItems = botConfigRepository.findAll();
+        assertThat(botConfigItems.size()).isEqualTo(2);
+        assertThat(botConfigItems.get(0).getId()).isEqualTo(BOT_1_ID); // updated in place
+        assertThat(botConfigItems.get(0).getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    public void whenSaveIsInProgressThenExpectReadersNotToBlockAndToSeePreviousSnapshot() throws Exception {
+
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch allowWriteToFinish = new CountDownLatch(1);
+
+        expect(BotsConfigStreamer.readBots(
+                eq(BOTS_CONFIG_XML_FILENAME),
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        expect(botsJournal.appendUpdate(anyObject(BotType.class))).andReturn(1L);
+        botsJournal.sync(1L);
+        expectLastCall().andAnswer(() -> {
+            writeStarted.countDown();
+            allowWriteToFinish.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+        botConfigRepository.findAll(); // prime the snapshot
+
+        final ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            final Future<BotConfig> pendingSave = writer.submit(
+                    () -> botConfigRepository.save(someUpdatedExternalBotConfig()));
+            assertThat(writeStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // writer is waiting for its change to be durable - reads must not block and must not see it yet
+            assertThat(botConfigRepository.findById(BOT_1_ID).getAlias()).isEqualTo(BOT_1_ALIAS);
+            assertThat(botConfigRepository.findAll().size()).isEqualTo(2);
+
+            allowWriteToFinish.countDown();
+            assertThat(pendingSave.get(5, TimeUnit.SECONDS).getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+            assertThat(botConfigRepository.findById(BOT_1_ID).getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+        } finally {
+            writer.shutdownNow();
+        }
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    public void whenSaveFailsToPersistThenExpectInMemoryBotConfigToBeUnchanged() throws Exception {
+
+        expect(BotsConfigStreamer.readBots(
                 eq(BOTS_CONFIG_XML_FILENAME),
-                eq(BOTS_CONFIG_XSD_FILENAME))).
-                andReturn(allTheInternalBotsConfig());
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        expect(botsJournal.appendUpdate(anyObject(BotType.class)))
+                .andThrow(new IllegalStateException("disk full"));
+        expect(botsJournal.recover()).andReturn(true);
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+        try {
+            botConfigRepository.save(someUpdatedExternalBotConfig());
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertThat(botConfigRepository.findById(BOT_1_ID).getAlias()).isEqualTo(BOT_1_ALIAS);
+
+        PowerMock.verifyAll();
+    }
 
-        ConfigurationManager.saveConfig(
-                eq(BotsType.class),
-                anyObject(BotsType.class),
-                eq(BOTS_CONFIG_XML_FILENAME));
+    @Test
+    public void whenJournalSyncFailsThenExpectSaveToFailAndChangeToBeDiscarded() throws Exception {
 
-        expect(ConfigurationManager.loadConfig(
-                eq(BotsType.class),
+        expect(BotsConfigStreamer.readBots(
                 eq(BOTS_CONFIG_XML_FILENAME),
-                eq(BOTS_CONFIG_XSD_FILENAME))).
-                andReturn(allTheInternalBotsConfig());
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        expect(botsJournal.appendDelete(BOT_1_ID)).andReturn(1L);
+        botsJournal.sync(1L);
+        expectLastCall().andThrow(new IllegalStateException("fsync failed"));
+        expect(botsJournal.recover()).andReturn(true);
+
+        // the next write must build on the durable snapshot, which still has the deleted bot
+        expect(botsJournal.appendDelete(BOT_1_ID)).andReturn(2L);
+        botsJournal.sync(2L);
 
         PowerMock.replayAll();
 
-        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore();
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+        try {
+            botConfigRepository.delete(BOT_1_ID);
+            fail("Expected the delete to fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertThat(botConfigRepository.findById(BOT_1_ID).getId()).isEqualTo(BOT_1_ID);
+        assertThat(botConfigRepository.delete(BOT_1_ID).getId()).isEqualTo(BOT_1_ID);
+        assertThat(botConfigRepository.findById(BOT_1_ID).getId()).isNull();
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    public void whenJournalHasRecordsThenExpectThemToBeReplayedOverXmlConfig() throws Exception {
+
+        final BotType updatedBot1 = allTheInternalBotsConfig().getBots().get(0);
+        updatedBot1.setAlias(BOT_1_UPDATED_ALIAS);
+
+        expect(BotsConfigStreamer.readBots(
+                eq(BOTS_CONFIG_XML_FILENAME),
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Arrays.asList(
+                new BotsJournalRecord(1L, BotsJournalRecord.Operation.UPDATE, BOT_1_ID, updatedBot1),
+                new BotsJournalRecord(2L, BotsJournalRecord.Operation.DELETE, BOT_2_ID, null)));
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+        final List<BotConfig> botConfigItems = botConfigRepository.findAll();
+
+        assertThat(botConfigItems.size()).isEqualTo(1);
+        assertThat(botConfigItems.get(0).getId()).isEqualTo(BOT_1_ID);
+        assertThat(botConfigItems.get(0).getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+        assertThat(botConfigRepository.findById(BOT_2_ID).getId()).isNull();
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void whenCompactCalledThenExpectSnapshotToBeWrittenToXmlAndJournalTruncated() throws Exception {
+
+        expect(BotsConfigStreamer.readBots(
+                eq(BOTS_CONFIG_XML_FILENAME),
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+        expect(botsJournal.appendDelete(BOT_2_ID)).andReturn(7L);
+        botsJournal.sync(7L);
+
+        final List<BotType> compactedBots = new ArrayList<>();
+        BotsConfigStreamer.writeBots(anyObject(), eq(BOTS_CONFIG_XML_FILENAME));
+        expectLastCall().andAnswer(() -> {
+            ((Iterable<BotType>) getCurrentArguments()[0]).forEach(compactedBots::add);
+            return null;
+        });
+        botsJournal.truncateUpTo(7L);
+
+        PowerMock.replayAll();
+
+        final BotConfigRepositoryXmlDatastore botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
+        botConfigRepository.delete(BOT_2_ID);
+
+        botConfigRepository.compact();
+        botConfigRepository.compact(); // nothing new in the journal, so nothing more to do
+
+        assertThat(compactedBots.size()).isEqualTo(1);
+        assertThat(compactedBots.get(0).getId()).isEqualTo(BOT_1_ID);
+
+        PowerMock.verifyAll();
+    }
+
+    @Test
+    public void whenSaveCalledWithKnownIdThenExpectUpdatedBotConfigToBeReturned() throws Exception {
+
+        expect(BotsConfigStreamer.readBots(
+                eq(BOTS_CONFIG_XML_FILENAME),
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
+
+        expect(botsJournal.appendUpdate(anyObject(BotType.class))).andReturn(1L);
+        botsJournal.sync(1L);
+
+        PowerMock.replayAll();
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
         final BotConfig botConfig = botConfigRepository.save(someUpdatedExternalBotConfig());
 
         assertThat(botConfig.getId()).isEqualTo(BOT_1_ID);
-        assertThat(botConfig.getAlias()).isEqualTo(BOT_1_ALIAS);
+        assertThat(botConfig.getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
         assertThat(botConfig.getBaseUrl()).isEqualTo(BOT_1_BASE_URL);
         assertThat(botConfig.getUsername()).isEqualTo(BOT_1_USERNAME);
         assertThat(botConfig.getPassword()).isEqualTo(BOT_1_PASSWORD);
@@ -194,32 +560,25 @@ public class TestBotConfigRepository {
     @Test
     public void whenSaveCalledWithEmptyIdThenExpectCreatedBotConfigToBeReturned() throws Exception {
 
-        expect(ConfigurationManager.loadConfig(
-                eq(BotsType.class),
+        expect(BotsConfigStreamer.readBots(
                 eq(BOTS_CONFIG_XML_FILENAME),
-                eq(BOTS_CONFIG_XSD_FILENAME))).
-                andReturn(allTheInternalBotsConfig());
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
 
-        ConfigurationManager.saveConfig(
-                eq(BotsType.class),
-                anyObject(BotsType.class),
-                eq(BOTS_CONFIG_XML_FILENAME));
-
-        expect(ConfigurationManager.loadConfig(
-                eq(BotsType.class),
-                eq(BOTS_CONFIG_XML_FILENAME),
-                eq(BOTS_CONFIG_XSD_FILENAME))).
-                andReturn(allTheInternalBotsConfigPlusNewOne());
+        expect(botsJournal.appendCreate(anyObject(BotType.class))).andReturn(1L);
+        botsJournal.sync(1L);
 
         final BotConfigRepository botConfigRepository = PowerMock.createPartialMock(
-                BotConfigRepositoryXmlDatastore.class, MOCKED_GENERATE_UUID_METHOD);
+                BotConfigRepositoryXmlDatastore.class, new String[]{MOCKED_GENERATE_UUID_METHOD}, botsJournal, botsSnapshot);
         PowerMock.expectPrivate(botConfigRepository, MOCKED_GENERATE_UUID_METHOD).andReturn(GENERATED_BOT_ID);
 
         PowerMock.replayAll();
 
         final BotConfig botConfig = botConfigRepository.save(someNewExternalBotConfig());
 
-        assertThat(botConfig.getId()).isNotEmpty(); // uuid has been generated
+        assertThat(botConfig.getId()).isEqualTo(GENERATED_BOT_ID);
         assertThat(botConfig.getAlias()).isEqualTo(NEW_BOT_NAME);
         assertThat(botConfig.getBaseUrl()).isEqualTo(NEW_BOT_URL);
         assertThat(botConfig.getUsername()).isEqualTo(NEW_BOT_USERNAME);
@@ -231,15 +590,16 @@ public class TestBotConfigRepository {
     @Test
     public void whenSaveCalledWithUnknownIdThenExpectEmptyBotConfigToBeReturned() throws Exception {
 
-        expect(ConfigurationManager.loadConfig(
-                eq(BotsType.class),
+        expect(BotsConfigStreamer.readBots(
                 eq(BOTS_CONFIG_XML_FILENAME),
-                eq(BOTS_CONFIG_XSD_FILENAME))).
-                andReturn(allTheInternalBotsConfig());
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
 
         PowerMock.replayAll();
 
-        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore();
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
         final BotConfig botConfig = botConfigRepository.save(someUpdatedExternalBotConfigWithUnknownId());
 
         assertThat(botConfig.getId()).isEqualTo(null);
@@ -254,20 +614,19 @@ public class TestBotConfigRepository {
     @Test
     public void whenDeleteCalledWithKnownIdThenReturnDeletedBotConfig() throws Exception {
 
-        expect(ConfigurationManager.loadConfig(
-                eq(BotsType.class),
+        expect(BotsConfigStreamer.readBots(
                 eq(BOTS_CONFIG_XML_FILENAME),
-                eq(BOTS_CONFIG_XSD_FILENAME))).
-                andReturn(allTheInternalBotsConfig());
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
 
-        ConfigurationManager.saveConfig(
-                eq(BotsType.class),
-                anyObject(BotsType.class),
-                eq(BOTS_CONFIG_XML_FILENAME));
+        expect(botsJournal.appendDelete(BOT_1_ID)).andReturn(1L);
+        botsJournal.sync(1L);
 
         PowerMock.replayAll();
 
-        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore();
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
         final BotConfig botConfig = botConfigRepository.delete(BOT_1_ID);
 
         assertThat(botConfig.getId()).isEqualTo(BOT_1_ID);
@@ -282,15 +641,16 @@ public class TestBotConfigRepository {
     @Test
     public void whenDeleteCalledWithUnknownIdThenReturnEmptyBotConfig() throws Exception {
 
-        expect(ConfigurationManager.loadConfig(
-                eq(BotsType.class),
+        expect(BotsConfigStreamer.readBots(
                 eq(BOTS_CONFIG_XML_FILENAME),
-                eq(BOTS_CONFIG_XSD_FILENAME))).
-                andReturn(allTheInternalBotsConfig());
+                eq(BOTS_CONFIG_XSD_FILENAME),
+                anyObject())).
+                andAnswer(streamBots(allTheInternalBotsConfig()));
+        expect(botsJournal.replay()).andReturn(Collections.emptyList());
 
         PowerMock.replayAll();
 
-        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore();
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(botsJournal, botsSnapshot);
         final BotConfig botConfig = botConfigRepository.delete(UNKNOWN_BOT_ID);
 
         assertThat(botConfig.getId()).isEqualTo(null);
@@ -328,18 +688,16 @@ public class TestBotConfigRepository {
         return botsType;
     }
 
-    private static BotsType allTheInternalBotsConfigPlusNewOne() {
-
-        final BotType newBot = new BotType();
-        newBot.setId(GENERATED_BOT_ID);
-        newBot.setAlias(NEW_BOT_NAME);
-        newBot.setBaseUrl(NEW_BOT_URL);
-        newBot.setUsername(NEW_BOT_USERNAME);
-        newBot.setPassword(NEW_BOT_PASSWORD);
-
-        final BotsType existingBotsPlusNewOne = allTheInternalBotsConfig();
-        existingBotsPlusNewOne.getBots().add(newBot);
-        return existingBotsPlusNewOne;
+    /*
+     * Answers a BotsConfigStreamer.readBots() call by handing each bot to the consumer it was given.
+     */
+    @SuppressWarnings("unchecked")
+    private static IAnswer<Integer> streamBots(BotsType botsType) {
+        return () -> {
+            final Consumer<BotType> botConsumer = (Consumer<BotType>) getCurrentArguments()[2];
+            botsType.getBots().forEach(botConsumer);
+            return botsType.getBots().size();
+        };
     }
 
     private static BotConfig someNewExternalBotConfig() {
@@ -347,7 +705,7 @@ public class TestBotConfigRepository {
     }
 
     private static BotConfig someUpdatedExternalBotConfig() {
-        return new BotConfig(BOT_1_ID, BOT_1_ALIAS + "_UPDATED", BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD);
+        return new BotConfig(BOT_1_ID, BOT_1_UPDATED_ALIAS, BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD);
     }
 
     private static BotConfig someUpdatedExternalBotConfigWithUnknownId() {
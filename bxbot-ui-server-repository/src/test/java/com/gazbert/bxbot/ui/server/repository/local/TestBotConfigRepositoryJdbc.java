@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.repository.local.impl.BotConfigRepositoryJdbc;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Runs the shared Bot configuration repository tests against the H2 datastore, using a file-based database.
+ *
+ * @author gazbert
+ */
+public class TestBotConfigRepositoryJdbc extends AbstractBotConfigRepositoryTest {
+
+    private JdbcConnectionPool connectionPool;
+
+    @Override
+    protected BotConfigRepository openRepository() {
+        connectionPool = JdbcConnectionPool.create(
+                "jdbc:h2:" + folder.getRoot().toPath().resolve("bots").toAbsolutePath(), "sa", "");
+        return new BotConfigRepositoryJdbc(connectionPool, xmlConfigFile);
+    }
+
+    @Override
+    protected void closeRepository(BotConfigRepository repository) {
+        connectionPool.dispose();
+    }
+
+    @Test
+    public void whenDatabaseHasBeenSeededThenExpectXmlConfigNotToBeImportedAgain() throws Exception {
+
+        BotConfigRepository botConfigRepository = openRepository();
+        botConfigRepository.delete(BOT_1_ID);
+        botConfigRepository.delete(BOT_2_ID);
+        closeRepository(botConfigRepository);
+
+        botConfigRepository = openRepository();
+        assertThat(botConfigRepository.findAll()).isEmpty();
+        closeRepository(botConfigRepository);
+    }
+
+    @Test
+    public void whenThereIsNoXmlConfigThenExpectEmptyDatabase() throws Exception {
+
+        final JdbcConnectionPool emptyConnectionPool = JdbcConnectionPool.create(
+                "jdbc:h2:" + folder.getRoot().toPath().resolve("empty").toAbsolutePath(), "sa", "");
+        try {
+            final BotConfigRepository botConfigRepository = new BotConfigRepositoryJdbc(emptyConnectionPool,
+                    folder.getRoot().toPath().resolve("missing-bots.xml").toString());
+            assertThat(botConfigRepository.findAll()).isEmpty();
+
+            final BotConfig newBotConfig = botConfigRepository.save(
+                    new BotConfig(null, NEW_BOT_ALIAS, NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD));
+            assertThat(ids(botConfigRepository.findAll())).containsExactly(newBotConfig.getId());
+        } finally {
+            emptyConnectionPool.dispose();
+        }
+    }
+}
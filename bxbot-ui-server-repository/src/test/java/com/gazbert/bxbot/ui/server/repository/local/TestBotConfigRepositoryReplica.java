@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
+import com.gazbert.bxbot.ui.server.repository.local.impl.BotConfigRepositoryReplica;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Tests the read replica Bot configuration repository behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestBotConfigRepositoryReplica {
+
+    private static final String BOT_1_ID = "bitstamp-bot-1";
+    private static final String BOT_1_ALIAS = "Bitstamp Bot";
+    private static final String BOT_1_BASE_URL = "https://hostname.one/api";
+
+    private static final String BOT_2_ID = "gdax-bot-1";
+    private static final String BOT_2_ALIAS = "GDAX Bot";
+    private static final String BOT_2_BASE_URL = "https://hostname.two/api";
+
+    private static final String BOT_USERNAME = "admin";
+    private static final String BOT_PASSWORD = "password";
+
+    @Test
+    public void whenSnapshotIsReplacedThenExpectItToBeServedWithThePrimarysIdsAndVersions() throws Exception {
+
+        final ReplicaBotConfigRepository replica = new BotConfigRepositoryReplica();
+        assertThat(replica.findAll()).isEmpty();
+
+        replica.replaceAll(Arrays.asList(bot(BOT_2_ID, BOT_2_ALIAS, BOT_2_BASE_URL, 3L),
+                bot(BOT_1_ID, BOT_1_ALIAS, BOT_1_BASE_URL, 7L)));
+
+        assertThat(ids(replica.findAll())).containsExactly(BOT_2_ID, BOT_1_ID);
+        assertThat(replica.findById(BOT_1_ID).getVersion()).isEqualTo(7L);
+        assertThat(ids(replica.findByAlias(BOT_2_ALIAS))).containsExactly(BOT_2_ID);
+        assertThat(ids(replica.findByHost("hostname.one"))).containsExactly(BOT_1_ID);
+
+        final BotPage<BotConfig> page = replica.findPage(new BotPageRequest(1, null, null, false, null, null));
+        assertThat(ids(page.getItems())).containsExactly(BOT_1_ID);
+        assertThat(page.getNextCursor()).isNotNull();
+
+        final List<BotConfig> streamed = new ArrayList<>();
+        replica.streamAll(streamed::add);
+        assertThat(ids(streamed)).containsExactly(BOT_2_ID, BOT_1_ID);
+
+        replica.replaceAll(Arrays.asList(bot(BOT_1_ID, BOT_1_ALIAS, BOT_1_BASE_URL, 8L)));
+        assertThat(ids(replica.findAll())).containsExactly(BOT_1_ID);
+        assertThat(replica.findById(BOT_2_ID).getId()).isNull();
+    }
+
+    @Test
+    public void whenPrimarysChangesAreAppliedThenExpectThemToBeServed() throws Exception {
+
+        final ReplicaBotConfigRepository replica = new BotConfigRepositoryReplica();
+        replica.replaceAll(Arrays.asList(bot(BOT_1_ID, BOT_1_ALIAS, BOT_1_BASE_URL, 1L)));
+
+        replica.applySave(bot(BOT_2_ID, BOT_2_ALIAS, BOT_2_BASE_URL, 1L));
+        replica.applySave(bot(BOT_1_ID, "Renamed Bot", BOT_1_BASE_URL, 2L));
+        assertThat(ids(replica.findAll())).containsExactly(BOT_1_ID, BOT_2_ID);
+        assertThat(replica.findById(BOT_1_ID).getAlias()).isEqualTo("Renamed Bot");
+        assertThat(replica.findById(BOT_1_ID).getVersion()).isEqualTo(2L);
+        assertThat(replica.findByAlias(BOT_1_ALIAS)).isEmpty();
+
+        replica.applyDelete(BOT_1_ID);
+        assertThat(ids(replica.findAll())).containsExactly(BOT_2_ID);
+
+        // the change may already be in the snapshot it was fetched with
+        replica.applyDelete(BOT_1_ID);
+        assertThat(ids(replica.findAll())).containsExactly(BOT_2_ID);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void whenSaveIsCalledThenExpectUnsupportedOperationException() throws Exception {
+        new BotConfigRepositoryReplica().save(bot(BOT_1_ID, BOT_1_ALIAS, BOT_1_BASE_URL, 1L));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void whenDeleteIsCalledThenExpectUnsupportedOperationException() throws Exception {
+        new BotConfigRepositoryReplica().delete(BOT_1_ID);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static BotConfig bot(String id, String alias, String baseUrl, long version) {
+        final BotConfig botConfig = new BotConfig(id, alias, baseUrl, BOT_USERNAME, BOT_PASSWORD);
+        botConfig.setVersion(version);
+        return botConfig;
+    }
+
+    private static List<String> ids(List<BotConfig> botConfigs) {
+        return botConfigs.stream().map(BotConfig::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local;
+
+import com.gazbert.bxbot.ui.server.datastore.BotsConfigStreamer;
+import com.gazbert.bxbot.ui.server.datastore.BotsJournal;
+import com.gazbert.bxbot.ui.server.datastore.BotsSnapshot;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.repository.local.impl.BotConfigRepositoryXmlDatastore;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the shared Bot configuration repository tests against the XML datastore, using real files, and tests the
+ * reloading of edits made to the XML file by hand.
+ *
+ * @author gazbert
+ */
+public class TestBotConfigRepositoryXmlDatastore extends AbstractBotConfigRepositoryTest {
+
+    @Override
+    protected BotConfigRepository openRepository() {
+        return new BotConfigRepositoryXmlDatastore(
+                new BotsJournal(folder.getRoot().toPath().resolve("bots.journal").toString()),
+                new BotsSnapshot(folder.getRoot().toPath().resolve("bots.snapshot").toString(), xmlConfigFile),
+                xmlConfigFile);
+    }
+
+    @Override
+    protected void closeRepository(BotConfigRepository repository) {
+        ((BotConfigRepositoryXmlDatastore) repository).shutdown();
+    }
+
+    @Test
+    public void whenXmlConfigIsEditedThenExpectReloadToWriteOnlyTheChangedBots() throws Exception {
+
+        final BotConfigRepositoryXmlDatastore botConfigRepository =
+                (BotConfigRepositoryXmlDatastore) openRepository();
+        final BotConfig bot2 = botConfigRepository.findById(BOT_2_ID);
+        bot2.setAlias(NEW_BOT_ALIAS);
+        botConfigRepository.save(bot2); // still in the journal when the file is edited
+
+        final List<BotType> editedBots = allTheInternalBotsConfig();
+        editedBots.get(0).setAlias(BOT_1_UPDATED_ALIAS);
+        editedBots.add(botType(IMPORTED_BOT_ID, NEW_BOT_ALIAS, NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD));
+        BotsConfigStreamer.writeBots(editedBots, xmlConfigFile);
+        botConfigRepository.reload();
+
+        assertReloadedBots(botConfigRepository);
+        closeRepository(botConfigRepository);
+
+        final BotConfigRepository reopenedRepository = openRepository();
+        assertReloadedBots(reopenedRepository);
+        closeRepository(reopenedRepository);
+    }
+
+    @Test
+    public void whenBotEditedInXmlConfigHasChangedSinceThenExpectReloadToSkipTheEdit() throws Exception {
+
+        final BotConfigRepositoryXmlDatastore botConfigRepository =
+                (BotConfigRepositoryXmlDatastore) openRepository();
+        final BotConfig bot1 = botConfigRepository.findById(BOT_1_ID);
+        bot1.setAlias(NEW_BOT_ALIAS);
+        botConfigRepository.save(bot1); // still in the journal when the file is edited
+
+        final List<BotType> editedBots = allTheInternalBotsConfig();
+        editedBots.get(0).setAlias(BOT_1_UPDATED_ALIAS);
+        editedBots.get(1).setAlias(BOT_1_UPDATED_ALIAS);
+        BotsConfigStreamer.writeBots(editedBots, xmlConfigFile);
+        botConfigRepository.reload();
+
+        assertThat(botConfigRepository.findById(BOT_1_ID).getAlias()).isEqualTo(NEW_BOT_ALIAS);
+        assertThat(botConfigRepository.findById(BOT_1_ID).getVersion()).isEqualTo(1L);
+        assertThat(botConfigRepository.findById(BOT_2_ID).getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+        assertThat(botConfigRepository.findById(BOT_2_ID).getVersion()).isEqualTo(1L);
+        closeRepository(botConfigRepository);
+    }
+
+    @Test
+    public void whenBotIsEditedInXmlConfigTwiceThenExpectReloadToApplyBothEdits() throws Exception {
+
+        final BotConfigRepositoryXmlDatastore botConfigRepository =
+                (BotConfigRepositoryXmlDatastore) openRepository();
+        botConfigRepository.findAll();
+
+        final List<BotType> editedBots = allTheInternalBotsConfig();
+        editedBots.get(0).setAlias(BOT_1_UPDATED_ALIAS);
+        BotsConfigStreamer.writeBots(editedBots, xmlConfigFile);
+        botConfigRepository.reload();
+
+        editedBots.get(0).setAlias(NEW_BOT_ALIAS);
+        BotsConfigStreamer.writeBots(editedBots, xmlConfigFile);
+        botConfigRepository.reload();
+
+        assertThat(botConfigRepository.findById(BOT_1_ID).getAlias()).isEqualTo(NEW_BOT_ALIAS);
+        assertThat(botConfigRepository.findById(BOT_1_ID).getVersion()).isEqualTo(2L);
+        closeRepository(botConfigRepository);
+    }
+
+    @Test
+    public void whenBotIsRemovedFromXmlConfigThenExpectReloadToDeleteIt() throws Exception {
+
+        final BotConfigRepositoryXmlDatastore botConfigRepository =
+                (BotConfigRepositoryXmlDatastore) openRepository();
+        botConfigRepository.findAll();
+
+        final List<BotType> editedBots = allTheInternalBotsConfig();
+        editedBots.remove(0);
+        BotsConfigStreamer.writeBots(editedBots, xmlConfigFile);
+        botConfigRepository.reload();
+
+        assertThat(ids(botConfigRepository.findAll())).containsExactly(BOT_2_ID);
+        assertThat(botConfigRepository.findById(BOT_2_ID).getVersion()).isEqualTo(0L);
+        closeRepository(botConfigRepository);
+    }
+
+    @Test
+    public void whenXmlConfigIsCompactedThenExpectReloadToChangeNothing() throws Exception {
+
+        final BotConfigRepositoryXmlDatastore botConfigRepository =
+                (BotConfigRepositoryXmlDatastore) openRepository();
+        final BotConfig bot1 = botConfigRepository.findById(BOT_1_ID);
+        bot1.setAlias(BOT_1_UPDATED_ALIAS);
+        botConfigRepository.save(bot1);
+        botConfigRepository.compact();
+
+        botConfigRepository.reload();
+
+        assertThat(botConfigRepository.findById(BOT_1_ID).getVersion()).isEqualTo(1L);
+        assertThat(botConfigRepository.findById(BOT_2_ID).getVersion()).isEqualTo(0L);
+        closeRepository(botConfigRepository);
+    }
+
+    @Test
+    public void whenJournalIsReplayedThenExpectOnlyEachBotsLastRecordToCount() throws Exception {
+
+        final BotConfigRepository botConfigRepository = openRepository();
+        botConfigRepository.delete(BOT_1_ID);
+        botConfigRepository.saveAll(Arrays.asList(
+                new BotConfig(BOT_1_ID, BOT_1_UPDATED_ALIAS, BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD),
+                new BotConfig(IMPORTED_BOT_ID, NEW_BOT_ALIAS, NEW_BOT_URL, NEW_BOT_USERNAME, NEW_BOT_PASSWORD)));
+        botConfigRepository.delete(IMPORTED_BOT_ID);
+        closeRepository(botConfigRepository);
+
+        final BotConfigRepository reopenedRepository = openRepository();
+
+        // the deleted and re-created Bot goes to the end
+        assertThat(ids(reopenedRepository.findAll())).containsExactly(BOT_2_ID, BOT_1_ID);
+        assertThat(ids(reopenedRepository.findByAlias(BOT_1_UPDATED_ALIAS))).containsExactly(BOT_1_ID);
+        assertThat(reopenedRepository.findByAlias(BOT_1_ALIAS)).isEmpty();
+        assertThat(reopenedRepository.findByHost(NEW_BOT_HOST)).isEmpty();
+        closeRepository(reopenedRepository);
+    }
+
+    @Test
+    public void whenEditedXmlConfigIsInvalidThenExpectReloadToKeepTheBots() throws Exception {
+
+        final BotConfigRepositoryXmlDatastore botConfigRepository =
+                (BotConfigRepositoryXmlDatastore) openRepository();
+        botConfigRepository.findAll();
+
+        Files.write(Paths.get(xmlConfigFile), "<bots><bot><id>half-written".getBytes(StandardCharsets.UTF_8));
+        try {
+            botConfigRepository.reload();
+            fail("Expected the invalid XML config to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        assertThat(ids(botConfigRepository.findAll())).containsExactly(BOT_1_ID, BOT_2_ID);
+        closeRepository(botConfigRepository);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static void assertReloadedBots(BotConfigRepository botConfigRepository) {
+
+        assertThat(ids(botConfigRepository.findAll())).containsExactly(BOT_1_ID, BOT_2_ID, IMPORTED_BOT_ID);
+
+        final BotConfig bot1 = botConfigRepository.findById(BOT_1_ID);
+        assertThat(bot1.getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+        assertThat(bot1.getVersion()).isEqualTo(1L);
+
+        // not touched by the edit, so the write made before it is kept
+        final BotConfig bot2 = botConfigRepository.findById(BOT_2_ID);
+        assertThat(bot2.getAlias()).isEqualTo(NEW_BOT_ALIAS);
+        assertThat(bot2.getVersion()).isEqualTo(1L);
+
+        final BotConfig importedBot = botConfigRepository.findById(IMPORTED_BOT_ID);
+        assertThat(importedBot.getBaseUrl()).isEqualTo(NEW_BOT_URL);
+        assertThat(importedBot.getVersion()).isEqualTo(1L);
+    }
+}
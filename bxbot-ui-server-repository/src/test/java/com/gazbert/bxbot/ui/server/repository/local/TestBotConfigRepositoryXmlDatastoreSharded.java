@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local;
+
+import com.gazbert.bxbot.ui.server.datastore.BotsConfigStreamer;
+import com.gazbert.bxbot.ui.server.datastore.FileLocations;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.repository.local.impl.BotConfigRepositoryXmlDatastore;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the shared Bot configuration repository tests against the XML datastore with the Bots spread over several
+ * shards. Each test starts from a single bots.xml file, so opening the repository migrates it into the shards.
+ *
+ * @author gazbert
+ */
+public class TestBotConfigRepositoryXmlDatastoreSharded extends AbstractBotConfigRepositoryTest {
+
+    private static final int SHARD_COUNT = 4;
+
+    @Override
+    protected BotConfigRepository openRepository() {
+        return new BotConfigRepositoryXmlDatastore(xmlConfigFile, SHARD_COUNT);
+    }
+
+    @Override
+    protected void closeRepository(BotConfigRepository repository) {
+        ((BotConfigRepositoryXmlDatastore) repository).shutdown();
+    }
+
+    @Override
+    protected boolean keepsCreationOrder() {
+        return false;
+    }
+
+    @Test
+    public void whenRepositoryIsFirstShardedThenExpectSingleXmlConfigToBeMigratedIntoShards() throws Exception {
+
+        final BotConfigRepository botConfigRepository = openRepository();
+        botConfigRepository.findAll();
+        closeRepository(botConfigRepository);
+
+        final Path configDirectory = folder.getRoot().toPath();
+        assertThat(Files.exists(configDirectory.resolve("bots.xml"))).isFalse();
+        assertThat(Files.exists(configDirectory.resolve("bots.xml.pre-sharding"))).isTrue();
+
+        final List<String> shardedIds = new ArrayList<>();
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            final Path shardFile = configDirectory.resolve("bots-" + i + "-of-" + SHARD_COUNT + ".xml");
+            assertThat(Files.exists(shardFile)).isTrue();
+            BotsConfigStreamer.readBots(shardFile.toString(), FileLocations.BOTS_CONFIG_XSD_FILENAME,
+                    bot -> shardedIds.add(bot.getId()));
+        }
+        assertThat(shardedIds).containsOnly(BOT_1_ID, BOT_2_ID);
+        assertThat(shardedIds.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenShardCountIsChangedAfterShardingThenExpectLoadToFail() throws Exception {
+
+        final BotConfigRepository shardedRepository = openRepository();
+        shardedRepository.findAll();
+        closeRepository(shardedRepository);
+
+        final BotConfigRepository botConfigRepository = new BotConfigRepositoryXmlDatastore(xmlConfigFile, 2);
+        try {
+            botConfigRepository.findAll();
+            fail("Expected the repository to refuse a different number of shards");
+        } catch (IllegalStateException e) {
+            // bots.xml has already been migrated into 4 shards
+            assertThat(e.getMessage()).contains("bots-0-of-2.xml");
+        } finally {
+            closeRepository(botConfigRepository);
+        }
+    }
+
+    @Test
+    public void whenBotsAreSavedConcurrentlyThenExpectAllOfThemToBeKept() throws Exception {
+
+        final int writerCount = 8;
+        final int botsPerWriter = 10;
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(writerCount);
+        try {
+            final BotConfigRepository botConfigRepository = openRepository();
+            final List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < writerCount; i++) {
+                writers.add(executor.submit(() -> {
+                    startLatch.await();
+                    for (int j = 0; j < botsPerWriter; j++) {
+                        botConfigRepository.save(new BotConfig(null, NEW_BOT_ALIAS, NEW_BOT_URL,
+                                NEW_BOT_USERNAME, NEW_BOT_PASSWORD));
+                    }
+                    return null;
+                }));
+            }
+            startLatch.countDown();
+            for (final Future<?> writer : writers) {
+                writer.get();
+            }
+            closeRepository(botConfigRepository);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final BotConfigRepository reopenedRepository = openRepository();
+        assertThat(reopenedRepository.findByAlias(NEW_BOT_ALIAS).size()).isEqualTo(writerCount * botsPerWriter);
+        assertThat(reopenedRepository.findAll().size()).isEqualTo(2 + writerCount * botsPerWriter);
+        closeRepository(reopenedRepository);
+    }
+
+    @Test
+    public void whenShardXmlConfigIsEditedThenExpectWatcherToReloadIt() throws Exception {
+
+        final BotConfigRepository botConfigRepository = openRepository();
+        try {
+            botConfigRepository.findAll();
+
+            final Path configDirectory = folder.getRoot().toPath();
+            for (int i = 0; i < SHARD_COUNT; i++) {
+                final String shardFile =
+                        configDirectory.resolve("bots-" + i + "-of-" + SHARD_COUNT + ".xml").toString();
+                final List<BotType> shardBots = new ArrayList<>();
+                BotsConfigStreamer.readBots(shardFile, FileLocations.BOTS_CONFIG_XSD_FILENAME, shardBots::add);
+                if (shardBots.stream().anyMatch(bot -> BOT_1_ID.equals(bot.getId()))) {
+                    shardBots.forEach(bot -> {
+                        if (BOT_1_ID.equals(bot.getId())) {
+                            bot.setAlias(BOT_1_UPDATED_ALIAS);
+                        }
+                    });
+                    BotsConfigStreamer.writeBots(shardBots, shardFile);
+                }
+            }
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (!BOT_1_UPDATED_ALIAS.equals(botConfigRepository.findById(BOT_1_ID).getAlias())
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(botConfigRepository.findById(BOT_1_ID).getAlias()).isEqualTo(BOT_1_UPDATED_ALIAS);
+            assertThat(botConfigRepository.findById(BOT_1_ID).getVersion()).isEqualTo(1L);
+            assertThat(botConfigRepository.findById(BOT_2_ID).getVersion()).isEqualTo(0L);
+        } finally {
+            closeRepository(botConfigRepository);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.local;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.history.ConfigVersion;
+import com.gazbert.bxbot.ui.server.repository.local.impl.ConfigHistoryRepositoryFileStore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Tests the file store config history repository behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestConfigHistoryRepositoryFileStore {
+
+    private static final String BOT_1_ID = "bitstamp-bot-1";
+    private static final String BOT_2_ID = "gdax/bot 2";
+    private static final String MARKET_ID = "btc_usd";
+    private static final long TIMESTAMP = 1510000000000L;
+
+    private static final byte[] MARKET_CONTENT =
+            "{\"id\":\"btc_usd\",\"name\":\"BTC/USD\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File historyDir;
+
+    @Before
+    public void setup() throws Exception {
+        historyDir = folder.newFolder("history");
+    }
+
+    @Test
+    public void whenSameContentIsSavedTwiceThenExpectItToBeStoredOnceAndCompressed() throws Exception {
+
+        final ConfigHistoryRepository repository = new ConfigHistoryRepositoryFileStore(historyDir.getPath());
+
+        final String contentHash = repository.saveContent(MARKET_CONTENT);
+        assertThat(repository.saveContent(MARKET_CONTENT.clone())).isEqualTo(contentHash);
+        assertThat(contentHash).hasSize(64);
+
+        final List<Path> contentFiles = contentFiles();
+        assertThat(contentFiles).hasSize(1);
+        assertThat(contentFiles.get(0).getFileName().toString()).isEqualTo(contentHash.substring(2) + ".json.gz");
+        assertThat(Files.readAllBytes(contentFiles.get(0))).isNotEqualTo(MARKET_CONTENT);
+
+        assertThat(repository.findContent(contentHash)).isEqualTo(MARKET_CONTENT);
+        assertThat(repository.findContent(contentHash.replace(contentHash.charAt(0), 'x'))).isNull();
+        assertThat(repository.findContent("../../bots.xml")).isNull();
+    }
+
+    @Test
+    public void whenVersionsAreAppendedThenExpectThemNumberedPerBotAndReadBackAfterRestart() throws Exception {
+
+        final ConfigHistoryRepository repository = new ConfigHistoryRepositoryFileStore(historyDir.getPath());
+        assertThat(repository.findByBotId(BOT_1_ID)).isEmpty();
+
+        final String contentHash = repository.saveContent(MARKET_CONTENT);
+        repository.append(BOT_1_ID, TIMESTAMP, ConfigChange.ConfigType.MARKET, ConfigChange.Operation.CREATED,
+                MARKET_ID, contentHash);
+        repository.append(BOT_2_ID, TIMESTAMP + 1, ConfigChange.ConfigType.MARKET, ConfigChange.Operation.CREATED,
+                MARKET_ID, contentHash);
+        final ConfigVersion deleted = repository.append(BOT_1_ID, TIMESTAMP + 2, ConfigChange.ConfigType.MARKET,
+                ConfigChange.Operation.DELETED, MARKET_ID, null);
+        assertThat(deleted.getVersion()).isEqualTo(2L);
+
+        final ConfigHistoryRepository restarted = new ConfigHistoryRepositoryFileStore(historyDir.getPath());
+        final List<ConfigVersion> bot1History = restarted.findByBotId(BOT_1_ID);
+        assertThat(bot1History).hasSize(2);
+        assertThat(bot1History.get(0).getVersion()).isEqualTo(1L);
+        assertThat(bot1History.get(0).getTimestamp()).isEqualTo(TIMESTAMP);
+        assertThat(bot1History.get(0).getConfigType()).isEqualTo(ConfigChange.ConfigType.MARKET);
+        assertThat(bot1History.get(0).getOperation()).isEqualTo(ConfigChange.Operation.CREATED);
+        assertThat(bot1History.get(0).getConfigId()).isEqualTo(MARKET_ID);
+        assertThat(bot1History.get(0).getContentHash()).isEqualTo(contentHash);
+        assertThat(bot1History.get(1).getOperation()).isEqualTo(ConfigChange.Operation.DELETED);
+        assertThat(bot1History.get(1).getContentHash()).isNull();
+
+        final List<ConfigVersion> bot2History = restarted.findByBotId(BOT_2_ID);
+        assertThat(bot2History).hasSize(1);
+        assertThat(bot2History.get(0).getBotId()).isEqualTo(BOT_2_ID);
+        assertThat(bot2History.get(0).getContentHash()).isEqualTo(contentHash);
+        assertThat(contentFiles()).hasSize(1);
+    }
+
+    @Test
+    public void whenIndexEndsWithHalfWrittenLineThenExpectItSkippedAndNextVersionOnItsOwnLine() throws Exception {
+
+        final ConfigHistoryRepository repository = new ConfigHistoryRepositoryFileStore(historyDir.getPath());
+        repository.append(BOT_1_ID, TIMESTAMP, ConfigChange.ConfigType.ENGINE, ConfigChange.Operation.UPDATED,
+                null, repository.saveContent(MARKET_CONTENT));
+
+        final Path indexFile = historyDir.toPath().resolve("index").resolve(BOT_1_ID + ".idx");
+        Files.write(indexFile, "2\t15100000".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        final ConfigHistoryRepository restarted = new ConfigHistoryRepositoryFileStore(historyDir.getPath());
+        assertThat(restarted.findByBotId(BOT_1_ID)).hasSize(1);
+        restarted.append(BOT_1_ID, TIMESTAMP + 1, ConfigChange.ConfigType.ENGINE, ConfigChange.Operation.UPDATED,
+                null, null);
+
+        final List<ConfigVersion> history = new ConfigHistoryRepositoryFileStore(historyDir.getPath())
+                .findByBotId(BOT_1_ID);
+        assertThat(history).hasSize(2);
+        assertThat(history.get(1).getVersion()).isEqualTo(2L);
+        assertThat(history.get(1).getConfigId()).isNull();
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private List<Path> contentFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(historyDir.toPath().resolve("content"))) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+}
@@ -28,6 +28,11 @@ import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.emailalerts.EmailAlertsConfig;
 import com.gazbert.bxbot.ui.server.domain.emailalerts.SmtpConfig;
 import com.gazbert.bxbot.ui.server.repository.remote.config.impl.EmailAlertsConfigRepositoryRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotCircuitBreakerRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotHttpClientRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRetryBudgetRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -39,7 +44,13 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.client.MockRestServiceServer;
 
+import java.util.concurrent.CompletableFuture;
+
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
@@ -52,7 +63,9 @@ import static org.springframework.test.web.client.response.MockRestResponseCreat
  */
 @RunWith(SpringRunner.class)
 @RestClientTest(EmailAlertsConfigRepositoryRestClient.class)
-@SpringBootTest(classes = EmailAlertsConfigRepositoryRestClient.class)
+@SpringBootTest(classes = {EmailAlertsConfigRepositoryRestClient.class, BotRestClient.class,
+        BotHttpClientRegistry.class, BotCircuitBreakerRegistry.class, BotRetryBudgetRegistry.class},
+        properties = "remote.retry.max-attempts=1") // each expected request is answered once
 public class TestEmailAlertsConfigRepository {
 
     private static final String REST_ENDPOINT_BASE_URL = "https://localhost.one/api";
@@ -73,6 +86,8 @@ public class TestEmailAlertsConfigRepository {
     private static final String TO_ADDRESS = "darth.vader@deathstar.com";
 
     @Autowired
+    private BotRestClient botRestClient;
+
     private MockRestServiceServer mockServer;
 
     @Autowired
@@ -87,6 +102,7 @@ public class TestEmailAlertsConfigRepository {
 
     @Before
     public void setUp() throws Exception {
+        mockServer = MockRestServiceServer.bindTo(botRestClient.getAsyncRestTemplate()).build();
         botConfig = new BotConfig(BOT_ID, BOT_ALIAS, BOT_BASE_URL, BOT_USERNAME, BOT_PASSWORD);
         someEmailAlertsConfig = someEmailAlertsConfig();
     }
@@ -161,10 +177,30 @@ public class TestEmailAlertsConfigRepository {
         mockServer.verify();
     }
 
+    @Test(expected = BotUnavailableException.class)
+    public void whenGetCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new EmailAlertsConfigRepositoryRestClient(botRestClientRefusingCalls()).get(botConfig);
+    }
+
+    @Test(expected = BotUnavailableException.class)
+    public void whenSaveCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new EmailAlertsConfigRepositoryRestClient(botRestClientRefusingCalls()).save(botConfig, someEmailAlertsConfig);
+    }
+
     // ------------------------------------------------------------------------
     // Private utils
     // ------------------------------------------------------------------------
 
+    @SuppressWarnings("unchecked")
+    private static BotRestClient botRestClientRefusingCalls() {
+        final CompletableFuture<Object> refusedCall = new CompletableFuture<>();
+        refusedCall.completeExceptionally(new BotUnavailableException(BOT_ID));
+        final BotRestClient botRestClient = mock(BotRestClient.class);
+        given(botRestClient.exchange(any(BotConfig.class), anyString(), any(HttpMethod.class), any(), any(Class.class)))
+                .willReturn(refusedCall);
+        return botRestClient;
+    }
+
     private static EmailAlertsConfig someEmailAlertsConfig() {
         final EmailAlertsConfig emailAlertsConfig = new EmailAlertsConfig();
         final SmtpConfig smtpConfig = new SmtpConfig(HOST, TLS_PORT, ACCOUNT_USERNAME, ACCOUNT_PASSWORD, FROM_ADDRESS, TO_ADDRESS);
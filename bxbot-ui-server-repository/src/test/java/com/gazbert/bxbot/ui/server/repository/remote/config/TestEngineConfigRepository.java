@@ -27,6 +27,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.engine.EngineConfig;
 import com.gazbert.bxbot.ui.server.repository.remote.config.impl.EngineConfigRepositoryRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotCircuitBreakerRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotHttpClientRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRetryBudgetRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -39,8 +44,13 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.client.MockRestServiceServer;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
@@ -53,7 +63,9 @@ import static org.springframework.test.web.client.response.MockRestResponseCreat
  */
 @RunWith(SpringRunner.class)
 @RestClientTest(EngineConfigRepositoryRestClient.class)
-@SpringBootTest(classes = EngineConfigRepositoryRestClient.class)
+@SpringBootTest(classes = {EngineConfigRepositoryRestClient.class, BotRestClient.class, BotHttpClientRegistry.class,
+        BotCircuitBreakerRegistry.class, BotRetryBudgetRegistry.class},
+        properties = "remote.retry.max-attempts=1") // each expected request is answered once
 public class TestEngineConfigRepository {
 
     private static final String REST_ENDPOINT_BASE_URL = "https://localhost.one/api";
@@ -70,6 +82,8 @@ public class TestEngineConfigRepository {
     private static final BigDecimal ENGINE_EMERGENCY_STOP_BALANCE = new BigDecimal("0.9232320");
 
     @Autowired
+    private BotRestClient botRestClient;
+
     private MockRestServiceServer mockServer;
 
     @Autowired
@@ -84,6 +98,7 @@ public class TestEngineConfigRepository {
 
     @Before
     public void setUp() throws Exception {
+        mockServer = MockRestServiceServer.bindTo(botRestClient.getAsyncRestTemplate()).build();
         botConfig = new BotConfig(BOT_ID, BOT_ALIAS, BOT_BASE_URL, BOT_USERNAME, BOT_PASSWORD);
         someEngineConfig = someEngineConfig();
     }
@@ -152,10 +167,30 @@ public class TestEngineConfigRepository {
         mockServer.verify();
     }
 
+    @Test(expected = BotUnavailableException.class)
+    public void whenGetCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new EngineConfigRepositoryRestClient(botRestClientRefusingCalls()).get(botConfig);
+    }
+
+    @Test(expected = BotUnavailableException.class)
+    public void whenSaveCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new EngineConfigRepositoryRestClient(botRestClientRefusingCalls()).save(botConfig, someEngineConfig);
+    }
+
     // ------------------------------------------------------------------------
     // Private utils
     // ------------------------------------------------------------------------
 
+    @SuppressWarnings("unchecked")
+    private static BotRestClient botRestClientRefusingCalls() {
+        final CompletableFuture<Object> refusedCall = new CompletableFuture<>();
+        refusedCall.completeExceptionally(new BotUnavailableException(BOT_ID));
+        final BotRestClient botRestClient = mock(BotRestClient.class);
+        given(botRestClient.exchange(any(BotConfig.class), anyString(), any(HttpMethod.class), any(), any(Class.class)))
+                .willReturn(refusedCall);
+        return botRestClient;
+    }
+
     private static EngineConfig someEngineConfig() {
         final EngineConfig engineConfig = new EngineConfig();
         engineConfig.setId(BOT_ID);
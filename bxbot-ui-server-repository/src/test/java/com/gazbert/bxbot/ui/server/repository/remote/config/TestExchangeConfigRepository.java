@@ -29,6 +29,11 @@ import com.gazbert.bxbot.ui.server.domain.exchange.ExchangeConfig;
 import com.gazbert.bxbot.ui.server.domain.exchange.NetworkConfig;
 import com.gazbert.bxbot.ui.server.domain.exchange.OptionalConfig;
 import com.gazbert.bxbot.ui.server.repository.remote.config.impl.ExchangeConfigRepositoryRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotCircuitBreakerRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotHttpClientRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRetryBudgetRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -42,8 +47,13 @@ import org.springframework.test.web.client.MockRestServiceServer;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
@@ -56,7 +66,9 @@ import static org.springframework.test.web.client.response.MockRestResponseCreat
  */
 @RunWith(SpringRunner.class)
 @RestClientTest(ExchangeConfigRepositoryRestClient.class)
-@SpringBootTest(classes = ExchangeConfigRepositoryRestClient.class)
+@SpringBootTest(classes = {ExchangeConfigRepositoryRestClient.class, BotRestClient.class, BotHttpClientRegistry.class,
+        BotCircuitBreakerRegistry.class, BotRetryBudgetRegistry.class},
+        properties = "remote.retry.max-attempts=1") // each expected request is answered once
 public class TestExchangeConfigRepository {
 
     private static final String REST_ENDPOINT_BASE_URL = "https://localhost.one/api";
@@ -82,6 +94,8 @@ public class TestExchangeConfigRepository {
     private static final String SELL_FEE_CONFIG_ITEM_VALUE = "0.25";
 
     @Autowired
+    private BotRestClient botRestClient;
+
     private MockRestServiceServer mockServer;
 
     @Autowired
@@ -96,6 +110,7 @@ public class TestExchangeConfigRepository {
 
     @Before
     public void setUp() throws Exception {
+        mockServer = MockRestServiceServer.bindTo(botRestClient.getAsyncRestTemplate()).build();
         botConfig = new BotConfig(BOT_ID, BOT_ALIAS, BOT_BASE_URL, BOT_USERNAME, BOT_PASSWORD);
         someExchangeConfig = someExchangeConfig();
     }
@@ -170,10 +185,30 @@ public class TestExchangeConfigRepository {
         mockServer.verify();
     }
 
+    @Test(expected = BotUnavailableException.class)
+    public void whenGetCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new ExchangeConfigRepositoryRestClient(botRestClientRefusingCalls()).get(botConfig);
+    }
+
+    @Test(expected = BotUnavailableException.class)
+    public void whenSaveCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new ExchangeConfigRepositoryRestClient(botRestClientRefusingCalls()).save(botConfig, someExchangeConfig);
+    }
+
     // ------------------------------------------------------------------------
     // Private utils
     // ------------------------------------------------------------------------
 
+    @SuppressWarnings("unchecked")
+    private static BotRestClient botRestClientRefusingCalls() {
+        final CompletableFuture<Object> refusedCall = new CompletableFuture<>();
+        refusedCall.completeExceptionally(new BotUnavailableException(BOT_ID));
+        final BotRestClient botRestClient = mock(BotRestClient.class);
+        given(botRestClient.exchange(any(BotConfig.class), anyString(), any(HttpMethod.class), any(), any(Class.class)))
+                .willReturn(refusedCall);
+        return botRestClient;
+    }
+
     private static ExchangeConfig someExchangeConfig() {
 
         final NetworkConfig networkConfig = new NetworkConfig();
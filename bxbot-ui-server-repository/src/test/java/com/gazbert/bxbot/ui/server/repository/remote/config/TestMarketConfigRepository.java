@@ -27,6 +27,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
 import com.gazbert.bxbot.ui.server.repository.remote.config.impl.MarketConfigRepositoryRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotCircuitBreakerRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotHttpClientRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRetryBudgetRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -41,8 +46,13 @@ import org.springframework.test.web.client.MockRestServiceServer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
@@ -54,7 +64,9 @@ import static org.springframework.test.web.client.response.MockRestResponseCreat
  */
 @RunWith(SpringRunner.class)
 @RestClientTest(MarketConfigRepositoryRestClient.class)
-@SpringBootTest(classes = MarketConfigRepositoryRestClient.class)
+@SpringBootTest(classes = {MarketConfigRepositoryRestClient.class, BotRestClient.class, BotHttpClientRegistry.class,
+        BotCircuitBreakerRegistry.class, BotRetryBudgetRegistry.class},
+        properties = "remote.retry.max-attempts=1") // each expected request is answered once
 public class TestMarketConfigRepository {
 
     private static final String REST_ENDPOINT_BASE_URL = "https://localhost.one/api";
@@ -83,6 +95,8 @@ public class TestMarketConfigRepository {
     private static final String MARKET_2_STRATEGY_ID = "macd-strategy";
 
     @Autowired
+    private BotRestClient botRestClient;
+
     private MockRestServiceServer mockServer;
 
     @Autowired
@@ -99,6 +113,7 @@ public class TestMarketConfigRepository {
     @Before
     public void setUp() throws Exception {
 
+        mockServer = MockRestServiceServer.bindTo(botRestClient.getAsyncRestTemplate()).build();
         botConfig = new BotConfig(BOT_ID, BOT_ALIAS, BOT_BASE_URL, BOT_USERNAME, BOT_PASSWORD);
 
         marketConfig_1 = new MarketConfig(MARKET_1_ID, MARKET_1_NAME, MARKET_1_ENABLED, MARKET_1_BASE_CURRENCY,
@@ -257,10 +272,40 @@ public class TestMarketConfigRepository {
         mockServer.verify();
     }
 
+    @Test(expected = BotUnavailableException.class)
+    public void whenFindAllCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new MarketConfigRepositoryRestClient(botRestClientRefusingCalls()).findAll(botConfig);
+    }
+
+    @Test(expected = BotUnavailableException.class)
+    public void whenFindByIdCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new MarketConfigRepositoryRestClient(botRestClientRefusingCalls()).findById(botConfig, MARKET_1_ID);
+    }
+
+    @Test(expected = BotUnavailableException.class)
+    public void whenSaveCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new MarketConfigRepositoryRestClient(botRestClientRefusingCalls()).save(botConfig, marketConfig_1);
+    }
+
+    @Test(expected = BotUnavailableException.class)
+    public void whenDeleteCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new MarketConfigRepositoryRestClient(botRestClientRefusingCalls()).delete(botConfig, MARKET_1_ID);
+    }
+
     // ------------------------------------------------------------------------------------------------
     // Private utils
     // ------------------------------------------------------------------------------------------------
 
+    @SuppressWarnings("unchecked")
+    private static BotRestClient botRestClientRefusingCalls() {
+        final CompletableFuture<Object> refusedCall = new CompletableFuture<>();
+        refusedCall.completeExceptionally(new BotUnavailableException(BOT_ID));
+        final BotRestClient botRestClient = mock(BotRestClient.class);
+        given(botRestClient.exchange(any(BotConfig.class), anyString(), any(HttpMethod.class), any(), any(Class.class)))
+                .willReturn(refusedCall);
+        return botRestClient;
+    }
+
     private List<MarketConfig> allTheMarketConfig() {
         final List<MarketConfig> allMarkets = new ArrayList<>();
         allMarkets.add(marketConfig_1);
@@ -27,6 +27,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.strategy.StrategyConfig;
 import com.gazbert.bxbot.ui.server.repository.remote.config.impl.StrategyConfigRepositoryRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotCircuitBreakerRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotHttpClientRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotRetryBudgetRegistry;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -43,8 +48,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
@@ -56,7 +66,9 @@ import static org.springframework.test.web.client.response.MockRestResponseCreat
  */
 @RunWith(SpringRunner.class)
 @RestClientTest(StrategyConfigRepositoryRestClient.class)
-@SpringBootTest(classes = StrategyConfigRepositoryRestClient.class)
+@SpringBootTest(classes = {StrategyConfigRepositoryRestClient.class, BotRestClient.class, BotHttpClientRegistry.class,
+        BotCircuitBreakerRegistry.class, BotRetryBudgetRegistry.class},
+        properties = "remote.retry.max-attempts=1") // each expected request is answered once
 public class TestStrategyConfigRepository {
 
     private static final String REST_ENDPOINT_BASE_URL = "https://localhost.one/api";
@@ -86,6 +98,8 @@ public class TestStrategyConfigRepository {
     private static final String AMOUNT_TO_BUY_CONFIG_ITEM_VALUE = "0.5";
 
     @Autowired
+    private BotRestClient botRestClient;
+
     private MockRestServiceServer mockServer;
 
     @Autowired
@@ -102,6 +116,7 @@ public class TestStrategyConfigRepository {
     @Before
     public void setUp() throws Exception {
 
+        mockServer = MockRestServiceServer.bindTo(botRestClient.getAsyncRestTemplate()).build();
         botConfig = new BotConfig(BOT_ID, BOT_ALIAS, BOT_BASE_URL, BOT_USERNAME, BOT_PASSWORD);
 
         final Map<String, String> configItems = new HashMap<>();
@@ -261,10 +276,40 @@ public class TestStrategyConfigRepository {
         mockServer.verify();
     }
 
+    @Test(expected = BotUnavailableException.class)
+    public void whenFindAllCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new StrategyConfigRepositoryRestClient(botRestClientRefusingCalls()).findAll(botConfig);
+    }
+
+    @Test(expected = BotUnavailableException.class)
+    public void whenFindByIdCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new StrategyConfigRepositoryRestClient(botRestClientRefusingCalls()).findById(botConfig, STRAT_ID_1);
+    }
+
+    @Test(expected = BotUnavailableException.class)
+    public void whenSaveCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new StrategyConfigRepositoryRestClient(botRestClientRefusingCalls()).save(botConfig, strategyConfig_1);
+    }
+
+    @Test(expected = BotUnavailableException.class)
+    public void whenDeleteCalledAndBotCircuitBreakerIsOpenThenExpectBotUnavailableException() throws Exception {
+        new StrategyConfigRepositoryRestClient(botRestClientRefusingCalls()).delete(botConfig, STRAT_ID_1);
+    }
+
     // ------------------------------------------------------------------------------------------------
     // Private utils
     // ------------------------------------------------------------------------------------------------
 
+    @SuppressWarnings("unchecked")
+    private static BotRestClient botRestClientRefusingCalls() {
+        final CompletableFuture<Object> refusedCall = new CompletableFuture<>();
+        refusedCall.completeExceptionally(new BotUnavailableException(BOT_ID));
+        final BotRestClient botRestClient = mock(BotRestClient.class);
+        given(botRestClient.exchange(any(BotConfig.class), anyString(), any(HttpMethod.class), any(), any(Class.class)))
+                .willReturn(refusedCall);
+        return botRestClient;
+    }
+
     private List<StrategyConfig> allTheStrategyConfig() {
         final List<StrategyConfig> allTheStrategyConfig = new ArrayList<>();
         allTheStrategyConfig.add(strategyConfig_1);
@@ -0,0 +1,272 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotCircuit;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the Bot circuit breakers open, half-open, and close as expected.
+ *
+ * @author gazbert
+ */
+public class TestBotCircuitBreaker {
+
+    private static final String BOT_ID = "gdax-bot-1";
+    private static final String BROKEN_RESOURCE_PATH = "/api/runtime/broken";
+    private static final String MISSING_RESOURCE_PATH = "/api/runtime/missing";
+
+    private static final int WINDOW_SIZE = 10;
+    private static final int MINIMUM_CALLS = 4;
+    private static final long SLOW_CALL_MILLIS = 1000L;
+    private static final long OPEN_MILLIS = 100L;
+    private static final int HALF_OPEN_CALLS = 2;
+
+    private static final long FAST_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(SLOW_CALL_MILLIS);
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private HttpServer stubBot;
+    private BotHttpClientRegistry httpClientRegistry;
+    private BotCircuitBreakerRegistry circuitBreakers;
+    private BotRestClient botRestClient;
+    private BotConfig botConfig;
+
+    @Before
+    public void setup() throws Exception {
+
+        stubBot = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stubBot.createContext(BROKEN_RESOURCE_PATH, exchange -> {
+            requestCount.incrementAndGet();
+            final byte[] body = "ERROR".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(500, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        stubBot.createContext(MISSING_RESOURCE_PATH, exchange -> {
+            requestCount.incrementAndGet();
+            final byte[] body = "ERROR".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(404, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        stubBot.start();
+
+        httpClientRegistry = new BotHttpClientRegistry(5, 1000, 30000L, 60000L, 5000, 5000);
+        circuitBreakers = new BotCircuitBreakerRegistry(WINDOW_SIZE, MINIMUM_CALLS, 50, 50, SLOW_CALL_MILLIS,
+                OPEN_MILLIS, HALF_OPEN_CALLS);
+        botRestClient = new BotRestClient(httpClientRegistry, circuitBreakers,
+                new BotRetryBudgetRegistry(1, 100L, 2000L, 10, 10, 100));
+        botConfig = new BotConfig(BOT_ID, "GDAX", "http://localhost:" + stubBot.getAddress().getPort(),
+                "admin", "admin");
+    }
+
+    @After
+    public void tearDown() {
+        httpClientRegistry.destroy();
+        stubBot.stop(0);
+    }
+
+    @Test
+    public void whenFewerThanMinimumCallsHaveFailedThenExpectCircuitToStayClosed() throws Exception {
+
+        final BotCircuitBreaker breaker = circuitBreakers.forBot(BOT_ID);
+        for (int i = 0; i < MINIMUM_CALLS - 1; i++) {
+            breaker.onResult(breaker.acquirePermit(), FAST_CALL_NANOS, true);
+        }
+
+        assertThat(breaker.toBotCircuit().getState()).isEqualTo(BotCircuit.State.CLOSED);
+        assertThat(breaker.toBotCircuit().getFailureRate()).isEqualTo(100.0f);
+        assertThat(breaker.acquirePermit()).isNotEqualTo(BotCircuitBreaker.NO_PERMIT);
+    }
+
+    @Test
+    public void whenFailureRateReachesThresholdThenExpectCircuitToOpenAndRefuseCalls() throws Exception {
+
+        final BotCircuitBreaker breaker = circuitBreakers.forBot(BOT_ID);
+        breaker.onResult(breaker.acquirePermit(), FAST_CALL_NANOS, false);
+        breaker.onResult(breaker.acquirePermit(), FAST_CALL_NANOS, false);
+        breaker.onResult(breaker.acquirePermit(), FAST_CALL_NANOS, true);
+        assertThat(breaker.toBotCircuit().getState()).isEqualTo(BotCircuit.State.CLOSED);
+        breaker.onResult(breaker.acquirePermit(), FAST_CALL_NANOS, true);
+
+        final BotCircuit botCircuit = breaker.toBotCircuit();
+        assertThat(botCircuit.getState()).isEqualTo(BotCircuit.State.OPEN);
+        assertThat(botCircuit.getFailureRate()).isEqualTo(50.0f);
+        assertThat(botCircuit.getRecordedCalls()).isEqualTo(4);
+        assertThat(botCircuit.getOpenUntil()).isGreaterThan(0L);
+        assertThat(breaker.acquirePermit()).isEqualTo(BotCircuitBreaker.NO_PERMIT);
+    }
+
+    @Test
+    public void whenSlowCallRateReachesThresholdThenExpectCircuitToOpen() throws Exception {
+
+        final BotCircuitBreaker breaker = circuitBreakers.forBot(BOT_ID);
+        for (int i = 0; i < MINIMUM_CALLS; i++) {
+            breaker.onResult(breaker.acquirePermit(), i % 2 == 0 ? SLOW_CALL_NANOS : FAST_CALL_NANOS, false);
+        }
+
+        assertThat(breaker.toBotCircuit().getState()).isEqualTo(BotCircuit.State.OPEN);
+        assertThat(breaker.toBotCircuit().getSlowCallRate()).isEqualTo(50.0f);
+    }
+
+    @Test
+    public void whenOpenTimeHasPassedAndTrialCallsSucceedThenExpectCircuitToClose() throws Exception {
+
+        final BotCircuitBreaker breaker = openedBreaker();
+        Thread.sleep(OPEN_MILLIS * 2);
+
+        final long firstTrial = breaker.acquirePermit();
+        final long secondTrial = breaker.acquirePermit();
+        assertThat(firstTrial).isNotEqualTo(BotCircuitBreaker.NO_PERMIT);
+        assertThat(secondTrial).isNotEqualTo(BotCircuitBreaker.NO_PERMIT);
+        assertThat(breaker.acquirePermit()).isEqualTo(BotCircuitBreaker.NO_PERMIT); // only HALF_OPEN_CALLS trials
+        assertThat(breaker.toBotCircuit().getState()).isEqualTo(BotCircuit.State.HALF_OPEN);
+
+        breaker.onResult(firstTrial, FAST_CALL_NANOS, false);
+        breaker.onResult(secondTrial, FAST_CALL_NANOS, false);
+
+        final BotCircuit botCircuit = breaker.toBotCircuit();
+        assertThat(botCircuit.getState()).isEqualTo(BotCircuit.State.CLOSED);
+        assertThat(botCircuit.getRecordedCalls()).isEqualTo(0);
+        assertThat(breaker.acquirePermit()).isNotEqualTo(BotCircuitBreaker.NO_PERMIT);
+    }
+
+    @Test
+    public void whenOpenTimeHasPassedAndTrialCallFailsThenExpectCircuitToReopen() throws Exception {
+
+        final BotCircuitBreaker breaker = openedBreaker();
+        Thread.sleep(OPEN_MILLIS * 2);
+
+        breaker.onResult(breaker.acquirePermit(), FAST_CALL_NANOS, true);
+        breaker.onResult(breaker.acquirePermit(), FAST_CALL_NANOS, false);
+
+        assertThat(breaker.toBotCircuit().getState()).isEqualTo(BotCircuit.State.OPEN);
+        assertThat(breaker.acquirePermit()).isEqualTo(BotCircuitBreaker.NO_PERMIT);
+    }
+
+    @Test
+    public void whenCallCompletesAfterCircuitHasChangedStateThenExpectItNotToBeRecorded() throws Exception {
+
+        final BotCircuitBreaker breaker = circuitBreakers.forBot(BOT_ID);
+        final long lateCall = breaker.acquirePermit();
+        for (int i = 0; i < MINIMUM_CALLS; i++) {
+            breaker.onResult(breaker.acquirePermit(), FAST_CALL_NANOS, true);
+        }
+        Thread.sleep(OPEN_MILLIS * 2);
+        final long trial = breaker.acquirePermit();
+
+        breaker.onResult(lateCall, FAST_CALL_NANOS, true); // permitted while closed, so not one of the trials
+        assertThat(breaker.toBotCircuit().getState()).isEqualTo(BotCircuit.State.HALF_OPEN);
+        assertThat(breaker.toBotCircuit().getRecordedCalls()).isEqualTo(0);
+
+        breaker.onResult(trial, FAST_CALL_NANOS, false);
+        breaker.onResult(breaker.acquirePermit(), FAST_CALL_NANOS, false);
+        assertThat(breaker.toBotCircuit().getState()).isEqualTo(BotCircuit.State.CLOSED);
+    }
+
+    @Test
+    public void whenCircuitIsOpenThenExpectBotRestClientToFailFastWithoutCallingTheBot() throws Exception {
+
+        for (int i = 0; i < MINIMUM_CALLS; i++) {
+            assertThat(callBot(BROKEN_RESOURCE_PATH)).isInstanceOf(HttpServerErrorException.class);
+        }
+        assertThat(requestCount.get()).isEqualTo(MINIMUM_CALLS);
+        assertThat(circuitBreakers.getBotCircuit(botConfig).getState()).isEqualTo(BotCircuit.State.OPEN);
+
+        final Throwable refused = callBot(BROKEN_RESOURCE_PATH);
+        assertThat(refused).isInstanceOf(BotUnavailableException.class);
+        assertThat(((BotUnavailableException) refused).getBotId()).isEqualTo(BOT_ID);
+        assertThat(requestCount.get()).isEqualTo(MINIMUM_CALLS);
+    }
+
+    @Test
+    public void whenBotAnswersWithClientErrorThenExpectCallNotToCountAsFailed() throws Exception {
+
+        for (int i = 0; i < MINIMUM_CALLS * 2; i++) {
+            assertThat(callBot(MISSING_RESOURCE_PATH)).isInstanceOf(HttpClientErrorException.class);
+        }
+
+        final BotCircuit botCircuit = circuitBreakers.getBotCircuit(botConfig);
+        assertThat(botCircuit.getState()).isEqualTo(BotCircuit.State.CLOSED);
+        assertThat(botCircuit.getFailureRate()).isEqualTo(0.0f);
+        assertThat(botCircuit.getRecordedCalls()).isEqualTo(MINIMUM_CALLS * 2);
+    }
+
+    @Test
+    public void whenBotHasNotBeenCalledThenExpectClosedCircuit() throws Exception {
+
+        final BotCircuit botCircuit = circuitBreakers.getBotCircuit(botConfig);
+        assertThat(botCircuit.getBotId()).isEqualTo(BOT_ID);
+        assertThat(botCircuit.getState()).isEqualTo(BotCircuit.State.CLOSED);
+        assertThat(botCircuit.getRecordedCalls()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMinimumCallsIsMoreThanWindowSizeThenExpectIllegalArgumentException() throws Exception {
+        new BotCircuitBreakerRegistry(WINDOW_SIZE, WINDOW_SIZE + 1, 50, 50, SLOW_CALL_MILLIS, OPEN_MILLIS,
+                HALF_OPEN_CALLS);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private BotCircuitBreaker openedBreaker() {
+        final BotCircuitBreaker breaker = circuitBreakers.forBot(BOT_ID);
+        for (int i = 0; i < MINIMUM_CALLS; i++) {
+            breaker.onResult(breaker.acquirePermit(), FAST_CALL_NANOS, true);
+        }
+        assertThat(breaker.toBotCircuit().getState()).isEqualTo(BotCircuit.State.OPEN);
+        return breaker;
+    }
+
+    private Throwable callBot(String resourcePath) throws Exception {
+        try {
+            botRestClient.exchange(botConfig, botConfig.getBaseUrl() + resourcePath, HttpMethod.GET, null,
+                    String.class).get(10, TimeUnit.SECONDS);
+            fail("Expected the call to fail");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotStatus;
+import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
+import com.gazbert.bxbot.ui.server.repository.remote.config.impl.MarketConfigRepositoryRestClient;
+import com.gazbert.bxbot.ui.server.repository.remote.runtime.impl.BotStatusRepositoryRestClient;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Tests the Bots' credentials are sent on each request, including when many Bots are called concurrently.
+ *
+ * @author gazbert
+ */
+public class TestBotCredentials {
+
+    private static final int BOT_COUNT = 8;
+    private static final int THREAD_COUNT = 16;
+    private static final int CALLS_PER_THREAD = 50;
+
+    private static final String BOT_ID_PREFIX = "bot-";
+    private static final String BOT_PASSWORD = "aintGonnaTellYa!";
+
+    private final Queue<String> mismatches = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private ExecutorService stubBotExecutor;
+    private HttpServer stubBots;
+    private BotHttpClientRegistry registry;
+    private BotCircuitBreakerRegistry circuitBreakers;
+    private BotRetryBudgetRegistry retryBudgets;
+
+    @Before
+    public void setup() throws Exception {
+
+        // One server stands in for all the Bots; each Bot has its own base path and expects its own username
+        stubBotExecutor = Executors.newFixedThreadPool(THREAD_COUNT);
+        stubBots = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stubBots.setExecutor(stubBotExecutor);
+        stubBots.createContext("/", exchange -> {
+            requestCount.incrementAndGet();
+            final String path = exchange.getRequestURI().getPath();
+            final String botId = path.substring(1, path.indexOf('/', 1));
+            final String expectedHeader = basicHeader(botId);
+            final String actualHeader = exchange.getRequestHeaders().getFirst("Authorization");
+            if (!expectedHeader.equals(actualHeader)) {
+                mismatches.add(path + " was sent " + actualHeader);
+            }
+
+            final String json = path.endsWith("/status")
+                    ? "{\"id\":\"" + botId + "\",\"status\":\"RUNNING\"}"
+                    : "{\"id\":\"btc_usd\",\"name\":\"" + botId + "\"}";
+            final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        stubBots.start();
+
+        registry = new BotHttpClientRegistry(THREAD_COUNT, 1000, 60000L, 60000L, 5000, 5000);
+        circuitBreakers = new BotCircuitBreakerRegistry(20, 10, 50, 100, 5000, 30000, 3);
+        retryBudgets = new BotRetryBudgetRegistry(1, 100L, 2000L, 10, 10, 100);
+    }
+
+    @After
+    public void tearDown() {
+        registry.destroy();
+        stubBots.stop(0);
+        stubBotExecutor.shutdownNow();
+    }
+
+    @Test
+    public void whenBotCredentialsChangeThenExpectNewHeader() throws Exception {
+
+        final BotConfig botConfig = botConfig(1);
+        final String header = BotCredentials.authorizationHeader(botConfig);
+        assertThat(header).isEqualTo(basicHeader(botConfig.getId()));
+
+        botConfig.setPassword("newPassword");
+        assertThat(BotCredentials.authorizationHeader(botConfig)).isNotEqualTo(header);
+        assertThat(BotCredentials.requestEntity(botConfig, null).getHeaders().getFirst("Authorization"))
+                .isEqualTo(BotCredentials.authorizationHeader(botConfig));
+    }
+
+    @Test
+    public void whenManyBotsAreCalledConcurrentlyThenExpectEachRequestToCarryItsOwnBotsCredentials()
+            throws Exception {
+
+        final BotRestClient botRestClient = new BotRestClient(registry, circuitBreakers, retryBudgets);
+        final MarketConfigRepositoryRestClient marketClient = new MarketConfigRepositoryRestClient(botRestClient);
+        final BotStatusRepositoryRestClient statusClient = new BotStatusRepositoryRestClient(botRestClient);
+
+        final ExecutorService callers = Executors.newFixedThreadPool(THREAD_COUNT);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int thread = t;
+            results.add(callers.submit(() -> {
+                start.await();
+                int wrongResponses = 0;
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    final BotConfig botConfig = botConfig((thread + i) % BOT_COUNT);
+                    if (i % 2 == 0) {
+                        final MarketConfig marketConfig = marketClient.findById(botConfig, "btc_usd");
+                        wrongResponses += marketConfig != null && botConfig.getId().equals(marketConfig.getName())
+                                ? 0 : 1;
+                    } else {
+                        final BotStatus botStatus = statusClient.getBotStatus(botConfig);
+                        wrongResponses += botStatus != null && botConfig.getId().equals(botStatus.getId())
+                                ? 0 : 1;
+                    }
+                }
+                return wrongResponses;
+            }));
+        }
+        start.countDown();
+
+        int wrongResponses = 0;
+        for (final Future<Integer> result : results) {
+            wrongResponses += result.get(60, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+
+        assertThat(mismatches).isEmpty();
+        assertThat(wrongResponses).isEqualTo(0);
+        assertThat(requestCount.get()).isEqualTo(THREAD_COUNT * CALLS_PER_THREAD);
+    }
+
+    @Test
+    public void whenManyAsyncCallsAreInFlightFromOneThreadThenExpectEachToCompleteWithItsOwnBotsResult()
+            throws Exception {
+
+        final BotStatusRepositoryRestClient statusClient =
+                new BotStatusRepositoryRestClient(new BotRestClient(registry, circuitBreakers, retryBudgets));
+
+        final List<CompletableFuture<BotStatus>> calls = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT * CALLS_PER_THREAD; i++) {
+            calls.add(statusClient.getBotStatusAsync(botConfig(i % BOT_COUNT)));
+        }
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[calls.size()])).get(60, TimeUnit.SECONDS);
+
+        for (int i = 0; i < calls.size(); i++) {
+            assertThat(calls.get(i).join().getId()).isEqualTo(BOT_ID_PREFIX + (i % BOT_COUNT));
+        }
+        assertThat(mismatches).isEmpty();
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private BotConfig botConfig(int bot) {
+        final String botId = BOT_ID_PREFIX + bot;
+        return new BotConfig(botId, "Bot " + bot,
+                "http://localhost:" + stubBots.getAddress().getPort() + "/" + botId + "/api",
+                botId + "-admin", BOT_PASSWORD);
+    }
+
+    private static String basicHeader(String botId) {
+        final String credentials = botId + "-admin:" + BOT_PASSWORD;
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the Bot HTTP client registry pools connections as expected.
+ *
+ * @author gazbert
+ */
+public class TestBotHttpClientRegistry {
+
+    private static final long IDLE_EVICTION_MILLIS = 60000L;
+    private static final String STATUS_RESOURCE_PATH = "/api/runtime/status";
+    private static final String BROKEN_RESOURCE_PATH = "/api/runtime/broken";
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private HttpServer stubBot;
+    private BotHttpClientRegistry registry;
+    private BotRestClient botRestClient;
+
+    @Before
+    public void setup() throws Exception {
+
+        stubBot = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stubBot.createContext(STATUS_RESOURCE_PATH, exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            final byte[] body = "RUNNING".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        stubBot.createContext(BROKEN_RESOURCE_PATH, exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        stubBot.start();
+
+        registry = new BotHttpClientRegistry(5, 1000, IDLE_EVICTION_MILLIS, 60000L, 5000, 5000);
+        botRestClient = new BotRestClient(registry, new BotCircuitBreakerRegistry(20, 10, 50, 100, 5000, 30000, 3),
+                new BotRetryBudgetRegistry(1, 100L, 2000L, 10, 10, 100));
+    }
+
+    @After
+    public void tearDown() {
+        registry.destroy();
+        stubBot.stop(0);
+    }
+
+    @Test
+    public void whenBotIsCalledManyTimesThenExpectConnectionToBeReused() throws Exception {
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(callBot("localhost", STATUS_RESOURCE_PATH)).isEqualTo("RUNNING");
+        }
+
+        assertThat(clientPorts).hasSize(1);
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenBotIsCalledWithBlockingRequestsThenExpectConnectionToBePooledToo() throws Exception {
+
+        final String statusUrl = "http://localhost:" + stubBot.getAddress().getPort() + STATUS_RESOURCE_PATH;
+        for (int i = 0; i < 10; i++) {
+            assertThat(botRestClient.getAsyncRestTemplate().getRestOperations().getForObject(statusUrl, String.class))
+                    .isEqualTo("RUNNING");
+        }
+
+        assertThat(clientPorts).hasSize(1);
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenBotBaseUrlChangesThenExpectNewRouteAndOldRouteDroppedOnceUnused() throws Exception {
+
+        callBot("localhost", STATUS_RESOURCE_PATH);
+        final long oldUrlLastUsed = System.currentTimeMillis();
+        callBot("127.0.0.1", STATUS_RESOURCE_PATH);
+
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(clientPorts).hasSize(2);
+
+        registry.sweep(oldUrlLastUsed + IDLE_EVICTION_MILLIS / 2);
+        assertThat(registry.size()).isEqualTo(2);
+
+        registry.sweep(System.currentTimeMillis() + IDLE_EVICTION_MILLIS + 1);
+        assertThat(registry.size()).isEqualTo(0);
+
+        // A Bot calling in again after its route was dropped gets a new one
+        assertThat(callBot("127.0.0.1", STATUS_RESOURCE_PATH)).isEqualTo("RUNNING");
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenManyBotOriginsAreCalledThenExpectThemToShareTheSameIoThreads() throws Exception {
+
+        callBot("localhost", STATUS_RESOURCE_PATH);
+        final long ioThreadsForOneOrigin = ioThreadCount();
+
+        callBot("127.0.0.1", STATUS_RESOURCE_PATH);
+
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(ioThreadCount()).isEqualTo(ioThreadsForOneOrigin);
+    }
+
+    @Test
+    public void whenBotCallFailsThenExpectFutureToCompleteExceptionallyWithRestClientException() throws Exception {
+
+        try {
+            callBot("localhost", BROKEN_RESOURCE_PATH);
+            fail("Expected the call to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(HttpServerErrorException.class);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMaxConnectionsIsNotPositiveThenExpectIllegalArgumentException() throws Exception {
+        new BotHttpClientRegistry(0, 1000, IDLE_EVICTION_MILLIS, 60000L, 5000, 5000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMaxConnectionsIsLessThanMaxConnectionsPerBotThenExpectIllegalArgumentException() throws Exception {
+        new BotHttpClientRegistry(5, 4, IDLE_EVICTION_MILLIS, 60000L, 5000, 5000);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private String callBot(String host, String resourcePath) throws Exception {
+        final BotConfig botConfig = new BotConfig("gdax-bot-1", "GDAX",
+                "http://" + host + ":" + stubBot.getAddress().getPort(), "admin", "admin");
+        return botRestClient.exchange(botConfig, botConfig.getBaseUrl() + resourcePath, HttpMethod.GET, null,
+                String.class).get(10, TimeUnit.SECONDS);
+    }
+
+    private static long ioThreadCount() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("bot-http-io-"))
+                .count();
+    }
+}
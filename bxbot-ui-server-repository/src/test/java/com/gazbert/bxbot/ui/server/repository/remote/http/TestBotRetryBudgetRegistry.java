@@ -0,0 +1,261 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.repository.remote.http;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotRetryStats;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests failed reads from the Bots are retried within the retry budgets as expected.
+ *
+ * @author gazbert
+ */
+public class TestBotRetryBudgetRegistry {
+
+    private static final String BOT_1_ID = "gdax-bot-1";
+    private static final String BOT_2_ID = "bitstamp-bot-1";
+    private static final String FLAKY_RESOURCE_PATH = "/api/runtime/flaky";
+    private static final String BROKEN_RESOURCE_PATH = "/api/runtime/broken";
+    private static final String MISSING_RESOURCE_PATH = "/api/runtime/missing";
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MILLIS = 1L;
+    private static final long MAX_BACKOFF_MILLIS = 10L;
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger flakyFailuresLeft = new AtomicInteger();
+    private HttpServer stubBot;
+    private BotHttpClientRegistry httpClientRegistry;
+    private BotRetryBudgetRegistry retryBudgets;
+
+    @Before
+    public void setup() throws Exception {
+
+        stubBot = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stubBot.createContext(FLAKY_RESOURCE_PATH, exchange -> {
+            requestCount.incrementAndGet();
+            respond(exchange, flakyFailuresLeft.getAndDecrement() > 0 ? 503 : 200);
+        });
+        stubBot.createContext(BROKEN_RESOURCE_PATH, exchange -> {
+            requestCount.incrementAndGet();
+            respond(exchange, 500);
+        });
+        stubBot.createContext(MISSING_RESOURCE_PATH, exchange -> {
+            requestCount.incrementAndGet();
+            respond(exchange, 404);
+        });
+        stubBot.start();
+
+        httpClientRegistry = new BotHttpClientRegistry(5, 1000, 30000L, 60000L, 5000, 5000);
+    }
+
+    @After
+    public void tearDown() {
+        if (retryBudgets != null) {
+            retryBudgets.destroy();
+        }
+        httpClientRegistry.destroy();
+        stubBot.stop(0);
+    }
+
+    @Test
+    public void whenReadFailsWithServerErrorThenExpectItToBeRetriedUntilItSucceeds() throws Exception {
+
+        final BotRestClient botRestClient = botRestClient(10, 10, 100);
+        flakyFailuresLeft.set(MAX_ATTEMPTS - 1);
+
+        assertThat(callBot(botRestClient, BOT_1_ID, HttpMethod.GET, FLAKY_RESOURCE_PATH)).isEqualTo("OK");
+        assertThat(requestCount.get()).isEqualTo(MAX_ATTEMPTS);
+
+        final BotRetryStats botRetryStats = retryBudgets.getBotRetryStats(botConfig(BOT_1_ID));
+        assertThat(botRetryStats.getRequests()).isEqualTo(1);
+        assertThat(botRetryStats.getRetries()).isEqualTo(MAX_ATTEMPTS - 1);
+        assertThat(botRetryStats.getBudgetExhausted()).isEqualTo(0);
+        assertThat(retryBudgets.getTotalRetryStats().getRetries()).isEqualTo(MAX_ATTEMPTS - 1);
+    }
+
+    @Test
+    public void whenReadKeepsFailingThenExpectItToFailAfterMaxAttempts() throws Exception {
+
+        final BotRestClient botRestClient = botRestClient(10, 10, 100);
+
+        assertThat(callBotExpectingFailure(botRestClient, BOT_1_ID, HttpMethod.GET, BROKEN_RESOURCE_PATH))
+                .isInstanceOf(HttpServerErrorException.class);
+        assertThat(requestCount.get()).isEqualTo(MAX_ATTEMPTS);
+    }
+
+    @Test
+    public void whenWriteFailsWithServerErrorThenExpectNoRetry() throws Exception {
+
+        final BotRestClient botRestClient = botRestClient(10, 10, 100);
+
+        assertThat(callBotExpectingFailure(botRestClient, BOT_1_ID, HttpMethod.PUT, BROKEN_RESOURCE_PATH))
+                .isInstanceOf(HttpServerErrorException.class);
+        assertThat(requestCount.get()).isEqualTo(1);
+        assertThat(retryBudgets.getBotRetryStats(botConfig(BOT_1_ID)).getRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenReadFailsWithClientErrorThenExpectNoRetry() throws Exception {
+
+        final BotRestClient botRestClient = botRestClient(10, 10, 100);
+
+        assertThat(callBotExpectingFailure(botRestClient, BOT_1_ID, HttpMethod.GET, MISSING_RESOURCE_PATH))
+                .isInstanceOf(HttpClientErrorException.class);
+        assertThat(requestCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenBotRetryBudgetIsExhaustedThenExpectNoMoreRetriesForThatBot() throws Exception {
+
+        final BotRestClient botRestClient = botRestClient(0, 2, 100);
+
+        callBotExpectingFailure(botRestClient, BOT_1_ID, HttpMethod.GET, BROKEN_RESOURCE_PATH); // spends both retries
+        callBotExpectingFailure(botRestClient, BOT_1_ID, HttpMethod.GET, BROKEN_RESOURCE_PATH);
+        assertThat(requestCount.get()).isEqualTo(MAX_ATTEMPTS + 1);
+
+        final BotRetryStats bot1RetryStats = retryBudgets.getBotRetryStats(botConfig(BOT_1_ID));
+        assertThat(bot1RetryStats.getRequests()).isEqualTo(2);
+        assertThat(bot1RetryStats.getRetries()).isEqualTo(2);
+        assertThat(bot1RetryStats.getBudgetExhausted()).isEqualTo(1);
+        assertThat(bot1RetryStats.getRetryBudget()).isEqualTo(0.0f);
+        assertThat(retryBudgets.getTotalRetryStats().getBudgetExhausted()).isEqualTo(0); // the shared one had retries
+
+        // Another Bot has its own budget
+        callBotExpectingFailure(botRestClient, BOT_2_ID, HttpMethod.GET, BROKEN_RESOURCE_PATH);
+        assertThat(requestCount.get()).isEqualTo(MAX_ATTEMPTS * 2 + 1);
+    }
+
+    @Test
+    public void whenTotalRetryBudgetIsExhaustedThenExpectNoMoreRetriesForAnyBot() throws Exception {
+
+        final BotRestClient botRestClient = botRestClient(0, 10, 1);
+
+        callBotExpectingFailure(botRestClient, BOT_1_ID, HttpMethod.GET, BROKEN_RESOURCE_PATH); // spends the retry
+        callBotExpectingFailure(botRestClient, BOT_2_ID, HttpMethod.GET, BROKEN_RESOURCE_PATH);
+        assertThat(requestCount.get()).isEqualTo(3);
+
+        final BotRetryStats totalRetryStats = retryBudgets.getTotalRetryStats();
+        assertThat(totalRetryStats.getBotId()).isNull();
+        assertThat(totalRetryStats.getRequests()).isEqualTo(2);
+        assertThat(totalRetryStats.getRetries()).isEqualTo(1);
+        assertThat(totalRetryStats.getBudgetExhausted()).isEqualTo(2);
+        assertThat(retryBudgets.getBotRetryStats(botConfig(BOT_1_ID)).getBudgetExhausted()).isEqualTo(0);
+        assertThat(retryBudgets.getBotRetryStats(botConfig(BOT_2_ID)).getBudgetExhausted()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenReadsAreMadeThenExpectThemToEarnRetriesUpToTheMaxSaved() throws Exception {
+
+        retryBudgets = new BotRetryBudgetRegistry(MAX_ATTEMPTS, BASE_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS, 50, 1, 100);
+
+        assertThat(retryBudgets.tryAcquireRetry(BOT_1_ID)).isTrue();
+        assertThat(retryBudgets.tryAcquireRetry(BOT_1_ID)).isFalse();
+
+        retryBudgets.onRequest(BOT_1_ID);
+        assertThat(retryBudgets.tryAcquireRetry(BOT_1_ID)).isFalse(); // only half a retry earned so far
+        retryBudgets.onRequest(BOT_1_ID);
+        assertThat(retryBudgets.tryAcquireRetry(BOT_1_ID)).isTrue();
+
+        for (int i = 0; i < 10; i++) {
+            retryBudgets.onRequest(BOT_1_ID);
+        }
+        assertThat(retryBudgets.getBotRetryStats(botConfig(BOT_1_ID)).getRetryBudget()).isEqualTo(1.0f);
+    }
+
+    @Test
+    public void whenBotHasNotBeenCalledThenExpectFullBudgetAndNoRequests() throws Exception {
+
+        retryBudgets = new BotRetryBudgetRegistry(MAX_ATTEMPTS, BASE_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS, 10, 10, 100);
+
+        final BotRetryStats botRetryStats = retryBudgets.getBotRetryStats(botConfig(BOT_1_ID));
+        assertThat(botRetryStats.getBotId()).isEqualTo(BOT_1_ID);
+        assertThat(botRetryStats.getRequests()).isEqualTo(0);
+        assertThat(botRetryStats.getRetryBudget()).isEqualTo(10.0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMaxBackoffIsLessThanBaseBackoffThenExpectIllegalArgumentException() throws Exception {
+        new BotRetryBudgetRegistry(MAX_ATTEMPTS, MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS, 10, 10, 100);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private BotRestClient botRestClient(float budgetPercent, int botBudgetMaxRetries, int totalBudgetMaxRetries) {
+        retryBudgets = new BotRetryBudgetRegistry(MAX_ATTEMPTS, BASE_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS,
+                budgetPercent, botBudgetMaxRetries, totalBudgetMaxRetries);
+        return new BotRestClient(httpClientRegistry, new BotCircuitBreakerRegistry(20, 20, 100, 100, 5000, 30000, 3),
+                retryBudgets);
+    }
+
+    private BotConfig botConfig(String botId) {
+        return new BotConfig(botId, botId, "http://localhost:" + stubBot.getAddress().getPort(), "admin", "admin");
+    }
+
+    private String callBot(BotRestClient botRestClient, String botId, HttpMethod method, String resourcePath)
+            throws Exception {
+        final BotConfig botConfig = botConfig(botId);
+        return botRestClient.exchange(botConfig, botConfig.getBaseUrl() + resourcePath, method, null, String.class)
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    private Throwable callBotExpectingFailure(BotRestClient botRestClient, String botId, HttpMethod method,
+                                              String resourcePath) throws Exception {
+        try {
+            callBot(botRestClient, botId, method, resourcePath);
+            fail("Expected the call to fail");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        final byte[] body = (status == 200 ? "OK" : "ERROR").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+}
@@ -1,13 +1,37 @@
 package com.gazbert.bxbot.ui.server.rest.api.v1;
 
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException;
 import com.gazbert.bxbot.ui.server.rest.api.v1.config.ResponseDataWrapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * Base class for all controllers.
+ * <p>
+ * Endpoints that list Bots can return them a page at a time. A page is asked for using the limit, cursor, sort and
+ * filter query parameters:
+ * <ul>
+ * <li>limit - the most Bots to return, up to {@value #MAX_PAGE_LIMIT}; defaults to {@value #DEFAULT_PAGE_LIMIT}.</li>
+ * <li>cursor - the cursor from the previous page's Link header.</li>
+ * <li>sort - id or alias, prefixed with - for descending order; defaults to id.</li>
+ * <li>filter - alias:prefix or host:hostname[:port]; can be given more than once.</li>
+ * </ul>
+ * The page's Bots are returned as a list, as they are without paging. If there is a next page, a Link header with
+ * rel="next" gives its URL.
+ * <p>
+ * If a call to a Bot is refused because its circuit breaker is open, the endpoint returns 503 'Service Unavailable'
+ * rather than the response it gives when the Bot's config is not found.
  *
  * @author gazbert
  */
@@ -16,9 +40,94 @@ public class AbstractController {
     private static final Logger LOG = LogManager.getLogger();
     protected static final String API_ENDPOINT_BASE_URI = "/api/v1";
 
+    protected static final int DEFAULT_PAGE_LIMIT = 100;
+    protected static final int MAX_PAGE_LIMIT = 1000;
+
+    private static final String DESCENDING_SORT_PREFIX = "-";
+    private static final String ALIAS_FILTER_PREFIX = "alias:";
+    private static final String HOST_FILTER_PREFIX = "host:";
+
     protected ResponseEntity<?> buildResponseEntity(Object entity, HttpStatus httpStatus) {
+        return buildResponseEntity(entity, null, httpStatus);
+    }
+
+    protected ResponseEntity<?> buildResponseEntity(Object entity, HttpHeaders headers, HttpStatus httpStatus) {
         final ResponseDataWrapper responseDataWrapper = new ResponseDataWrapper(entity);
         LOG.info("Response: " + responseDataWrapper);
-        return new ResponseEntity<>(responseDataWrapper, null, httpStatus);
+        return new ResponseEntity<>(responseDataWrapper, headers, httpStatus);
+    }
+
+    /**
+     * Returns 503 'Service Unavailable' when a call to a Bot is refused because its circuit breaker is open.
+     */
+    @ExceptionHandler(BotUnavailableException.class)
+    public ResponseEntity<?> handleBotUnavailable(BotUnavailableException e) {
+        LOG.warn(e.getMessage());
+        return buildResponseEntity(Collections.singletonList("Bot " + e.getBotId()
+                + " is unavailable - please try again later"), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Returns whether any of the paging query parameters were given. If none were, the endpoint returns all the Bots.
+     */
+    protected static boolean isPageRequested(Integer limit, String cursor, String sort, List<String> filters) {
+        return limit != null || cursor != null || sort != null || (filters != null && !filters.isEmpty());
+    }
+
+    /**
+     * Builds a page request from the paging query parameters.
+     *
+     * @throws IllegalArgumentException if any of the parameters are not valid.
+     */
+    protected static BotPageRequest buildPageRequest(Integer limit, String cursor, String sort, List<String> filters) {
+
+        final int pageLimit = limit == null ? DEFAULT_PAGE_LIMIT : limit;
+        if (pageLimit < 1 || pageLimit > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_LIMIT + " but was: " + limit);
+        }
+
+        final boolean descending = sort != null && sort.startsWith(DESCENDING_SORT_PREFIX);
+        final String sortFieldName = descending ? sort.substring(DESCENDING_SORT_PREFIX.length()) : sort;
+        BotPageRequest.SortField sortField = null;
+        if (sortFieldName != null) {
+            try {
+                sortField = BotPageRequest.SortField.valueOf(sortFieldName.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("sort must be id or alias, optionally prefixed with - but was: "
+                        + sort, e);
+            }
+        }
+
+        String aliasPrefix = null;
+        String host = null;
+        if (filters != null) {
+            for (final String filter : filters) {
+                if (filter.startsWith(ALIAS_FILTER_PREFIX)) {
+                    aliasPrefix = filter.substring(ALIAS_FILTER_PREFIX.length());
+                } else if (filter.startsWith(HOST_FILTER_PREFIX)) {
+                    host = filter.substring(HOST_FILTER_PREFIX.length());
+                } else {
+                    throw new IllegalArgumentException("filter must be alias:prefix or host:hostname but was: "
+                            + filter);
+                }
+            }
+        }
+
+        return new BotPageRequest(pageLimit, cursor, sortField, descending, aliasPrefix, host);
+    }
+
+    /**
+     * Builds the response for a page of Bots, with a Link header for the next page if there is one.
+     */
+    protected ResponseEntity<?> buildPageResponseEntity(BotPage<?> page, HttpStatus httpStatus) {
+        final HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            final String nextPageUri = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .build()
+                    .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + nextPageUri + ">; rel=\"next\"");
+        }
+        return buildResponseEntity(page.getItems(), headers, httpStatus);
     }
 }
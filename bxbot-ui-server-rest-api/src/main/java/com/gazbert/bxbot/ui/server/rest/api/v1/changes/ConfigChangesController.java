@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.rest.api.v1.changes;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChanges;
+import com.gazbert.bxbot.ui.server.rest.api.v1.AbstractController;
+import com.gazbert.bxbot.ui.server.rest.security.model.User;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+
+/**
+ * Controller for directing config change feed requests.
+ * <p>
+ * Clients keep the latestSequence from each response and pass it as the since parameter of the next request, so
+ * they only fetch what changed. If the response says resyncRequired, the client must reload the config it holds and
+ * carry on from the latestSequence in that response.
+ *
+ * @author gazbert
+ */
+@RestController
+@RequestMapping(ConfigChangesController.CHANGES_ENDPOINT_BASE_URI)
+public class ConfigChangesController extends AbstractController {
+
+    static final String CHANGES_ENDPOINT_BASE_URI = API_ENDPOINT_BASE_URI + "/changes";
+
+    private static final Logger LOG = LogManager.getLogger();
+    private final ConfigChangeService configChangeService;
+
+    @Autowired
+    public ConfigChangesController(ConfigChangeService configChangeService) {
+        this.configChangeService = configChangeService;
+    }
+
+    /**
+     * Returns the config changes made after the given sequence number.
+     *
+     * @param user  the authenticated user.
+     * @param since the sequence number of the last change the client has seen; 0 if it has not seen any.
+     * @return the changes made since, or the resync marker; 400 'Bad Request' if the sequence number is negative.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(method = RequestMethod.GET)
+    public ResponseEntity<?> getChanges(@AuthenticationPrincipal User user, @RequestParam long since) {
+
+        LOG.info("GET " + CHANGES_ENDPOINT_BASE_URI + "?since=" + since + " - getChanges()"); // - caller: " + user.getUsername());
+
+        final ConfigChanges configChanges;
+        try {
+            configChanges = configChangeService.getChangesSince(since);
+        } catch (IllegalArgumentException e) {
+            return buildResponseEntity(Collections.singletonList(e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+        return buildResponseEntity(configChanges, HttpStatus.OK);
+    }
+}
@@ -23,18 +23,33 @@
 
 package com.gazbert.bxbot.ui.server.rest.api.v1.config;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
 import com.gazbert.bxbot.ui.server.rest.security.model.User;
 import com.gazbert.bxbot.ui.server.services.config.BotConfigService;
+import com.gazbert.bxbot.ui.server.services.config.InvalidBotConfigException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static com.gazbert.bxbot.ui.server.rest.api.v1.config.AbstractConfigController.CONFIG_ENDPOINT_BASE_URI;
@@ -42,6 +57,14 @@ import static com.gazbert.bxbot.ui.server.rest.api.v1.config.AbstractConfigContr
 /**
  * Controller for directing Bot config requests.
  * <p>
+ * Responses for a single Bot carry the Bot config's version as an ETag. Updates can be made conditional by sending
+ * that ETag back in an If-Match header: if the Bot has been changed since, the update is rejected with a 412.
+ * <p>
+ * Bot configs can also be imported in bulk, as a JSON array or as newline-delimited JSON (NDJSON), and exported in
+ * either format. Both are streamed: the export is written out Bot by Bot as it is read from the repository. An
+ * imported Bot config that carries a version - as exported ones do - is only applied if the Bot is still at that
+ * version; otherwise the whole import is rejected with a 409, so an import cannot silently undo a concurrent update.
+ * <p>
  * TODO - AuthenticationPrincipal User - get equivalent for use with JWT auth?
  *
  * @author gazbert
@@ -52,25 +75,61 @@ import static com.gazbert.bxbot.ui.server.rest.api.v1.config.AbstractConfigContr
 public class BotsConfigController extends AbstractConfigController {
 
     private static final Logger LOG = LogManager.getLogger();
+    private static final String ANY_ETAG = "*";
+
+    /**
+     * Media type for newline-delimited JSON: one Bot config per line.
+     */
+    static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    /**
+     * The most Bot configs accepted in a single import.
+     */
+    static final int MAX_IMPORT_SIZE = 10000;
+
     private final BotConfigService botConfigService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public BotsConfigController(BotConfigService botConfigService) {
+    public BotsConfigController(BotConfigService botConfigService, ObjectMapper objectMapper) {
         this.botConfigService = botConfigService;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * Returns the Bot config for all the bots.
+     * Returns the Bot config for all the bots, or for one page of them if any of the paging parameters are given.
+     * See {@link com.gazbert.bxbot.ui.server.rest.api.v1.AbstractController} for the paging parameters.
      *
-     * @param user the authenticated user.
-     * @return all the Bots configuration.
+     * @param user    the authenticated user.
+     * @param limit   the optional page size.
+     * @param cursor  the optional cursor of the page to fetch.
+     * @param sort    the optional sort order.
+     * @param filters the optional filters.
+     * @return all the Bots configuration, or a page of it; 400 'Bad Request' if the paging parameters are invalid.
      */
     @PreAuthorize("hasRole('USER')") // Spring Security maps USER to ROLE_USER in database - ROLE_ prefix must be used.
     @RequestMapping(method = RequestMethod.GET)
-    public ResponseEntity<?> getBots(@AuthenticationPrincipal User user) {
+    public ResponseEntity<?> getBots(@AuthenticationPrincipal User user,
+                                     @RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String cursor,
+                                     @RequestParam(required = false) String sort,
+                                     @RequestParam(value = "filter", required = false) List<String> filters) {
 
         LOG.info("GET " + CONFIG_ENDPOINT_BASE_URI + " - getBots()"); // caller: " + user.getUsername());
 
+        if (isPageRequested(limit, cursor, sort, filters)) {
+            final BotPage<BotConfig> botConfigPage;
+            try {
+                botConfigPage = botConfigService.getBotConfigPage(buildPageRequest(limit, cursor, sort, filters));
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Rejected invalid page request: " + e.getMessage());
+                return buildResponseEntity(Collections.singletonList(e.getMessage()), HttpStatus.BAD_REQUEST);
+            }
+            return botConfigPage.getItems().isEmpty()
+                    ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                    : buildPageResponseEntity(botConfigPage, HttpStatus.OK);
+        }
+
         final List<BotConfig> botConfigs = botConfigService.getAllBotConfig();
         return botConfigs.isEmpty()
                 ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
@@ -93,31 +152,54 @@ public class BotsConfigController extends AbstractConfigController {
         final BotConfig botConfig = botConfigService.getBotConfig(botId);
         return botConfig == null
                 ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
-                : buildResponseEntity(botConfig, HttpStatus.OK);
+                : buildResponseEntity(botConfig, eTagHeaderFor(botConfig), HttpStatus.OK);
     }
 
     /**
      * Updates the Bot config configuration for a given Bot id.
      *
      * @param user      the authenticated user making the request.
+     * @param botId     the id of the Bot to update.
+     * @param ifMatch   optional If-Match header: the ETag of the Bot config the update is based on, or * for any.
      * @param botConfig the Bot config to update.
-     * @return 200 'OK' HTTP status code with updated Bot config if successful, some other HTTP status code otherwise.
+     * @return 200 'OK' HTTP status code with updated Bot config if successful, 412 'Precondition Failed' if the
+     * If-Match ETag does not match the Bot config's current version, some other HTTP status code otherwise.
      */
     @PreAuthorize("hasRole('ADMIN')")
     @RequestMapping(value = "/{botId}", method = RequestMethod.PUT)
-    public ResponseEntity<?> updateBot(@AuthenticationPrincipal User user, @PathVariable String botId, @RequestBody BotConfig botConfig) {
+    public ResponseEntity<?> updateBot(@AuthenticationPrincipal User user, @PathVariable String botId,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                       @RequestBody BotConfig botConfig) {
 
         LOG.info("PUT " + CONFIG_ENDPOINT_BASE_URI + botId + " - updateBot()"); // - caller: " + user.getUsername());
-        LOG.info("Request: " + botConfig);
+        LOG.info("Request: " + botConfig + " If-Match: " + ifMatch);
 
         if (!botId.equals(botConfig.getId())) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
-        final BotConfig updateBotConfig = botConfigService.updateBotConfig(botConfig);
+        // The version is managed by the server: only the If-Match header makes an update conditional.
+        final BotConfig botConfigToUpdate = new BotConfig(botConfig);
+        botConfigToUpdate.setVersion(null);
+        if (ifMatch != null && !ANY_ETAG.equals(ifMatch.trim())) {
+            final Long expectedVersion = versionFromETag(ifMatch);
+            if (expectedVersion == null) {
+                LOG.warn("If-Match header is not a Bot config ETag: " + ifMatch);
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            }
+            botConfigToUpdate.setVersion(expectedVersion);
+        }
+
+        final BotConfig updateBotConfig;
+        try {
+            updateBotConfig = botConfigService.updateBotConfig(botConfigToUpdate);
+        } catch (OptimisticLockingFailureException e) {
+            LOG.warn("Rejected update of Bot config that has changed since it was read: " + e.getMessage());
+            return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+        }
         return updateBotConfig == null
                 ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
-                : buildResponseEntity(updateBotConfig, HttpStatus.OK);
+                : buildResponseEntity(updateBotConfig, eTagHeaderFor(updateBotConfig), HttpStatus.OK);
     }
 
     /**
@@ -137,7 +219,107 @@ public class BotsConfigController extends AbstractConfigController {
         final BotConfig createdConfig = botConfigService.createBotConfig(botConfig);
         return createdConfig == null
                 ? new ResponseEntity<>(HttpStatus.CONFLICT)
-                : buildResponseEntity(createdConfig, HttpStatus.CREATED);
+                : buildResponseEntity(createdConfig, eTagHeaderFor(createdConfig), HttpStatus.CREATED);
+    }
+
+    /**
+     * Imports a batch of Bot configs. The request body is either a JSON array of Bot configs or NDJSON, one Bot
+     * config per line. Configs without an id are created; the rest are created or replaced by id.
+     * <p>
+     * A config that replaces an existing Bot and carries a version is only applied if the Bot is still at that
+     * version, as with an If-Match update. Configs without a version replace the Bot unconditionally, and configs for
+     * Bots that do not exist yet are created whatever version they carry.
+     * <p>
+     * The whole batch is validated and its versions checked before anything is saved: if any config is invalid or
+     * stale, none of them are saved.
+     *
+     * @param user    the authenticated user.
+     * @param request the request to stream the Bot configs from.
+     * @return 200 'OK' HTTP status code with the imported Bot configs if successful, 400 'Bad Request' with the
+     * list of problems found if the batch is malformed or invalid, 409 'Conflict' naming the Bots that have changed
+     * since the versions their configs carry, 413 'Payload Too Large' if the batch has more than
+     * {@link #MAX_IMPORT_SIZE} Bot configs.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @RequestMapping(value = "/import", method = RequestMethod.POST)
+    public ResponseEntity<?> importBots(@AuthenticationPrincipal User user, HttpServletRequest request)
+            throws IOException {
+
+        LOG.info("POST " + CONFIG_ENDPOINT_BASE_URI + "import - importBots()"); // - caller: " + user.getUsername());
+
+        final List<BotConfig> botConfigs = new ArrayList<>();
+        try (MappingIterator<BotConfig> configIterator =
+                     objectMapper.readerFor(BotConfig.class).readValues(request.getInputStream())) {
+            while (configIterator.hasNextValue()) {
+                if (botConfigs.size() == MAX_IMPORT_SIZE) {
+                    return buildResponseEntity(Collections.singletonList(
+                            "Too many Bot configs - at most " + MAX_IMPORT_SIZE + " can be imported at once"),
+                            HttpStatus.PAYLOAD_TOO_LARGE);
+                }
+                botConfigs.add(configIterator.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            LOG.warn("Rejected malformed Bot config import: " + e.getMessage());
+            return buildResponseEntity(Collections.singletonList(
+                    "Malformed Bot config [" + botConfigs.size() + "]: " + e.getOriginalMessage()),
+                    HttpStatus.BAD_REQUEST);
+        }
+        LOG.info("Request: " + botConfigs.size() + " Bot configs");
+
+        try {
+            return buildResponseEntity(botConfigService.importBotConfig(botConfigs), HttpStatus.OK);
+        } catch (InvalidBotConfigException e) {
+            LOG.warn("Rejected invalid Bot config import: " + e.getMessage());
+            return buildResponseEntity(e.getErrors(), HttpStatus.BAD_REQUEST);
+        } catch (OptimisticLockingFailureException e) {
+            LOG.warn("Rejected import of Bot configs that have changed since they were read: " + e.getMessage());
+            return buildResponseEntity(Collections.singletonList(e.getMessage()), HttpStatus.CONFLICT);
+        }
+    }
+
+    /**
+     * Exports the Bot config for all the bots. It is written as a JSON array, or as NDJSON if the Accept header asks
+     * for {@value #NDJSON_MEDIA_TYPE}. Unlike the other endpoints, the response is not wrapped: it can be imported
+     * again as it is.
+     *
+     * @param user     the authenticated user.
+     * @param accept   the optional Accept header.
+     * @param response the response to stream the Bot configs to.
+     * @throws IOException if the response cannot be written.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(value = "/export", method = RequestMethod.GET)
+    public void exportBots(@AuthenticationPrincipal User user,
+                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                           HttpServletResponse response) throws IOException {
+
+        LOG.info("GET " + CONFIG_ENDPOINT_BASE_URI + "export - exportBots()"); // - caller: " + user.getUsername());
+
+        final boolean ndjson = accept != null && accept.contains(NDJSON_MEDIA_TYPE);
+        response.setContentType((ndjson ? NDJSON_MEDIA_TYPE : MediaType.APPLICATION_JSON_VALUE) + ";charset=UTF-8");
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+            botConfigService.exportBotConfig(botConfig -> {
+                try {
+                    generator.writeObject(botConfig);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
@@ -158,5 +340,35 @@ public class BotsConfigController extends AbstractConfigController {
                 ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
                 : new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
-}
 
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * The ETag is the Bot config's version as a strong entity tag, e.g. "3". No ETag is sent if it has no version.
+     */
+    private static HttpHeaders eTagHeaderFor(BotConfig botConfig) {
+        final HttpHeaders headers = new HttpHeaders();
+        if (botConfig.getVersion() != null) {
+            headers.setETag("\"" + botConfig.getVersion() + "\"");
+        }
+        return headers;
+    }
+
+    /*
+     * Returns the version in an If-Match ETag, or null if it is not one of ours. Weak ETags never match under If-Match,
+     * and lists of ETags are not supported, so both give null.
+     */
+    private static Long versionFromETag(String eTag) {
+        final String trimmedETag = eTag.trim();
+        if (trimmedETag.length() < 3 || !trimmedETag.startsWith("\"") || !trimmedETag.endsWith("\"")) {
+            return null;
+        }
+        try {
+            return Long.valueOf(trimmedETag.substring(1, trimmedETag.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
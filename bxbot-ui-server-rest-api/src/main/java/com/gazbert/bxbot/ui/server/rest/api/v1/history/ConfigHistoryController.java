@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.rest.api.v1.history;
+
+import com.gazbert.bxbot.ui.server.domain.history.ConfigVersion;
+import com.gazbert.bxbot.ui.server.rest.api.v1.AbstractController;
+import com.gazbert.bxbot.ui.server.rest.security.model.User;
+import com.gazbert.bxbot.ui.server.services.history.ConfigHistoryService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Controller for directing config history requests.
+ * <p>
+ * Versions are numbered per Bot, starting at 1. The history is served from the local history store, so it does not
+ * need the Bot to be up.
+ *
+ * @author gazbert
+ */
+@RestController
+@RequestMapping(ConfigHistoryController.HISTORY_ENDPOINT_BASE_URI)
+public class ConfigHistoryController extends AbstractController {
+
+    static final String HISTORY_ENDPOINT_BASE_URI = API_ENDPOINT_BASE_URI + "/history/bots";
+
+    private static final Logger LOG = LogManager.getLogger();
+    private static final String VERSIONS_RESOURCE_PATH = "/versions";
+    private static final String CONFIG_RESOURCE_PATH = "/config";
+    private final ConfigHistoryService configHistoryService;
+
+    @Autowired
+    public ConfigHistoryController(ConfigHistoryService configHistoryService) {
+        this.configHistoryService = configHistoryService;
+    }
+
+    /**
+     * Returns the config history for the bot, without the config content.
+     *
+     * @param user  the authenticated user.
+     * @param botId the id of the Bot to fetch the history for.
+     * @return the Bot's config versions, oldest first.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(value = "/{botId}" + VERSIONS_RESOURCE_PATH, method = RequestMethod.GET)
+    public ResponseEntity<?> getHistory(@AuthenticationPrincipal User user, @PathVariable String botId) {
+
+        LOG.info("GET " + HISTORY_ENDPOINT_BASE_URI + "/" + botId + VERSIONS_RESOURCE_PATH + " - getHistory()"); // - caller: " + user.getUsername());
+
+        final List<ConfigVersion> history = configHistoryService.getHistory(botId);
+        return history.isEmpty()
+                ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                : buildResponseEntity(history, HttpStatus.OK);
+    }
+
+    /**
+     * Returns a config version, with its content.
+     *
+     * @param user    the authenticated user.
+     * @param botId   the id of the Bot to fetch the version for.
+     * @param version the version to fetch.
+     * @return the config version.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(value = "/{botId}" + VERSIONS_RESOURCE_PATH + "/{version}", method = RequestMethod.GET)
+    public ResponseEntity<?> getVersion(@AuthenticationPrincipal User user, @PathVariable String botId,
+                                        @PathVariable long version) {
+
+        LOG.info("GET " + HISTORY_ENDPOINT_BASE_URI + "/" + botId + VERSIONS_RESOURCE_PATH + "/" + version + " - getVersion()"); // - caller: " + user.getUsername());
+
+        final ConfigVersion configVersion = configHistoryService.getVersion(botId, version);
+        return configVersion == null
+                ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                : buildResponseEntity(configVersion, HttpStatus.OK);
+    }
+
+    /**
+     * Returns the Bot's config as it was at a given time.
+     *
+     * @param user  the authenticated user.
+     * @param botId the id of the Bot to fetch the config for.
+     * @param asOf  the time as an ISO-8601 instant, e.g. 2017-11-20T09:30:00Z.
+     * @return the latest version of each config the Bot had at the time; 400 'Bad Request' if the time is invalid.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(value = "/{botId}" + CONFIG_RESOURCE_PATH, method = RequestMethod.GET)
+    public ResponseEntity<?> getConfigAsOf(@AuthenticationPrincipal User user, @PathVariable String botId,
+                                           @RequestParam String asOf) {
+
+        LOG.info("GET " + HISTORY_ENDPOINT_BASE_URI + "/" + botId + CONFIG_RESOURCE_PATH + "?asOf=" + asOf + " - getConfigAsOf()"); // - caller: " + user.getUsername());
+
+        final long timestamp;
+        try {
+            timestamp = Instant.parse(asOf).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return buildResponseEntity(Collections.singletonList("Invalid asOf time: " + asOf), HttpStatus.BAD_REQUEST);
+        }
+
+        final List<ConfigVersion> config = configHistoryService.getConfigAsOf(botId, timestamp);
+        return config.isEmpty()
+                ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                : buildResponseEntity(config, HttpStatus.OK);
+    }
+
+    /**
+     * Rolls the Bot's config back to a given version by pushing that version to the Bot again.
+     *
+     * @param user    the authenticated user.
+     * @param botId   the id of the Bot to roll back.
+     * @param version the version to roll back to.
+     * @return 200 'Ok' and the version rolled back to if successful; 409 'Conflict' if the Bot rejected it.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @RequestMapping(value = "/{botId}" + VERSIONS_RESOURCE_PATH + "/{version}/rollback", method = RequestMethod.POST)
+    public ResponseEntity<?> rollback(@AuthenticationPrincipal User user, @PathVariable String botId,
+                                      @PathVariable long version) {
+
+        LOG.info("POST " + HISTORY_ENDPOINT_BASE_URI + "/" + botId + VERSIONS_RESOURCE_PATH + "/" + version + "/rollback - rollback()"); // - caller: " + user.getUsername());
+
+        final ConfigVersion configVersion;
+        try {
+            configVersion = configHistoryService.rollback(botId, version);
+        } catch (IllegalStateException e) {
+            return buildResponseEntity(Collections.singletonList(e.getMessage()), HttpStatus.CONFLICT);
+        }
+        return configVersion == null
+                ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                : buildResponseEntity(configVersion, HttpStatus.OK);
+    }
+}
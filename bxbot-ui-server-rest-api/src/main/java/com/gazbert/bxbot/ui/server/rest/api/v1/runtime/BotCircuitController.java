@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.rest.api.v1.runtime;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotCircuit;
+import com.gazbert.bxbot.ui.server.rest.security.model.User;
+import com.gazbert.bxbot.ui.server.services.runtime.BotCircuitService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static com.gazbert.bxbot.ui.server.rest.api.v1.runtime.AbstractRuntimeController.RUNTIME_ENDPOINT_BASE_URI;
+
+/**
+ * Controller for directing Bot Circuit requests.
+ * <p>
+ * A Bot's circuit breaker guards every call made to it. While the circuit is open, the Bot is not called and its
+ * status is reported as unavailable.
+ *
+ * @author gazbert
+ */
+@RestController
+@RequestMapping(RUNTIME_ENDPOINT_BASE_URI)
+public class BotCircuitController extends AbstractRuntimeController {
+
+    private static final Logger LOG = LogManager.getLogger();
+    private static final String CIRCUIT_RESOURCE_PATH = "/circuit";
+    private final BotCircuitService botCircuitService;
+
+    @Autowired
+    public BotCircuitController(BotCircuitService botCircuitService) {
+        this.botCircuitService = botCircuitService;
+    }
+
+    /**
+     * Returns the state of the circuit breaker for a given Bot id.
+     *
+     * @param user  the authenticated user.
+     * @param botId the id of the Bot.
+     * @return the state of the Bot's circuit breaker.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(value = "/{botId}" + CIRCUIT_RESOURCE_PATH, method = RequestMethod.GET)
+    public ResponseEntity<?> getBotCircuit(@AuthenticationPrincipal User user, @PathVariable String botId) {
+
+        LOG.info("GET " + RUNTIME_ENDPOINT_BASE_URI + botId + CIRCUIT_RESOURCE_PATH + " - getBotCircuit()"); // - caller: " + user.getUsername());
+
+        final BotCircuit botCircuit = botCircuitService.getBotCircuit(botId);
+        return botCircuit == null
+                ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                : buildResponseEntity(botCircuit, HttpStatus.OK);
+    }
+
+    /**
+     * Returns the state of the circuit breaker for all the Bots.
+     *
+     * @param user the authenticated user.
+     * @return the state of each Bot's circuit breaker.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(value = CIRCUIT_RESOURCE_PATH, method = RequestMethod.GET)
+    public ResponseEntity<?> getAllBotCircuits(@AuthenticationPrincipal User user) {
+
+        LOG.info("GET " + RUNTIME_ENDPOINT_BASE_URI + CIRCUIT_RESOURCE_PATH + " - getAllBotCircuits()"); // - caller: " + user.getUsername());
+
+        final List<BotCircuit> allBotCircuits = botCircuitService.getAllBotCircuits();
+        return allBotCircuits.isEmpty()
+                ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                : buildResponseEntity(allBotCircuits, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.rest.api.v1.runtime;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotRetryStats;
+import com.gazbert.bxbot.ui.server.rest.security.model.User;
+import com.gazbert.bxbot.ui.server.services.runtime.BotRetryService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.gazbert.bxbot.ui.server.rest.api.v1.runtime.AbstractRuntimeController.RUNTIME_ENDPOINT_BASE_URI;
+
+/**
+ * Controller for directing Bot Retry requests.
+ * <p>
+ * Failed reads from a Bot are retried while the retry budgets allow. The stats show how many reads and retries have
+ * been made, and how often a retry was not made because a budget had run out.
+ *
+ * @author gazbert
+ */
+@RestController
+@RequestMapping(RUNTIME_ENDPOINT_BASE_URI)
+public class BotRetryController extends AbstractRuntimeController {
+
+    private static final Logger LOG = LogManager.getLogger();
+    private static final String RETRIES_RESOURCE_PATH = "/retries";
+    private final BotRetryService botRetryService;
+
+    @Autowired
+    public BotRetryController(BotRetryService botRetryService) {
+        this.botRetryService = botRetryService;
+    }
+
+    /**
+     * Returns the retry stats for a given Bot id.
+     *
+     * @param user  the authenticated user.
+     * @param botId the id of the Bot.
+     * @return the Bot's retry stats.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(value = "/{botId}" + RETRIES_RESOURCE_PATH, method = RequestMethod.GET)
+    public ResponseEntity<?> getBotRetryStats(@AuthenticationPrincipal User user, @PathVariable String botId) {
+
+        LOG.info("GET " + RUNTIME_ENDPOINT_BASE_URI + botId + RETRIES_RESOURCE_PATH + " - getBotRetryStats()"); // - caller: " + user.getUsername());
+
+        final BotRetryStats botRetryStats = botRetryService.getBotRetryStats(botId);
+        return botRetryStats == null
+                ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                : buildResponseEntity(botRetryStats, HttpStatus.OK);
+    }
+
+    /**
+     * Returns the retry stats of all the Bots together, with the retry budget they share.
+     *
+     * @param user the authenticated user.
+     * @return the retry stats of all the Bots.
+     */
+    @PreAuthorize("hasRole('USER')")
+    @RequestMapping(value = RETRIES_RESOURCE_PATH, method = RequestMethod.GET)
+    public ResponseEntity<?> getTotalRetryStats(@AuthenticationPrincipal User user) {
+
+        LOG.info("GET " + RUNTIME_ENDPOINT_BASE_URI + RETRIES_RESOURCE_PATH + " - getTotalRetryStats()"); // - caller: " + user.getUsername());
+
+        return buildResponseEntity(botRetryService.getTotalRetryStats(), HttpStatus.OK);
+    }
+}
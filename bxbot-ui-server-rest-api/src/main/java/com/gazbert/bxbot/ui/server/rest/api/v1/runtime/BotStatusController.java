@@ -23,6 +23,7 @@
 
 package com.gazbert.bxbot.ui.server.rest.api.v1.runtime;
 
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
 import com.gazbert.bxbot.ui.server.domain.bot.BotStatus;
 import com.gazbert.bxbot.ui.server.rest.security.model.User;
 import com.gazbert.bxbot.ui.server.services.runtime.BotStatusService;
@@ -36,8 +37,10 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Collections;
 import java.util.List;
 
 import static com.gazbert.bxbot.ui.server.rest.api.v1.runtime.AbstractRuntimeController.RUNTIME_ENDPOINT_BASE_URI;
@@ -83,17 +86,41 @@ public class BotStatusController extends AbstractRuntimeController {
     }
 
     /**
-     * Returns a list of all the Bots and their statuses.
+     * Returns a list of all the Bots and their statuses, or of one page of them if any of the paging parameters are
+     * given. Only the status of the Bots on the page is fetched. See
+     * {@link com.gazbert.bxbot.ui.server.rest.api.v1.AbstractController} for the paging parameters.
      *
-     * @param user the authenticated user.
-     * @return the status of all of the Bots.
+     * @param user    the authenticated user.
+     * @param limit   the optional page size.
+     * @param cursor  the optional cursor of the page to fetch.
+     * @param sort    the optional sort order.
+     * @param filters the optional filters.
+     * @return the status of all of the Bots, or of a page of them; 400 'Bad Request' if the paging parameters are
+     * invalid.
      */
     @PreAuthorize("hasRole('USER')")
     @RequestMapping(value = STATUS_RESOURCE_PATH, method = RequestMethod.GET)
-    public ResponseEntity<?> getAllBotStatus(@AuthenticationPrincipal User user) {
+    public ResponseEntity<?> getAllBotStatus(@AuthenticationPrincipal User user,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) String sort,
+                                             @RequestParam(value = "filter", required = false) List<String> filters) {
 
         LOG.info("GET " + RUNTIME_ENDPOINT_BASE_URI + STATUS_RESOURCE_PATH + " - getAllBotStatus()"); // - caller: " + user.getUsername());
 
+        if (isPageRequested(limit, cursor, sort, filters)) {
+            final BotPage<BotStatus> botStatusPage;
+            try {
+                botStatusPage = botProcessService.getBotStatusPage(buildPageRequest(limit, cursor, sort, filters));
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Rejected invalid page request: " + e.getMessage());
+                return buildResponseEntity(Collections.singletonList(e.getMessage()), HttpStatus.BAD_REQUEST);
+            }
+            return botStatusPage.getItems().isEmpty()
+                    ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+                    : buildPageResponseEntity(botStatusPage, HttpStatus.OK);
+        }
+
         final List<BotStatus> allBotStatus = botProcessService.getAllBotStatus();
         return allBotStatus.isEmpty()
                 ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
@@ -0,0 +1,224 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.rest.replica;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gazbert.bxbot.ui.server.rest.api.v1.config.ResponseDataWrapper;
+import com.gazbert.bxbot.ui.server.services.replica.ReplicaSyncService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Forwards the REST API writes a read replica receives to its primary server.
+ * <p>
+ * The filter runs after the Spring Security filter chain, so the caller has already been authenticated by the
+ * replica; the caller's token is passed on to the primary, which authorizes the write again. The primary's response is
+ * handed back to the caller as-is. After a successful write the replica syncs straight away, so the caller can read
+ * its own write from the replica.
+ * <p>
+ * Request bodies are buffered before they are forwarded, so bodies over replica.forward.max-body-bytes are rejected
+ * with a 413. If the primary cannot be reached, the caller gets a 502 with the error in the usual response wrapper.
+ * <p>
+ * Reads, and requests outside of the REST API such as /auth, are served by the replica.
+ *
+ * @author gazbert
+ */
+@Component
+@ConditionalOnProperty(name = "botconfig.repository", havingValue = "replica")
+public class WriteForwardingFilter extends OncePerRequestFilter {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final String API_PATH_PREFIX = "/api/";
+    private static final List<String> READ_METHODS = Arrays.asList("GET", "HEAD", "OPTIONS");
+
+    private static final List<String> REQUEST_HEADERS_TO_FORWARD = Arrays.asList(
+            HttpHeaders.AUTHORIZATION, HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT, HttpHeaders.IF_MATCH);
+    private static final List<String> RESPONSE_HEADERS_TO_RETURN = Arrays.asList(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.LOCATION);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ReplicaSyncService replicaSyncService;
+    private final ObjectMapper objectMapper;
+    private final RestTemplate restTemplate;
+    private final String primaryUrl;
+    private final long maxBodyBytes;
+
+    @Autowired
+    public WriteForwardingFilter(ReplicaSyncService replicaSyncService, RestTemplateBuilder restTemplateBuilder,
+                                 ObjectMapper objectMapper,
+                                 @Value("${replica.primary.url}") String primaryUrl,
+                                 @Value("${replica.forward.max-body-bytes:16777216}") long maxBodyBytes) {
+
+        this.replicaSyncService = replicaSyncService;
+        this.objectMapper = objectMapper;
+        this.maxBodyBytes = maxBodyBytes;
+        this.primaryUrl = primaryUrl.endsWith("/") ? primaryUrl.substring(0, primaryUrl.length() - 1) : primaryUrl;
+
+        // Without output streaming, a 401 from the primary is returned to the caller rather than failing the request
+        final SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setOutputStreaming(false);
+        requestFactory.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        requestFactory.setReadTimeout(READ_TIMEOUT_MILLIS);
+        this.restTemplate = restTemplateBuilder
+                .requestFactory(requestFactory)
+                .errorHandler(new PassThroughErrorHandler())
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return READ_METHODS.contains(request.getMethod())
+                || !request.getRequestURI().startsWith(request.getContextPath() + API_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        final String path = request.getRequestURI().substring(request.getContextPath().length());
+        final URI primaryUri = URI.create(primaryUrl + path
+                + (request.getQueryString() == null ? "" : "?" + request.getQueryString()));
+        LOG.info(() -> "Forwarding " + request.getMethod() + " " + path + " to primary: " + primaryUri);
+
+        final HttpHeaders headers = new HttpHeaders();
+        for (final String headerName : REQUEST_HEADERS_TO_FORWARD) {
+            final List<String> values = Collections.list(request.getHeaders(headerName));
+            if (!values.isEmpty()) {
+                headers.put(headerName, values);
+            }
+        }
+        final byte[] body = request.getContentLengthLong() > maxBodyBytes ? null : readBody(request.getInputStream());
+        if (body == null) {
+            LOG.warn("Rejected " + request.getMethod() + " " + path + " - body is over " + maxBodyBytes + " bytes");
+            writeError(response, HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Request body too large - at most " + maxBodyBytes + " bytes can be sent");
+            return;
+        }
+
+        final ResponseEntity<byte[]> primaryResponse;
+        try {
+            primaryResponse = restTemplate.exchange(new RequestEntity<>(body, headers,
+                    HttpMethod.resolve(request.getMethod()), primaryUri), byte[].class);
+        } catch (ResourceAccessException e) {
+            LOG.error("Failed to forward " + request.getMethod() + " " + path + " to primary: " + e.getMessage(), e);
+            writeError(response, HttpStatus.BAD_GATEWAY, "Primary server is unavailable - please try again later");
+            return;
+        }
+
+        response.setStatus(primaryResponse.getStatusCodeValue());
+        for (final String headerName : RESPONSE_HEADERS_TO_RETURN) {
+            final List<String> values = primaryResponse.getHeaders().get(headerName);
+            if (values != null) {
+                values.forEach(value -> response.addHeader(headerName, value));
+            }
+        }
+        if (primaryResponse.getBody() != null) {
+            response.getOutputStream().write(primaryResponse.getBody());
+        }
+
+        if (primaryResponse.getStatusCode().is2xxSuccessful()) {
+            try {
+                replicaSyncService.sync();
+            } catch (RuntimeException e) {
+                // The scheduled sync will catch up; the write itself succeeded.
+                LOG.warn("Failed to sync with primary after forwarding write: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * Reads the whole request body, or returns null as soon as it goes over the maximum size.
+     */
+    private byte[] readBody(InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) != -1) {
+            if (body.size() + bytesRead > maxBodyBytes) {
+                return null;
+            }
+            body.write(buffer, 0, bytesRead);
+        }
+        return body.toByteArray();
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String error) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ResponseDataWrapper(Collections.singletonList(error)));
+    }
+
+    /*
+     * Hands every response from the primary back to the caller, including the 4xx and 5xx ones.
+     */
+    private static class PassThroughErrorHandler implements ResponseErrorHandler {
+
+        @Override
+        public boolean hasError(ClientHttpResponse response) {
+            return false;
+        }
+
+        @Override
+        public void handleError(ClientHttpResponse response) {
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.rest.api.v1.changes;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChanges;
+import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
+import com.gazbert.bxbot.ui.server.rest.api.v1.AbstractControllerTest;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the config changes controller behaviour.
+ *
+ * @author gazbert
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@WebAppConfiguration
+public class TestConfigChangesController extends AbstractControllerTest {
+
+    private static final String CHANGES_ENDPOINT_BASE_URI = API_ENDPOINT_BASE_URI + "/changes";
+
+    private static final String BOT_ID = "gdax-bot-1";
+    private static final String MARKET_ID = "btc_usd";
+    private static final String MARKET_NAME = "BTC/USD";
+
+    @MockBean
+    ConfigChangeService configChangeService;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(ctx).addFilter(springSecurityFilterChain).build();
+    }
+
+    @Test
+    public void whenGetChangesCalledWhenUserIsAuthenticatedThenExpectChangesSinceSequence() throws Exception {
+
+        final MarketConfig marketConfig = new MarketConfig(MARKET_ID, MARKET_NAME, true, "BTC", "USD",
+                "scalper-strategy");
+        given(configChangeService.getChangesSince(10L)).willReturn(new ConfigChanges(Arrays.asList(
+                new ConfigChange(11L, ConfigChange.ConfigType.MARKET, ConfigChange.Operation.UPDATED, BOT_ID,
+                        MARKET_ID, marketConfig),
+                new ConfigChange(12L, ConfigChange.ConfigType.BOT, ConfigChange.Operation.DELETED, BOT_ID,
+                        BOT_ID, null)), 12L));
+
+        mockMvc.perform(get(CHANGES_ENDPOINT_BASE_URI).param("since", "10")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+
+                .andExpect(jsonPath("$.data.latestSequence").value(12))
+                .andExpect(jsonPath("$.data.resyncRequired").value(false))
+
+                .andExpect(jsonPath("$.data.changes.[0].sequence").value(11))
+                .andExpect(jsonPath("$.data.changes.[0].configType").value("MARKET"))
+                .andExpect(jsonPath("$.data.changes.[0].operation").value("UPDATED"))
+                .andExpect(jsonPath("$.data.changes.[0].botId").value(BOT_ID))
+                .andExpect(jsonPath("$.data.changes.[0].configId").value(MARKET_ID))
+                .andExpect(jsonPath("$.data.changes.[0].config.name").value(MARKET_NAME))
+
+                .andExpect(jsonPath("$.data.changes.[1].sequence").value(12))
+                .andExpect(jsonPath("$.data.changes.[1].operation").value("DELETED"));
+
+        verify(configChangeService, times(1)).getChangesSince(10L);
+    }
+
+    @Test
+    public void whenGetChangesCalledWithSequenceNoLongerInLogThenExpectResyncRequired() throws Exception {
+
+        given(configChangeService.getChangesSince(1L)).willReturn(ConfigChanges.resyncRequired(5000L));
+
+        mockMvc.perform(get(CHANGES_ENDPOINT_BASE_URI).param("since", "1")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.resyncRequired").value(true))
+                .andExpect(jsonPath("$.data.latestSequence").value(5000))
+                .andExpect(jsonPath("$.data.changes").isEmpty());
+    }
+
+    @Test
+    public void whenGetChangesCalledWithNegativeOrMissingSequenceThenExpectBadRequestResponse() throws Exception {
+
+        given(configChangeService.getChangesSince(-1L)).willThrow(
+                new IllegalArgumentException("Sequence must not be negative but was: -1"));
+
+        mockMvc.perform(get(CHANGES_ENDPOINT_BASE_URI).param("since", "-1")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get(CHANGES_ENDPOINT_BASE_URI)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenGetChangesCalledWhenUserNotAuthenticatedThenExpectUnauthorizedResponse() throws Exception {
+        mockMvc.perform(get(CHANGES_ENDPOINT_BASE_URI).param("since", "0"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -1,25 +1,43 @@
 package com.gazbert.bxbot.ui.server.rest.api.v1.config;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
 import com.gazbert.bxbot.ui.server.services.config.BotConfigService;
+import com.gazbert.bxbot.ui.server.services.config.InvalidBotConfigException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -90,6 +108,116 @@ public class TestBotsConfigController extends AbstractConfigControllerTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    public void whenGetAllBotConfigCalledWithPagingParamsThenExpectPageAndNextPageLink() throws Exception {
+
+        given(botConfigService.getBotConfigPage(any(BotPageRequest.class))).willReturn(
+                new BotPage<>(Collections.singletonList(someBotConfig), "next-page-cursor"));
+
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI)
+                .param("limit", "1")
+                .param("sort", "-alias")
+                .param("filter", "alias:Bit", "host:hostname.one")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("cursor=next-page-cursor")))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")))
+
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data.[0].id").value(BOT_1_ID));
+
+        final ArgumentCaptor<BotPageRequest> pageRequest = ArgumentCaptor.forClass(BotPageRequest.class);
+        verify(botConfigService, times(1)).getBotConfigPage(pageRequest.capture());
+        verify(botConfigService, never()).getAllBotConfig();
+        assertThat(pageRequest.getValue().getLimit()).isEqualTo(1);
+        assertThat(pageRequest.getValue().getSortField()).isEqualTo(BotPageRequest.SortField.ALIAS);
+        assertThat(pageRequest.getValue().isDescending()).isTrue();
+        assertThat(pageRequest.getValue().getAliasPrefix()).isEqualTo("Bit");
+        assertThat(pageRequest.getValue().getHost()).isEqualTo("hostname.one");
+    }
+
+    @Test
+    public void whenGetAllBotConfigCalledWithSortInTurkishLocaleThenExpectSortFieldToBeParsed() throws Exception {
+
+        given(botConfigService.getBotConfigPage(any(BotPageRequest.class))).willReturn(
+                new BotPage<>(Collections.singletonList(someBotConfig), null));
+
+        final Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR")); // "id" upper cases to a dotted capital I
+        try {
+            mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI)
+                    .param("sort", "id")
+                    .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                    .andDo(print())
+                    .andExpect(status().isOk());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+
+        final ArgumentCaptor<BotPageRequest> pageRequest = ArgumentCaptor.forClass(BotPageRequest.class);
+        verify(botConfigService, times(1)).getBotConfigPage(pageRequest.capture());
+        assertThat(pageRequest.getValue().getSortField()).isEqualTo(BotPageRequest.SortField.ID);
+    }
+
+    @Test
+    public void whenGetAllBotConfigCalledForLastPageThenExpectNoNextPageLink() throws Exception {
+
+        given(botConfigService.getBotConfigPage(any(BotPageRequest.class))).willReturn(
+                new BotPage<>(Collections.singletonList(someBotConfig), null));
+
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI)
+                .param("cursor", "last-page-cursor")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LINK))
+                .andExpect(jsonPath("$.data.[0].id").value(BOT_1_ID));
+    }
+
+    @Test
+    public void whenGetAllBotConfigCalledWithInvalidSortThenExpectBadRequestResponse() throws Exception {
+
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI)
+                .param("sort", "baseUrl")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.data.[0]").value(containsString("baseUrl")));
+
+        verify(botConfigService, never()).getBotConfigPage(any(BotPageRequest.class));
+    }
+
+    @Test
+    public void whenGetAllBotConfigCalledWithInvalidFilterOrLimitThenExpectBadRequestResponse() throws Exception {
+
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI)
+                .param("filter", "username:admin")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI)
+                .param("limit", "0")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andExpect(status().isBadRequest());
+
+        verify(botConfigService, never()).getBotConfigPage(any(BotPageRequest.class));
+    }
+
+    @Test
+    public void whenGetAllBotConfigCalledWithInvalidCursorThenExpectBadRequestResponse() throws Exception {
+
+        given(botConfigService.getBotConfigPage(any(BotPageRequest.class))).willThrow(
+                new IllegalArgumentException("Invalid cursor: not-a-cursor"));
+
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI)
+                .param("cursor", "not-a-cursor")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.data.[0]").value("Invalid cursor: not-a-cursor"));
+    }
+
     @Test
     public void whenGetBotConfigCalledWhenUserIsAuthenticatedThenExpectSuccess() throws Exception {
 
@@ -166,6 +294,91 @@ public class TestBotsConfigController extends AbstractConfigControllerTest {
         verify(botConfigService, times(1)).updateBotConfig(any());
     }
 
+    @Test
+    public void whenGetBotConfigCalledThenExpectVersionToBeReturnedAsETag() throws Exception {
+
+        someBotConfig.setVersion(3L);
+        given(botConfigService.getBotConfig(BOT_1_ID)).willReturn(someBotConfig);
+
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI + BOT_1_ID)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(jsonPath("$.data.version").value(3));
+    }
+
+    @Test
+    public void whenUpdateBotConfigCalledWithMatchingIfMatchThenExpectConditionalUpdateAndNewETag() throws Exception {
+
+        final BotConfig updatedConfig = new BotConfig(someBotConfig);
+        updatedConfig.setVersion(4L);
+        given(botConfigService.updateBotConfig(any())).willReturn(updatedConfig);
+
+        mockMvc.perform(put(CONFIG_ENDPOINT_BASE_URI + BOT_1_ID)
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD))
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(CONTENT_TYPE)
+                .content(jsonify(someBotConfig)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.data.version").value(4));
+
+        final ArgumentCaptor<BotConfig> botConfigToUpdate = ArgumentCaptor.forClass(BotConfig.class);
+        verify(botConfigService, times(1)).updateBotConfig(botConfigToUpdate.capture());
+        assertThat(botConfigToUpdate.getValue().getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    public void whenUpdateBotConfigCalledWithoutIfMatchThenExpectUnconditionalUpdate() throws Exception {
+
+        someBotConfig.setVersion(3L); // ignored - only If-Match makes the update conditional
+        given(botConfigService.updateBotConfig(any())).willReturn(someBotConfig);
+
+        mockMvc.perform(put(CONFIG_ENDPOINT_BASE_URI + BOT_1_ID)
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD))
+                .contentType(CONTENT_TYPE)
+                .content(jsonify(someBotConfig)))
+                .andDo(print())
+                .andExpect(status().isOk());
+
+        final ArgumentCaptor<BotConfig> botConfigToUpdate = ArgumentCaptor.forClass(BotConfig.class);
+        verify(botConfigService, times(1)).updateBotConfig(botConfigToUpdate.capture());
+        assertThat(botConfigToUpdate.getValue().getVersion()).isNull();
+    }
+
+    @Test
+    public void whenUpdateBotConfigCalledWithStaleIfMatchThenExpectPreconditionFailedResponse() throws Exception {
+
+        given(botConfigService.updateBotConfig(any()))
+                .willThrow(new OptimisticLockingFailureException("Bot config is at version 4"));
+
+        mockMvc.perform(put(CONFIG_ENDPOINT_BASE_URI + BOT_1_ID)
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD))
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(CONTENT_TYPE)
+                .content(jsonify(someBotConfig)))
+                .andDo(print())
+                .andExpect(status().isPreconditionFailed());
+
+        verify(botConfigService, times(1)).updateBotConfig(any());
+    }
+
+    @Test
+    public void whenUpdateBotConfigCalledWithWeakIfMatchThenExpectPreconditionFailedResponse() throws Exception {
+
+        mockMvc.perform(put(CONFIG_ENDPOINT_BASE_URI + BOT_1_ID)
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD))
+                .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                .contentType(CONTENT_TYPE)
+                .content(jsonify(someBotConfig)))
+                .andDo(print())
+                .andExpect(status().isPreconditionFailed());
+
+        verify(botConfigService, never()).updateBotConfig(any());
+    }
+
     @Test
     public void whenUpdateBotConfigCalledWhenUserNotAuthenticatedThenExpectUnauthorizedResponse() throws Exception {
 
@@ -243,6 +456,158 @@ public class TestBotsConfigController extends AbstractConfigControllerTest {
                 .andExpect(status().isForbidden());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void whenImportBotConfigCalledWithJsonArrayThenExpectAllBotConfigsToBeImported() throws Exception {
+
+        final ArgumentCaptor<List> importedConfigs = ArgumentCaptor.forClass(List.class);
+        given(botConfigService.importBotConfig(anyListOf(BotConfig.class))).willReturn(allTheBotsConfig());
+
+        mockMvc.perform(post(CONFIG_ENDPOINT_BASE_URI + "import")
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD))
+                .contentType(CONTENT_TYPE)
+                .content(jsonify(allTheBotsConfig())))
+                .andDo(print())
+                .andExpect(status().isOk())
+
+                .andExpect(jsonPath("$.data.[0].id").value(BOT_1_ID))
+                .andExpect(jsonPath("$.data.[1].id").value(BOT_2_ID));
+
+        verify(botConfigService, times(1)).importBotConfig(importedConfigs.capture());
+        final List<BotConfig> configs = importedConfigs.getValue();
+        assertThat(configs.size()).isEqualTo(2);
+        assertThat(configs.get(0).getId()).isEqualTo(BOT_1_ID);
+        assertThat(configs.get(0).getBaseUrl()).isEqualTo(BOT_1_BASE_URL);
+        assertThat(configs.get(1).getId()).isEqualTo(BOT_2_ID);
+        assertThat(configs.get(1).getAlias()).isEqualTo(BOT_2_ALIAS);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void whenImportBotConfigCalledWithNdjsonThenExpectAllBotConfigsToBeImported() throws Exception {
+
+        final ArgumentCaptor<List> importedConfigs = ArgumentCaptor.forClass(List.class);
+        given(botConfigService.importBotConfig(anyListOf(BotConfig.class))).willReturn(allTheBotsConfig());
+
+        final List<BotConfig> bots = allTheBotsConfig();
+        mockMvc.perform(post(CONFIG_ENDPOINT_BASE_URI + "import")
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD))
+                .contentType(BotsConfigController.NDJSON_MEDIA_TYPE)
+                .content(jsonify(bots.get(0)) + "\n" + jsonify(bots.get(1)) + "\n"))
+                .andDo(print())
+                .andExpect(status().isOk());
+
+        verify(botConfigService, times(1)).importBotConfig(importedConfigs.capture());
+        final List<BotConfig> configs = importedConfigs.getValue();
+        assertThat(configs.size()).isEqualTo(2);
+        assertThat(configs.get(0).getId()).isEqualTo(BOT_1_ID);
+        assertThat(configs.get(1).getId()).isEqualTo(BOT_2_ID);
+    }
+
+    @Test
+    public void whenImportBotConfigCalledWithInvalidBotConfigThenExpectBadRequestResponseListingErrors()
+            throws Exception {
+
+        final List<String> errors = Arrays.asList("Bot config [0] baseUrl is required",
+                "Bot config [1] password is required");
+        given(botConfigService.importBotConfig(anyListOf(BotConfig.class)))
+                .willThrow(new InvalidBotConfigException(errors));
+
+        mockMvc.perform(post(CONFIG_ENDPOINT_BASE_URI + "import")
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD))
+                .contentType(CONTENT_TYPE)
+                .content(jsonify(allTheBotsConfig())))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+
+                .andExpect(jsonPath("$.data.[0]").value(errors.get(0)))
+                .andExpect(jsonPath("$.data.[1]").value(errors.get(1)));
+    }
+
+    @Test
+    public void whenImportBotConfigCalledWithStaleBotConfigThenExpectConflictResponse() throws Exception {
+
+        final String conflict = "Bot config " + BOT_2_ID + " has changed since version 3";
+        given(botConfigService.importBotConfig(anyListOf(BotConfig.class)))
+                .willThrow(new OptimisticLockingFailureException(conflict));
+
+        mockMvc.perform(post(CONFIG_ENDPOINT_BASE_URI + "import")
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD))
+                .contentType(CONTENT_TYPE)
+                .content(jsonify(allTheBotsConfig())))
+                .andDo(print())
+                .andExpect(status().isConflict())
+
+                .andExpect(jsonPath("$.data.[0]").value(conflict));
+    }
+
+    @Test
+    public void whenImportBotConfigCalledWithMalformedJsonThenExpectBadRequestResponse() throws Exception {
+
+        mockMvc.perform(post(CONFIG_ENDPOINT_BASE_URI + "import")
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD))
+                .contentType(CONTENT_TYPE)
+                .content("[" + jsonify(someBotConfig) + ", {\"id\": "))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+
+        verify(botConfigService, never()).importBotConfig(anyListOf(BotConfig.class));
+    }
+
+    @Test
+    public void whenImportBotConfigCalledWhenUserIsNotAdminThenExpectForbiddenResponse() throws Exception {
+
+        mockMvc.perform(post(CONFIG_ENDPOINT_BASE_URI + "import")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD))
+                .contentType(CONTENT_TYPE)
+                .content(jsonify(allTheBotsConfig())))
+                .andDo(print())
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void whenExportBotConfigCalledThenExpectAllBotConfigsStreamedAsJsonArray() throws Exception {
+
+        givenBotConfigServiceExports(allTheBotsConfig());
+
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI + "export")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+
+                .andExpect(jsonPath("$.[0].id").value(BOT_1_ID))
+                .andExpect(jsonPath("$.[0].baseUrl").value(BOT_1_BASE_URL))
+                .andExpect(jsonPath("$.[1].id").value(BOT_2_ID))
+                .andExpect(jsonPath("$.[1].alias").value(BOT_2_ALIAS));
+
+        verify(botConfigService, never()).getAllBotConfig();
+    }
+
+    @Test
+    public void whenExportBotConfigCalledAcceptingNdjsonThenExpectOneBotConfigPerLine() throws Exception {
+
+        givenBotConfigServiceExports(allTheBotsConfig());
+
+        final MvcResult result = mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI + "export")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD))
+                .header(HttpHeaders.ACCEPT, BotsConfigController.NDJSON_MEDIA_TYPE))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BotsConfigController.NDJSON_MEDIA_TYPE + ";charset=UTF-8"))
+                .andReturn();
+
+        final String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines.length).isEqualTo(2);
+        assertThat(lines[0]).startsWith("{\"id\":\"" + BOT_1_ID + "\"");
+        assertThat(lines[1]).startsWith("{\"id\":\"" + BOT_2_ID + "\"");
+    }
+
+    @Test
+    public void whenExportBotConfigCalledWhenUserNotAuthenticatedThenExpectUnauthorizedResponse() throws Exception {
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI + "export"))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     public void whenDeleteBotConfigCalledWhenUserIsAuthenticatedThenExpectSuccess() throws Exception {
 
@@ -288,6 +653,15 @@ public class TestBotsConfigController extends AbstractConfigControllerTest {
     // Private utils
     // ------------------------------------------------------------------------------------------------
 
+    @SuppressWarnings("unchecked")
+    private void givenBotConfigServiceExports(List<BotConfig> botConfigs) {
+        willAnswer(invocation -> {
+            final Consumer<BotConfig> consumer = (Consumer<BotConfig>) invocation.getArguments()[0];
+            botConfigs.forEach(consumer);
+            return null;
+        }).given(botConfigService).exportBotConfig(any());
+    }
+
     private static List<BotConfig> allTheBotsConfig() {
 
         final BotConfig bot1 = new BotConfig(BOT_1_ID, BOT_1_ALIAS, BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD);
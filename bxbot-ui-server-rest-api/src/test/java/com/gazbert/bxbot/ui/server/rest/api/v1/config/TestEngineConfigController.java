@@ -24,6 +24,7 @@
 package com.gazbert.bxbot.ui.server.rest.api.v1.config;
 
 import com.gazbert.bxbot.ui.server.domain.engine.EngineConfig;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException;
 import com.gazbert.bxbot.ui.server.services.config.EngineConfigService;
 import org.junit.Before;
 import org.junit.Test;
@@ -104,6 +105,20 @@ public class TestEngineConfigController extends AbstractConfigControllerTest {
         verify(engineConfigService, times(1)).getEngineConfig(UNKNOWN_BOT_ID);
     }
 
+    @Test
+    public void whenGetEngineConfigCalledAndBotIsUnavailableThenExpectServiceUnavailableResponse() throws Exception {
+
+        given(engineConfigService.getEngineConfig(BOT_ID)).willThrow(new BotUnavailableException(BOT_ID));
+
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI + BOT_ID + ENGINE_RESOURCE_PATH)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.data.[0]").value("Bot " + BOT_ID + " is unavailable - please try again later"));
+
+        verify(engineConfigService, times(1)).getEngineConfig(BOT_ID);
+    }
+
     @Test
     public void whenGetEngineConfigCalledWhenUserNotAuthenticatedThenExpectUnauthorizedResponse() throws Exception {
         mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI + BOT_ID + ENGINE_RESOURCE_PATH))
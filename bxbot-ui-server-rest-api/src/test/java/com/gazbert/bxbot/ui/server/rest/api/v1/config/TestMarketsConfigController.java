@@ -24,6 +24,7 @@
 package com.gazbert.bxbot.ui.server.rest.api.v1.config;
 
 import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
+import com.gazbert.bxbot.ui.server.repository.remote.http.BotUnavailableException;
 import com.gazbert.bxbot.ui.server.services.config.MarketConfigService;
 import org.junit.Before;
 import org.junit.Test;
@@ -133,6 +134,20 @@ public class TestMarketsConfigController extends AbstractConfigControllerTest {
         verify(marketConfigService, times(1)).getAllMarketConfig(UNKNOWN_BOT_ID);
     }
 
+    @Test
+    public void whenGetAllMarketConfigCalledAndBotIsUnavailableThenExpectServiceUnavailableResponse() throws Exception {
+
+        given(marketConfigService.getAllMarketConfig(BOT_ID)).willThrow(new BotUnavailableException(BOT_ID));
+
+        mockMvc.perform(get(CONFIG_ENDPOINT_BASE_URI + BOT_ID + MARKETS_RESOURCE_PATH)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.data.[0]").value("Bot " + BOT_ID + " is unavailable - please try again later"));
+
+        verify(marketConfigService, times(1)).getAllMarketConfig(BOT_ID);
+    }
+
     @Test
     public void whenGetAllMarketConfigCalledAndUserIsNotAuthenticatedThenExpectUnauthorizedResponse() throws Exception {
 
@@ -286,6 +301,20 @@ public class TestMarketsConfigController extends AbstractConfigControllerTest {
         verify(marketConfigService, times(1)).deleteMarketConfig(BOT_ID, MARKET_1_ID);
     }
 
+    @Test
+    public void whenDeleteMarketConfigCalledAndBotIsUnavailableThenExpectServiceUnavailableResponse() throws Exception {
+
+        given(marketConfigService.deleteMarketConfig(BOT_ID, MARKET_1_ID))
+                .willThrow(new BotUnavailableException(BOT_ID));
+
+        mockMvc.perform(delete(CONFIG_ENDPOINT_BASE_URI + BOT_ID + MARKETS_RESOURCE_PATH + "/" + MARKET_1_ID)
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isServiceUnavailable());
+
+        verify(marketConfigService, times(1)).deleteMarketConfig(BOT_ID, MARKET_1_ID);
+    }
+
     @Test
     public void whenDeleteMarketConfigCalledAndUserIsNotAuthenticatedThenExpectUnauthorizedResponse() throws Exception {
 
@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.rest.api.v1.history;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.history.ConfigVersion;
+import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
+import com.gazbert.bxbot.ui.server.rest.api.v1.AbstractControllerTest;
+import com.gazbert.bxbot.ui.server.services.history.ConfigHistoryService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the config history controller behaviour.
+ *
+ * @author gazbert
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@WebAppConfiguration
+public class TestConfigHistoryController extends AbstractControllerTest {
+
+    private static final String HISTORY_ENDPOINT_BASE_URI = API_ENDPOINT_BASE_URI + "/history/bots/";
+
+    private static final String BOT_ID = "gdax-bot-1";
+    private static final String UNKNOWN_BOT_ID = "unknown-bot-id";
+    private static final String MARKET_ID = "btc_usd";
+    private static final String MARKET_NAME = "BTC/USD";
+    private static final String CONTENT_HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final String AS_OF = "2017-11-20T09:30:00Z";
+    private static final long TIMESTAMP = Instant.parse(AS_OF).toEpochMilli();
+
+    @MockBean
+    ConfigHistoryService configHistoryService;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(ctx).addFilter(springSecurityFilterChain).build();
+    }
+
+    @Test
+    public void whenGetHistoryCalledWhenUserIsAuthenticatedThenExpectBotsVersions() throws Exception {
+
+        given(configHistoryService.getHistory(BOT_ID)).willReturn(Collections.singletonList(
+                new ConfigVersion(BOT_ID, 1L, TIMESTAMP, ConfigChange.ConfigType.MARKET,
+                        ConfigChange.Operation.CREATED, MARKET_ID, CONTENT_HASH, null)));
+
+        mockMvc.perform(get(HISTORY_ENDPOINT_BASE_URI + BOT_ID + "/versions")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.[0].version").value(1))
+                .andExpect(jsonPath("$.data.[0].timestamp").value(TIMESTAMP))
+                .andExpect(jsonPath("$.data.[0].configType").value("MARKET"))
+                .andExpect(jsonPath("$.data.[0].operation").value("CREATED"))
+                .andExpect(jsonPath("$.data.[0].configId").value(MARKET_ID))
+                .andExpect(jsonPath("$.data.[0].contentHash").value(CONTENT_HASH));
+
+        verify(configHistoryService, times(1)).getHistory(BOT_ID);
+    }
+
+    @Test
+    public void whenGetHistoryCalledForUnknownBotThenExpectNotFoundResponse() throws Exception {
+
+        given(configHistoryService.getHistory(UNKNOWN_BOT_ID)).willReturn(Collections.emptyList());
+
+        mockMvc.perform(get(HISTORY_ENDPOINT_BASE_URI + UNKNOWN_BOT_ID + "/versions")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get(HISTORY_ENDPOINT_BASE_URI + UNKNOWN_BOT_ID + "/versions/1")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void whenGetConfigAsOfCalledThenExpectConfigAtThatTime() throws Exception {
+
+        given(configHistoryService.getConfigAsOf(BOT_ID, TIMESTAMP)).willReturn(Collections.singletonList(
+                new ConfigVersion(BOT_ID, 2L, TIMESTAMP - 1000, ConfigChange.ConfigType.MARKET,
+                        ConfigChange.Operation.UPDATED, MARKET_ID, CONTENT_HASH, someMarketConfig())));
+
+        mockMvc.perform(get(HISTORY_ENDPOINT_BASE_URI + BOT_ID + "/config").param("asOf", AS_OF)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.[0].version").value(2))
+                .andExpect(jsonPath("$.data.[0].config.name").value(MARKET_NAME));
+
+        mockMvc.perform(get(HISTORY_ENDPOINT_BASE_URI + BOT_ID + "/config").param("asOf", "yesterday")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andExpect(status().isBadRequest());
+
+        verify(configHistoryService, times(1)).getConfigAsOf(BOT_ID, TIMESTAMP);
+    }
+
+    @Test
+    public void whenRollbackCalledWhenAdminUserIsAuthenticatedThenExpectVersionRolledBackTo() throws Exception {
+
+        given(configHistoryService.rollback(BOT_ID, 1L)).willReturn(
+                new ConfigVersion(BOT_ID, 1L, TIMESTAMP, ConfigChange.ConfigType.MARKET,
+                        ConfigChange.Operation.CREATED, MARKET_ID, CONTENT_HASH, someMarketConfig()));
+        given(configHistoryService.rollback(BOT_ID, 2L)).willThrow(
+                new IllegalStateException("Failed to roll back to config version 2 for botId: " + BOT_ID));
+
+        mockMvc.perform(post(HISTORY_ENDPOINT_BASE_URI + BOT_ID + "/versions/1/rollback")
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.version").value(1))
+                .andExpect(jsonPath("$.data.config.id").value(MARKET_ID));
+
+        mockMvc.perform(post(HISTORY_ENDPOINT_BASE_URI + BOT_ID + "/versions/2/rollback")
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD)))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(post(HISTORY_ENDPOINT_BASE_URI + BOT_ID + "/versions/3/rollback")
+                .header("Authorization", "Bearer " + getJwt(VALID_ADMIN_NAME, VALID_ADMIN_PASSWORD)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void whenRollbackCalledWhenUserIsNotAdminThenExpectForbiddenResponse() throws Exception {
+
+        mockMvc.perform(post(HISTORY_ENDPOINT_BASE_URI + BOT_ID + "/versions/1/rollback")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andExpect(status().isForbidden());
+
+        verifyZeroInteractions(configHistoryService);
+    }
+
+    @Test
+    public void whenGetHistoryCalledWhenUserNotAuthenticatedThenExpectUnauthorizedResponse() throws Exception {
+        mockMvc.perform(get(HISTORY_ENDPOINT_BASE_URI + BOT_ID + "/versions"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static MarketConfig someMarketConfig() {
+        return new MarketConfig(MARKET_ID, MARKET_NAME, true, "BTC", "USD", "scalper-strategy");
+    }
+}
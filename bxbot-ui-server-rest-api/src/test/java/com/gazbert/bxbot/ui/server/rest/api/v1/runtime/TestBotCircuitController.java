@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.rest.api.v1.runtime;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotCircuit;
+import com.gazbert.bxbot.ui.server.services.runtime.BotCircuitService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the Bot Circuit controller behaviour.
+ *
+ * @author gazbert
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@WebAppConfiguration
+public class TestBotCircuitController extends AbstractRuntimeControllerTest {
+
+    private static final String CIRCUIT_RESOURCE_PATH = "/circuit";
+
+    private static final String UNKNOWN_BOT_ID = "unknown-bot-id";
+
+    private static final String BOT_1_ID = "gdax-bot-1";
+    private static final String BOT_2_ID = "bitstamp-bot-1";
+    private static final long BOT_2_OPEN_UNTIL = 1510000030000L;
+
+    private BotCircuit bot1Circuit;
+    private BotCircuit bot2Circuit;
+
+    @MockBean
+    BotCircuitService botCircuitService;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(ctx).addFilter(springSecurityFilterChain).build();
+        bot1Circuit = new BotCircuit(BOT_1_ID, BotCircuit.State.CLOSED, 5.0f, 0.0f, 20, 0L);
+        bot2Circuit = new BotCircuit(BOT_2_ID, BotCircuit.State.OPEN, 80.0f, 10.0f, 20, BOT_2_OPEN_UNTIL);
+    }
+
+    @Test
+    public void whenGetBotCircuitCalledWhenUserIsAuthenticatedThenExpectSuccess() throws Exception {
+
+        given(botCircuitService.getBotCircuit(BOT_2_ID)).willReturn(bot2Circuit);
+
+        mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + BOT_2_ID + CIRCUIT_RESOURCE_PATH)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+
+                .andExpect(jsonPath("$.data.botId").value(BOT_2_ID))
+                .andExpect(jsonPath("$.data.state").value("OPEN"))
+                .andExpect(jsonPath("$.data.failureRate").value(80.0))
+                .andExpect(jsonPath("$.data.slowCallRate").value(10.0))
+                .andExpect(jsonPath("$.data.recordedCalls").value(20))
+                .andExpect(jsonPath("$.data.openUntil").value(BOT_2_OPEN_UNTIL));
+
+        verify(botCircuitService, times(1)).getBotCircuit(BOT_2_ID);
+    }
+
+    @Test
+    public void whenGetBotCircuitCalledWithUnknownBotIdThenExpectNotFoundResponse() throws Exception {
+
+        given(botCircuitService.getBotCircuit(UNKNOWN_BOT_ID)).willReturn(null);
+
+        mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + UNKNOWN_BOT_ID + CIRCUIT_RESOURCE_PATH)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void whenGetBotCircuitCalledWhenUserNotAuthenticatedThenExpectUnauthorizedResponse() throws Exception {
+        mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + BOT_1_ID + CIRCUIT_RESOURCE_PATH))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void whenGetAllBotCircuitsCalledWhenUserIsAuthenticatedThenExpectSuccess() throws Exception {
+
+        given(botCircuitService.getAllBotCircuits()).willReturn(Arrays.asList(bot1Circuit, bot2Circuit));
+
+        mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + CIRCUIT_RESOURCE_PATH)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+
+                .andExpect(jsonPath("$.data.[0].botId").value(BOT_1_ID))
+                .andExpect(jsonPath("$.data.[0].state").value("CLOSED"))
+                .andExpect(jsonPath("$.data.[1].botId").value(BOT_2_ID))
+                .andExpect(jsonPath("$.data.[1].state").value("OPEN"));
+
+        verify(botCircuitService, times(1)).getAllBotCircuits();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.rest.api.v1.runtime;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotRetryStats;
+import com.gazbert.bxbot.ui.server.services.runtime.BotRetryService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the Bot Retry controller behaviour.
+ *
+ * @author gazbert
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@WebAppConfiguration
+public class TestBotRetryController extends AbstractRuntimeControllerTest {
+
+    private static final String RETRIES_RESOURCE_PATH = "/retries";
+
+    private static final String UNKNOWN_BOT_ID = "unknown-bot-id";
+    private static final String BOT_ID = "gdax-bot-1";
+
+    private BotRetryStats botRetryStats;
+    private BotRetryStats totalRetryStats;
+
+    @MockBean
+    BotRetryService botRetryService;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(ctx).addFilter(springSecurityFilterChain).build();
+        botRetryStats = new BotRetryStats(BOT_ID, 100L, 8L, 1L, 2.5f);
+        totalRetryStats = new BotRetryStats(null, 1000L, 42L, 3L, 58.0f);
+    }
+
+    @Test
+    public void whenGetBotRetryStatsCalledWhenUserIsAuthenticatedThenExpectSuccess() throws Exception {
+
+        given(botRetryService.getBotRetryStats(BOT_ID)).willReturn(botRetryStats);
+
+        mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + BOT_ID + RETRIES_RESOURCE_PATH)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+
+                .andExpect(jsonPath("$.data.botId").value(BOT_ID))
+                .andExpect(jsonPath("$.data.requests").value(100))
+                .andExpect(jsonPath("$.data.retries").value(8))
+                .andExpect(jsonPath("$.data.budgetExhausted").value(1))
+                .andExpect(jsonPath("$.data.retryBudget").value(2.5));
+
+        verify(botRetryService, times(1)).getBotRetryStats(BOT_ID);
+    }
+
+    @Test
+    public void whenGetBotRetryStatsCalledWithUnknownBotIdThenExpectNotFoundResponse() throws Exception {
+
+        given(botRetryService.getBotRetryStats(UNKNOWN_BOT_ID)).willReturn(null);
+
+        mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + UNKNOWN_BOT_ID + RETRIES_RESOURCE_PATH)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void whenGetTotalRetryStatsCalledWhenUserIsAuthenticatedThenExpectSuccess() throws Exception {
+
+        given(botRetryService.getTotalRetryStats()).willReturn(totalRetryStats);
+
+        mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + RETRIES_RESOURCE_PATH)
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+
+                .andExpect(jsonPath("$.data.requests").value(1000))
+                .andExpect(jsonPath("$.data.retries").value(42))
+                .andExpect(jsonPath("$.data.budgetExhausted").value(3));
+
+        verify(botRetryService, times(1)).getTotalRetryStats();
+    }
+
+    @Test
+    public void whenGetTotalRetryStatsCalledWhenUserNotAuthenticatedThenExpectUnauthorizedResponse() throws Exception {
+        mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + RETRIES_RESOURCE_PATH))
+                .andExpect(status().isUnauthorized());
+    }
+}
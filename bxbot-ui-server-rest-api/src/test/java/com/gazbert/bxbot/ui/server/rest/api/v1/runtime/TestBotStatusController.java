@@ -1,5 +1,7 @@
 package com.gazbert.bxbot.ui.server.rest.api.v1.runtime;
 
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
 import com.gazbert.bxbot.ui.server.domain.bot.BotStatus;
 import com.gazbert.bxbot.ui.server.services.runtime.BotStatusService;
 import org.junit.Before;
@@ -7,18 +9,24 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -118,6 +126,39 @@ public class TestBotStatusController extends AbstractRuntimeControllerTest {
         verify(botProcessService, times(1)).getAllBotStatus();
     }
 
+    @Test
+    public void whenGetAllBotStatusCalledWithPagingParamsThenExpectPageAndNextPageLink() throws Exception {
+
+        given(botProcessService.getBotStatusPage(any(BotPageRequest.class))).willReturn(
+                new BotPage<>(Collections.singletonList(bot2Status), "next-page-cursor"));
+
+        mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + STATUS_RESOURCE_PATH)
+                .param("limit", "1")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("cursor=next-page-cursor")))
+
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data.[0].id").value(BOT_2_ID))
+                .andExpect(jsonPath("$.data.[0].status").value(BOT_2_STATUS));
+
+        verify(botProcessService, times(1)).getBotStatusPage(any(BotPageRequest.class));
+        verify(botProcessService, never()).getAllBotStatus();
+    }
+
+    @Test
+    public void whenGetAllBotStatusCalledWithInvalidSortThenExpectBadRequestResponse() throws Exception {
+
+        mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + STATUS_RESOURCE_PATH)
+                .param("sort", "status")
+                .header("Authorization", "Bearer " + getJwt(VALID_USER_NAME, VALID_USER_PASSWORD)))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+
+        verify(botProcessService, never()).getBotStatusPage(any(BotPageRequest.class));
+    }
+
     @Test
     public void whenGetAllBotStatusCalledWhenUserNotAuthenticatedThenExpectUnauthorizedResponse() throws Exception {
         mockMvc.perform(get(RUNTIME_ENDPOINT_BASE_URI + STATUS_RESOURCE_PATH))
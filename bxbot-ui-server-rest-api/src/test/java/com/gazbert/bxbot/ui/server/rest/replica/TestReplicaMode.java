@@ -0,0 +1,252 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.rest.replica;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.gazbert.bxbot.ui.server.BXBotUIServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Tests a read replica against a primary, both running in this JVM on loopback ports.
+ * <p>
+ * The primary keeps its Bots in an in-memory H2 database; the replica syncs them from the primary's snapshot and change
+ * feed, and forwards writes to it.
+ *
+ * @author gazbert
+ */
+public class TestReplicaMode {
+
+    private static final String ADMIN_USERNAME = "admin";
+    private static final String ADMIN_PASSWORD = "admin";
+
+    private static final String BOTS_PATH = "/api/v1/config/bots";
+    private static final String CHANGES_PATH = "/api/v1/changes?since=";
+    private static final String BOT_ALIAS = "GDAX";
+
+    private static final long SYNC_WAIT_MILLIS = 10000L;
+    private static final int MAX_FORWARDED_BODY_BYTES = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ConfigurableApplicationContext primary;
+    private ConfigurableApplicationContext replica;
+    private RestTemplate restTemplate;
+    private String primaryUrl;
+    private String replicaUrl;
+
+    @Before
+    public void startPrimaryAndReplica() throws Exception {
+
+        // Each test gets its own in-memory databases
+        final String databaseSuffix = UUID.randomUUID().toString();
+
+        primary = new SpringApplicationBuilder(BXBotUIServer.class).run(
+                "--server.port=0",
+                "--spring.jmx.enabled=false",
+                "--spring.datasource.url=jdbc:h2:mem:primary-users-" + databaseSuffix + ";DB_CLOSE_DELAY=-1",
+                "--config.history.dir=" + folder.newFolder("primary-history").getPath(),
+                "--botconfig.repository=jdbc",
+                "--botconfig.jdbc.url=jdbc:h2:mem:primary-bots-" + databaseSuffix + ";DB_CLOSE_DELAY=-1");
+        primaryUrl = "http://localhost:" + primary.getEnvironment().getProperty("local.server.port");
+
+        replica = new SpringApplicationBuilder(BXBotUIServer.class).run(
+                "--server.port=0",
+                "--spring.jmx.enabled=false",
+                "--spring.datasource.url=jdbc:h2:mem:replica-users-" + databaseSuffix + ";DB_CLOSE_DELAY=-1",
+                "--config.history.dir=" + folder.newFolder("replica-history").getPath(),
+                "--botconfig.repository=replica",
+                "--replica.primary.url=" + primaryUrl,
+                "--replica.primary.username=" + ADMIN_USERNAME,
+                "--replica.primary.password=" + ADMIN_PASSWORD,
+                "--replica.sync.interval-millis=100",
+                "--replica.forward.max-body-bytes=" + MAX_FORWARDED_BODY_BYTES);
+        replicaUrl = "http://localhost:" + replica.getEnvironment().getProperty("local.server.port");
+
+        restTemplate = new RestTemplate();
+        restTemplate.setErrorHandler(new ResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+
+            @Override
+            public void handleError(ClientHttpResponse response) {
+            }
+        });
+    }
+
+    @After
+    public void stopPrimaryAndReplica() {
+        if (replica != null) {
+            replica.close();
+        }
+        if (primary != null && primary.isActive()) {
+            primary.close();
+        }
+    }
+
+    @Test
+    public void whenWritesAreSentToReplicaThenExpectThemToBeForwardedToPrimaryAndReadFromReplica() throws Exception {
+
+        final String token = login();
+
+        final ResponseEntity<JsonNode> created = exchange(replicaUrl, HttpMethod.POST, BOTS_PATH, token, newBot());
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        final String botId = created.getBody().get("data").get("id").asText();
+
+        // The replica syncs straight after a forwarded write, so the Bot can be read back at once
+        final ResponseEntity<JsonNode> fetched = exchange(replicaUrl, HttpMethod.GET, BOTS_PATH + "/" + botId, token,
+                null);
+        assertThat(fetched.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(fetched.getBody().get("data").get("alias").asText()).isEqualTo(BOT_ALIAS);
+
+        final ResponseEntity<JsonNode> deleted = exchange(replicaUrl, HttpMethod.DELETE, BOTS_PATH + "/" + botId,
+                token, null);
+        assertThat(deleted.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(exchange(replicaUrl, HttpMethod.GET, BOTS_PATH, token, null).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(exchange(primaryUrl, HttpMethod.GET, BOTS_PATH, token, null).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void whenBotIsWrittenToPrimaryThenExpectReplicaToPullItInAndRecordItInItsChangeFeed() throws Exception {
+
+        final String token = login();
+        final long replicaSequence = exchange(replicaUrl, HttpMethod.GET, CHANGES_PATH + "0", token, null)
+                .getBody().get("data").get("latestSequence").asLong();
+
+        final ResponseEntity<JsonNode> created = exchange(primaryUrl, HttpMethod.POST, BOTS_PATH, token, newBot());
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        final String botId = created.getBody().get("data").get("id").asText();
+
+        waitFor(() -> exchange(replicaUrl, HttpMethod.GET, BOTS_PATH, token, null).getStatusCode() == HttpStatus.OK);
+
+        final JsonNode changes = exchange(replicaUrl, HttpMethod.GET, CHANGES_PATH + replicaSequence, token, null)
+                .getBody().get("data").get("changes");
+        assertThat(changes.size()).isEqualTo(1);
+        assertThat(changes.get(0).get("operation").asText()).isEqualTo("CREATED");
+        assertThat(changes.get(0).get("botId").asText()).isEqualTo(botId);
+    }
+
+    @Test
+    public void whenPrimaryIsDownThenExpectReplicaToKeepServingReads() throws Exception {
+
+        final String token = login();
+        final ResponseEntity<JsonNode> created = exchange(replicaUrl, HttpMethod.POST, BOTS_PATH, token, newBot());
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        final String botId = created.getBody().get("data").get("id").asText();
+
+        primary.close();
+
+        final ResponseEntity<JsonNode> bots = exchange(replicaUrl, HttpMethod.GET, BOTS_PATH, token, null);
+        assertThat(bots.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(bots.getBody().get("data").get(0).get("id").asText()).isEqualTo(botId);
+
+        final ResponseEntity<JsonNode> rejected = exchange(replicaUrl, HttpMethod.POST, BOTS_PATH, token, newBot());
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+        assertThat(rejected.getBody().get("data").get(0).asText()).contains("Primary server is unavailable");
+    }
+
+    @Test
+    public void whenWriteBodyIsTooLargeThenExpectReplicaToRejectItWithoutForwarding() throws Exception {
+
+        final String token = login();
+        final Map<String, String> bot = newBot();
+        bot.put("alias", new String(new char[MAX_FORWARDED_BODY_BYTES]).replace('\0', 'x'));
+
+        final ResponseEntity<JsonNode> rejected = exchange(replicaUrl, HttpMethod.POST, BOTS_PATH, token, bot);
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        assertThat(rejected.getBody().get("data").get(0).asText()).contains("Request body too large");
+        assertThat(exchange(primaryUrl, HttpMethod.GET, BOTS_PATH, token, null).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private String login() {
+        final Map<String, String> credentials = new HashMap<>();
+        credentials.put("username", ADMIN_USERNAME);
+        credentials.put("password", ADMIN_PASSWORD);
+        final ResponseEntity<JsonNode> response = restTemplate.postForEntity(replicaUrl + "/auth", credentials,
+                JsonNode.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody().get("token").asText();
+    }
+
+    private ResponseEntity<JsonNode> exchange(String serverUrl, HttpMethod method, String path, String token,
+                                              Object body) {
+        return restTemplate.exchange(serverUrl + path, method, new HttpEntity<>(body, headers(token)),
+                JsonNode.class);
+    }
+
+    private static Map<String, String> newBot() {
+        final Map<String, String> bot = new HashMap<>();
+        bot.put("alias", BOT_ALIAS);
+        bot.put("baseUrl", "https://gdax-bot-1.local/api");
+        bot.put("username", "admin");
+        bot.put("password", "password");
+        return bot;
+    }
+
+    private static HttpHeaders headers(String token) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + SYNC_WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("time waiting for replica to sync").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
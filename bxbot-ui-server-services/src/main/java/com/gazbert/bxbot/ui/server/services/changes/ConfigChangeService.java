@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.changes;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChanges;
+
+/**
+ * The config change log service.
+ * <p>
+ * The config services record every change they make here, and clients fetch the changes made since they last
+ * looked instead of reloading all the config.
+ *
+ * @author gazbert
+ */
+public interface ConfigChangeService {
+
+    /**
+     * Records a change. If there is a transaction in progress, the change is only recorded once it commits.
+     *
+     * @param configType the kind of config that was changed.
+     * @param operation  what happened to the config.
+     * @param botId      the id of the Bot the config belongs to.
+     * @param configId   the id of the config within the Bot, or null for a Bot's single configs.
+     * @param config     the config after the change, or null if it was deleted.
+     */
+    void recordChange(ConfigChange.ConfigType configType, ConfigChange.Operation operation, String botId,
+                      String configId, Object config);
+
+    /**
+     * Returns the changes made after the given sequence number, or the resync marker if they are no longer all in
+     * the log.
+     *
+     * @param sequence the sequence number of the last change the client has seen. Clients that have not seen any
+     *                 changes yet can use 0, which always returns the resync marker, to find the latest sequence
+     *                 number.
+     * @return the changes.
+     * @throws IllegalArgumentException if the sequence number is negative.
+     */
+    ConfigChanges getChangesSince(long sequence);
+
+    /**
+     * Adds a listener that is told about every change recorded from now on.
+     *
+     * @param listener the listener.
+     */
+    void addListener(ConfigChangeListener listener);
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.changes.impl;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChanges;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeListener;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Implementation of the config change log service.
+ * <p>
+ * The log is a fixed size ring buffer held in memory, so it costs the same however many changes are made; once it
+ * is full, each new change drops the oldest one. Clients that fall behind by more than the size of the log are told
+ * to resync.
+ * <p>
+ * Sequence numbers start from the time the server started, in millis, rather than from 0. The log does not survive
+ * a restart, and this means a sequence number from before a restart is always older than the restarted log, so the
+ * client is told to resync rather than being sent the wrong changes.
+ * <p>
+ * Listeners, e.g. the config history, are told about each change once it is in the log.
+ *
+ * @author gazbert
+ */
+@Service("configChangeService")
+public class ConfigChangeServiceImpl implements ConfigChangeService {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private final ConfigChange[] changeLog;
+    private final long firstSequence;
+    private final List<ConfigChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // guarded by this
+    private long latestSequence;
+
+    @Autowired
+    public ConfigChangeServiceImpl(@Value("${changes.log.capacity:10000}") int capacity) {
+        this(capacity, System.currentTimeMillis());
+    }
+
+    public ConfigChangeServiceImpl(int capacity, long firstSequence) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Change log capacity must be at least 1 but was: " + capacity);
+        }
+        this.changeLog = new ConfigChange[capacity];
+        this.firstSequence = firstSequence;
+        this.latestSequence = firstSequence - 1;
+    }
+
+    @Override
+    public void recordChange(ConfigChange.ConfigType configType, ConfigChange.Operation operation, String botId,
+                             String configId, Object config) {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    notifyListeners(append(configType, operation, botId, configId, config));
+                }
+            });
+        } else {
+            notifyListeners(append(configType, operation, botId, configId, config));
+        }
+    }
+
+    @Override
+    public void addListener(ConfigChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public synchronized ConfigChanges getChangesSince(long sequence) {
+
+        if (sequence < 0) {
+            throw new IllegalArgumentException("Sequence must not be negative but was: " + sequence);
+        }
+
+        final long oldestSequence = Math.max(firstSequence, latestSequence - changeLog.length + 1);
+        if (sequence < oldestSequence - 1 || sequence > latestSequence) {
+            LOG.info(() -> "Changes after sequence " + sequence + " are no longer in the change log - resync required");
+            return ConfigChanges.resyncRequired(latestSequence);
+        }
+
+        final long fromSequence = Math.max(sequence + 1, oldestSequence);
+        final List<ConfigChange> changes = new ArrayList<>((int) (latestSequence - fromSequence + 1));
+        for (long changeSequence = fromSequence; changeSequence <= latestSequence; changeSequence++) {
+            changes.add(changeLog[slotOf(changeSequence)]);
+        }
+        return new ConfigChanges(changes, latestSequence);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private synchronized ConfigChange append(ConfigChange.ConfigType configType, ConfigChange.Operation operation,
+                                             String botId, String configId, Object config) {
+        latestSequence++;
+        final ConfigChange change = new ConfigChange(latestSequence, configType, operation, botId, configId, config);
+        changeLog[slotOf(latestSequence)] = change;
+        LOG.info(() -> "Recorded config change: " + change);
+        return change;
+    }
+
+    /*
+     * Called outside the lock, so a slow listener does not hold up changes made on other threads.
+     */
+    private void notifyListeners(ConfigChange change) {
+        for (final ConfigChangeListener listener : listeners) {
+            try {
+                listener.onChange(change);
+            } catch (RuntimeException e) {
+                LOG.error("Config change listener failed for change: " + change, e);
+            }
+        }
+    }
+
+    private int slotOf(long sequence) {
+        return (int) ((sequence - firstSequence) % changeLog.length);
+    }
+}
@@ -25,9 +25,13 @@ package com.gazbert.bxbot.ui.server.services.config;
 
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
 import com.gazbert.bxbot.ui.server.domain.strategy.StrategyConfig;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The Bot configuration service.
@@ -38,6 +42,15 @@ public interface BotConfigService {
 
     List<BotConfig> getAllBotConfig();
 
+    /**
+     * Returns one page of Bot configs, sorted and filtered as requested.
+     *
+     * @param request the page to fetch.
+     * @return the page, with the cursor for the next page if there is one.
+     * @throws IllegalArgumentException if the request's cursor is not valid for its sort order.
+     */
+    BotPage<BotConfig> getBotConfigPage(BotPageRequest request);
+
     BotConfig getBotConfig(String id);
 
     BotConfig updateBotConfig(BotConfig config);
@@ -45,4 +58,20 @@ public interface BotConfigService {
     BotConfig createBotConfig(BotConfig config);
 
     BotConfig deleteBotConfig(String id);
+
+    /**
+     * Validates all the given Bot configs up front and, only if every one of them is valid, creates or updates them
+     * all in a single write. A config that carries a version and replaces a stored Bot is only imported if the stored
+     * Bot is still at that version. Each imported Bot is recorded in the change history as created or updated,
+     * depending on whether it was stored before the import.
+     *
+     * @param configs the Bot configs to import.
+     * @return the imported Bot configs, with their ids and versions, in the same order.
+     * @throws InvalidBotConfigException listing every problem found, if any config is invalid; nothing is saved.
+     * @throws OptimisticLockingFailureException naming every Bot that has changed since the version its config
+     *                                           carries; nothing is saved.
+     */
+    List<BotConfig> importBotConfig(List<BotConfig> configs);
+
+    void exportBotConfig(Consumer<BotConfig> consumer);
 }
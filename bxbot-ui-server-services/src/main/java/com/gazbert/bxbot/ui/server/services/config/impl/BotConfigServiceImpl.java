@@ -24,8 +24,14 @@
 package com.gazbert.bxbot.ui.server.services.config.impl;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
+import com.gazbert.bxbot.ui.server.domain.bot.SavedBotConfigs;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.BotConfigService;
+import com.gazbert.bxbot.ui.server.services.config.InvalidBotConfigException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,6 +40,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Implementation of the Bot config service.
@@ -47,10 +54,12 @@ public class BotConfigServiceImpl implements BotConfigService {
 
     private static final Logger LOG = LogManager.getLogger();
     private final BotConfigRepository botConfigRepository;
+    private final ConfigChangeService configChangeService;
 
     @Autowired
-    public BotConfigServiceImpl(BotConfigRepository botConfigRepository) {
+    public BotConfigServiceImpl(BotConfigRepository botConfigRepository, ConfigChangeService configChangeService) {
         this.botConfigRepository = botConfigRepository;
+        this.configChangeService = configChangeService;
     }
 
     @Override
@@ -58,6 +67,12 @@ public class BotConfigServiceImpl implements BotConfigService {
         return botConfigRepository.findAll();
     }
 
+    @Override
+    public BotPage<BotConfig> getBotConfigPage(BotPageRequest request) {
+        LOG.info(() -> "Fetching page of Bot configs: " + request);
+        return botConfigRepository.findPage(request);
+    }
+
     @Override
     public BotConfig getBotConfig(String id) {
         LOG.info(() -> "Fetching Bot config for id: " + id);
@@ -67,18 +82,60 @@ public class BotConfigServiceImpl implements BotConfigService {
     @Override
     public BotConfig updateBotConfig(BotConfig config) {
         LOG.info(() -> "About to update Bot config: " + config);
-        return botConfigRepository.save(config);
+        final BotConfig updatedConfig = botConfigRepository.save(config);
+        recordChange(ConfigChange.Operation.UPDATED, updatedConfig);
+        return updatedConfig;
     }
 
     @Override
     public BotConfig createBotConfig(BotConfig config) {
         LOG.info(() -> "About to create Bot config: " + config);
-        return botConfigRepository.save(config);
+        final BotConfig createdConfig = botConfigRepository.save(config);
+        recordChange(ConfigChange.Operation.CREATED, createdConfig);
+        return createdConfig;
     }
 
     @Override
     public BotConfig deleteBotConfig(String id) {
         LOG.info(() -> "About to delete Bot config for id: " + id);
-        return botConfigRepository.delete(id);
+        final BotConfig deletedConfig = botConfigRepository.delete(id);
+        if (deletedConfig != null) {
+            configChangeService.recordChange(ConfigChange.ConfigType.BOT, ConfigChange.Operation.DELETED, id, id, null);
+        }
+        return deletedConfig;
+    }
+
+    @Override
+    public List<BotConfig> importBotConfig(List<BotConfig> configs) {
+        LOG.info(() -> "About to import " + configs.size() + " Bot configs");
+        final List<String> errors = BotConfigValidator.validate(configs);
+        if (!errors.isEmpty()) {
+            throw new InvalidBotConfigException(errors);
+        }
+        final SavedBotConfigs importedConfigs = botConfigRepository.saveAll(configs);
+        importedConfigs.getBotConfigs().forEach(importedConfig -> recordChange(
+                importedConfigs.isCreated(importedConfig.getId())
+                        ? ConfigChange.Operation.CREATED : ConfigChange.Operation.UPDATED, importedConfig));
+        return importedConfigs.getBotConfigs();
+    }
+
+    @Override
+    public void exportBotConfig(Consumer<BotConfig> consumer) {
+        LOG.info(() -> "About to export all Bot configs");
+        botConfigRepository.streamAll(consumer);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * The repository hands back an empty config, with no id, when there was no Bot to update - nothing changed.
+     */
+    private void recordChange(ConfigChange.Operation operation, BotConfig savedConfig) {
+        if (savedConfig != null && savedConfig.getId() != null) {
+            configChangeService.recordChange(ConfigChange.ConfigType.BOT, operation, savedConfig.getId(),
+                    savedConfig.getId(), savedConfig);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.config.impl;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Checks Bot configs against the same rules as the Bots XML Schema, so invalid configs are rejected before anything
+ * is written rather than when the config is next loaded.
+ *
+ * @author gazbert
+ */
+final class BotConfigValidator {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[a-zA-Z0-9/_\\- ]*");
+
+    private BotConfigValidator() {
+    }
+
+    /*
+     * Returns every problem found with the given Bot configs, or an empty list if they are all valid. Each problem
+     * says which config it is for by its position in the list.
+     */
+    static List<String> validate(List<BotConfig> configs) {
+
+        final List<String> errors = new ArrayList<>();
+        final Set<String> ids = new HashSet<>();
+
+        for (int i = 0; i < configs.size(); i++) {
+            final BotConfig config = configs.get(i);
+            final String position = "Bot config [" + i + "]";
+
+            if (config == null) {
+                errors.add(position + " is missing");
+                continue;
+            }
+            if (config.getId() != null && !config.getId().isEmpty()) {
+                if (!ID_PATTERN.matcher(config.getId()).matches()) {
+                    errors.add(position + " id contains characters other than letters, digits, /, _, - and space");
+                }
+                if (!ids.add(config.getId())) {
+                    errors.add(position + " id is a duplicate of an earlier config: " + config.getId());
+                }
+            }
+            if (config.getAlias() != null && config.getAlias().isEmpty()) {
+                errors.add(position + " alias must not be empty if it is given");
+            }
+            requireValue(errors, position, "baseUrl", config.getBaseUrl());
+            requireValue(errors, position, "username", config.getUsername());
+            requireValue(errors, position, "password", config.getPassword());
+        }
+        return errors;
+    }
+
+    private static void requireValue(List<String> errors, String position, String field, String value) {
+        if (value == null || value.isEmpty()) {
+            errors.add(position + " " + field + " is required");
+        }
+    }
+}
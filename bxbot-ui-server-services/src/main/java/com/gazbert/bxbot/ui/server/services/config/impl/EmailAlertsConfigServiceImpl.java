@@ -24,9 +24,11 @@
 package com.gazbert.bxbot.ui.server.services.config.impl;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
 import com.gazbert.bxbot.ui.server.domain.emailalerts.EmailAlertsConfig;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.config.EmailAlertsConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.EmailAlertsConfigService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -49,13 +51,16 @@ public class EmailAlertsConfigServiceImpl implements EmailAlertsConfigService {
 
     private final EmailAlertsConfigRepository emailAlertsConfigRepository;
     private final BotConfigRepository botConfigRepository;
+    private final ConfigChangeService configChangeService;
 
     @Autowired
     public EmailAlertsConfigServiceImpl(EmailAlertsConfigRepository emailAlertsConfigRepository,
-                                        BotConfigRepository botConfigRepository) {
+                                        BotConfigRepository botConfigRepository,
+                                        ConfigChangeService configChangeService) {
 
         this.emailAlertsConfigRepository = emailAlertsConfigRepository;
         this.botConfigRepository = botConfigRepository;
+        this.configChangeService = configChangeService;
     }
 
     @Override
@@ -82,7 +87,12 @@ public class EmailAlertsConfigServiceImpl implements EmailAlertsConfigService {
             LOG.warn("Failed to find BotConfig for botId: " + botId);
             return null;
         } else {
-                return emailAlertsConfigRepository.save(botConfig, emailAlertsConfig);
+            final EmailAlertsConfig savedConfig = emailAlertsConfigRepository.save(botConfig, emailAlertsConfig);
+            if (savedConfig != null) {
+                configChangeService.recordChange(ConfigChange.ConfigType.EMAIL_ALERTS, ConfigChange.Operation.UPDATED,
+                        botId, null, savedConfig);
+            }
+            return savedConfig;
         }
     }
 }
\ No newline at end of file
@@ -24,9 +24,11 @@
 package com.gazbert.bxbot.ui.server.services.config.impl;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
 import com.gazbert.bxbot.ui.server.domain.engine.EngineConfig;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.config.EngineConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.EngineConfigService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -49,13 +51,16 @@ public class EngineConfigServiceImpl implements EngineConfigService {
 
     private final EngineConfigRepository engineConfigRepository;
     private final BotConfigRepository botConfigRepository;
+    private final ConfigChangeService configChangeService;
 
     @Autowired
     public EngineConfigServiceImpl(EngineConfigRepository engineConfigRepository,
-                                   BotConfigRepository botConfigRepository) {
+                                   BotConfigRepository botConfigRepository,
+                                   ConfigChangeService configChangeService) {
 
         this.engineConfigRepository = engineConfigRepository;
         this.botConfigRepository = botConfigRepository;
+        this.configChangeService = configChangeService;
     }
 
     @Override
@@ -82,7 +87,12 @@ public class EngineConfigServiceImpl implements EngineConfigService {
             LOG.warn("Failed to find BotConfig for botId: " + botId);
             return null;
         } else {
-            return engineConfigRepository.save(botConfig, engineConfig);
+            final EngineConfig savedConfig = engineConfigRepository.save(botConfig, engineConfig);
+            if (savedConfig != null) {
+                configChangeService.recordChange(ConfigChange.ConfigType.ENGINE, ConfigChange.Operation.UPDATED,
+                        botId, null, savedConfig);
+            }
+            return savedConfig;
         }
     }
 }
\ No newline at end of file
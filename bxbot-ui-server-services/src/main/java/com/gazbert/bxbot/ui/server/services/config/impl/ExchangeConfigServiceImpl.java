@@ -24,9 +24,11 @@
 package com.gazbert.bxbot.ui.server.services.config.impl;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
 import com.gazbert.bxbot.ui.server.domain.exchange.ExchangeConfig;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.config.ExchangeConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.ExchangeConfigService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -49,13 +51,16 @@ public class ExchangeConfigServiceImpl implements ExchangeConfigService {
 
     private final ExchangeConfigRepository exchangeConfigRepository;
     private final BotConfigRepository botConfigRepository;
+    private final ConfigChangeService configChangeService;
 
     @Autowired
     public ExchangeConfigServiceImpl(ExchangeConfigRepository exchangeConfigRepository,
-                                     BotConfigRepository botConfigRepository) {
+                                     BotConfigRepository botConfigRepository,
+                                     ConfigChangeService configChangeService) {
 
         this.exchangeConfigRepository = exchangeConfigRepository;
         this.botConfigRepository = botConfigRepository;
+        this.configChangeService = configChangeService;
     }
 
     @Override
@@ -82,7 +87,12 @@ public class ExchangeConfigServiceImpl implements ExchangeConfigService {
             LOG.warn("Failed to find BotConfig for botId: " + botId);
             return null;
         } else {
-            return exchangeConfigRepository.save(botConfig, exchangeConfig);
+            final ExchangeConfig savedConfig = exchangeConfigRepository.save(botConfig, exchangeConfig);
+            if (savedConfig != null) {
+                configChangeService.recordChange(ConfigChange.ConfigType.EXCHANGE, ConfigChange.Operation.UPDATED,
+                        botId, null, savedConfig);
+            }
+            return savedConfig;
         }
     }
 }
\ No newline at end of file
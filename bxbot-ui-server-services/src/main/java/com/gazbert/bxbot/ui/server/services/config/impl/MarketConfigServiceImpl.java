@@ -24,9 +24,11 @@
 package com.gazbert.bxbot.ui.server.services.config.impl;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
 import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.config.MarketConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.MarketConfigService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -52,13 +54,16 @@ public class MarketConfigServiceImpl implements MarketConfigService {
 
     private final MarketConfigRepository marketConfigRepository;
     private final BotConfigRepository botConfigRepository;
+    private final ConfigChangeService configChangeService;
 
     @Autowired
     public MarketConfigServiceImpl(MarketConfigRepository marketConfigRepository,
-                                   BotConfigRepository botConfigRepository) {
+                                   BotConfigRepository botConfigRepository,
+                                   ConfigChangeService configChangeService) {
 
         this.marketConfigRepository = marketConfigRepository;
         this.botConfigRepository = botConfigRepository;
+        this.configChangeService = configChangeService;
     }
 
     @Override
@@ -99,7 +104,12 @@ public class MarketConfigServiceImpl implements MarketConfigService {
             LOG.warn("Failed to find BotConfig for botId: " + botId);
             return null;
         } else {
-            return marketConfigRepository.save(botConfig, marketConfig);
+            final MarketConfig savedConfig = marketConfigRepository.save(botConfig, marketConfig);
+            if (savedConfig != null) {
+                configChangeService.recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.UPDATED,
+                        botId, savedConfig.getId(), savedConfig);
+            }
+            return savedConfig;
         }
     }
 
@@ -113,7 +123,12 @@ public class MarketConfigServiceImpl implements MarketConfigService {
             LOG.warn("Failed to find BotConfig for botId: " + botId);
             return null;
         } else {
-            return marketConfigRepository.save(botConfig, marketConfig);
+            final MarketConfig savedConfig = marketConfigRepository.save(botConfig, marketConfig);
+            if (savedConfig != null) {
+                configChangeService.recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.CREATED,
+                        botId, savedConfig.getId(), savedConfig);
+            }
+            return savedConfig;
         }
     }
 
@@ -127,7 +142,12 @@ public class MarketConfigServiceImpl implements MarketConfigService {
             LOG.warn("Failed to find BotConfig for botId: " + botId);
             return false;
         } else {
-            return marketConfigRepository.delete(botConfig, marketId);
+            final boolean deleted = marketConfigRepository.delete(botConfig, marketId);
+            if (deleted) {
+                configChangeService.recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.DELETED,
+                        botId, marketId, null);
+            }
+            return deleted;
         }
     }
 }
\ No newline at end of file
@@ -24,9 +24,11 @@
 package com.gazbert.bxbot.ui.server.services.config.impl;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
 import com.gazbert.bxbot.ui.server.domain.strategy.StrategyConfig;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.config.StrategyConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.StrategyConfigService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -52,13 +54,16 @@ public class StrategyConfigServiceImpl implements StrategyConfigService {
 
     private final StrategyConfigRepository strategyConfigRepository;
     private final BotConfigRepository botConfigRepository;
+    private final ConfigChangeService configChangeService;
 
     @Autowired
     public StrategyConfigServiceImpl(StrategyConfigRepository strategyConfigRepository,
-                                     BotConfigRepository botConfigRepository) {
+                                     BotConfigRepository botConfigRepository,
+                                     ConfigChangeService configChangeService) {
 
         this.strategyConfigRepository = strategyConfigRepository;
         this.botConfigRepository = botConfigRepository;
+        this.configChangeService = configChangeService;
     }
 
     @Override
@@ -99,7 +104,12 @@ public class StrategyConfigServiceImpl implements StrategyConfigService {
             LOG.warn("Failed to find BotConfig for botId: " + botId);
             return null;
         } else {
-            return strategyConfigRepository.save(botConfig, strategyConfig);
+            final StrategyConfig savedConfig = strategyConfigRepository.save(botConfig, strategyConfig);
+            if (savedConfig != null) {
+                configChangeService.recordChange(ConfigChange.ConfigType.STRATEGY, ConfigChange.Operation.UPDATED,
+                        botId, savedConfig.getId(), savedConfig);
+            }
+            return savedConfig;
         }
     }
 
@@ -113,7 +123,12 @@ public class StrategyConfigServiceImpl implements StrategyConfigService {
             LOG.warn("Failed to find BotConfig for botId: " + botId);
             return null;
         } else {
-            return strategyConfigRepository.save(botConfig, strategyConfig);
+            final StrategyConfig savedConfig = strategyConfigRepository.save(botConfig, strategyConfig);
+            if (savedConfig != null) {
+                configChangeService.recordChange(ConfigChange.ConfigType.STRATEGY, ConfigChange.Operation.CREATED,
+                        botId, savedConfig.getId(), savedConfig);
+            }
+            return savedConfig;
         }
     }
 
@@ -127,7 +142,12 @@ public class StrategyConfigServiceImpl implements StrategyConfigService {
             LOG.warn("Failed to find BotConfig for botId: " + botId);
             return false;
         } else {
-            return strategyConfigRepository.delete(botConfig, strategyId);
+            final boolean deleted = strategyConfigRepository.delete(botConfig, strategyId);
+            if (deleted) {
+                configChangeService.recordChange(ConfigChange.ConfigType.STRATEGY, ConfigChange.Operation.DELETED,
+                        botId, strategyId, null);
+            }
+            return deleted;
         }
     }
 }
\ No newline at end of file
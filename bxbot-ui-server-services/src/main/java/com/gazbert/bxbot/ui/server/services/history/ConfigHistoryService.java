@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.history;
+
+import com.gazbert.bxbot.ui.server.domain.history.ConfigVersion;
+
+import java.util.List;
+
+/**
+ * The config history service.
+ * <p>
+ * It keeps every version of the config pushed to each Bot, so a Bot's config can be shown as it was at any time,
+ * and rolled back to an earlier version, without fetching anything from the Bot.
+ *
+ * @author gazbert
+ */
+public interface ConfigHistoryService {
+
+    /**
+     * Returns a Bot's config history.
+     *
+     * @param botId the id of the Bot.
+     * @return the Bot's versions, oldest first and without their configs; empty if it has no history.
+     */
+    List<ConfigVersion> getHistory(String botId);
+
+    /**
+     * Returns a version of a Bot's config.
+     *
+     * @param botId   the id of the Bot.
+     * @param version the version number.
+     * @return the version, with its config, or null if the Bot has no such version.
+     */
+    ConfigVersion getVersion(String botId, long version);
+
+    /**
+     * Returns a Bot's config as it was at the given time: the latest version of each of its configs made at or
+     * before then, leaving out configs that had been deleted.
+     *
+     * @param botId     the id of the Bot.
+     * @param timestamp the time, in millis since the epoch.
+     * @return the versions, with their configs, in the order they were made; empty if the Bot had no config then.
+     */
+    List<ConfigVersion> getConfigAsOf(String botId, long timestamp);
+
+    /**
+     * Rolls a config back to an earlier version by pushing that version to the Bot again, or deleting the config
+     * if the version is a delete. The rollback itself is recorded as a new version. Passwords are not kept in the
+     * history, so the config keeps the password it has now.
+     *
+     * @param botId   the id of the Bot.
+     * @param version the version number to roll back to.
+     * @return the version that was rolled back to, with its config, or null if the Bot has no such version.
+     * @throws IllegalStateException if the config could not be pushed to the Bot, or if the Bot has been deleted
+     *                               and so has no password to keep.
+     */
+    ConfigVersion rollback(String botId, long version);
+}
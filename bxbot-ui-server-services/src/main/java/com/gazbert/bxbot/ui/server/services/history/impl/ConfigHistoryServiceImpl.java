@@ -0,0 +1,347 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.history.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.emailalerts.EmailAlertsConfig;
+import com.gazbert.bxbot.ui.server.domain.emailalerts.SmtpConfig;
+import com.gazbert.bxbot.ui.server.domain.engine.EngineConfig;
+import com.gazbert.bxbot.ui.server.domain.exchange.ExchangeConfig;
+import com.gazbert.bxbot.ui.server.domain.history.ConfigVersion;
+import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
+import com.gazbert.bxbot.ui.server.domain.strategy.StrategyConfig;
+import com.gazbert.bxbot.ui.server.repository.local.ConfigHistoryRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeListener;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
+import com.gazbert.bxbot.ui.server.services.config.BotConfigService;
+import com.gazbert.bxbot.ui.server.services.config.EmailAlertsConfigService;
+import com.gazbert.bxbot.ui.server.services.config.EngineConfigService;
+import com.gazbert.bxbot.ui.server.services.config.ExchangeConfigService;
+import com.gazbert.bxbot.ui.server.services.config.MarketConfigService;
+import com.gazbert.bxbot.ui.server.services.config.StrategyConfigService;
+import com.gazbert.bxbot.ui.server.services.history.ConfigHistoryService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the config history service.
+ * <p>
+ * It listens to the config change log, so every successful write made through the config services is recorded,
+ * once its transaction has committed. Each config is stored as JSON with its properties in a fixed order, so the
+ * same config always has the same content hash and is only stored once, whichever Bots it is pushed to.
+ * <p>
+ * Passwords - a Bot's own password and its SMTP account password - are left out of the stored content, and out of
+ * the versions returned. Rolling back keeps whatever password the config has now.
+ * <p>
+ * Rollbacks are pushed to the Bot through the config services, so they are recorded in the change log and the
+ * history like any other write.
+ *
+ * @author gazbert
+ */
+@Service("configHistoryService")
+public class ConfigHistoryServiceImpl implements ConfigHistoryService, ConfigChangeListener {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final String BOT_PASSWORD_FIELD = "password";
+    private static final String SMTP_CONFIG_FIELD = "smtpConfig";
+    private static final String SMTP_PASSWORD_FIELD = "accountPassword";
+
+    private static final ObjectMapper CONTENT_MAPPER = new ObjectMapper()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final ConfigHistoryRepository configHistoryRepository;
+    private final ConfigChangeService configChangeService;
+    private final BotConfigService botConfigService;
+    private final MarketConfigService marketConfigService;
+    private final StrategyConfigService strategyConfigService;
+    private final EngineConfigService engineConfigService;
+    private final ExchangeConfigService exchangeConfigService;
+    private final EmailAlertsConfigService emailAlertsConfigService;
+    private final Clock clock;
+
+    @Autowired
+    public ConfigHistoryServiceImpl(ConfigHistoryRepository configHistoryRepository,
+                                    ConfigChangeService configChangeService,
+                                    BotConfigService botConfigService,
+                                    MarketConfigService marketConfigService,
+                                    StrategyConfigService strategyConfigService,
+                                    EngineConfigService engineConfigService,
+                                    ExchangeConfigService exchangeConfigService,
+                                    EmailAlertsConfigService emailAlertsConfigService) {
+
+        this(configHistoryRepository, configChangeService, botConfigService, marketConfigService,
+                strategyConfigService, engineConfigService, exchangeConfigService, emailAlertsConfigService,
+                Clock.systemUTC());
+    }
+
+    public ConfigHistoryServiceImpl(ConfigHistoryRepository configHistoryRepository,
+                                    ConfigChangeService configChangeService,
+                                    BotConfigService botConfigService,
+                                    MarketConfigService marketConfigService,
+                                    StrategyConfigService strategyConfigService,
+                                    EngineConfigService engineConfigService,
+                                    ExchangeConfigService exchangeConfigService,
+                                    EmailAlertsConfigService emailAlertsConfigService,
+                                    Clock clock) {
+
+        this.configHistoryRepository = configHistoryRepository;
+        this.configChangeService = configChangeService;
+        this.botConfigService = botConfigService;
+        this.marketConfigService = marketConfigService;
+        this.strategyConfigService = strategyConfigService;
+        this.engineConfigService = engineConfigService;
+        this.exchangeConfigService = exchangeConfigService;
+        this.emailAlertsConfigService = emailAlertsConfigService;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void listenForChanges() {
+        configChangeService.addListener(this);
+    }
+
+    @Override
+    public void onChange(ConfigChange change) {
+
+        final String contentHash = change.getConfig() == null
+                ? null
+                : configHistoryRepository.saveContent(toContent(change.getConfigType(), change.getConfig()));
+        configHistoryRepository.append(change.getBotId(), clock.millis(), change.getConfigType(),
+                change.getOperation(), change.getConfigId(), contentHash);
+    }
+
+    @Override
+    public List<ConfigVersion> getHistory(String botId) {
+
+        LOG.info(() -> "Fetching config history for botId: " + botId);
+        return configHistoryRepository.findByBotId(botId);
+    }
+
+    @Override
+    public ConfigVersion getVersion(String botId, long version) {
+
+        LOG.info(() -> "Fetching config version " + version + " for botId: " + botId);
+        for (final ConfigVersion configVersion : configHistoryRepository.findByBotId(botId)) {
+            if (configVersion.getVersion() == version) {
+                return withConfig(configVersion);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<ConfigVersion> getConfigAsOf(String botId, long timestamp) {
+
+        LOG.info(() -> "Fetching config as of " + timestamp + " for botId: " + botId);
+
+        // Keyed by config type and id, in the order each config was last changed
+        final Map<String, ConfigVersion> latestVersions = new LinkedHashMap<>();
+        for (final ConfigVersion configVersion : configHistoryRepository.findByBotId(botId)) {
+            if (configVersion.getTimestamp() > timestamp) {
+                continue;
+            }
+            if (configVersion.getConfigType() == ConfigChange.ConfigType.BOT
+                    && configVersion.getOperation() == ConfigChange.Operation.DELETED) {
+                latestVersions.clear(); // all the Bot's config went with it
+                continue;
+            }
+            final String configKey = configVersion.getConfigType() + "/" + configVersion.getConfigId();
+            latestVersions.remove(configKey);
+            if (configVersion.getOperation() != ConfigChange.Operation.DELETED) {
+                latestVersions.put(configKey, configVersion);
+            }
+        }
+        return latestVersions.isEmpty()
+                ? Collections.emptyList()
+                : latestVersions.values().stream().map(this::withConfig).collect(Collectors.toList());
+    }
+
+    @Override
+    public ConfigVersion rollback(String botId, long version) {
+
+        final ConfigVersion configVersion = getVersion(botId, version);
+        if (configVersion == null) {
+            LOG.warn("Failed to find config version " + version + " to roll back to for botId: " + botId);
+            return null;
+        }
+
+        LOG.info(() -> "About to roll back to config version: " + configVersion);
+        final boolean rolledBack = configVersion.getOperation() == ConfigChange.Operation.DELETED
+                ? deleteConfig(configVersion)
+                : pushConfig(configVersion);
+        if (!rolledBack) {
+            throw new IllegalStateException("Failed to roll back to config version " + version + " for botId: "
+                    + botId);
+        }
+        return configVersion;
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private boolean pushConfig(ConfigVersion configVersion) {
+
+        final String botId = configVersion.getBotId();
+        final Object config = configVersion.getConfig();
+        switch (configVersion.getConfigType()) {
+            case BOT:
+                // Imported, as the Bot may have been deleted since; unversioned, as it replaces whatever is there now
+                final BotConfig botConfig = new BotConfig((BotConfig) config);
+                botConfig.setVersion(null);
+                botConfig.setPassword(currentBotPassword(configVersion));
+                return !botConfigService.importBotConfig(Collections.singletonList(botConfig)).isEmpty();
+            case MARKET:
+                return marketConfigService.updateMarketConfig(botId, (MarketConfig) config) != null;
+            case STRATEGY:
+                return strategyConfigService.updateStrategyConfig(botId, (StrategyConfig) config) != null;
+            case ENGINE:
+                return engineConfigService.updateEngineConfig(botId, (EngineConfig) config) != null;
+            case EXCHANGE:
+                return exchangeConfigService.updateExchangeConfig(botId, (ExchangeConfig) config) != null;
+            case EMAIL_ALERTS:
+                return emailAlertsConfigService.updateEmailAlertsConfig(botId,
+                        withCurrentSmtpPassword(configVersion, (EmailAlertsConfig) config)) != null;
+            default:
+                return false;
+        }
+    }
+
+    /*
+     * The password is not in the history, so the Bot must still exist for its current password to be kept.
+     */
+    private String currentBotPassword(ConfigVersion configVersion) {
+        final BotConfig currentBotConfig = botConfigService.getBotConfig(configVersion.getBotId());
+        if (currentBotConfig == null || currentBotConfig.getId() == null) {
+            throw new IllegalStateException("Cannot roll back to config version " + configVersion.getVersion()
+                    + " for botId: " + configVersion.getBotId() + " - the Bot has been deleted and its password is"
+                    + " not kept in the config history");
+        }
+        return currentBotConfig.getPassword();
+    }
+
+    /*
+     * Copies the config, so the version handed back to the caller does not carry the password.
+     */
+    private EmailAlertsConfig withCurrentSmtpPassword(ConfigVersion configVersion, EmailAlertsConfig config) {
+        final SmtpConfig smtpConfig = config.getSmtpConfig();
+        if (smtpConfig == null) {
+            return config;
+        }
+        final EmailAlertsConfig currentConfig = emailAlertsConfigService.getEmailAlertsConfig(
+                configVersion.getBotId());
+        if (currentConfig == null) {
+            throw new IllegalStateException("Cannot roll back to config version " + configVersion.getVersion()
+                    + " for botId: " + configVersion.getBotId() + " - failed to fetch the current SMTP password");
+        }
+        final String currentPassword = currentConfig.getSmtpConfig() == null
+                ? null
+                : currentConfig.getSmtpConfig().getAccountPassword();
+        return new EmailAlertsConfig(config.getId(), config.isEnabled(), new SmtpConfig(smtpConfig.getHost(),
+                smtpConfig.getTlsPort(), smtpConfig.getAccountUsername(), currentPassword,
+                smtpConfig.getFromAddress(), smtpConfig.getToAddress()));
+    }
+
+    /*
+     * Deleting a config that has already gone again is not an error: it leaves the config as it was at the version.
+     */
+    private boolean deleteConfig(ConfigVersion configVersion) {
+
+        final String botId = configVersion.getBotId();
+        switch (configVersion.getConfigType()) {
+            case BOT:
+                botConfigService.deleteBotConfig(botId);
+                return true;
+            case MARKET:
+                marketConfigService.deleteMarketConfig(botId, configVersion.getConfigId());
+                return true;
+            case STRATEGY:
+                strategyConfigService.deleteStrategyConfig(botId, configVersion.getConfigId());
+                return true;
+            default:
+                return false; // a Bot's single configs are never deleted
+        }
+    }
+
+    private ConfigVersion withConfig(ConfigVersion configVersion) {
+
+        if (configVersion.getContentHash() == null) {
+            return configVersion;
+        }
+        final byte[] content = configHistoryRepository.findContent(configVersion.getContentHash());
+        if (content == null) {
+            throw new IllegalStateException("Config content is missing from the history store for version: "
+                    + configVersion);
+        }
+        try {
+            // Content stored before passwords were left out of the history still has them
+            final JsonNode config = withoutPasswords(configVersion.getConfigType(), CONTENT_MAPPER.readTree(content));
+            return configVersion.withConfig(
+                    CONTENT_MAPPER.treeToValue(config, configVersion.getConfigType().getConfigClass()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read config content for version: " + configVersion, e);
+        }
+    }
+
+    private static byte[] toContent(ConfigChange.ConfigType configType, Object config) {
+        try {
+            return CONTENT_MAPPER.writeValueAsBytes(withoutPasswords(configType, CONTENT_MAPPER.valueToTree(config)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to write config content: " + configType, e);
+        }
+    }
+
+    private static JsonNode withoutPasswords(ConfigChange.ConfigType configType, JsonNode config) {
+        if (configType == ConfigChange.ConfigType.BOT && config instanceof ObjectNode) {
+            ((ObjectNode) config).remove(BOT_PASSWORD_FIELD);
+        } else if (configType == ConfigChange.ConfigType.EMAIL_ALERTS
+                && config.get(SMTP_CONFIG_FIELD) instanceof ObjectNode) {
+            ((ObjectNode) config.get(SMTP_CONFIG_FIELD)).remove(SMTP_PASSWORD_FIELD);
+        }
+        return config;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.replica.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChanges;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client for the REST API of the primary BX-bot UI Server, used by the replica sync service.
+ * <p>
+ * It logs in to the primary with the configured username and password, and logs in again if the primary rejects
+ * its token, e.g. once it has expired. It is not thread-safe; the sync service only uses it under its own lock.
+ *
+ * @author gazbert
+ */
+final class PrimaryServerClient {
+
+    private static final String AUTH_PATH = "/auth";
+    private static final String CHANGES_PATH = "/api/v1/changes?since={since}";
+    private static final String EXPORT_PATH = "/api/v1/config/bots/export";
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final String username;
+    private final String password;
+
+    private String token;
+
+    PrimaryServerClient(RestTemplateBuilder restTemplateBuilder, ObjectMapper objectMapper, String primaryUrl,
+                        String username, String password) {
+        this.restTemplate = restTemplateBuilder
+                .rootUri(primaryUrl)
+                .setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+                .setReadTimeout(READ_TIMEOUT_MILLIS)
+                .build();
+        this.objectMapper = objectMapper;
+        this.username = username;
+        this.password = password;
+    }
+
+    /*
+     * Returns the primary's changes after the given sequence number, or its resync marker.
+     */
+    ConfigChanges fetchChangesSince(long sequence) throws JsonProcessingException {
+
+        final JsonNode changesNode = get(CHANGES_PATH, JsonNode.class, sequence).path("data");
+        final long latestSequence = changesNode.path("latestSequence").asLong();
+        if (changesNode.path("resyncRequired").asBoolean()) {
+            return ConfigChanges.resyncRequired(latestSequence);
+        }
+
+        final List<ConfigChange> changes = new ArrayList<>();
+        for (final JsonNode changeNode : changesNode.path("changes")) {
+            final ConfigChange.ConfigType configType =
+                    ConfigChange.ConfigType.valueOf(changeNode.path("configType").asText());
+            final JsonNode configNode = changeNode.path("config");
+            final Object config = configNode.isObject()
+                    ? objectMapper.treeToValue(configNode, configType.getConfigClass())
+                    : null;
+            changes.add(new ConfigChange(
+                    changeNode.path("sequence").asLong(),
+                    configType,
+                    ConfigChange.Operation.valueOf(changeNode.path("operation").asText()),
+                    textOrNull(changeNode.path("botId")),
+                    textOrNull(changeNode.path("configId")),
+                    config));
+        }
+        return new ConfigChanges(changes, latestSequence);
+    }
+
+    /*
+     * Returns all the primary's Bots, in the primary's order.
+     */
+    List<BotConfig> fetchAllBotConfig() {
+        final BotConfig[] botConfigs = get(EXPORT_PATH, BotConfig[].class);
+        return botConfigs == null ? Collections.emptyList() : Arrays.asList(botConfigs);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private <T> T get(String path, Class<T> responseType, Object... uriVariables) {
+        if (token == null) {
+            token = login();
+        }
+        try {
+            return restTemplate.exchange(path, HttpMethod.GET, authorizedRequest(), responseType, uriVariables)
+                    .getBody();
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() != HttpStatus.UNAUTHORIZED) {
+                throw e;
+            }
+            token = login();
+            return restTemplate.exchange(path, HttpMethod.GET, authorizedRequest(), responseType, uriVariables)
+                    .getBody();
+        }
+    }
+
+    private HttpEntity<Void> authorizedRequest() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        return new HttpEntity<>(headers);
+    }
+
+    private String login() {
+        final Map<String, String> credentials = new HashMap<>();
+        credentials.put("username", username);
+        credentials.put("password", password);
+        final JsonNode response = restTemplate.postForObject(AUTH_PATH, credentials, JsonNode.class);
+        return response.path("token").asText();
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node.isTextual() ? node.asText() : null;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.replica.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChanges;
+import com.gazbert.bxbot.ui.server.repository.local.ReplicaBotConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
+import com.gazbert.bxbot.ui.server.services.replica.ReplicaSyncService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the read replica sync service.
+ * <p>
+ * The replica first loads a snapshot of the primary's Bots from its export endpoint. It asks for the primary's latest
+ * change sequence number before fetching the snapshot, so any change made while the snapshot is being fetched is
+ * pulled again afterwards; applying a change twice leaves the same result. From then on it pulls the changes after the
+ * last one it applied from the primary's change feed, on an interval and after each write it forwards. If the replica
+ * has fallen so far behind that the primary no longer has the changes it needs, it loads a new snapshot.
+ * <p>
+ * Bot changes are applied to the replica's Bot config repository. All the changes, including those to config held by
+ * the Bots themselves, are recorded in the replica's own change log, so clients of the replica can follow its change
+ * feed just as they would the primary's.
+ * <p>
+ * It runs when the botconfig.repository property is set to replica. The primary is set using the replica.primary.url,
+ * replica.primary.username, and replica.primary.password properties, and the interval using the
+ * replica.sync.interval-millis property.
+ *
+ * @author gazbert
+ */
+@Service("replicaSyncService")
+@ConditionalOnProperty(name = "botconfig.repository", havingValue = "replica")
+public class ReplicaSyncServiceImpl implements ReplicaSyncService {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private final ReplicaBotConfigRepository replicaBotConfigRepository;
+    private final ConfigChangeService configChangeService;
+    private final PrimaryServerClient primaryServer;
+    private final long syncIntervalMillis;
+
+    // guarded by this
+    private boolean snapshotLoaded;
+    private long primarySequence;
+
+    private ScheduledExecutorService syncer;
+
+    @Autowired
+    public ReplicaSyncServiceImpl(ReplicaBotConfigRepository replicaBotConfigRepository,
+                                  ConfigChangeService configChangeService,
+                                  RestTemplateBuilder restTemplateBuilder,
+                                  ObjectMapper objectMapper,
+                                  @Value("${replica.primary.url}") String primaryUrl,
+                                  @Value("${replica.primary.username}") String primaryUsername,
+                                  @Value("${replica.primary.password}") String primaryPassword,
+                                  @Value("${replica.sync.interval-millis:1000}") long syncIntervalMillis) {
+
+        this.replicaBotConfigRepository = replicaBotConfigRepository;
+        this.configChangeService = configChangeService;
+        this.primaryServer = new PrimaryServerClient(restTemplateBuilder, objectMapper, primaryUrl, primaryUsername,
+                primaryPassword);
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::syncQuietly, 0, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+            syncer = null;
+        }
+    }
+
+    @Override
+    public synchronized void sync() {
+        try {
+            if (!snapshotLoaded) {
+                loadSnapshot();
+                return;
+            }
+
+            final ConfigChanges primaryChanges = primaryServer.fetchChangesSince(primarySequence);
+            if (primaryChanges.isResyncRequired()) {
+                LOG.warn(() -> "Replica has fallen behind the primary's change log at sequence " + primarySequence
+                        + " - loading a new snapshot");
+                loadSnapshot();
+                return;
+            }
+
+            primaryChanges.getChanges().forEach(this::apply);
+            primarySequence = primaryChanges.getLatestSequence();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read changes from the primary", e);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            LOG.error("Failed to sync with the primary - will retry. Details: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Loads a snapshot of the primary's Bots, recording the Bots that differ from the replica's current ones as
+     * changes. Asking for the changes since 0 always returns the primary's resync marker, with its latest sequence.
+     */
+    private void loadSnapshot() throws IOException {
+
+        final long snapshotSequence = primaryServer.fetchChangesSince(0).getLatestSequence();
+        final List<BotConfig> snapshot = primaryServer.fetchAllBotConfig();
+
+        final Map<String, BotConfig> replicaBots = replicaBotConfigRepository.findAll().stream()
+                .collect(Collectors.toMap(BotConfig::getId, Function.identity()));
+        replicaBotConfigRepository.replaceAll(snapshot);
+
+        for (final BotConfig primaryBot : snapshot) {
+            final BotConfig replicaBot = replicaBots.remove(primaryBot.getId());
+            if (replicaBot == null || !Objects.equals(replicaBot.getVersion(), primaryBot.getVersion())) {
+                configChangeService.recordChange(ConfigChange.ConfigType.BOT,
+                        replicaBot == null ? ConfigChange.Operation.CREATED : ConfigChange.Operation.UPDATED,
+                        primaryBot.getId(), primaryBot.getId(), primaryBot);
+            }
+        }
+        replicaBots.keySet().forEach(removedId -> configChangeService.recordChange(ConfigChange.ConfigType.BOT,
+                ConfigChange.Operation.DELETED, removedId, removedId, null));
+
+        primarySequence = snapshotSequence;
+        snapshotLoaded = true;
+        LOG.info(() -> "Loaded snapshot of " + snapshot.size() + " Bots from the primary at sequence "
+                + snapshotSequence);
+    }
+
+    private void apply(ConfigChange change) {
+        if (change.getConfigType() == ConfigChange.ConfigType.BOT) {
+            if (change.getOperation() == ConfigChange.Operation.DELETED) {
+                replicaBotConfigRepository.applyDelete(change.getConfigId());
+            } else {
+                replicaBotConfigRepository.applySave((BotConfig) change.getConfig());
+            }
+        }
+        configChangeService.recordChange(change.getConfigType(), change.getOperation(), change.getBotId(),
+                change.getConfigId(), change.getConfig());
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.services.runtime;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotRetryStats;
+
+/**
+ * The Bot retry service.
+ *
+ * @author gazbert
+ */
+public interface BotRetryService {
+
+    /**
+     * Returns the retry stats of a Bot.
+     *
+     * @param botId the id of the Bot.
+     * @return the Bot's retry stats, or null if there is no Bot with the given id.
+     */
+    BotRetryStats getBotRetryStats(String botId);
+
+    /**
+     * Returns the retry stats of all the Bots together, with the retry budget they share.
+     *
+     * @return the retry stats of all the Bots.
+     */
+    BotRetryStats getTotalRetryStats();
+}
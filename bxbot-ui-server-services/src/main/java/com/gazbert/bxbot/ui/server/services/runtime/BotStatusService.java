@@ -23,6 +23,8 @@
 
 package com.gazbert.bxbot.ui.server.services.runtime;
 
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
 import com.gazbert.bxbot.ui.server.domain.bot.BotStatus;
 
 import java.util.List;
@@ -36,5 +38,21 @@ public interface BotStatusService {
 
     BotStatus getBotStatus(String botId);
 
+    /**
+     * Returns the status of all the Bots. The Bots are called in parallel, and each has a deadline to answer; a Bot
+     * that does not answer in time is returned with an unknown status.
+     *
+     * @return the status of each Bot, in the same order as the Bots.
+     */
     List<BotStatus> getAllBotStatus();
+
+    /**
+     * Returns the status of one page of Bots. Only the Bots on the page have their status fetched, in the same way as
+     * {@link #getAllBotStatus()}.
+     *
+     * @param request the page of Bots to fetch the status of.
+     * @return the page of Bot statuses, with the cursor for the next page if there is one.
+     * @throws IllegalArgumentException if the request's cursor is not valid for its sort order.
+     */
+    BotPage<BotStatus> getBotStatusPage(BotPageRequest request);
 }
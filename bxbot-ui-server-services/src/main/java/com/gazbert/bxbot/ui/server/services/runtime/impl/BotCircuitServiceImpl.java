@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.services.runtime.impl;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotCircuit;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
+import com.gazbert.bxbot.ui.server.repository.remote.runtime.BotCircuitRepository;
+import com.gazbert.bxbot.ui.server.services.runtime.BotCircuitService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the Bot circuit breaker service.
+ *
+ * @author gazbert
+ */
+@Service("botCircuitService")
+@Transactional
+@ComponentScan(basePackages = {"com.gazbert.bxbot.ui.server.repository"})
+public class BotCircuitServiceImpl implements BotCircuitService {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private final BotCircuitRepository botCircuitRepository;
+    private final BotConfigRepository botConfigRepository;
+
+    @Autowired
+    public BotCircuitServiceImpl(BotCircuitRepository botCircuitRepository, BotConfigRepository botConfigRepository) {
+        this.botCircuitRepository = botCircuitRepository;
+        this.botConfigRepository = botConfigRepository;
+    }
+
+    @Override
+    public BotCircuit getBotCircuit(String botId) {
+
+        LOG.info(() -> "About to fetch BotCircuit for botId: " + botId);
+
+        final BotConfig botConfig = botConfigRepository.findById(botId);
+        if (botConfig == null) {
+            LOG.warn("Failed to find BotConfig for botId: " + botId);
+            return null;
+        }
+        return botCircuitRepository.getBotCircuit(botConfig);
+    }
+
+    @Override
+    public List<BotCircuit> getAllBotCircuits() {
+
+        LOG.info(() -> "About to fetch BotCircuit for all bots...");
+
+        return botConfigRepository.findAll().stream()
+                .map(botCircuitRepository::getBotCircuit)
+                .collect(Collectors.toList());
+    }
+}
@@ -24,6 +24,8 @@
 package com.gazbert.bxbot.ui.server.services.runtime.impl;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
 import com.gazbert.bxbot.ui.server.domain.bot.BotStatus;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.runtime.BotStatusRepository;
@@ -31,15 +33,31 @@ import com.gazbert.bxbot.ui.server.services.runtime.BotStatusService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of the Bot process service.
+ * <p>
+ * The status of a list of Bots is fetched in parallel. Up to status.fanout.max-in-flight calls are in flight at once
+ * across all requests, so concurrent requests share the slots rather than each getting their own; a slot is only
+ * freed when its call completes, so a dead Bot holds its slot until the HTTP client's read timeout.
+ * Each Bot has status.fanout.bot-timeout-millis to answer, and the whole list must be fetched within
+ * status.fanout.overall-timeout-millis. Bots that have not answered, or not been called, by then are reported with
+ * an unknown status, so one slow Bot no longer holds up the rest of the list.
  *
  * @author gazbert
  */
@@ -50,15 +68,53 @@ public class BotStatusServiceImpl implements BotStatusService {
 
     private static final Logger LOG = LogManager.getLogger();
 
+    private static final int DEFAULT_MAX_IN_FLIGHT = 50;
+    private static final long DEFAULT_BOT_TIMEOUT_MILLIS = 2000;
+    private static final long DEFAULT_OVERALL_TIMEOUT_MILLIS = 5000;
+
+    private static final String STOPPED_STATUS = "stopped"; // TODO use enum at some point...
+    private static final String UNKNOWN_STATUS = "unknown";
+
     private final BotStatusRepository botProcessRepository;
     private final BotConfigRepository botConfigRepository;
+    private final Semaphore slots;
+    private final long botTimeoutNanos;
+    private final long overallTimeoutNanos;
+    private final ScheduledExecutorService timeouts;
 
     @Autowired
     public BotStatusServiceImpl(BotStatusRepository botProcessRepository,
-                                BotConfigRepository botConfigRepository) {
+                                BotConfigRepository botConfigRepository,
+                                @Value("${status.fanout.max-in-flight:" + DEFAULT_MAX_IN_FLIGHT + "}")
+                                        int maxInFlight,
+                                @Value("${status.fanout.bot-timeout-millis:" + DEFAULT_BOT_TIMEOUT_MILLIS + "}")
+                                        long botTimeoutMillis,
+                                @Value("${status.fanout.overall-timeout-millis:" + DEFAULT_OVERALL_TIMEOUT_MILLIS + "}")
+                                        long overallTimeoutMillis) {
+
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Max in flight status calls must be at least 1: " + maxInFlight);
+        }
+        if (botTimeoutMillis < 1 || overallTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Status timeouts must be at least 1 millis - bot: " + botTimeoutMillis
+                    + " overall: " + overallTimeoutMillis);
+        }
 
         this.botProcessRepository = botProcessRepository;
         this.botConfigRepository = botConfigRepository;
+        this.slots = new Semaphore(maxInFlight);
+        this.botTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(botTimeoutMillis);
+        this.overallTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(overallTimeoutMillis);
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "bot-status-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timeouts.shutdownNow();
     }
 
     @Override
@@ -72,13 +128,8 @@ public class BotStatusServiceImpl implements BotStatusService {
             return null;
         } else {
 
-            BotStatus botStatus = botProcessRepository.getBotStatus(botConfig);
-            if (botStatus == null) {
-                botStatus = new BotStatus();
-                botStatus.setId(botId);
-                botStatus.setStatus("stopped"); // TODO use enum at some point...
-            }
-            return botStatus;
+            final BotStatus botStatus = botProcessRepository.getBotStatus(botConfig);
+            return botStatus == null ? newBotStatus(botId, STOPPED_STATUS) : botStatus;
         }
     }
 
@@ -87,19 +138,85 @@ public class BotStatusServiceImpl implements BotStatusService {
 
         LOG.info(() -> "About to fetch BotStatus for all bots...");
 
-        final List<BotStatus> allBotStatus = new ArrayList<>();
+        return getBotStatuses(botConfigRepository.findAll());
+    }
+
+    @Override
+    public BotPage<BotStatus> getBotStatusPage(BotPageRequest request) {
+
+        LOG.info(() -> "About to fetch BotStatus for page of bots: " + request);
+
+        final BotPage<BotConfig> botConfigPage = botConfigRepository.findPage(request);
+        return new BotPage<>(getBotStatuses(botConfigPage.getItems()), botConfigPage.getNextCursor());
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * Fetches the status of each Bot in parallel, returning them in the same order as the Bots.
+     * The Bots are called in order, each once one of the shared slots is free, until the overall deadline passes.
+     * Each status is completed by whichever comes first: the Bot's answer, or its timeout - the Bot's own deadline, or
+     * the overall deadline if that is sooner. So every status is complete by the overall deadline.
+     */
+    private List<BotStatus> getBotStatuses(List<BotConfig> botConfigs) {
+
+        final long deadline = System.nanoTime() + overallTimeoutNanos;
+        final List<CompletableFuture<BotStatus>> botStatuses = new ArrayList<>(botConfigs.size());
+
+        for (final BotConfig botConfig : botConfigs) {
+            final long remainingNanos = deadline - System.nanoTime();
+            if (!tryAcquire(remainingNanos)) {
+                LOG.warn("Ran out of time to fetch BotStatus for botId: " + botConfig.getId());
+                botStatuses.add(CompletableFuture.completedFuture(newBotStatus(botConfig.getId(), UNKNOWN_STATUS)));
+                continue;
+            }
+            botStatuses.add(fetchBotStatus(botConfig, Math.min(botTimeoutNanos, remainingNanos)));
+        }
+
+        return botStatuses.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
 
-        final List<BotConfig> allBotConfigs = botConfigRepository.findAll();
-        for (final BotConfig botConfig : allBotConfigs) {
+    private CompletableFuture<BotStatus> fetchBotStatus(BotConfig botConfig, long timeoutNanos) {
 
-            BotStatus botStatus = botProcessRepository.getBotStatus(botConfig);
-            if (botStatus == null) {
-                botStatus = new BotStatus();
-                botStatus.setId(botConfig.getId());
-                botStatus.setStatus("stopped"); // TODO use enum at some point...
+        final String botId = botConfig.getId();
+        final CompletableFuture<BotStatus> botStatus = new CompletableFuture<>();
+        final ScheduledFuture<?> timeout = timeouts.schedule(() -> {
+            if (botStatus.complete(newBotStatus(botId, UNKNOWN_STATUS))) {
+                LOG.warn("Timed out fetching BotStatus for botId: " + botId);
             }
-            allBotStatus.add(botStatus);
+        }, timeoutNanos, TimeUnit.NANOSECONDS);
+
+        CompletableFuture<BotStatus> remoteBotStatus;
+        try {
+            remoteBotStatus = botProcessRepository.getBotStatusAsync(botConfig);
+        } catch (RuntimeException e) {
+            remoteBotStatus = new CompletableFuture<>();
+            remoteBotStatus.completeExceptionally(e);
         }
-        return allBotStatus;
+
+        remoteBotStatus.whenComplete((fetched, error) -> {
+            slots.release();
+            timeout.cancel(false);
+            botStatus.complete(error == null && fetched != null ? fetched : newBotStatus(botId, STOPPED_STATUS));
+        });
+        return botStatus;
+    }
+
+    private boolean tryAcquire(long timeoutNanos) {
+        try {
+            return slots.tryAcquire(Math.max(timeoutNanos, 0), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static BotStatus newBotStatus(String botId, String status) {
+        final BotStatus botStatus = new BotStatus();
+        botStatus.setId(botId);
+        botStatus.setStatus(status);
+        return botStatus;
     }
-}
\ No newline at end of file
+}
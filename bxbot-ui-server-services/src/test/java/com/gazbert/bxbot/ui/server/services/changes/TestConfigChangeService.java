@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.changes;
+
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChanges;
+import com.gazbert.bxbot.ui.server.services.changes.impl.ConfigChangeServiceImpl;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Tests the config change log service behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestConfigChangeService {
+
+    private static final int LOG_CAPACITY = 3;
+    private static final long FIRST_SEQUENCE = 1000L;
+
+    private static final String BOT_ID = "gdax-bot-1";
+    private static final String MARKET_1_ID = "btc_usd";
+    private static final String MARKET_2_ID = "btc_gbp";
+
+    @Test
+    public void whenChangesAreRecordedThenOnlyChangesAfterTheGivenSequenceAreReturned() throws Exception {
+
+        final ConfigChangeService configChangeService = new ConfigChangeServiceImpl(LOG_CAPACITY, FIRST_SEQUENCE);
+        configChangeService.recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.CREATED, BOT_ID,
+                MARKET_1_ID, null);
+        configChangeService.recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.DELETED, BOT_ID,
+                MARKET_2_ID, null);
+        configChangeService.recordChange(ConfigChange.ConfigType.ENGINE, ConfigChange.Operation.UPDATED, BOT_ID,
+                null, null);
+
+        final ConfigChanges changes = configChangeService.getChangesSince(FIRST_SEQUENCE);
+        assertThat(changes.isResyncRequired()).isFalse();
+        assertThat(changes.getLatestSequence()).isEqualTo(FIRST_SEQUENCE + 2);
+        assertThat(changes.getChanges().stream().map(ConfigChange::getSequence).collect(Collectors.toList()))
+                .containsExactly(FIRST_SEQUENCE + 1, FIRST_SEQUENCE + 2);
+        assertThat(changes.getChanges().get(0).getOperation()).isEqualTo(ConfigChange.Operation.DELETED);
+        assertThat(changes.getChanges().get(0).getConfigId()).isEqualTo(MARKET_2_ID);
+        assertThat(changes.getChanges().get(1).getConfigType()).isEqualTo(ConfigChange.ConfigType.ENGINE);
+
+        final ConfigChanges noChanges = configChangeService.getChangesSince(FIRST_SEQUENCE + 2);
+        assertThat(noChanges.isResyncRequired()).isFalse();
+        assertThat(noChanges.getChanges()).isEmpty();
+    }
+
+    @Test
+    public void whenChangesHaveBeenDroppedFromTheLogThenResyncIsRequired() throws Exception {
+
+        final ConfigChangeService configChangeService = new ConfigChangeServiceImpl(LOG_CAPACITY, FIRST_SEQUENCE);
+        for (int i = 0; i < LOG_CAPACITY + 2; i++) {
+            configChangeService.recordChange(ConfigChange.ConfigType.BOT, ConfigChange.Operation.UPDATED, BOT_ID,
+                    BOT_ID, null);
+        }
+
+        // the first 2 changes have been dropped, so the oldest change in the log is FIRST_SEQUENCE + 2
+        final ConfigChanges dropped = configChangeService.getChangesSince(FIRST_SEQUENCE);
+        assertThat(dropped.isResyncRequired()).isTrue();
+        assertThat(dropped.getChanges()).isEmpty();
+        assertThat(dropped.getLatestSequence()).isEqualTo(FIRST_SEQUENCE + 4);
+
+        final ConfigChanges oldestKept = configChangeService.getChangesSince(FIRST_SEQUENCE + 1);
+        assertThat(oldestKept.isResyncRequired()).isFalse();
+        assertThat(oldestKept.getChanges().stream().map(ConfigChange::getSequence).collect(Collectors.toList()))
+                .containsExactly(FIRST_SEQUENCE + 2, FIRST_SEQUENCE + 3, FIRST_SEQUENCE + 4);
+    }
+
+    @Test
+    public void whenSequenceIsZeroOrFromBeforeARestartThenResyncIsRequired() throws Exception {
+
+        final ConfigChangeService configChangeService = new ConfigChangeServiceImpl(LOG_CAPACITY, FIRST_SEQUENCE);
+        assertThat(configChangeService.getChangesSince(0).isResyncRequired()).isTrue();
+        assertThat(configChangeService.getChangesSince(0).getLatestSequence()).isEqualTo(FIRST_SEQUENCE - 1);
+
+        // the previous run got further than this one has
+        assertThat(configChangeService.getChangesSince(FIRST_SEQUENCE + 10).isResyncRequired()).isTrue();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenSequenceIsNegativeThenExpectIllegalArgumentException() throws Exception {
+        new ConfigChangeServiceImpl(LOG_CAPACITY, FIRST_SEQUENCE).getChangesSince(-1);
+    }
+
+    @Test
+    public void whenChangeIsRecordedInTransactionThenItIsOnlyLoggedAfterCommit() throws Exception {
+
+        final ConfigChangeService configChangeService = new ConfigChangeServiceImpl(LOG_CAPACITY, FIRST_SEQUENCE);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            configChangeService.recordChange(ConfigChange.ConfigType.STRATEGY, ConfigChange.Operation.CREATED,
+                    BOT_ID, "macd-strategy", null);
+            assertThat(configChangeService.getChangesSince(FIRST_SEQUENCE - 1).getChanges()).isEmpty();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(configChangeService.getChangesSince(FIRST_SEQUENCE - 1).getChanges()).hasSize(1);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
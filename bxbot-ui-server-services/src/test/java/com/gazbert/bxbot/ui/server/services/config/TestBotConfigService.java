@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.config;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.SavedBotConfigs;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
+import com.gazbert.bxbot.ui.server.services.config.impl.BotConfigServiceImpl;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Tests the Bot configuration service behaves as expected.
+ *
+ * @author gazbert
+ */
+@RunWith(SpringRunner.class)
+public class TestBotConfigService {
+
+    private static final String BOT_1_ID = "bitstamp-bot-1";
+    private static final String BOT_1_NAME = "Bitstamp Bot";
+    private static final String BOT_1_BASE_URL = "https://hostname.one/api";
+    private static final String BOT_1_USERNAME = "admin";
+    private static final String BOT_1_PASSWORD = "password";
+
+    private static final String BOT_2_ID = "gdax-bot-1";
+    private static final String BOT_2_NAME = "GDAX Bot";
+    private static final String BOT_2_BASE_URL = "https://hostname.two/api";
+    private static final String BOT_2_USERNAME = "admin2";
+    private static final String BOT_2_PASSWORD = "password2";
+
+    @MockBean
+    BotConfigRepository botConfigRepository;
+
+    @MockBean
+    ConfigChangeService configChangeService;
+
+
+    @Test
+    public void whenImportBotConfigCalledWithValidConfigsThenExpectThemToBeSavedInOneGo() throws Exception {
+
+        final BotConfig bot1 = new BotConfig(BOT_1_ID, BOT_1_NAME, BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD);
+        final BotConfig bot2 = new BotConfig(null, BOT_2_NAME, BOT_2_BASE_URL, BOT_2_USERNAME, BOT_2_PASSWORD);
+        final List<BotConfig> configs = Arrays.asList(bot1, bot2);
+        final BotConfig savedBot2 = new BotConfig(BOT_2_ID, BOT_2_NAME, BOT_2_BASE_URL, BOT_2_USERNAME, BOT_2_PASSWORD);
+        final List<BotConfig> savedConfigs = Arrays.asList(bot1, savedBot2);
+        given(botConfigRepository.saveAll(configs))
+                .willReturn(new SavedBotConfigs(savedConfigs, Collections.singleton(BOT_2_ID)));
+
+        final BotConfigService botConfigService = new BotConfigServiceImpl(botConfigRepository, configChangeService);
+
+        final List<BotConfig> importedConfigs = botConfigService.importBotConfig(configs);
+        assertThat(importedConfigs).isEqualTo(savedConfigs);
+
+        verify(botConfigRepository, times(1)).saveAll(configs);
+        verify(configChangeService, times(1)).recordChange(ConfigChange.ConfigType.BOT,
+                ConfigChange.Operation.UPDATED, BOT_1_ID, BOT_1_ID, bot1);
+        verify(configChangeService, times(1)).recordChange(ConfigChange.ConfigType.BOT,
+                ConfigChange.Operation.CREATED, BOT_2_ID, BOT_2_ID, savedBot2);
+    }
+
+    @Test
+    public void whenImportBotConfigCalledWithInvalidConfigsThenExpectAllErrorsReportedAndNothingSaved()
+            throws Exception {
+
+        final BotConfig badId = new BotConfig("bad<id>", BOT_1_NAME, BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD);
+        final BotConfig missingUrl = new BotConfig(BOT_1_ID, BOT_1_NAME, null, BOT_1_USERNAME, BOT_1_PASSWORD);
+        final BotConfig duplicateId = new BotConfig(BOT_1_ID, "", BOT_2_BASE_URL, BOT_2_USERNAME, "");
+
+        final BotConfigService botConfigService = new BotConfigServiceImpl(botConfigRepository, configChangeService);
+
+        try {
+            botConfigService.importBotConfig(Arrays.asList(badId, missingUrl, duplicateId));
+            fail("Expected the import to be rejected");
+        } catch (InvalidBotConfigException e) {
+            assertThat(e.getErrors()).containsExactly(
+                    "Bot config [0] id contains characters other than letters, digits, /, _, - and space",
+                    "Bot config [1] baseUrl is required",
+                    "Bot config [2] id is a duplicate of an earlier config: " + BOT_1_ID,
+                    "Bot config [2] alias must not be empty if it is given",
+                    "Bot config [2] password is required");
+        }
+
+        verify(botConfigRepository, never()).saveAll(anyListOf(BotConfig.class));
+        verifyZeroInteractions(configChangeService);
+    }
+
+    @Test
+    public void whenUpdateBotConfigCalledForUnknownBotThenExpectNoChangeToBeRecorded() throws Exception {
+
+        final BotConfig unknownBot = new BotConfig(BOT_1_ID, BOT_1_NAME, BOT_1_BASE_URL, BOT_1_USERNAME,
+                BOT_1_PASSWORD);
+        given(botConfigRepository.save(unknownBot)).willReturn(new BotConfig());
+
+        final BotConfigService botConfigService = new BotConfigServiceImpl(botConfigRepository, configChangeService);
+        botConfigService.updateBotConfig(unknownBot);
+
+        verify(botConfigRepository, times(1)).save(unknownBot);
+        verifyZeroInteractions(configChangeService);
+    }
+
+    @Test
+    public void whenExportBotConfigCalledThenExpectBotConfigsToBeStreamedFromRepository() throws Exception {
+
+        final Consumer<BotConfig> consumer = config -> {
+        };
+
+        final BotConfigService botConfigService = new BotConfigServiceImpl(botConfigRepository, configChangeService);
+        botConfigService.exportBotConfig(consumer);
+
+        verify(botConfigRepository, times(1)).streamAll(consumer);
+        verify(botConfigRepository, never()).findAll();
+    }
+}
@@ -28,6 +28,7 @@ import com.gazbert.bxbot.ui.server.domain.emailalerts.EmailAlertsConfig;
 import com.gazbert.bxbot.ui.server.domain.emailalerts.SmtpConfig;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.config.EmailAlertsConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.EmailAlertsConfigService;
 import com.gazbert.bxbot.ui.server.services.config.impl.EmailAlertsConfigServiceImpl;
 import org.junit.Before;
@@ -74,6 +75,9 @@ public class TestEmailAlertsConfigService {
     @MockBean
     BotConfigRepository botConfigRepository;
 
+    @MockBean
+    ConfigChangeService configChangeService;
+
 
     @Before
     public void setup() throws Exception {
@@ -88,7 +92,7 @@ public class TestEmailAlertsConfigService {
         given(emailAlertsConfigRepository.get(knownBotConfig)).willReturn(emailAlertsConfig);
 
         final EmailAlertsConfigService emailAlertsConfigService =
-                new EmailAlertsConfigServiceImpl(emailAlertsConfigRepository, botConfigRepository);
+                new EmailAlertsConfigServiceImpl(emailAlertsConfigRepository, botConfigRepository, configChangeService);
 
         final EmailAlertsConfig emailAlertsConfig = emailAlertsConfigService.getEmailAlertsConfig(BOT_ID);
         assertThat(emailAlertsConfig.equals(this.emailAlertsConfig));
@@ -103,7 +107,7 @@ public class TestEmailAlertsConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final EmailAlertsConfigService emailAlertsConfigService =
-                new EmailAlertsConfigServiceImpl(emailAlertsConfigRepository, botConfigRepository);
+                new EmailAlertsConfigServiceImpl(emailAlertsConfigRepository, botConfigRepository, configChangeService);
 
         final EmailAlertsConfig emailAlertsConfig = emailAlertsConfigService.getEmailAlertsConfig(UNKNOWN_BOT_ID);
         assertThat(emailAlertsConfig == null);
@@ -118,7 +122,7 @@ public class TestEmailAlertsConfigService {
         given(emailAlertsConfigRepository.save(knownBotConfig, emailAlertsConfig)).willReturn(emailAlertsConfig);
 
         final EmailAlertsConfigService emailAlertsConfigService =
-                new EmailAlertsConfigServiceImpl(emailAlertsConfigRepository, botConfigRepository);
+                new EmailAlertsConfigServiceImpl(emailAlertsConfigRepository, botConfigRepository, configChangeService);
 
         final EmailAlertsConfig updatedConfig = emailAlertsConfigService.updateEmailAlertsConfig(BOT_ID, emailAlertsConfig);
         assertThat(updatedConfig.equals(emailAlertsConfig));
@@ -133,7 +137,7 @@ public class TestEmailAlertsConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final EmailAlertsConfigService emailAlertsConfigService =
-                new EmailAlertsConfigServiceImpl(emailAlertsConfigRepository, botConfigRepository);
+                new EmailAlertsConfigServiceImpl(emailAlertsConfigRepository, botConfigRepository, configChangeService);
 
         final EmailAlertsConfig updatedConfig = emailAlertsConfigService.updateEmailAlertsConfig(UNKNOWN_BOT_ID, emailAlertsConfig);
         assertThat(updatedConfig == null);
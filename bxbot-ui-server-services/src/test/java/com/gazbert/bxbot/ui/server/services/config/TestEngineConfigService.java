@@ -27,6 +27,7 @@ import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.engine.EngineConfig;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.config.EngineConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.impl.EngineConfigServiceImpl;
 import org.junit.Before;
 import org.junit.Test;
@@ -70,6 +71,9 @@ public class TestEngineConfigService {
     @MockBean
     BotConfigRepository botConfigRepository;
 
+    @MockBean
+    ConfigChangeService configChangeService;
+
 
     @Before
     public void setup() throws Exception {
@@ -84,7 +88,7 @@ public class TestEngineConfigService {
         given(engineConfigRepository.get(knownBotConfig)).willReturn(engineConfig);
 
         final EngineConfigService engineConfigService =
-                new EngineConfigServiceImpl(engineConfigRepository, botConfigRepository);
+                new EngineConfigServiceImpl(engineConfigRepository, botConfigRepository, configChangeService);
 
         final EngineConfig engineConfig = engineConfigService.getEngineConfig(BOT_ID);
         assertThat(engineConfig.equals(this.engineConfig));
@@ -99,7 +103,7 @@ public class TestEngineConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final EngineConfigService engineConfigService =
-                new EngineConfigServiceImpl(engineConfigRepository, botConfigRepository);
+                new EngineConfigServiceImpl(engineConfigRepository, botConfigRepository, configChangeService);
 
         final EngineConfig engineConfig = engineConfigService.getEngineConfig(UNKNOWN_BOT_ID);
         assertThat(engineConfig == null);
@@ -114,7 +118,7 @@ public class TestEngineConfigService {
         given(engineConfigRepository.save(knownBotConfig, engineConfig)).willReturn(engineConfig);
 
         final EngineConfigService engineConfigService =
-                new EngineConfigServiceImpl(engineConfigRepository, botConfigRepository);
+                new EngineConfigServiceImpl(engineConfigRepository, botConfigRepository, configChangeService);
 
         final EngineConfig updatedConfig = engineConfigService.updateEngineConfig(BOT_ID, engineConfig);
         assertThat(updatedConfig.equals(engineConfig));
@@ -129,7 +133,7 @@ public class TestEngineConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final EngineConfigService engineConfigService =
-                new EngineConfigServiceImpl(engineConfigRepository, botConfigRepository);
+                new EngineConfigServiceImpl(engineConfigRepository, botConfigRepository, configChangeService);
 
         final EngineConfig updatedConfig = engineConfigService.updateEngineConfig(UNKNOWN_BOT_ID, engineConfig);
         assertThat(updatedConfig == null);
@@ -29,6 +29,7 @@ import com.gazbert.bxbot.ui.server.domain.exchange.NetworkConfig;
 import com.gazbert.bxbot.ui.server.domain.exchange.OptionalConfig;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.config.ExchangeConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.impl.ExchangeConfigServiceImpl;
 import org.junit.Before;
 import org.junit.Test;
@@ -91,6 +92,9 @@ public class TestExchangeConfigService {
     @MockBean
     BotConfigRepository botConfigRepository;
 
+    @MockBean
+    ConfigChangeService configChangeService;
+
 
     @Before
     public void setup() throws Exception {
@@ -105,7 +109,7 @@ public class TestExchangeConfigService {
         given(exchangeConfigRepository.get(knownBotConfig)).willReturn(exchangeConfig);
 
         final ExchangeConfigService exchangeConfigService =
-                new ExchangeConfigServiceImpl(exchangeConfigRepository, botConfigRepository);
+                new ExchangeConfigServiceImpl(exchangeConfigRepository, botConfigRepository, configChangeService);
 
         final ExchangeConfig fetchedConfig = exchangeConfigService.getExchangeConfig(BOT_1_ID);
         assertThat(fetchedConfig.equals(exchangeConfig));
@@ -120,7 +124,7 @@ public class TestExchangeConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final ExchangeConfigService exchangeConfigService =
-                new ExchangeConfigServiceImpl(exchangeConfigRepository, botConfigRepository);
+                new ExchangeConfigServiceImpl(exchangeConfigRepository, botConfigRepository, configChangeService);
 
         final ExchangeConfig exchangeConfig = exchangeConfigService.getExchangeConfig(UNKNOWN_BOT_ID);
         assertThat(exchangeConfig == null);
@@ -135,7 +139,7 @@ public class TestExchangeConfigService {
         given(exchangeConfigRepository.save(knownBotConfig, exchangeConfig)).willReturn(exchangeConfig);
 
         final ExchangeConfigService exchangeConfigService =
-                new ExchangeConfigServiceImpl(exchangeConfigRepository, botConfigRepository);
+                new ExchangeConfigServiceImpl(exchangeConfigRepository, botConfigRepository, configChangeService);
 
         final ExchangeConfig updatedConfig = exchangeConfigService.updateExchangeConfig(BOT_1_ID, exchangeConfig);
         assertThat(updatedConfig.equals(exchangeConfig));
@@ -150,7 +154,7 @@ public class TestExchangeConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final ExchangeConfigService exchangeConfigService =
-                new ExchangeConfigServiceImpl(exchangeConfigRepository, botConfigRepository);
+                new ExchangeConfigServiceImpl(exchangeConfigRepository, botConfigRepository, configChangeService);
 
         final ExchangeConfig updatedConfig = exchangeConfigService.updateExchangeConfig(UNKNOWN_BOT_ID, exchangeConfig);
         assertThat(updatedConfig == null);
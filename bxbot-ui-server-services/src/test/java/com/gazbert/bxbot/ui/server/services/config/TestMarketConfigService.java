@@ -24,9 +24,11 @@
 package com.gazbert.bxbot.ui.server.services.config;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
 import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.config.MarketConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.MarketConfigService;
 import com.gazbert.bxbot.ui.server.services.config.impl.MarketConfigServiceImpl;
 import org.junit.Before;
@@ -44,6 +46,7 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 /**
  * Tests the Market configuration service behaves as expected.
@@ -85,6 +88,9 @@ public class TestMarketConfigService {
     @MockBean
     BotConfigRepository botConfigRepository;
 
+    @MockBean
+    ConfigChangeService configChangeService;
+
 
     @Before
     public void setup() throws Exception {
@@ -106,7 +112,7 @@ public class TestMarketConfigService {
         given(marketConfigRepository.findAll(knownBotConfig)).willReturn(allTheMarketConfig);
 
         final MarketConfigService marketConfigService =
-                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository);
+                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository, configChangeService);
 
         final List<MarketConfig> allMarketConfig = marketConfigService.getAllMarketConfig(BOT_1_ID);
         assertThat(allMarketConfig.equals(allTheMarketConfig));
@@ -121,7 +127,7 @@ public class TestMarketConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final MarketConfigService marketConfigService =
-                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository);
+                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository, configChangeService);
 
         final List<MarketConfig> allMarketConfig = marketConfigService.getAllMarketConfig(UNKNOWN_BOT_ID);
         assertThat(allMarketConfig.equals(new ArrayList<>()));
@@ -136,7 +142,7 @@ public class TestMarketConfigService {
         given(marketConfigRepository.findById(knownBotConfig, MARKET_1_ID)).willReturn(marketConfig_1);
 
         final MarketConfigService marketConfigService =
-                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository);
+                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository, configChangeService);
 
         final MarketConfig fetchedConfig = marketConfigService.getMarketConfig(BOT_1_ID, MARKET_1_ID);
         assertThat(fetchedConfig.equals(marketConfig_1));
@@ -151,7 +157,7 @@ public class TestMarketConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final MarketConfigService marketConfigService =
-                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository);
+                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository, configChangeService);
 
         final MarketConfig fetchedConfig = marketConfigService.getMarketConfig(UNKNOWN_BOT_ID, MARKET_1_ID);
         assertThat(fetchedConfig == null);
@@ -166,13 +172,15 @@ public class TestMarketConfigService {
         given(marketConfigRepository.save(knownBotConfig, marketConfig_1)).willReturn(marketConfig_1);
 
         final MarketConfigService marketConfigService =
-                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository);
+                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository, configChangeService);
 
         final MarketConfig updatedConfig = marketConfigService.updateMarketConfig(BOT_1_ID, marketConfig_1);
         assertThat(updatedConfig.equals(marketConfig_1));
 
         verify(botConfigRepository, times(1)).findById(BOT_1_ID);
         verify(marketConfigRepository, times(1)).save(knownBotConfig, marketConfig_1);
+        verify(configChangeService, times(1)).recordChange(ConfigChange.ConfigType.MARKET,
+                ConfigChange.Operation.UPDATED, BOT_1_ID, MARKET_1_ID, marketConfig_1);
     }
 
     @Test
@@ -181,12 +189,13 @@ public class TestMarketConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final MarketConfigService marketConfigService =
-                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository);
+                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository, configChangeService);
 
         final MarketConfig updatedConfig = marketConfigService.updateMarketConfig(UNKNOWN_BOT_ID, marketConfig_1);
         assertThat(updatedConfig == null);
 
         verify(botConfigRepository, times(1)).findById(UNKNOWN_BOT_ID);
+        verifyZeroInteractions(configChangeService);
     }
 
     @Test
@@ -196,7 +205,7 @@ public class TestMarketConfigService {
         given(marketConfigRepository.save(knownBotConfig, marketConfig_1)).willReturn(marketConfig_1);
 
         final MarketConfigService marketConfigService =
-                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository);
+                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository, configChangeService);
 
         final MarketConfig createdConfig = marketConfigService.createMarketConfig(BOT_1_ID, marketConfig_1);
         assertThat(createdConfig.equals(marketConfig_1));
@@ -211,7 +220,7 @@ public class TestMarketConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final MarketConfigService marketConfigService =
-                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository);
+                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository, configChangeService);
 
         final MarketConfig createdConfig = marketConfigService.createMarketConfig(UNKNOWN_BOT_ID, marketConfig_1);
         assertThat(createdConfig == null);
@@ -226,12 +235,14 @@ public class TestMarketConfigService {
         given(marketConfigRepository.delete(knownBotConfig, MARKET_1_ID)).willReturn(true);
 
         final MarketConfigService marketConfigService =
-                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository);
+                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository, configChangeService);
 
         assertTrue(marketConfigService.deleteMarketConfig(BOT_1_ID, MARKET_1_ID));
 
         verify(botConfigRepository, times(1)).findById(BOT_1_ID);
         verify(marketConfigRepository, times(1)).delete(knownBotConfig, MARKET_1_ID);
+        verify(configChangeService, times(1)).recordChange(ConfigChange.ConfigType.MARKET,
+                ConfigChange.Operation.DELETED, BOT_1_ID, MARKET_1_ID, null);
     }
 
     @Test
@@ -240,7 +251,7 @@ public class TestMarketConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final MarketConfigService strategyConfigService =
-                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository);
+                new MarketConfigServiceImpl(marketConfigRepository, botConfigRepository, configChangeService);
 
         assertFalse(strategyConfigService.deleteMarketConfig(UNKNOWN_BOT_ID, MARKET_1_ID));
 
@@ -27,6 +27,7 @@ import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
 import com.gazbert.bxbot.ui.server.domain.strategy.StrategyConfig;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.config.StrategyConfigRepository;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
 import com.gazbert.bxbot.ui.server.services.config.StrategyConfigService;
 import com.gazbert.bxbot.ui.server.services.config.impl.StrategyConfigServiceImpl;
 import org.junit.Before;
@@ -88,6 +89,9 @@ public class TestStrategyConfigService {
     @MockBean
     BotConfigRepository botConfigRepository;
 
+    @MockBean
+    ConfigChangeService configChangeService;
+
 
     @Before
     public void setup() throws Exception {
@@ -108,7 +112,7 @@ public class TestStrategyConfigService {
         given(strategyConfigRepository.findAll(knownBotConfig)).willReturn(allTheStrategiesConfig);
 
         final StrategyConfigService strategyConfigService =
-                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository);
+                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository, configChangeService);
 
         final List<StrategyConfig> strategyConfigs = strategyConfigService.getAllStrategyConfig(BOT_1_ID);
         assertThat(strategyConfigs.equals(allTheStrategiesConfig));
@@ -123,7 +127,7 @@ public class TestStrategyConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final StrategyConfigService strategyConfigService =
-                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository);
+                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository, configChangeService);
 
         final List<StrategyConfig> strategyConfigs = strategyConfigService.getAllStrategyConfig(UNKNOWN_BOT_ID);
         assertThat(strategyConfigs.equals(new ArrayList<>()));
@@ -138,7 +142,7 @@ public class TestStrategyConfigService {
         given(strategyConfigRepository.findById(knownBotConfig, STRAT_1_ID)).willReturn(strategyConfig_1);
 
         final StrategyConfigService strategyConfigService =
-                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository);
+                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository, configChangeService);
 
         final StrategyConfig fetchedConfig = strategyConfigService.getStrategyConfig(BOT_1_ID, STRAT_1_ID);
         assertThat(fetchedConfig.equals(strategyConfig_1));
@@ -153,7 +157,7 @@ public class TestStrategyConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final StrategyConfigService strategyConfigService =
-                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository);
+                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository, configChangeService);
 
         final StrategyConfig fetchedConfig = strategyConfigService.getStrategyConfig(UNKNOWN_BOT_ID, STRAT_1_ID);
         assertThat(fetchedConfig == null);
@@ -168,7 +172,7 @@ public class TestStrategyConfigService {
         given(strategyConfigRepository.save(knownBotConfig, strategyConfig_1)).willReturn(strategyConfig_1);
 
         final StrategyConfigService strategyConfigService =
-                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository);
+                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository, configChangeService);
 
         final StrategyConfig updatedConfig = strategyConfigService.updateStrategyConfig(BOT_1_ID, strategyConfig_1);
         assertThat(updatedConfig.equals(strategyConfig_1));
@@ -183,7 +187,7 @@ public class TestStrategyConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final StrategyConfigService strategyConfigService =
-                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository);
+                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository, configChangeService);
 
         final StrategyConfig updatedConfig = strategyConfigService.updateStrategyConfig(UNKNOWN_BOT_ID, strategyConfig_1);
         assertThat(updatedConfig == null);
@@ -198,7 +202,7 @@ public class TestStrategyConfigService {
         given(strategyConfigRepository.save(knownBotConfig, strategyConfig_1)).willReturn(strategyConfig_1);
 
         final StrategyConfigService strategyConfigService =
-                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository);
+                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository, configChangeService);
 
         final StrategyConfig createdConfig = strategyConfigService.createStrategyConfig(BOT_1_ID, strategyConfig_1);
         assertThat(createdConfig.equals(strategyConfig_1));
@@ -213,7 +217,7 @@ public class TestStrategyConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final StrategyConfigService strategyConfigService =
-                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository);
+                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository, configChangeService);
 
         final StrategyConfig createdConfig = strategyConfigService.createStrategyConfig(UNKNOWN_BOT_ID, strategyConfig_1);
         assertThat(createdConfig == null);
@@ -228,7 +232,7 @@ public class TestStrategyConfigService {
         given(strategyConfigRepository.delete(knownBotConfig, STRAT_1_ID)).willReturn(true);
 
         final StrategyConfigService strategyConfigService =
-                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository);
+                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository, configChangeService);
 
         assertTrue(strategyConfigService.deleteStrategyConfig(BOT_1_ID, STRAT_1_ID));
 
@@ -242,7 +246,7 @@ public class TestStrategyConfigService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final StrategyConfigService strategyConfigService =
-                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository);
+                new StrategyConfigServiceImpl(strategyConfigRepository, botConfigRepository, configChangeService);
 
         assertFalse(strategyConfigService.deleteStrategyConfig(UNKNOWN_BOT_ID, STRAT_1_ID));
 
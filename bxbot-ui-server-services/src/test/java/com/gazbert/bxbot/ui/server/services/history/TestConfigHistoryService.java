@@ -0,0 +1,298 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.history;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.emailalerts.EmailAlertsConfig;
+import com.gazbert.bxbot.ui.server.domain.emailalerts.SmtpConfig;
+import com.gazbert.bxbot.ui.server.domain.history.ConfigVersion;
+import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
+import com.gazbert.bxbot.ui.server.domain.strategy.StrategyConfig;
+import com.gazbert.bxbot.ui.server.repository.local.impl.ConfigHistoryRepositoryFileStore;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
+import com.gazbert.bxbot.ui.server.services.changes.impl.ConfigChangeServiceImpl;
+import com.gazbert.bxbot.ui.server.services.config.BotConfigService;
+import com.gazbert.bxbot.ui.server.services.config.EmailAlertsConfigService;
+import com.gazbert.bxbot.ui.server.services.config.EngineConfigService;
+import com.gazbert.bxbot.ui.server.services.config.ExchangeConfigService;
+import com.gazbert.bxbot.ui.server.services.config.MarketConfigService;
+import com.gazbert.bxbot.ui.server.services.config.StrategyConfigService;
+import com.gazbert.bxbot.ui.server.services.history.impl.ConfigHistoryServiceImpl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests the config history service behaves as expected.
+ *
+ * @author gazbert
+ */
+@RunWith(SpringRunner.class)
+public class TestConfigHistoryService {
+
+    private static final String BOT_1_ID = "bitstamp-bot-1";
+    private static final String BOT_2_ID = "gdax-bot-1";
+    private static final String MARKET_ID = "btc_usd";
+    private static final String STRATEGY_ID = "scalper-strategy";
+
+    private static final long TIME_1 = 1510000000000L;
+    private static final long TIME_2 = TIME_1 + 1000;
+    private static final long TIME_3 = TIME_1 + 2000;
+    private static final long TIME_4 = TIME_1 + 3000;
+
+    @MockBean
+    BotConfigService botConfigService;
+
+    @MockBean
+    MarketConfigService marketConfigService;
+
+    @MockBean
+    StrategyConfigService strategyConfigService;
+
+    @MockBean
+    EngineConfigService engineConfigService;
+
+    @MockBean
+    ExchangeConfigService exchangeConfigService;
+
+    @MockBean
+    EmailAlertsConfigService emailAlertsConfigService;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Clock clock;
+    private ConfigChangeService configChangeService;
+    private ConfigHistoryService configHistoryService;
+
+    @Before
+    public void setup() throws Exception {
+
+        clock = mock(Clock.class);
+        configChangeService = new ConfigChangeServiceImpl(100, 1L);
+        final ConfigHistoryServiceImpl configHistoryServiceImpl = new ConfigHistoryServiceImpl(
+                new ConfigHistoryRepositoryFileStore(folder.newFolder("history").getPath()), configChangeService,
+                botConfigService, marketConfigService, strategyConfigService, engineConfigService,
+                exchangeConfigService, emailAlertsConfigService, clock);
+        configHistoryServiceImpl.listenForChanges();
+        configHistoryService = configHistoryServiceImpl;
+    }
+
+    @Test
+    public void whenSameConfigIsPushedToTwoBotsThenExpectVersionsForEachBotSharingOneContentHash() throws Exception {
+
+        given(clock.millis()).willReturn(TIME_1, TIME_2);
+        recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.CREATED, BOT_1_ID, MARKET_ID,
+                market("BTC/USD"));
+        recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.CREATED, BOT_2_ID, MARKET_ID,
+                market("BTC/USD"));
+
+        final List<ConfigVersion> bot1History = configHistoryService.getHistory(BOT_1_ID);
+        final List<ConfigVersion> bot2History = configHistoryService.getHistory(BOT_2_ID);
+        assertThat(bot1History).hasSize(1);
+        assertThat(bot2History).hasSize(1);
+        assertThat(bot1History.get(0).getVersion()).isEqualTo(1L);
+        assertThat(bot1History.get(0).getTimestamp()).isEqualTo(TIME_1);
+        assertThat(bot1History.get(0).getConfig()).isNull();
+        assertThat(bot2History.get(0).getContentHash()).isEqualTo(bot1History.get(0).getContentHash());
+
+        final ConfigVersion version = configHistoryService.getVersion(BOT_2_ID, 1L);
+        assertThat(version.getConfig()).isEqualTo(market("BTC/USD"));
+        assertThat(configHistoryService.getVersion(BOT_2_ID, 2L)).isNull();
+    }
+
+    @Test
+    public void whenConfigAsOfTimeIsFetchedThenExpectLatestVersionOfEachConfigNotDeletedByThen() throws Exception {
+
+        given(clock.millis()).willReturn(TIME_1, TIME_2, TIME_3, TIME_4);
+        recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.CREATED, BOT_1_ID, MARKET_ID,
+                market("BTC/USD"));
+        recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.UPDATED, BOT_1_ID, MARKET_ID,
+                market("BTC/USD v2"));
+        recordChange(ConfigChange.ConfigType.STRATEGY, ConfigChange.Operation.CREATED, BOT_1_ID, STRATEGY_ID,
+                strategy());
+        recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.DELETED, BOT_1_ID, MARKET_ID, null);
+
+        assertThat(configHistoryService.getConfigAsOf(BOT_1_ID, TIME_1 - 1)).isEmpty();
+
+        final List<ConfigVersion> asOfTime2 = configHistoryService.getConfigAsOf(BOT_1_ID, TIME_2);
+        assertThat(asOfTime2).hasSize(1);
+        assertThat(asOfTime2.get(0).getVersion()).isEqualTo(2L);
+        assertThat(asOfTime2.get(0).getConfig()).isEqualTo(market("BTC/USD v2"));
+
+        final List<ConfigVersion> asOfTime3 = configHistoryService.getConfigAsOf(BOT_1_ID, TIME_3);
+        assertThat(asOfTime3).hasSize(2);
+        assertThat(asOfTime3.get(1).getConfig()).isEqualTo(strategy());
+
+        final List<ConfigVersion> asOfTime4 = configHistoryService.getConfigAsOf(BOT_1_ID, TIME_4);
+        assertThat(asOfTime4).hasSize(1);
+        assertThat(asOfTime4.get(0).getConfigType()).isEqualTo(ConfigChange.ConfigType.STRATEGY);
+    }
+
+    @Test
+    public void whenRolledBackThenExpectVersionToBePushedToBotAgainOrDeleted() throws Exception {
+
+        given(clock.millis()).willReturn(TIME_1, TIME_2, TIME_3, TIME_4);
+        recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.CREATED, BOT_1_ID, MARKET_ID,
+                market("BTC/USD"));
+        recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.UPDATED, BOT_1_ID, MARKET_ID,
+                market("BTC/USD v2"));
+        recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.DELETED, BOT_1_ID, MARKET_ID, null);
+        final BotConfig botConfig = new BotConfig(BOT_1_ID, "Bitstamp", "https://hostname.one/api", "admin", "pw");
+        botConfig.setVersion(5L);
+        recordChange(ConfigChange.ConfigType.BOT, ConfigChange.Operation.UPDATED, BOT_1_ID, BOT_1_ID, botConfig);
+
+        given(marketConfigService.updateMarketConfig(BOT_1_ID, market("BTC/USD"))).willReturn(market("BTC/USD"));
+        assertThat(configHistoryService.rollback(BOT_1_ID, 1L).getConfig()).isEqualTo(market("BTC/USD"));
+        verify(marketConfigService, times(1)).updateMarketConfig(BOT_1_ID, market("BTC/USD"));
+
+        assertThat(configHistoryService.rollback(BOT_1_ID, 3L).getOperation())
+                .isEqualTo(ConfigChange.Operation.DELETED);
+        verify(marketConfigService, times(1)).deleteMarketConfig(BOT_1_ID, MARKET_ID);
+
+        @SuppressWarnings("unchecked") final ArgumentCaptor<List<BotConfig>> imported =
+                ArgumentCaptor.forClass((Class) List.class);
+        given(botConfigService.getBotConfig(BOT_1_ID)).willReturn(
+                new BotConfig(BOT_1_ID, "Bitstamp v2", "https://hostname.one/api", "admin", "current-pw"));
+        given(botConfigService.importBotConfig(anyListOf(BotConfig.class)))
+                .willReturn(Collections.singletonList(botConfig));
+        assertThat(((BotConfig) configHistoryService.rollback(BOT_1_ID, 4L).getConfig()).getPassword()).isNull();
+        verify(botConfigService, times(1)).importBotConfig(imported.capture());
+        assertThat(imported.getValue().get(0).getAlias()).isEqualTo("Bitstamp");
+        assertThat(imported.getValue().get(0).getPassword()).isEqualTo("current-pw");
+        assertThat(imported.getValue().get(0).getVersion()).isNull();
+
+        assertThat(configHistoryService.rollback(BOT_1_ID, 99L)).isNull();
+    }
+
+    @Test
+    public void whenConfigWithPasswordIsRecordedThenExpectPasswordToBeLeftOutOfHistory() throws Exception {
+
+        given(clock.millis()).willReturn(TIME_1, TIME_2);
+        recordChange(ConfigChange.ConfigType.BOT, ConfigChange.Operation.CREATED, BOT_1_ID, BOT_1_ID,
+                new BotConfig(BOT_1_ID, "Bitstamp", "https://hostname.one/api", "admin", "bot-pw"));
+        recordChange(ConfigChange.ConfigType.EMAIL_ALERTS, ConfigChange.Operation.UPDATED, BOT_1_ID, null,
+                emailAlerts("smtp-pw"));
+
+        final BotConfig botConfig = (BotConfig) configHistoryService.getVersion(BOT_1_ID, 1L).getConfig();
+        assertThat(botConfig.getUsername()).isEqualTo("admin");
+        assertThat(botConfig.getPassword()).isNull();
+        final EmailAlertsConfig emailAlertsConfig =
+                (EmailAlertsConfig) configHistoryService.getVersion(BOT_1_ID, 2L).getConfig();
+        assertThat(emailAlertsConfig.getSmtpConfig().getAccountUsername()).isEqualTo("alerts@example.com");
+        assertThat(emailAlertsConfig.getSmtpConfig().getAccountPassword()).isNull();
+
+        // Only the other fields count towards the content hash
+        recordChange(ConfigChange.ConfigType.BOT, ConfigChange.Operation.UPDATED, BOT_1_ID, BOT_1_ID,
+                new BotConfig(BOT_1_ID, "Bitstamp", "https://hostname.one/api", "admin", "new-bot-pw"));
+        final List<ConfigVersion> history = configHistoryService.getHistory(BOT_1_ID);
+        assertThat(history.get(2).getContentHash()).isEqualTo(history.get(0).getContentHash());
+
+        given(emailAlertsConfigService.getEmailAlertsConfig(BOT_1_ID)).willReturn(emailAlerts("current-smtp-pw"));
+        given(emailAlertsConfigService.updateEmailAlertsConfig(anyString(), any(EmailAlertsConfig.class)))
+                .willReturn(emailAlerts("current-smtp-pw"));
+        configHistoryService.rollback(BOT_1_ID, 2L);
+        final ArgumentCaptor<EmailAlertsConfig> pushed = ArgumentCaptor.forClass(EmailAlertsConfig.class);
+        verify(emailAlertsConfigService, times(1)).updateEmailAlertsConfig(anyString(), pushed.capture());
+        assertThat(pushed.getValue().getSmtpConfig().getAccountPassword()).isEqualTo("current-smtp-pw");
+    }
+
+    @Test
+    public void whenDeletedBotIsRolledBackThenExpectIllegalStateException() throws Exception {
+
+        given(clock.millis()).willReturn(TIME_1);
+        recordChange(ConfigChange.ConfigType.BOT, ConfigChange.Operation.CREATED, BOT_1_ID, BOT_1_ID,
+                new BotConfig(BOT_1_ID, "Bitstamp", "https://hostname.one/api", "admin", "bot-pw"));
+        given(botConfigService.getBotConfig(BOT_1_ID)).willReturn(new BotConfig());
+
+        try {
+            configHistoryService.rollback(BOT_1_ID, 1L);
+            fail("Expected the rollback to fail");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("password");
+        }
+        verify(botConfigService, never()).importBotConfig(anyListOf(BotConfig.class));
+    }
+
+    @Test
+    public void whenRolledBackVersionCannotBePushedToBotThenExpectIllegalStateException() throws Exception {
+
+        given(clock.millis()).willReturn(TIME_1);
+        recordChange(ConfigChange.ConfigType.MARKET, ConfigChange.Operation.CREATED, BOT_1_ID, MARKET_ID,
+                market("BTC/USD"));
+        given(marketConfigService.updateMarketConfig(BOT_1_ID, market("BTC/USD"))).willReturn(null);
+
+        try {
+            configHistoryService.rollback(BOT_1_ID, 1L);
+            fail("Expected the rollback to fail");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("version 1");
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private void recordChange(ConfigChange.ConfigType configType, ConfigChange.Operation operation, String botId,
+                              String configId, Object config) {
+        configChangeService.recordChange(configType, operation, botId, configId, config);
+    }
+
+    private static MarketConfig market(String name) {
+        return new MarketConfig(MARKET_ID, name, true, "BTC", "USD", STRATEGY_ID);
+    }
+
+    private static EmailAlertsConfig emailAlerts(String accountPassword) {
+        return new EmailAlertsConfig(null, true, new SmtpConfig("smtp.example.com", 587, "alerts@example.com",
+                accountPassword, "bot@example.com", "me@example.com"));
+    }
+
+    private static StrategyConfig strategy() {
+        return new StrategyConfig(STRATEGY_ID, "Basic Scalping Strat", "A simple scalper",
+                "com.gazbert.nova.algos.ScalperStrategy", Collections.singletonMap("counter-currency-buy-order-amount",
+                "20"));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.services.replica;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.change.ConfigChange;
+import com.gazbert.bxbot.ui.server.domain.market.MarketConfig;
+import com.gazbert.bxbot.ui.server.repository.local.ReplicaBotConfigRepository;
+import com.gazbert.bxbot.ui.server.repository.local.impl.BotConfigRepositoryReplica;
+import com.gazbert.bxbot.ui.server.services.changes.ConfigChangeService;
+import com.gazbert.bxbot.ui.server.services.changes.impl.ConfigChangeServiceImpl;
+import com.gazbert.bxbot.ui.server.services.replica.impl.ReplicaSyncServiceImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Tests the read replica sync service behaves as expected against a mock primary server.
+ *
+ * @author gazbert
+ */
+public class TestReplicaSyncService {
+
+    private static final String PRIMARY_URL = "http://primary.local:8080";
+    private static final String PRIMARY_USERNAME = "admin";
+    private static final String PRIMARY_PASSWORD = "admin";
+
+    private static final long REPLICA_FIRST_SEQUENCE = 1000L;
+
+    private static final String BOT_1_ID = "bitstamp-bot-1";
+    private static final String BOT_2_ID = "gdax-bot-1";
+    private static final String MARKET_ID = "btc_usd";
+
+    private MockRestServiceServer primaryServer;
+    private ReplicaBotConfigRepository replicaBotConfigRepository;
+    private ConfigChangeService configChangeService;
+    private ReplicaSyncService replicaSyncService;
+
+    @Before
+    public void setup() {
+        replicaBotConfigRepository = new BotConfigRepositoryReplica();
+        configChangeService = new ConfigChangeServiceImpl(100, REPLICA_FIRST_SEQUENCE);
+        replicaSyncService = new ReplicaSyncServiceImpl(replicaBotConfigRepository, configChangeService,
+                new RestTemplateBuilder(restTemplate -> primaryServer = MockRestServiceServer.bindTo(restTemplate)
+                        .build()),
+                new ObjectMapper(), PRIMARY_URL, PRIMARY_USERNAME, PRIMARY_PASSWORD, 1000L);
+    }
+
+    @Test
+    public void whenSyncedThenExpectSnapshotToBeLoadedAndThenPrimarysChangesApplied() throws Exception {
+
+        expectLogin("token-1");
+        expectSnapshot("token-1", 10L, "[" + bot(BOT_1_ID, "Bitstamp", 3) + "," + bot(BOT_2_ID, "GDAX", 1) + "]");
+        replicaSyncService.sync();
+
+        primaryServer.verify();
+        assertThat(ids(replicaBotConfigRepository.findAll())).containsExactly(BOT_1_ID, BOT_2_ID);
+        assertThat(replicaBotConfigRepository.findById(BOT_1_ID).getVersion()).isEqualTo(3L);
+
+        primaryServer.reset();
+        expectChanges("token-1", 10L, changes(13L,
+                change(11L, "BOT", "UPDATED", BOT_1_ID, BOT_1_ID, bot(BOT_1_ID, "Bitstamp Renamed", 4)),
+                change(12L, "BOT", "DELETED", BOT_2_ID, BOT_2_ID, "null"),
+                change(13L, "MARKET", "UPDATED", BOT_1_ID, MARKET_ID, "{'id':'btc_usd','name':'BTC/USD'}")));
+        replicaSyncService.sync();
+
+        primaryServer.verify();
+        assertThat(ids(replicaBotConfigRepository.findAll())).containsExactly(BOT_1_ID);
+        assertThat(replicaBotConfigRepository.findById(BOT_1_ID).getAlias()).isEqualTo("Bitstamp Renamed");
+        assertThat(replicaBotConfigRepository.findById(BOT_1_ID).getVersion()).isEqualTo(4L);
+
+        // The snapshot's 2 Bots, then the 3 changes - in the replica's own sequence
+        final List<ConfigChange> replicaChanges =
+                configChangeService.getChangesSince(REPLICA_FIRST_SEQUENCE - 1).getChanges();
+        assertThat(replicaChanges).hasSize(5);
+        assertThat(replicaChanges.get(0).getOperation()).isEqualTo(ConfigChange.Operation.CREATED);
+        assertThat(replicaChanges.get(3).getOperation()).isEqualTo(ConfigChange.Operation.DELETED);
+        assertThat(replicaChanges.get(3).getConfigId()).isEqualTo(BOT_2_ID);
+        assertThat(replicaChanges.get(4).getConfigType()).isEqualTo(ConfigChange.ConfigType.MARKET);
+        assertThat(((MarketConfig) replicaChanges.get(4).getConfig()).getName()).isEqualTo("BTC/USD");
+    }
+
+    @Test
+    public void whenReplicaHasFallenBehindPrimarysChangeLogThenExpectNewSnapshotToBeLoaded() throws Exception {
+
+        expectLogin("token-1");
+        expectSnapshot("token-1", 10L, "[" + bot(BOT_1_ID, "Bitstamp", 3) + "," + bot(BOT_2_ID, "GDAX", 1) + "]");
+        replicaSyncService.sync();
+        primaryServer.verify();
+
+        primaryServer.reset();
+        expectChanges("token-1", 10L, "{'data':{'changes':[],'latestSequence':90000,'resyncRequired':true}}");
+        expectSnapshot("token-1", 90000L, "[" + bot(BOT_1_ID, "Bitstamp", 3) + "]");
+        replicaSyncService.sync();
+
+        primaryServer.verify();
+        assertThat(ids(replicaBotConfigRepository.findAll())).containsExactly(BOT_1_ID);
+
+        // Only the Bot the new snapshot dropped is recorded as a change; Bot 1 is at the same version
+        final List<ConfigChange> replicaChanges =
+                configChangeService.getChangesSince(REPLICA_FIRST_SEQUENCE + 1).getChanges();
+        assertThat(replicaChanges).hasSize(1);
+        assertThat(replicaChanges.get(0).getOperation()).isEqualTo(ConfigChange.Operation.DELETED);
+        assertThat(replicaChanges.get(0).getBotId()).isEqualTo(BOT_2_ID);
+    }
+
+    @Test
+    public void whenPrimaryRejectsTokenThenExpectReplicaToLoginAgain() throws Exception {
+
+        expectLogin("token-1");
+        expectSnapshot("token-1", 10L, "[]");
+        replicaSyncService.sync();
+        primaryServer.verify();
+
+        primaryServer.reset();
+        primaryServer.expect(requestTo(PRIMARY_URL + "/api/v1/changes?since=10"))
+                .andExpect(header("Authorization", "Bearer token-1"))
+                .andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+        expectLogin("token-2");
+        expectChanges("token-2", 10L, changes(11L,
+                change(11L, "BOT", "CREATED", BOT_1_ID, BOT_1_ID, bot(BOT_1_ID, "Bitstamp", 1))));
+        replicaSyncService.sync();
+
+        primaryServer.verify();
+        assertThat(ids(replicaBotConfigRepository.findAll())).containsExactly(BOT_1_ID);
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private void expectLogin(String token) {
+        primaryServer.expect(requestTo(PRIMARY_URL + "/auth"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess(json("{'token':'" + token + "'}"), MediaType.APPLICATION_JSON));
+    }
+
+    private void expectSnapshot(String token, long latestSequence, String bots) {
+        expectChanges(token, 0L, "{'data':{'changes':[],'latestSequence':" + latestSequence
+                + ",'resyncRequired':true}}");
+        primaryServer.expect(requestTo(PRIMARY_URL + "/api/v1/config/bots/export"))
+                .andExpect(header("Authorization", "Bearer " + token))
+                .andRespond(withSuccess(json(bots), MediaType.APPLICATION_JSON));
+    }
+
+    private void expectChanges(String token, long since, String changes) {
+        primaryServer.expect(requestTo(PRIMARY_URL + "/api/v1/changes?since=" + since))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header("Authorization", "Bearer " + token))
+                .andRespond(withSuccess(json(changes), MediaType.APPLICATION_JSON));
+    }
+
+    private static String changes(long latestSequence, String... changes) {
+        return "{'data':{'changes':[" + String.join(",", changes) + "],'latestSequence':" + latestSequence
+                + ",'resyncRequired':false}}";
+    }
+
+    private static String change(long sequence, String configType, String operation, String botId,
+                                 String configId, String config) {
+        return "{'sequence':" + sequence + ",'configType':'" + configType + "','operation':'" + operation
+                + "','botId':'" + botId + "','configId':'" + configId + "','config':" + config + "}";
+    }
+
+    private static String bot(String id, String alias, long version) {
+        return "{'id':'" + id + "','alias':'" + alias + "','baseUrl':'https://" + id + "/api',"
+                + "'username':'admin','password':'password','version':" + version + "}";
+    }
+
+    private static String json(String singleQuoted) {
+        return singleQuoted.replace('\'', '"');
+    }
+
+    private static List<String> ids(List<BotConfig> botConfigs) {
+        return botConfigs.stream().map(BotConfig::getId).collect(Collectors.toList());
+    }
+}
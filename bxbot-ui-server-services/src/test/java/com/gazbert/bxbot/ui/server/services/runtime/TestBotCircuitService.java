@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.services.runtime;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotCircuit;
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
+import com.gazbert.bxbot.ui.server.repository.remote.runtime.BotCircuitRepository;
+import com.gazbert.bxbot.ui.server.services.runtime.impl.BotCircuitServiceImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests the Bot Circuit service behaves as expected.
+ *
+ * @author gazbert
+ */
+@RunWith(SpringRunner.class)
+public class TestBotCircuitService {
+
+    private static final String UNKNOWN_BOT_ID = "unknown-or-new-bot-id";
+
+    private static final String BOT_1_ID = "bitstamp-bot-1";
+    private static final String BOT_2_ID = "gdax-bot-1";
+
+    private BotConfig bot1Config;
+    private BotCircuit bot1Circuit;
+
+    private BotConfig bot2Config;
+    private BotCircuit bot2Circuit;
+
+    @MockBean
+    BotCircuitRepository botCircuitRepository;
+
+    @MockBean
+    BotConfigRepository botConfigRepository;
+
+    @Before
+    public void setup() throws Exception {
+        bot1Config = new BotConfig(BOT_1_ID, "Bitstamp Bot", "https://hostname.one/api", "admin", "password");
+        bot1Circuit = new BotCircuit(BOT_1_ID, BotCircuit.State.CLOSED, 0.0f, 0.0f, 20, 0L);
+        bot2Config = new BotConfig(BOT_2_ID, "GDAX Bot", "https://hostname.two/api", "admin", "password");
+        bot2Circuit = new BotCircuit(BOT_2_ID, BotCircuit.State.OPEN, 80.0f, 0.0f, 20, 1510000030000L);
+    }
+
+    @Test
+    public void whenGetCircuitCalledWithKnownBotIdThenReturnBotCircuit() throws Exception {
+
+        given(botConfigRepository.findById(BOT_2_ID)).willReturn(bot2Config);
+        given(botCircuitRepository.getBotCircuit(bot2Config)).willReturn(bot2Circuit);
+
+        final BotCircuitService botCircuitService =
+                new BotCircuitServiceImpl(botCircuitRepository, botConfigRepository);
+
+        assertThat(botCircuitService.getBotCircuit(BOT_2_ID)).isEqualTo(bot2Circuit);
+        verify(botCircuitRepository, times(1)).getBotCircuit(bot2Config);
+    }
+
+    @Test
+    public void whenGetCircuitCalledWithUnknownBotIdThenReturnNull() throws Exception {
+
+        given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
+
+        final BotCircuitService botCircuitService =
+                new BotCircuitServiceImpl(botCircuitRepository, botConfigRepository);
+
+        assertThat(botCircuitService.getBotCircuit(UNKNOWN_BOT_ID)).isNull();
+        verify(botCircuitRepository, never()).getBotCircuit(any(BotConfig.class));
+    }
+
+    @Test
+    public void whenGetAllCircuitsCalledThenReturnCircuitOfEveryBotInOrder() throws Exception {
+
+        given(botConfigRepository.findAll()).willReturn(Arrays.asList(bot1Config, bot2Config));
+        given(botCircuitRepository.getBotCircuit(bot1Config)).willReturn(bot1Circuit);
+        given(botCircuitRepository.getBotCircuit(bot2Config)).willReturn(bot2Circuit);
+
+        final BotCircuitService botCircuitService =
+                new BotCircuitServiceImpl(botCircuitRepository, botConfigRepository);
+
+        final List<BotCircuit> allBotCircuits = botCircuitService.getAllBotCircuits();
+        assertThat(allBotCircuits).containsExactly(bot1Circuit, bot2Circuit);
+    }
+}
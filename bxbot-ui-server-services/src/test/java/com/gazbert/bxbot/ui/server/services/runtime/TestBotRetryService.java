@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.gazbert.bxbot.ui.server.services.runtime;
+
+import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotRetryStats;
+import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
+import com.gazbert.bxbot.ui.server.repository.remote.runtime.BotRetryRepository;
+import com.gazbert.bxbot.ui.server.services.runtime.impl.BotRetryServiceImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests the Bot Retry service behaves as expected.
+ *
+ * @author gazbert
+ */
+@RunWith(SpringRunner.class)
+public class TestBotRetryService {
+
+    private static final String UNKNOWN_BOT_ID = "unknown-or-new-bot-id";
+    private static final String BOT_ID = "gdax-bot-1";
+
+    private BotConfig botConfig;
+    private BotRetryStats botRetryStats;
+    private BotRetryStats totalRetryStats;
+
+    @MockBean
+    BotRetryRepository botRetryRepository;
+
+    @MockBean
+    BotConfigRepository botConfigRepository;
+
+    @Before
+    public void setup() throws Exception {
+        botConfig = new BotConfig(BOT_ID, "GDAX Bot", "https://hostname.one/api", "admin", "password");
+        botRetryStats = new BotRetryStats(BOT_ID, 100L, 8L, 0L, 2.0f);
+        totalRetryStats = new BotRetryStats(null, 1000L, 42L, 3L, 58.0f);
+    }
+
+    @Test
+    public void whenGetRetryStatsCalledWithKnownBotIdThenReturnBotRetryStats() throws Exception {
+
+        given(botConfigRepository.findById(BOT_ID)).willReturn(botConfig);
+        given(botRetryRepository.getBotRetryStats(botConfig)).willReturn(botRetryStats);
+
+        final BotRetryService botRetryService = new BotRetryServiceImpl(botRetryRepository, botConfigRepository);
+
+        assertThat(botRetryService.getBotRetryStats(BOT_ID)).isEqualTo(botRetryStats);
+        verify(botRetryRepository, times(1)).getBotRetryStats(botConfig);
+    }
+
+    @Test
+    public void whenGetRetryStatsCalledWithUnknownBotIdThenReturnNull() throws Exception {
+
+        given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
+
+        final BotRetryService botRetryService = new BotRetryServiceImpl(botRetryRepository, botConfigRepository);
+
+        assertThat(botRetryService.getBotRetryStats(UNKNOWN_BOT_ID)).isNull();
+        verify(botRetryRepository, never()).getBotRetryStats(any(BotConfig.class));
+    }
+
+    @Test
+    public void whenGetTotalRetryStatsCalledThenReturnStatsOfAllBots() throws Exception {
+
+        given(botRetryRepository.getTotalRetryStats()).willReturn(totalRetryStats);
+
+        final BotRetryService botRetryService = new BotRetryServiceImpl(botRetryRepository, botConfigRepository);
+
+        assertThat(botRetryService.getTotalRetryStats()).isEqualTo(totalRetryStats);
+    }
+}
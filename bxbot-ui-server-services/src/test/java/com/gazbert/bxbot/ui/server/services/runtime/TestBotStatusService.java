@@ -24,6 +24,8 @@
 package com.gazbert.bxbot.ui.server.services.runtime;
 
 import com.gazbert.bxbot.ui.server.domain.bot.BotConfig;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPage;
+import com.gazbert.bxbot.ui.server.domain.bot.BotPageRequest;
 import com.gazbert.bxbot.ui.server.domain.bot.BotStatus;
 import com.gazbert.bxbot.ui.server.repository.local.BotConfigRepository;
 import com.gazbert.bxbot.ui.server.repository.remote.runtime.BotStatusRepository;
@@ -35,10 +37,21 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -54,6 +67,14 @@ public class TestBotStatusService {
 
     private static final String UNKNOWN_BOT_ID = "unknown-or-new-bot-id";
 
+    // The status.fanout.* defaults
+    private static final int MAX_IN_FLIGHT = 50;
+    private static final long BOT_TIMEOUT_MILLIS = 2000;
+    private static final long OVERALL_TIMEOUT_MILLIS = 5000;
+
+    private static final String STOPPED_STATUS = "stopped";
+    private static final String UNKNOWN_STATUS = "unknown";
+
     private static final String BOT_1_ID = "bitstamp-bot-1";
     private static final String BOT_1_NAME = "Bitstamp Bot";
     private static final String BOT_1_BASE_URL = "https://hostname.one/api";
@@ -100,7 +121,8 @@ public class TestBotStatusService {
         given(botProcessRepository.getBotStatus(bot1Config)).willReturn(bot1Status);
 
         final BotStatusService botProcessService =
-                new BotStatusServiceImpl(botProcessRepository, botConfigRepository);
+                new BotStatusServiceImpl(botProcessRepository, botConfigRepository, MAX_IN_FLIGHT,
+                        BOT_TIMEOUT_MILLIS, OVERALL_TIMEOUT_MILLIS);
 
         final BotStatus status = botProcessService.getBotStatus(BOT_1_ID);
         assertThat(status.equals(this.bot1Status));
@@ -115,7 +137,8 @@ public class TestBotStatusService {
         given(botConfigRepository.findById(UNKNOWN_BOT_ID)).willReturn(null);
 
         final BotStatusService botProcessService =
-                new BotStatusServiceImpl(botProcessRepository, botConfigRepository);
+                new BotStatusServiceImpl(botProcessRepository, botConfigRepository, MAX_IN_FLIGHT,
+                        BOT_TIMEOUT_MILLIS, OVERALL_TIMEOUT_MILLIS);
 
         final BotStatus status = botProcessService.getBotStatus(UNKNOWN_BOT_ID);
         assertThat(status == null);
@@ -131,20 +154,21 @@ public class TestBotStatusService {
         allBotConfig.add(bot2Config);
 
         given(botConfigRepository.findAll()).willReturn(allBotConfig);
-        given(botProcessRepository.getBotStatus(bot1Config)).willReturn(bot1Status);
-        given(botProcessRepository.getBotStatus(bot2Config)).willReturn(bot2Status);
+        given(botProcessRepository.getBotStatusAsync(bot1Config))
+                .willReturn(CompletableFuture.completedFuture(bot1Status));
+        given(botProcessRepository.getBotStatusAsync(bot2Config))
+                .willReturn(CompletableFuture.completedFuture(bot2Status));
 
         final BotStatusService botProcessService =
-                new BotStatusServiceImpl(botProcessRepository, botConfigRepository);
+                new BotStatusServiceImpl(botProcessRepository, botConfigRepository, MAX_IN_FLIGHT,
+                        BOT_TIMEOUT_MILLIS, OVERALL_TIMEOUT_MILLIS);
 
         final List<BotStatus> allBotStatus = botProcessService.getAllBotStatus();
-        assertThat(allBotStatus.size() == 2);
-        assertThat(allBotStatus.contains(bot1Status));
-        assertThat(allBotStatus.contains(bot2Status));
+        assertThat(allBotStatus).containsExactly(bot1Status, bot2Status);
 
         verify(botConfigRepository, times(1)).findAll();
-        verify(botProcessRepository, times(1)).getBotStatus(bot1Config);
-        verify(botProcessRepository, times(1)).getBotStatus(bot2Config);
+        verify(botProcessRepository, times(1)).getBotStatusAsync(bot1Config);
+        verify(botProcessRepository, times(1)).getBotStatusAsync(bot2Config);
     }
 
     @Test
@@ -154,11 +178,179 @@ public class TestBotStatusService {
         given(botConfigRepository.findAll()).willReturn(allBotConfig);
 
         final BotStatusService botProcessService =
-                new BotStatusServiceImpl(botProcessRepository, botConfigRepository);
+                new BotStatusServiceImpl(botProcessRepository, botConfigRepository, MAX_IN_FLIGHT,
+                        BOT_TIMEOUT_MILLIS, OVERALL_TIMEOUT_MILLIS);
 
         final List<BotStatus> allBotStatus = botProcessService.getAllBotStatus();
         assertThat(allBotStatus.isEmpty());
 
         verify(botConfigRepository, times(1)).findAll();
     }
+
+    @Test
+    public void whenGetStatusPageCalledThenReturnStatusOfOnlyTheBotsOnThePage() throws Exception {
+
+        final BotPageRequest pageRequest = new BotPageRequest(1, null, BotPageRequest.SortField.ID, false, null, null);
+        given(botConfigRepository.findPage(pageRequest))
+                .willReturn(new BotPage<>(Collections.singletonList(bot1Config), "next-cursor"));
+        given(botProcessRepository.getBotStatusAsync(bot1Config))
+                .willReturn(CompletableFuture.completedFuture(bot1Status));
+
+        final BotStatusService botProcessService =
+                new BotStatusServiceImpl(botProcessRepository, botConfigRepository, MAX_IN_FLIGHT,
+                        BOT_TIMEOUT_MILLIS, OVERALL_TIMEOUT_MILLIS);
+
+        final BotPage<BotStatus> botStatusPage = botProcessService.getBotStatusPage(pageRequest);
+        assertThat(botStatusPage.getItems()).containsExactly(bot1Status);
+        assertThat(botStatusPage.getNextCursor()).isEqualTo("next-cursor");
+
+        verify(botConfigRepository, times(1)).findPage(pageRequest);
+        verify(botConfigRepository, never()).findAll();
+        verify(botProcessRepository, never()).getBotStatusAsync(bot2Config);
+    }
+
+    @Test
+    public void whenGetAllStatusCalledAndBotDoesNotAnswerInTimeThenReturnUnknownStatusForJustThatBot()
+            throws Exception {
+
+        given(botConfigRepository.findAll()).willReturn(Arrays.asList(bot1Config, bot2Config));
+        final CompletableFuture<BotStatus> neverAnswers = new CompletableFuture<>();
+        given(botProcessRepository.getBotStatusAsync(bot1Config)).willReturn(neverAnswers);
+        given(botProcessRepository.getBotStatusAsync(bot2Config))
+                .willReturn(CompletableFuture.completedFuture(bot2Status));
+
+        final BotStatusService botProcessService =
+                new BotStatusServiceImpl(botProcessRepository, botConfigRepository, 10, 100, 5000);
+
+        final long startNanos = System.nanoTime();
+        final List<BotStatus> allBotStatus = botProcessService.getAllBotStatus();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)).isLessThan(5000);
+
+        assertThat(allBotStatus).hasSize(2);
+        assertThat(allBotStatus.get(0).getId()).isEqualTo(BOT_1_ID);
+        assertThat(allBotStatus.get(0).getStatus()).isEqualTo(UNKNOWN_STATUS);
+        assertThat(allBotStatus.get(1)).isEqualTo(bot2Status);
+    }
+
+    @Test
+    public void whenGetAllStatusCalledAndBotCallFailsThenReturnStoppedStatusForThatBot() throws Exception {
+
+        final CompletableFuture<BotStatus> failedCall = new CompletableFuture<>();
+        failedCall.completeExceptionally(new IllegalStateException("Connection refused"));
+        given(botConfigRepository.findAll()).willReturn(Collections.singletonList(bot1Config));
+        given(botProcessRepository.getBotStatusAsync(bot1Config)).willReturn(failedCall);
+
+        final BotStatusService botProcessService =
+                new BotStatusServiceImpl(botProcessRepository, botConfigRepository, MAX_IN_FLIGHT,
+                        BOT_TIMEOUT_MILLIS, OVERALL_TIMEOUT_MILLIS);
+
+        final List<BotStatus> allBotStatus = botProcessService.getAllBotStatus();
+        assertThat(allBotStatus).hasSize(1);
+        assertThat(allBotStatus.get(0).getId()).isEqualTo(BOT_1_ID);
+        assertThat(allBotStatus.get(0).getStatus()).isEqualTo(STOPPED_STATUS);
+    }
+
+    @Test
+    public void whenGetAllStatusCalledThenExpectNoMoreThanMaxInFlightCallsAtOnce() throws Exception {
+
+        final List<BotConfig> allBotConfig = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            allBotConfig.add(new BotConfig("bot-" + i, "Bot " + i, BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD));
+        }
+        given(botConfigRepository.findAll()).willReturn(allBotConfig);
+
+        final ScheduledExecutorService bots = Executors.newScheduledThreadPool(4);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxSeenInFlight = new AtomicInteger();
+        given(botProcessRepository.getBotStatusAsync(any(BotConfig.class))).willAnswer(invocation -> {
+            final BotConfig botConfig = (BotConfig) invocation.getArguments()[0];
+            maxSeenInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            final CompletableFuture<BotStatus> botStatus = new CompletableFuture<>();
+            bots.schedule(() -> {
+                inFlight.decrementAndGet();
+                botStatus.complete(new BotStatus(botConfig.getId(), botConfig.getAlias(), BOT_1_STATUS));
+            }, 10, TimeUnit.MILLISECONDS);
+            return botStatus;
+        });
+
+        try {
+            final BotStatusService botProcessService =
+                    new BotStatusServiceImpl(botProcessRepository, botConfigRepository, 3, 5000, 10000);
+
+            final List<BotStatus> allBotStatus = botProcessService.getAllBotStatus();
+            assertThat(allBotStatus).hasSize(20);
+            for (int i = 0; i < 20; i++) {
+                assertThat(allBotStatus.get(i).getId()).isEqualTo("bot-" + i);
+                assertThat(allBotStatus.get(i).getStatus()).isEqualTo(BOT_1_STATUS);
+            }
+            assertThat(maxSeenInFlight.get()).isLessThanOrEqualTo(3);
+        } finally {
+            bots.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenGetAllStatusCalledConcurrentlyThenExpectMaxInFlightToBeSharedByTheCalls() throws Exception {
+
+        final List<BotConfig> allBotConfig = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            allBotConfig.add(new BotConfig("bot-" + i, "Bot " + i, BOT_1_BASE_URL, BOT_1_USERNAME, BOT_1_PASSWORD));
+        }
+        given(botConfigRepository.findAll()).willReturn(allBotConfig);
+
+        final ScheduledExecutorService bots = Executors.newScheduledThreadPool(4);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxSeenInFlight = new AtomicInteger();
+        given(botProcessRepository.getBotStatusAsync(any(BotConfig.class))).willAnswer(invocation -> {
+            final BotConfig botConfig = (BotConfig) invocation.getArguments()[0];
+            maxSeenInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            final CompletableFuture<BotStatus> botStatus = new CompletableFuture<>();
+            bots.schedule(() -> {
+                inFlight.decrementAndGet();
+                botStatus.complete(new BotStatus(botConfig.getId(), botConfig.getAlias(), BOT_1_STATUS));
+            }, 10, TimeUnit.MILLISECONDS);
+            return botStatus;
+        });
+
+        final ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            final BotStatusService botProcessService =
+                    new BotStatusServiceImpl(botProcessRepository, botConfigRepository, 3, 5000, 10000);
+
+            final List<Future<List<BotStatus>>> allBotStatusCalls = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                allBotStatusCalls.add(callers.submit(botProcessService::getAllBotStatus));
+            }
+            for (final Future<List<BotStatus>> allBotStatusCall : allBotStatusCalls) {
+                final List<BotStatus> allBotStatus = allBotStatusCall.get(10, TimeUnit.SECONDS);
+                assertThat(allBotStatus).hasSize(20);
+                assertThat(allBotStatus).extracting(BotStatus::getStatus).containsOnly(BOT_1_STATUS);
+            }
+            assertThat(maxSeenInFlight.get()).isLessThanOrEqualTo(3);
+        } finally {
+            callers.shutdownNow();
+            bots.shutdownNow();
+        }
+    }
+
+    @Test
+    public void whenGetAllStatusCalledAndOverallDeadlinePassesThenReturnUnknownStatusForBotsNotYetCalled()
+            throws Exception {
+
+        given(botConfigRepository.findAll()).willReturn(Arrays.asList(bot1Config, bot2Config));
+        final CompletableFuture<BotStatus> neverAnswers = new CompletableFuture<>();
+        given(botProcessRepository.getBotStatusAsync(bot1Config)).willReturn(neverAnswers);
+
+        // Only 1 call in flight at once, so bot 2 waits for bot 1's slot, which is never freed.
+        final BotStatusService botProcessService =
+                new BotStatusServiceImpl(botProcessRepository, botConfigRepository, 1, 5000, 200);
+
+        final List<BotStatus> allBotStatus = botProcessService.getAllBotStatus();
+        assertThat(allBotStatus).hasSize(2);
+        assertThat(allBotStatus.get(0).getStatus()).isEqualTo(UNKNOWN_STATUS);
+        assertThat(allBotStatus.get(1).getId()).isEqualTo(BOT_2_ID);
+        assertThat(allBotStatus.get(1).getStatus()).isEqualTo(UNKNOWN_STATUS);
+
+        verify(botProcessRepository, never()).getBotStatusAsync(bot2Config);
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore;
+
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes Bots for the binary Bots files - the {@link BotsJournal} and the {@link BotsSnapshot}.
+ * <p>
+ * Strings are written as a length-prefixed UTF-8 byte sequence; a length of -1 means null. A Bot's version comes
+ * last, with -1 meaning it has none. Records written before Bots had versions end after the password; they are read
+ * as Bots without a version.
+ *
+ * @author gazbert
+ */
+final class BotRecordCodec {
+
+    private static final long NO_VERSION = -1L;
+
+    private BotRecordCodec() {
+    }
+
+    static void writeBot(DataOutputStream out, BotType bot) throws IOException {
+        writeString(out, bot.getId());
+        writeBotFields(out, bot);
+    }
+
+    /*
+     * Writes everything but the id, for records that have already written it.
+     */
+    static void writeBotFields(DataOutputStream out, BotType bot) throws IOException {
+        writeString(out, bot.getAlias());
+        writeString(out, bot.getBaseUrl());
+        writeString(out, bot.getUsername());
+        writeString(out, bot.getPassword());
+        out.writeLong(bot.getVersion() == null ? NO_VERSION : bot.getVersion());
+    }
+
+    static BotType readBot(ByteBuffer in) {
+        return readBotFields(in, readString(in));
+    }
+
+    static BotType readBotFields(ByteBuffer in, String botId) {
+        final BotType bot = new BotType();
+        bot.setId(botId);
+        bot.setAlias(readString(in));
+        bot.setBaseUrl(readString(in));
+        bot.setUsername(readString(in));
+        bot.setPassword(readString(in));
+        if (in.hasRemaining()) {
+            final long version = in.getLong();
+            bot.setVersion(version == NO_VERSION ? null : version);
+        }
+        return bot;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static String readString(ByteBuffer in) {
+        final int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid string length in Bot record: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore;
+
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.validation.ValidatorHandler;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader and writer for the Bots config XML.
+ * <p>
+ * Unlike the {@link ConfigurationManager}, which builds the whole BotsType object tree before returning it, the
+ * reader hands each Bot to the caller as soon as its element has been read and validated, so memory use does not
+ * grow with the size of the file. Validation is done in the same pass: every StAX event is also fed to a
+ * ValidatorHandler for the Bots XML Schema.
+ * <p>
+ * The writer streams Bots straight to the file using the same copy-on-write save as the ConfigurationManager.
+ *
+ * @author gazbert
+ */
+public final class BotsConfigStreamer {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final String BOTS_ELEMENT = "bots";
+    private static final String BOT_ELEMENT = "bot";
+    private static final String ID_ELEMENT = "id";
+    private static final String ALIAS_ELEMENT = "alias";
+    private static final String BASE_URL_ELEMENT = "base-url";
+    private static final String USERNAME_ELEMENT = "username";
+    private static final String PASSWORD_ELEMENT = "password";
+    private static final String VERSION_ELEMENT = "version";
+
+    private static final String ENCODING = "UTF-8";
+    private static final String INDENT = "    ";
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private BotsConfigStreamer() {
+    }
+
+    /**
+     * Reads the Bots from the given XML config file, validating it against the given XML Schema as it goes.
+     * <p>
+     * Each Bot is passed to the consumer once its element has been read and validated. If the file turns out to be
+     * invalid further on, an exception is thrown and the caller must discard the Bots it has already been given.
+     *
+     * @param xmlConfigFile the XML config file.
+     * @param xmlSchemaFile the XML Schema on the classpath.
+     * @param botConsumer   the consumer each Bot is passed to, in document order.
+     * @return the number of Bots read.
+     * @throws IllegalArgumentException if the file is not well-formed or does not validate against the schema.
+     * @throws IllegalStateException    if the file cannot be found or read.
+     */
+    public static int readBots(String xmlConfigFile, String xmlSchemaFile, Consumer<BotType> botConsumer) {
+
+        LOG.info(() -> "Streaming Bots configuration from: " + xmlConfigFile + " ...");
+
+        final StampedLock fileLock = ConfigFileLock.forFile(xmlConfigFile).fileLock();
+        final long readStamp = fileLock.readLock();
+        try (InputStream inputStream = new FileInputStream(xmlConfigFile)) {
+
+            final ValidatorHandler validator = JaxbContextRegistry.getSchema(xmlSchemaFile).newValidatorHandler();
+            final XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
+            try {
+                final int botCount = readBots(reader, validator, botConsumer);
+                LOG.info(() -> "Streamed " + botCount + " Bots from: " + xmlConfigFile + " successfully!");
+                return botCount;
+            } finally {
+                reader.close();
+            }
+
+        } catch (XMLStreamException | SAXException e) {
+            final String errorMsg = "Failed to load [" + xmlConfigFile + "] file and validate it using XML Schema [" + xmlSchemaFile + "]";
+            LOG.error(errorMsg, e);
+            throw new IllegalArgumentException(errorMsg, e);
+        } catch (IOException e) {
+            final String errorMsg = "Failed to find or read [" + xmlConfigFile + "] config";
+            LOG.error(errorMsg, e);
+            throw new IllegalStateException(errorMsg, e);
+        } finally {
+            fileLock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * Writes the given Bots to the XML config file.
+     *
+     * @param bots          the Bots to write, in document order.
+     * @param xmlConfigFile the XML config file.
+     * @throws IllegalStateException if the file cannot be written.
+     */
+    public static void writeBots(Iterable<BotType> bots, String xmlConfigFile) {
+
+        LOG.info(() -> "Streaming Bots configuration to: " + xmlConfigFile + " ...");
+
+        try {
+            ConfigurationManager.writeAtomically(xmlConfigFile, outputStream -> {
+                final XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(outputStream, ENCODING);
+                try {
+                    writeBots(bots, writer);
+                } finally {
+                    writer.close();
+                }
+            });
+
+        } catch (XMLStreamException | IOException e) {
+            final String errorMsg = "Failed to save config to [" + xmlConfigFile + "] file.";
+            LOG.error(errorMsg, e);
+            throw new IllegalStateException(errorMsg, e);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static int readBots(XMLStreamReader reader, ValidatorHandler validator, Consumer<BotType> botConsumer)
+            throws XMLStreamException, SAXException {
+
+        final StringBuilder text = new StringBuilder();
+        BotType bot = null;
+        int botCount = 0;
+
+        validator.startDocument();
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+
+                case XMLStreamConstants.START_ELEMENT:
+                    startElement(reader, validator);
+                    text.setLength(0);
+                    if (BOT_ELEMENT.equals(reader.getLocalName())) {
+                        bot = new BotType();
+                    }
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    validator.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+                    endElement(reader, validator);
+                    if (BOT_ELEMENT.equals(reader.getLocalName())) {
+                        botConsumer.accept(bot);
+                        botCount++;
+                        bot = null;
+                    } else if (bot != null) {
+                        setField(bot, reader.getLocalName(), text.toString());
+                    }
+                    text.setLength(0);
+                    break;
+
+                default:
+                    // comments, processing instructions, and the like are not validated
+                    break;
+            }
+        }
+        validator.endDocument();
+        return botCount;
+    }
+
+    private static void startElement(XMLStreamReader reader, ValidatorHandler validator) throws SAXException {
+
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            validator.startPrefixMapping(nullToEmpty(reader.getNamespacePrefix(i)), reader.getNamespaceURI(i));
+        }
+
+        final AttributesImpl attributes = new AttributesImpl();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.addAttribute(nullToEmpty(reader.getAttributeNamespace(i)), reader.getAttributeLocalName(i),
+                    qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                    "CDATA", reader.getAttributeValue(i));
+        }
+
+        validator.startElement(nullToEmpty(reader.getNamespaceURI()), reader.getLocalName(),
+                qualifiedName(reader.getPrefix(), reader.getLocalName()), attributes);
+    }
+
+    private static void endElement(XMLStreamReader reader, ValidatorHandler validator) throws SAXException {
+
+        validator.endElement(nullToEmpty(reader.getNamespaceURI()), reader.getLocalName(),
+                qualifiedName(reader.getPrefix(), reader.getLocalName()));
+
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            validator.endPrefixMapping(nullToEmpty(reader.getNamespacePrefix(i)));
+        }
+    }
+
+    private static void setField(BotType bot, String elementName, String value) {
+        switch (elementName) {
+            case ID_ELEMENT:
+                bot.setId(value);
+                break;
+            case ALIAS_ELEMENT:
+                bot.setAlias(value);
+                break;
+            case BASE_URL_ELEMENT:
+                bot.setBaseUrl(value);
+                break;
+            case USERNAME_ELEMENT:
+                bot.setUsername(value);
+                break;
+            case PASSWORD_ELEMENT:
+                bot.setPassword(value);
+                break;
+            case VERSION_ELEMENT:
+                bot.setVersion(Long.valueOf(value.trim())); // already validated as an xsd:long
+                break;
+            default:
+                break; // the schema does not allow anything else
+        }
+    }
+
+    private static void writeBots(Iterable<BotType> bots, XMLStreamWriter writer) throws XMLStreamException {
+
+        writer.writeStartDocument(ENCODING, "1.0");
+        writer.writeCharacters("\n");
+        writer.writeStartElement(BOTS_ELEMENT);
+
+        for (final BotType bot : bots) {
+            writer.writeCharacters("\n" + INDENT);
+            writer.writeStartElement(BOT_ELEMENT);
+            writeField(writer, ID_ELEMENT, bot.getId());
+            writeField(writer, ALIAS_ELEMENT, bot.getAlias());
+            writeField(writer, BASE_URL_ELEMENT, bot.getBaseUrl());
+            writeField(writer, USERNAME_ELEMENT, bot.getUsername());
+            writeField(writer, PASSWORD_ELEMENT, bot.getPassword());
+            writeField(writer, VERSION_ELEMENT, bot.getVersion() == null ? null : bot.getVersion().toString());
+            writer.writeCharacters("\n" + INDENT);
+            writer.writeEndElement();
+        }
+
+        writer.writeCharacters("\n");
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+        writer.writeEndDocument();
+    }
+
+    private static void writeField(XMLStreamWriter writer, String elementName, String value)
+            throws XMLStreamException {
+        if (value != null) {
+            writer.writeCharacters("\n" + INDENT + INDENT);
+            writer.writeStartElement(elementName);
+            writer.writeCharacters(value);
+            writer.writeEndElement();
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return inputFactory;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ':' + localName;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,548 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore;
+
+import com.gazbert.bxbot.ui.server.datastore.BotsJournalRecord.Operation;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of Bot config mutations.
+ * <p>
+ * Each create, update, or delete is appended as a single checksummed record with the next sequence number, so the
+ * cost of a write does not depend on the number of Bots. On startup the journal is replayed over the last XML
+ * snapshot; the journal is compacted by writing a new snapshot and then dropping the records it includes using
+ * {@link #truncateUpTo(long)}.
+ * <p>
+ * Appends are made durable with group commit: a writer appends its record and then calls {@link #sync(long)}. The
+ * first writer in becomes the leader and makes every record appended so far durable with a single fsync. Writers
+ * arriving while an fsync is in progress are all picked up by the next one, so the busier the journal, the bigger the
+ * batches. The leader can optionally wait for a group commit window before syncing, to gather more writers on disks
+ * where an fsync is very slow; by default it does not wait.
+ * <p>
+ * If an fsync fails, the records it covered may or may not be on disk. The journal refuses further appends until
+ * {@link #recover()} has cut it back to the last durable record; sequence numbers of the discarded records are not
+ * reused.
+ * <p>
+ * File layout: a header (magic number, sequence number of the last record folded into the snapshot) followed by
+ * records framed as [payload length][payload][CRC32 of payload]. A torn record at the end of the file, e.g. from a
+ * crash part way through an append, is discarded when the journal is opened.
+ * <p>
+ * The file is opened lazily on first use. All methods are thread-safe.
+ *
+ * @author gazbert
+ */
+public class BotsJournal implements Closeable {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final int MAGIC = 0x42584a31; // "BXJ1"
+    private static final int HEADER_LENGTH = Integer.BYTES + Long.BYTES;
+    private static final int FRAME_OVERHEAD = Integer.BYTES + Integer.BYTES;
+
+    private static final long DEFAULT_GROUP_COMMIT_WINDOW_MICROS = 0;
+
+    private final Path journalPath;
+    private final long groupCommitWindowNanos;
+
+    private FileChannel channel;
+    private List<BotsJournalRecord> recordsOnOpen;
+    private long lastSequence;
+
+    private long durableSequence;
+    private long durablePosition;
+    private boolean syncInProgress;
+    private boolean failed;
+    private long failedSequence = -1;
+    private long syncCount;
+
+    public BotsJournal(String journalFile) {
+        this(journalFile, DEFAULT_GROUP_COMMIT_WINDOW_MICROS);
+    }
+
+    public BotsJournal(String journalFile, long groupCommitWindowMicros) {
+        this.journalPath = Paths.get(journalFile).toAbsolutePath();
+        this.groupCommitWindowNanos = TimeUnit.MICROSECONDS.toNanos(groupCommitWindowMicros);
+    }
+
+    /**
+     * Returns the records in the journal, in sequence order, for replaying over the last snapshot.
+     *
+     * @return the journal records.
+     */
+    public synchronized List<BotsJournalRecord> replay() {
+        try {
+            open();
+            return recordsOnOpen;
+        } catch (IOException e) {
+            throw failed("replay", e);
+        }
+    }
+
+    public synchronized long appendCreate(BotType bot) {
+        return append(Operation.CREATE, bot.getId(), bot);
+    }
+
+    public synchronized long appendUpdate(BotType bot) {
+        return append(Operation.UPDATE, bot.getId(), bot);
+    }
+
+    public synchronized long appendDelete(String botId) {
+        return append(Operation.DELETE, botId, null);
+    }
+
+    /**
+     * Appends a create record for each new Bot and an update record for each updated Bot, in a single write. The
+     * records get consecutive sequence numbers, creates first. Like the single appends, the records are not durable
+     * until {@link #sync(long)} has been called with the returned sequence number.
+     * <p>
+     * If the process dies part way through the write, the records that made it to disk in full are kept on replay
+     * and the rest are discarded, as for a torn single record.
+     *
+     * @param createdBots the new Bots.
+     * @param updatedBots the updated Bots.
+     * @return the sequence number of the last record appended.
+     */
+    public synchronized long appendBatch(List<BotType> createdBots, List<BotType> updatedBots) {
+
+        if (failed) {
+            throw new IllegalStateException("Cannot append to Bots journal [" + journalPath + "] until it has " +
+                    "recovered from a failed sync");
+        }
+        try {
+            open();
+            final List<ByteBuffer> frames = new ArrayList<>(createdBots.size() + updatedBots.size());
+            long sequence = lastSequence;
+            for (final BotType bot : createdBots) {
+                frames.add(frame(new BotsJournalRecord(++sequence, Operation.CREATE, bot.getId(), bot)));
+            }
+            for (final BotType bot : updatedBots) {
+                frames.add(frame(new BotsJournalRecord(++sequence, Operation.UPDATE, bot.getId(), bot)));
+            }
+            lastSequence = sequence;
+            writeFully(channel, concatenate(frames));
+            return lastSequence;
+        } catch (IOException e) {
+            syncFailed(e); // may have written part of the batch
+            throw failed("append to", e);
+        }
+    }
+
+    /**
+     * Drops all the records up to and including the given sequence number. Called once a snapshot containing those
+     * records has been safely written. Records appended since the snapshot was taken are kept.
+     *
+     * @param sequence the sequence number of the last record included in the snapshot.
+     */
+    public synchronized void truncateUpTo(long sequence) {
+
+        LOG.info(() -> "Truncating Bots journal " + journalPath + " up to sequence: " + sequence);
+
+        try {
+            open();
+            awaitSyncCompletion();
+            if (failed) {
+                throw new IllegalStateException("Cannot truncate Bots journal [" + journalPath + "] until it has " +
+                        "recovered from a failed sync");
+            }
+            // everything appended so far is copied to the new file, so make sure it is durable first
+            channel.force(false);
+            final List<BotsJournalRecord> records = readRecords(readJournal(), null);
+            final Path tempPath = Files.createTempFile(journalPath.getParent(),
+                    journalPath.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel tempChannel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                    writeFully(tempChannel, header(Math.max(sequence, 0L)));
+                    for (final BotsJournalRecord record : records) {
+                        if (record.getSequence() > sequence) {
+                            writeFully(tempChannel, frame(record));
+                        }
+                    }
+                    tempChannel.force(true);
+                }
+                channel.close();
+                channel = null;
+                ConfigurationManager.moveAtomically(tempPath, journalPath);
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+            open();
+        } catch (IOException e) {
+            throw failed("truncate", e);
+        }
+    }
+
+    /**
+     * Blocks until the record with the given sequence number, and every record before it, is durable.
+     *
+     * @param sequence the sequence number returned by the append.
+     * @throws IllegalStateException if the fsync covering the record failed.
+     */
+    public void sync(long sequence) {
+
+        final FileChannel syncChannel;
+        final long targetSequence;
+        final long targetPosition;
+
+        synchronized (this) {
+            boolean interrupted = false;
+            try {
+                while (durableSequence < sequence) {
+                    if (sequence <= failedSequence) {
+                        throw new IllegalStateException("Failed to sync Bots journal [" + journalPath + "] up to " +
+                                "sequence: " + sequence);
+                    }
+                    if (!syncInProgress) {
+                        syncInProgress = true;
+                        break;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (durableSequence >= sequence) {
+                return;
+            }
+        }
+
+        // We are the leader - give the other writers a chance to append before syncing the lot.
+        if (groupCommitWindowNanos > 0) {
+            LockSupport.parkNanos(groupCommitWindowNanos);
+        }
+
+        synchronized (this) {
+            if (failed) {
+                syncInProgress = false;
+                notifyAll();
+                throw new IllegalStateException("Failed to sync Bots journal [" + journalPath + "] up to " +
+                        "sequence: " + sequence);
+            }
+            syncChannel = channel;
+            targetSequence = lastSequence;
+            try {
+                targetPosition = channel.position();
+            } catch (IOException e) {
+                syncInProgress = false;
+                syncFailed(e);
+                throw failed("sync", e);
+            }
+        }
+
+        IOException syncFailure = null;
+        try {
+            syncChannel.force(false);
+        } catch (IOException e) {
+            syncFailure = e;
+        }
+
+        synchronized (this) {
+            syncInProgress = false;
+            if (syncFailure == null) {
+                durableSequence = targetSequence;
+                durablePosition = targetPosition;
+                syncCount++;
+                notifyAll();
+            } else {
+                syncFailed(syncFailure);
+                throw failed("sync", syncFailure);
+            }
+        }
+    }
+
+    /**
+     * Recovers from a failed append or sync by cutting the journal back to the last durable record.
+     *
+     * @return true if the journal had failed and has been recovered, false if there was nothing to recover from.
+     * @throws IllegalStateException if the journal cannot be cut back; it stays failed.
+     */
+    public synchronized boolean recover() {
+
+        awaitSyncCompletion();
+        if (!failed) {
+            return false;
+        }
+
+        LOG.warn("Recovering Bots journal " + journalPath + " - discarding records after sequence: " + durableSequence);
+        try {
+            channel.truncate(durablePosition);
+            channel.position(durablePosition);
+            channel.force(true);
+            failed = false;
+            return true;
+        } catch (IOException e) {
+            throw failed("recover", e);
+        }
+    }
+
+    /**
+     * Returns the number of fsyncs done to make appends durable. Each one can cover many appends.
+     *
+     * @return the number of group commit fsyncs.
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    @Override
+    public synchronized void close() {
+        awaitSyncCompletion();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close Bots journal: " + journalPath, e);
+            }
+            channel = null;
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * Appends the record without waiting for it to be durable - callers must then call sync().
+     */
+    private long append(Operation operation, String botId, BotType bot) {
+
+        if (failed) {
+            throw new IllegalStateException("Cannot append to Bots journal [" + journalPath + "] until it has " +
+                    "recovered from a failed sync");
+        }
+        try {
+            open();
+            final BotsJournalRecord record = new BotsJournalRecord(lastSequence + 1, operation, botId, bot);
+            lastSequence = record.getSequence();
+            writeFully(channel, frame(record));
+            return lastSequence;
+        } catch (IOException e) {
+            syncFailed(e); // may have written part of the record
+            throw failed("append to", e);
+        }
+    }
+
+    /*
+     * Marks every record not yet durable as failed. Must be called holding the journal's monitor.
+     */
+    private void syncFailed(IOException e) {
+        LOG.error("Failed to make Bots journal records durable after sequence: " + durableSequence, e);
+        failed = true;
+        failedSequence = lastSequence;
+        notifyAll();
+    }
+
+    private void awaitSyncCompletion() {
+        boolean interrupted = false;
+        while (syncInProgress) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Opens the journal if it is not already open, reading the existing records and discarding any torn tail.
+     */
+    private void open() throws IOException {
+
+        if (channel != null) {
+            return;
+        }
+
+        final FileChannel fileChannel = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (fileChannel.size() == 0) {
+                writeFully(fileChannel, header(0L));
+                fileChannel.force(true);
+            }
+            channel = fileChannel;
+
+            final long[] validLength = new long[1];
+            final List<BotsJournalRecord> records = readRecords(readJournal(), validLength);
+            if (validLength[0] < channel.size()) {
+                LOG.warn("Discarding " + (channel.size() - validLength[0]) + " bytes of torn or corrupt records " +
+                        "at the end of Bots journal: " + journalPath);
+                channel.truncate(validLength[0]);
+                channel.force(true);
+            }
+            channel.position(channel.size());
+            recordsOnOpen = Collections.unmodifiableList(records);
+            durableSequence = lastSequence;
+            durablePosition = channel.size();
+
+        } catch (IOException | RuntimeException e) {
+            channel = null;
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    private ByteBuffer readJournal() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /*
+     * Reads the valid records in the journal and sets lastSequence. If validLength is given, the length of the valid
+     * part of the journal is returned in it.
+     */
+    private List<BotsJournalRecord> readRecords(ByteBuffer buffer, long[] validLength) throws IOException {
+
+        if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a Bots journal: " + journalPath);
+        }
+        lastSequence = buffer.getLong();
+
+        final List<BotsJournalRecord> records = new ArrayList<>();
+        int recordStart = buffer.position();
+        try {
+            while (buffer.remaining() >= FRAME_OVERHEAD) {
+                final int payloadLength = buffer.getInt();
+                if (payloadLength <= 0 || payloadLength > buffer.remaining() - Integer.BYTES) {
+                    break;
+                }
+                final byte[] payload = new byte[payloadLength];
+                buffer.get(payload);
+                final CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != buffer.getInt()) {
+                    break;
+                }
+                final BotsJournalRecord record = decode(ByteBuffer.wrap(payload));
+                records.add(record);
+                lastSequence = record.getSequence();
+                recordStart = buffer.position();
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            LOG.debug("Stopped reading Bots journal at malformed record", e);
+        }
+
+        if (validLength != null) {
+            validLength[0] = recordStart;
+        }
+        return records;
+    }
+
+    private static ByteBuffer header(long snapshotSequence) {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).putLong(snapshotSequence).flip();
+        return header;
+    }
+
+    private static ByteBuffer frame(BotsJournalRecord record) throws IOException {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream payload = new DataOutputStream(bytes)) {
+            payload.writeLong(record.getSequence());
+            payload.writeByte(record.getOperation().ordinal());
+            BotRecordCodec.writeString(payload, record.getBotId());
+            if (record.getOperation() != Operation.DELETE) {
+                BotRecordCodec.writeBotFields(payload, record.getBot());
+            }
+        }
+
+        final byte[] payloadBytes = bytes.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update(payloadBytes);
+
+        final ByteBuffer frame = ByteBuffer.allocate(FRAME_OVERHEAD + payloadBytes.length);
+        frame.putInt(payloadBytes.length).put(payloadBytes).putInt((int) crc.getValue()).flip();
+        return frame;
+    }
+
+    private static BotsJournalRecord decode(ByteBuffer payload) {
+
+        final long sequence = payload.getLong();
+        final Operation operation = Operation.values()[payload.get()];
+        final String botId = BotRecordCodec.readString(payload);
+        final BotType bot = operation == Operation.DELETE ? null : BotRecordCodec.readBotFields(payload, botId);
+        return new BotsJournalRecord(sequence, operation, botId, bot);
+    }
+
+    private static ByteBuffer concatenate(List<ByteBuffer> frames) {
+        int length = 0;
+        for (final ByteBuffer frame : frames) {
+            length += frame.remaining();
+        }
+        final ByteBuffer batch = ByteBuffer.allocate(length);
+        for (final ByteBuffer frame : frames) {
+            batch.put(frame);
+        }
+        batch.flip();
+        return batch;
+    }
+
+    private static void writeFully(FileChannel fileChannel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            fileChannel.write(buffer);
+        }
+    }
+
+    private IllegalStateException failed(String action, IOException e) {
+        final String errorMsg = "Failed to " + action + " Bots journal [" + journalPath + "]";
+        LOG.error(errorMsg, e);
+        return new IllegalStateException(errorMsg, e);
+    }
+}
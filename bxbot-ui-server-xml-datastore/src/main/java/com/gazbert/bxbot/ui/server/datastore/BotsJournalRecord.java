@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore;
+
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import com.google.common.base.MoreObjects;
+
+/**
+ * A single Bot mutation in the {@link BotsJournal}.
+ * <p>
+ * Create and update records carry the complete Bot config, so replaying records in sequence order over a snapshot
+ * that already contains some of them always gives the same result.
+ *
+ * @author gazbert
+ */
+public final class BotsJournalRecord {
+
+    /**
+     * The type of mutation.
+     */
+    public enum Operation {
+        CREATE, UPDATE, DELETE
+    }
+
+    private final long sequence;
+    private final Operation operation;
+    private final String botId;
+    private final BotType bot;
+
+    public BotsJournalRecord(long sequence, Operation operation, String botId, BotType bot) {
+        this.sequence = sequence;
+        this.operation = operation;
+        this.botId = botId;
+        this.bot = bot;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getBotId() {
+        return botId;
+    }
+
+    /**
+     * Returns the Bot config for create and update records; null for delete records.
+     *
+     * @return the Bot config.
+     */
+    public BotType getBot() {
+        return bot;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("sequence", sequence)
+                .add("operation", operation)
+                .add("botId", botId)
+                .toString();
+    }
+}
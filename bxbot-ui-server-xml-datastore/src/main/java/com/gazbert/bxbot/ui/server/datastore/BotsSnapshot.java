@@ -0,0 +1,219 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore;
+
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A compact binary snapshot of the Bots, kept next to the XML config file for fast startup.
+ * <p>
+ * The snapshot records the last modified time, size, and a hash of the content of the XML file it was taken from. On
+ * startup it is memory-mapped and only used if its checksum is good and the XML file has not changed since;
+ * otherwise the caller falls back to parsing the XML. The content hash catches an edit that keeps the file's size and
+ * lands within the same modified time tick, at the cost of reading the XML file - which is still much cheaper than
+ * parsing and validating it.
+ * <p>
+ * File layout: a header (magic number, XML file last modified time, size and content hash, number of Bots) followed
+ * by length-prefixed Bot records, and a CRC32 of everything before it.
+ *
+ * @author gazbert
+ */
+public class BotsSnapshot {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final int MAGIC = 0x42585332; // "BXS2"
+    private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+    private static final int CONTENT_HASH_LENGTH = CONTENT_HASH.bits() / Byte.SIZE;
+    private static final int HEADER_LENGTH =
+            Integer.BYTES + Long.BYTES + Long.BYTES + CONTENT_HASH_LENGTH + Integer.BYTES;
+    private static final int TRAILER_LENGTH = Integer.BYTES;
+
+    private final String snapshotFile;
+    private final Path snapshotPath;
+    private final Path xmlConfigPath;
+
+    public BotsSnapshot(String snapshotFile, String xmlConfigFile) {
+        this.snapshotFile = snapshotFile;
+        this.snapshotPath = Paths.get(snapshotFile).toAbsolutePath();
+        this.xmlConfigPath = Paths.get(xmlConfigFile).toAbsolutePath();
+    }
+
+    /**
+     * Loads the Bots from the snapshot if it is intact and still matches the XML config file.
+     * <p>
+     * If false is returned, the caller must discard any Bots it has been given and load the XML file instead.
+     *
+     * @param botConsumer the consumer each Bot is passed to, in document order.
+     * @return true if the Bots were loaded from the snapshot, false if it is missing or stale.
+     */
+    public boolean load(Consumer<BotType> botConsumer) {
+
+        if (!Files.exists(snapshotPath)) {
+            LOG.info(() -> "No Bots snapshot found at: " + snapshotPath);
+            return false;
+        }
+
+        final StampedLock fileLock = ConfigFileLock.forFile(snapshotFile).fileLock();
+        final long readStamp = fileLock.readLock();
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+
+            final long size = channel.size();
+            if (size < HEADER_LENGTH + TRAILER_LENGTH || size > Integer.MAX_VALUE) {
+                return stale("it has an invalid length: " + size);
+            }
+
+            final MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final int contentLength = (int) size - TRAILER_LENGTH;
+
+            final CRC32 crc = new CRC32();
+            final ByteBuffer content = snapshot.duplicate();
+            content.limit(contentLength);
+            crc.update(content);
+            if ((int) crc.getValue() != snapshot.getInt(contentLength)) {
+                return stale("its checksum does not match");
+            }
+
+            if (snapshot.getInt() != MAGIC) {
+                return stale("it is not a Bots snapshot");
+            }
+            final long xmlLastModified = snapshot.getLong();
+            final long xmlSize = snapshot.getLong();
+            final byte[] xmlContentHash = new byte[CONTENT_HASH_LENGTH];
+            snapshot.get(xmlContentHash);
+            if (!Files.exists(xmlConfigPath)
+                    || xmlLastModified != Files.getLastModifiedTime(xmlConfigPath).toMillis()
+                    || xmlSize != Files.size(xmlConfigPath)
+                    || !hashXmlConfig().equals(HashCode.fromBytes(xmlContentHash))) {
+                return stale("the XML config has changed since it was taken");
+            }
+
+            final int botCount = snapshot.getInt();
+            for (int i = 0; i < botCount; i++) {
+                final int recordLength = snapshot.getInt();
+                final ByteBuffer record = snapshot.slice();
+                record.limit(recordLength);
+                botConsumer.accept(BotRecordCodec.readBot(record));
+                snapshot.position(snapshot.position() + recordLength);
+            }
+
+            LOG.info(() -> "Loaded " + botCount + " Bots from snapshot: " + snapshotPath);
+            return true;
+
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Failed to load Bots snapshot: " + snapshotPath, e);
+            return false;
+        } finally {
+            fileLock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * Saves a snapshot of the given Bots. Must only be called once the same Bots have been written to the XML config
+     * file, as the snapshot is stamped with the XML file's current last modified time, size and content hash.
+     *
+     * @param bots the Bots, in document order.
+     * @throws IllegalStateException if the XML config file cannot be read, or the snapshot cannot be written.
+     */
+    public void save(Collection<BotType> bots) {
+
+        LOG.info(() -> "Saving snapshot of " + bots.size() + " Bots to: " + snapshotPath);
+
+        try {
+            final long xmlLastModified = Files.getLastModifiedTime(xmlConfigPath).toMillis();
+            final long xmlSize = Files.size(xmlConfigPath);
+            final HashCode xmlContentHash = hashXmlConfig();
+
+            ConfigurationManager.writeAtomically(snapshotFile, outputStream -> {
+
+                final BufferedOutputStream bufferedStream = new BufferedOutputStream(outputStream);
+                final CRC32 crc = new CRC32();
+                final DataOutputStream content = new DataOutputStream(new CheckedOutputStream(bufferedStream, crc));
+
+                content.writeInt(MAGIC);
+                content.writeLong(xmlLastModified);
+                content.writeLong(xmlSize);
+                content.write(xmlContentHash.asBytes());
+                content.writeInt(bots.size());
+
+                final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(128);
+                final DataOutputStream record = new DataOutputStream(recordBytes);
+                for (final BotType bot : bots) {
+                    recordBytes.reset();
+                    BotRecordCodec.writeBot(record, bot);
+                    content.writeInt(recordBytes.size());
+                    recordBytes.writeTo(content);
+                }
+                content.flush();
+
+                new DataOutputStream(bufferedStream).writeInt((int) crc.getValue());
+                bufferedStream.flush();
+            });
+
+        } catch (IOException e) {
+            final String errorMsg = "Failed to save Bots snapshot [" + snapshotPath + "]";
+            LOG.error(errorMsg, e);
+            throw new IllegalStateException(errorMsg, e);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * Hashes the XML config file as it is streamed in, without reading it all into memory first.
+     */
+    private HashCode hashXmlConfig() throws IOException {
+        return MoreFiles.asByteSource(xmlConfigPath).hash(CONTENT_HASH);
+    }
+
+    private boolean stale(String reason) {
+        LOG.info(() -> "Not using Bots snapshot " + snapshotPath + " because " + reason);
+        return false;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cache of the last successfully loaded - and validated - config for each config file, used by the
+ * {@link ConfigurationManager} to skip unmarshalling and schema validation when a file has not changed.
+ * <p>
+ * Each file is fingerprinted by its size, last modified time, and a hash of its content. If the size and modified
+ * time are unchanged, and the file had not been modified for a while when it was fingerprinted, it is trusted without
+ * being read. A file modified just before it was fingerprinted could be modified again within the same timestamp
+ * tick, so in that case - or if the size or modified time has changed - the file is read and hashed, and it is only
+ * unmarshalled if the hash has changed too.
+ * <p>
+ * The cached object graphs are never handed out: callers always get a deep copy, which they are free to modify.
+ *
+ * @author gazbert
+ */
+final class ConfigFileCache {
+
+    /* Covers the coarsest common filesystem timestamp resolution (FAT's 2 seconds) */
+    private static final long TIMESTAMP_RESOLUTION_MILLIS = 2000;
+
+    private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+
+    private static final ConcurrentMap<CacheKey, CacheEntry> ENTRIES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private ConfigFileCache() {
+    }
+
+    /*
+     * Returns a copy of the cached config for the file if it has not changed, otherwise reads it with the given
+     * reader and caches the result. Results are only cached if isCacheable says the file was not replaced by a save
+     * while it was being read.
+     */
+    static <T> T load(Class<T> configClass, String xmlConfigFile, String xmlSchemaFile, ConfigReader<T> configReader,
+                      BooleanSupplier isCacheable) throws JAXBException, IOException {
+
+        final Path configPath = Paths.get(xmlConfigFile).toAbsolutePath().normalize();
+        final CacheKey cacheKey = new CacheKey(configClass, configPath.toString(), xmlSchemaFile);
+        final CacheEntry cached = ENTRIES.get(cacheKey);
+
+        // Read the attributes before the content: if the file changes in between, its next load will see new ones.
+        final BasicFileAttributes attributes = Files.readAttributes(configPath, BasicFileAttributes.class);
+        final long size = attributes.size();
+        final long lastModifiedMillis = attributes.lastModifiedTime().toMillis();
+
+        if (cached != null && cached.isTrustedFor(size, lastModifiedMillis)) {
+            HITS.increment();
+            return configClass.cast(deepCopy(cached.config));
+        }
+
+        final long fingerprintedAtMillis = System.currentTimeMillis();
+        final byte[] content = Files.readAllBytes(configPath);
+        final HashCode contentHash = CONTENT_HASH.hashBytes(content);
+
+        if (cached != null && cached.contentHash.equals(contentHash)) {
+            HITS.increment();
+            if (isCacheable.getAsBoolean()) {
+                ENTRIES.replace(cacheKey, cached, new CacheEntry(size, lastModifiedMillis, fingerprintedAtMillis,
+                        contentHash, cached.config));
+            }
+            return configClass.cast(deepCopy(cached.config));
+        }
+
+        MISSES.increment();
+        final T config = configReader.read(new ByteArrayInputStream(content));
+        if (isCacheable.getAsBoolean()) {
+            ENTRIES.put(cacheKey, new CacheEntry(size, lastModifiedMillis, fingerprintedAtMillis, contentHash, config));
+        }
+        return configClass.cast(deepCopy(config));
+    }
+
+    /*
+     * Drops the cached config for a file, e.g. once it has been saved.
+     */
+    static void invalidate(String xmlConfigFile) {
+        final String configPath = Paths.get(xmlConfigFile).toAbsolutePath().normalize().toString();
+        ENTRIES.keySet().removeIf(cacheKey -> cacheKey.configPath.equals(configPath));
+    }
+
+    static long getHitCount() {
+        return HITS.sum();
+    }
+
+    static long getMissCount() {
+        return MISSES.sum();
+    }
+
+    /*
+     * Reads a config from the content of a config file.
+     */
+    interface ConfigReader<T> {
+        T read(InputStream inputStream) throws JAXBException;
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static final class CacheKey {
+
+        private final Class<?> configClass;
+        private final String configPath;
+        private final String xmlSchemaFile;
+
+        private CacheKey(Class<?> configClass, String configPath, String xmlSchemaFile) {
+            this.configClass = configClass;
+            this.configPath = configPath;
+            this.xmlSchemaFile = xmlSchemaFile;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) o;
+            return configClass.equals(other.configClass)
+                    && configPath.equals(other.configPath)
+                    && Objects.equals(xmlSchemaFile, other.xmlSchemaFile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(configClass, configPath, xmlSchemaFile);
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final long size;
+        private final long lastModifiedMillis;
+        private final long fingerprintedAtMillis;
+        private final HashCode contentHash;
+        private final Object config;
+
+        private CacheEntry(long size, long lastModifiedMillis, long fingerprintedAtMillis, HashCode contentHash,
+                           Object config) {
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.fingerprintedAtMillis = fingerprintedAtMillis;
+            this.contentHash = contentHash;
+            this.config = config;
+        }
+
+        /*
+         * The file can be trusted without reading it if its size and modified time are unchanged, and it had
+         * already not been modified for longer than a timestamp tick when it was fingerprinted.
+         */
+        private boolean isTrustedFor(long currentSize, long currentLastModifiedMillis) {
+            return currentSize == size
+                    && currentLastModifiedMillis == lastModifiedMillis
+                    && fingerprintedAtMillis - lastModifiedMillis > TIMESTAMP_RESOLUTION_MILLIS;
+        }
+    }
+
+    /*
+     * Deep copies a JAXB object graph. Generated JAXB classes are plain beans with a no-arg constructor, and fields
+     * that are immutable values, lists, JAXBElements, or other generated classes.
+     */
+    private static Object deepCopy(Object value) {
+
+        if (value == null || isImmutable(value)) {
+            return value;
+        }
+        if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            final List<Object> copy = new ArrayList<>(list.size());
+            for (final Object element : list) {
+                copy.add(deepCopy(element));
+            }
+            return copy;
+        }
+        if (value instanceof JAXBElement) {
+            final JAXBElement<?> element = (JAXBElement<?>) value;
+            return copyElement(element);
+        }
+        if (value instanceof XMLGregorianCalendar) {
+            return ((XMLGregorianCalendar) value).clone();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        }
+
+        try {
+            final Constructor<?> constructor = value.getClass().getDeclaredConstructor();
+            constructor.setAccessible(true);
+            final Object copy = constructor.newInstance();
+            for (final Field field : fieldsOf(value.getClass())) {
+                field.set(copy, deepCopy(field.get(value)));
+            }
+            return copy;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to copy cached config of type: " + value.getClass(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> JAXBElement<V> copyElement(JAXBElement<V> element) {
+        final JAXBElement<V> copy = new JAXBElement<>(element.getName(), element.getDeclaredType(),
+                element.getScope(), (V) deepCopy(element.getValue()));
+        copy.setNil(element.isNil());
+        return copy;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof Character || value instanceof Enum || value instanceof QName;
+    }
+
+    private static List<Field> fieldsOf(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, t -> {
+            final List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (final Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return Collections.unmodifiableList(fields);
+        });
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore;
+
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The locks used by the {@link ConfigurationManager} to coordinate access to a single config file.
+ * <p>
+ * There is one instance per config file path, so loads and saves of different files never contend.
+ * <p>
+ * Saves of the same file are serialized on the writer lock. The file itself is guarded by a StampedLock: loads read
+ * optimistically and only fall back to a read lock if a save swapped the file while they were reading; saves only
+ * take the exclusive lock for the brief moment they replace the file.
+ *
+ * @author gazbert
+ */
+final class ConfigFileLock {
+
+    private static final ConcurrentMap<String, ConfigFileLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final StampedLock fileLock = new StampedLock();
+
+    private ConfigFileLock() {
+    }
+
+    /*
+     * Returns the lock for the given config file. Different relative paths to the same file share the same lock.
+     */
+    static ConfigFileLock forFile(String xmlConfigFile) {
+        final String key = Paths.get(xmlConfigFile).toAbsolutePath().normalize().toString();
+        return LOCKS.computeIfAbsent(key, k -> new ConfigFileLock());
+    }
+
+    ReentrantLock writerLock() {
+        return writerLock;
+    }
+
+    StampedLock fileLock() {
+        return fileLock;
+    }
+}
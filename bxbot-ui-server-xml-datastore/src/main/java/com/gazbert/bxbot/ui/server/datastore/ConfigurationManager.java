@@ -27,22 +27,42 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.xml.sax.SAXException;
 
-import javax.xml.XMLConstants;
-import javax.xml.bind.*;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import java.io.*;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * The generic configuration manager loads config from a given XML config file.
+ * <p>
+ * JAXB contexts, compiled XML Schemas, and (un)marshallers are cached in the {@link JaxbContextRegistry} so they
+ * are only built once per config type. The last config loaded from each file is cached in the {@link ConfigFileCache},
+ * so a file that has not changed since it was last loaded is not unmarshalled and validated again.
+ * <p>
+ * Config is saved copy-on-write: it is written to a temp file in the same directory, fsynced, and then atomically
+ * renamed over the original. Readers therefore always see either the old or the new file - never a partially
+ * written one.
+ * <p>
+ * Access is coordinated per config file by a {@link ConfigFileLock}: loads run in parallel using optimistic reads,
+ * saves to the same file are serialized, and loads and saves of different files never block each other.
  *
  * @author gazbert
  */
 public final class ConfigurationManager {
 
     private static final Logger LOG = LogManager.getLogger();
-    private final static Object MUTEX = new Object();
 
     private ConfigurationManager() {
     }
@@ -54,27 +74,44 @@ public final class ConfigurationManager {
 
         LOG.info(() -> "Loading configuration for [" + configClass + "] from: " + xmlConfigFile + " ...");
 
-        try {
-            final JAXBContext jaxbContext = JAXBContext.newInstance(configClass.getPackage().getName());
-            final Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-
-            // optional schema validation
-            if (xmlSchemaFile != null) {
-                final InputStream xsdStream = ConfigurationManager.class.getClassLoader().getResourceAsStream(xmlSchemaFile);
-                final StreamSource xsdSource = new StreamSource(xsdStream);
-                final SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-                final Schema schema = sf.newSchema(xsdSource);
-                unmarshaller.setSchema(schema);
-            }
+        final StampedLock fileLock = ConfigFileLock.forFile(xmlConfigFile).fileLock();
 
-            synchronized (MUTEX) {
-                final FileInputStream fileInputStream = new FileInputStream(xmlConfigFile);
-                final JAXBElement<?> requestedConfigRootXmlElement = (JAXBElement<?>) unmarshaller.unmarshal(fileInputStream);
-                final T requestedConfig = (T) requestedConfigRootXmlElement.getValue();
-                fileInputStream.close();
+        try {
+            final Unmarshaller unmarshaller = JaxbContextRegistry.borrowUnmarshaller(configClass, xmlSchemaFile);
+            try {
+                T requestedConfig = null;
+
+                // Optimistic read first; if a save replaced the file while we were reading, re-read under the lock.
+                final long optimisticStamp = fileLock.tryOptimisticRead();
+                if (optimisticStamp != 0L) {
+                    try {
+                        requestedConfig = ConfigFileCache.load(configClass, xmlConfigFile, xmlSchemaFile,
+                                inputStream -> unmarshal(unmarshaller, inputStream),
+                                () -> fileLock.validate(optimisticStamp));
+                    } catch (JAXBException | IOException e) {
+                        if (fileLock.validate(optimisticStamp)) {
+                            throw e;
+                        }
+                    }
+                    if (!fileLock.validate(optimisticStamp)) {
+                        requestedConfig = null;
+                    }
+                }
+
+                if (requestedConfig == null) {
+                    final long readStamp = fileLock.readLock();
+                    try {
+                        requestedConfig = ConfigFileCache.load(configClass, xmlConfigFile, xmlSchemaFile,
+                                inputStream -> unmarshal(unmarshaller, inputStream), () -> true);
+                    } finally {
+                        fileLock.unlockRead(readStamp);
+                    }
+                }
 
                 LOG.info(() -> "Loaded and set configuration for [" + configClass + "] successfully!");
                 return requestedConfig;
+            } finally {
+                JaxbContextRegistry.returnUnmarshaller(configClass, xmlSchemaFile, unmarshaller);
             }
 
         } catch (JAXBException | SAXException e) {
@@ -88,6 +125,20 @@ public final class ConfigurationManager {
         }
     }
 
+    /*
+     * Returns the number of loads that were served from the config cache because the file had not changed.
+     */
+    public static long getCacheHitCount() {
+        return ConfigFileCache.getHitCount();
+    }
+
+    /*
+     * Returns the number of loads that had to unmarshal and validate the config file.
+     */
+    public static long getCacheMissCount() {
+        return ConfigFileCache.getMissCount();
+    }
+
     /*
      * Saves given config to filesystem.
      */
@@ -96,14 +147,11 @@ public final class ConfigurationManager {
         LOG.info(() -> "Saving configuration for [" + configClass + "] to: " + xmlConfigFile + " ...");
 
         try {
-            final JAXBContext context = JAXBContext.newInstance(config.getClass());
-            final Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
-            synchronized (MUTEX) {
-                final FileOutputStream fileOutputStream = new FileOutputStream(xmlConfigFile);
-                marshaller.marshal(config, fileOutputStream);
-                fileOutputStream.close();
+            final Marshaller marshaller = JaxbContextRegistry.borrowMarshaller(configClass);
+            try {
+                writeAtomically(xmlConfigFile, outputStream -> marshaller.marshal(config, outputStream));
+            } finally {
+                JaxbContextRegistry.returnMarshaller(configClass, marshaller);
             }
 
         } catch (JAXBException e) {
@@ -116,4 +164,76 @@ public final class ConfigurationManager {
             throw new IllegalStateException(errorMsg, e);
         }
     }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    /*
+     * Writes a config file copy-on-write: the content is written to a temp file in the same directory and fsynced,
+     * and then atomically renamed over the original. Saves of the same file are serialized.
+     */
+    static <E extends Exception> void writeAtomically(String xmlConfigFile, ConfigFileWriter<E> configFileWriter)
+            throws IOException, E {
+
+        final ConfigFileLock configFileLock = ConfigFileLock.forFile(xmlConfigFile);
+        configFileLock.writerLock().lock();
+        try {
+            final Path configPath = Paths.get(xmlConfigFile).toAbsolutePath();
+            final Path tempPath = Files.createTempFile(configPath.getParent(),
+                    configPath.getFileName().toString(), ".tmp");
+            try {
+                try (FileOutputStream fileOutputStream = new FileOutputStream(tempPath.toFile())) {
+                    configFileWriter.writeTo(fileOutputStream);
+                    fileOutputStream.getFD().sync();
+                }
+
+                final StampedLock fileLock = configFileLock.fileLock();
+                final long writeStamp = fileLock.writeLock();
+                try {
+                    moveAtomically(tempPath, configPath);
+                    ConfigFileCache.invalidate(xmlConfigFile);
+                } finally {
+                    fileLock.unlockWrite(writeStamp);
+                }
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        } finally {
+            configFileLock.writerLock().unlock();
+        }
+    }
+
+    /*
+     * Writes the content of a config file.
+     */
+    interface ConfigFileWriter<E extends Exception> {
+        void writeTo(OutputStream outputStream) throws E;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T unmarshal(Unmarshaller unmarshaller, InputStream inputStream) throws JAXBException {
+        final JAXBElement<?> requestedConfigRootXmlElement = (JAXBElement<?>) unmarshaller.unmarshal(inputStream);
+        return (T) requestedConfigRootXmlElement.getValue();
+    }
+
+    /*
+     * Renames the fully written temp file over the target, then fsyncs the directory so the rename survives a crash.
+     */
+    static void moveAtomically(Path source, Path target) throws IOException {
+
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOG.warn("Filesystem does not support atomic moves - falling back to plain replace for: " + target);
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not all platforms (e.g. Windows) allow a directory to be opened and synced.
+            LOG.debug("Unable to fsync directory: " + target.getParent(), e);
+        }
+    }
 }
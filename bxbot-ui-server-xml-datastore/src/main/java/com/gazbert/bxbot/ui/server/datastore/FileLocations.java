@@ -13,6 +13,16 @@ public final class FileLocations {
      */
     public static final String BOTS_CONFIG_XML_FILENAME = "config/bots.xml";
 
+    /*
+     * Location of the Bots mutation journal relative to project/installation root.
+     */
+    public static final String BOTS_JOURNAL_FILENAME = "config/bots.journal";
+
+    /*
+     * Location of the Bots binary snapshot relative to project/installation root.
+     */
+    public static final String BOTS_SNAPSHOT_FILENAME = "config/bots.snapshot";
+
     /*
      * XSD schema files for validating the XML config - their location in the main/resources folder.
      */
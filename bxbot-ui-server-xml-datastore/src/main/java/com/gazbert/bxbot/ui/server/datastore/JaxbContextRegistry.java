@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the expensive-to-build JAXB objects used by the {@link ConfigurationManager}.
+ * <p>
+ * JAXBContext and compiled Schema instances are thread-safe, so one of each is built per config package/XSD file
+ * and shared. Unmarshallers and Marshallers are not thread-safe; they are borrowed from a per-package pool and
+ * returned after use.
+ *
+ * @author gazbert
+ */
+final class JaxbContextRegistry {
+
+    private static final ConcurrentMap<String, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Schema> SCHEMAS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Queue<Unmarshaller>> UNMARSHALLER_POOLS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Queue<Marshaller>> MARSHALLER_POOLS = new ConcurrentHashMap<>();
+
+    private JaxbContextRegistry() {
+    }
+
+    /*
+     * Borrows an Unmarshaller for the given config class. If an XSD is given, the Unmarshaller will validate against it.
+     * Callers must hand it back using returnUnmarshaller().
+     */
+    static Unmarshaller borrowUnmarshaller(Class<?> configClass, String xmlSchemaFile)
+            throws JAXBException, SAXException, IOException {
+
+        final Unmarshaller pooled = UNMARSHALLER_POOLS.computeIfAbsent(poolKey(configClass, xmlSchemaFile),
+                k -> new ConcurrentLinkedQueue<>()).poll();
+        if (pooled != null) {
+            return pooled;
+        }
+
+        final Unmarshaller unmarshaller = getContext(configClass).createUnmarshaller();
+        if (xmlSchemaFile != null) {
+            unmarshaller.setSchema(getSchema(xmlSchemaFile));
+        }
+        return unmarshaller;
+    }
+
+    static void returnUnmarshaller(Class<?> configClass, String xmlSchemaFile, Unmarshaller unmarshaller) {
+        UNMARSHALLER_POOLS.get(poolKey(configClass, xmlSchemaFile)).offer(unmarshaller);
+    }
+
+    /*
+     * Borrows a Marshaller for the given config class that writes formatted output.
+     * Callers must hand it back using returnMarshaller().
+     */
+    static Marshaller borrowMarshaller(Class<?> configClass) throws JAXBException {
+
+        final Marshaller pooled = MARSHALLER_POOLS.computeIfAbsent(poolKey(configClass, null),
+                k -> new ConcurrentLinkedQueue<>()).poll();
+        if (pooled != null) {
+            return pooled;
+        }
+
+        final Marshaller marshaller = getContext(configClass).createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        return marshaller;
+    }
+
+    static void returnMarshaller(Class<?> configClass, Marshaller marshaller) {
+        MARSHALLER_POOLS.get(poolKey(configClass, null)).offer(marshaller);
+    }
+
+    /*
+     * Returns the compiled XML Schema, building it on first use.
+     */
+    static Schema getSchema(String xmlSchemaFile) throws SAXException, IOException {
+
+        final Schema existing = SCHEMAS.get(xmlSchemaFile);
+        if (existing != null) {
+            return existing;
+        }
+
+        try (InputStream xsdStream = JaxbContextRegistry.class.getClassLoader().getResourceAsStream(xmlSchemaFile)) {
+            if (xsdStream == null) {
+                throw new IOException("Failed to find XML Schema [" + xmlSchemaFile + "] on the classpath");
+            }
+            final SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            final Schema schema = sf.newSchema(new StreamSource(xsdStream));
+            final Schema winner = SCHEMAS.putIfAbsent(xmlSchemaFile, schema);
+            return winner == null ? schema : winner;
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static JAXBContext getContext(Class<?> configClass) throws JAXBException {
+
+        final String packageName = configClass.getPackage().getName();
+        final JAXBContext existing = CONTEXTS.get(packageName);
+        if (existing != null) {
+            return existing;
+        }
+
+        // Racing threads may build a spare context - only the first one in is kept.
+        final JAXBContext context = JAXBContext.newInstance(packageName);
+        final JAXBContext winner = CONTEXTS.putIfAbsent(packageName, context);
+        return winner == null ? context : winner;
+    }
+
+    private static String poolKey(Class<?> configClass, String xmlSchemaFile) {
+        return configClass.getPackage().getName() + '|' + xmlSchemaFile;
+    }
+}
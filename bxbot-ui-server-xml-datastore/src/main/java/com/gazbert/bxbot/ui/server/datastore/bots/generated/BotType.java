@@ -59,6 +59,13 @@ import javax.xml.bind.annotation.XmlType;
  *             &lt;/restriction&gt;
  *           &lt;/simpleType&gt;
  *         &lt;/element&gt;
+ *         &lt;element name="version" minOccurs="0"&gt;
+ *           &lt;simpleType&gt;
+ *             &lt;restriction base="{http://www.w3.org/2001/XMLSchema}long"&gt;
+ *               &lt;minInclusive value="0"/&gt;
+ *             &lt;/restriction&gt;
+ *           &lt;/simpleType&gt;
+ *         &lt;/element&gt;
  *       &lt;/sequence&gt;
  *     &lt;/restriction&gt;
  *   &lt;/complexContent&gt;
@@ -73,7 +80,8 @@ import javax.xml.bind.annotation.XmlType;
     "alias",
     "baseUrl",
     "username",
-    "password"
+    "password",
+    "version"
 })
 public class BotType {
 
@@ -86,6 +94,7 @@ public class BotType {
     protected String username;
     @XmlElement(required = true)
     protected String password;
+    protected Long version;
 
     /**
      * Gets the value of the id property.
@@ -207,4 +216,28 @@ public class BotType {
         this.password = value;
     }
 
+    /**
+     * Gets the value of the version property.
+     * 
+     * @return
+     *     possible object is
+     *     {@link Long }
+     *     
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the value of the version property.
+     * 
+     * @param value
+     *     allowed object is
+     *     {@link Long }
+     *     
+     */
+    public void setVersion(Long value) {
+        this.version = value;
+    }
+
 }
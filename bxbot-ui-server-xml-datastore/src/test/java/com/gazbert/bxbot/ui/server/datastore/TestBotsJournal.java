@@ -0,0 +1,245 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore;
+
+import com.gazbert.bxbot.ui.server.datastore.BotsJournalRecord.Operation;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Tests the Bots journal behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestBotsJournal {
+
+    private static final String BOT_1_ID = "bitstamp-bot-1";
+    private static final String BOT_1_ALIAS = "Bitstamp Bot";
+    private static final String BOT_1_BASE_URL = "https://hostname.one/api";
+    private static final String BOT_1_USERNAME = "admin";
+    private static final String BOT_1_PASSWORD = "password";
+
+    private static final String BOT_2_ID = "gdax-bot-1";
+    private static final String BOT_2_BASE_URL = "https://hostname.two/api";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String journalFile;
+
+    @Before
+    public void setup() throws Exception {
+        journalFile = folder.getRoot().toPath().resolve("bots.journal").toString();
+    }
+
+    @Test
+    public void testAppendedRecordsAreReplayedInSequenceOrder() {
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            assertThat(journal.replay()).isEmpty();
+            assertThat(journal.appendCreate(bot(BOT_1_ID, BOT_1_ALIAS, BOT_1_BASE_URL))).isEqualTo(1L);
+            assertThat(journal.appendUpdate(bot(BOT_1_ID, null, BOT_2_BASE_URL))).isEqualTo(2L);
+            assertThat(journal.appendDelete(BOT_2_ID)).isEqualTo(3L);
+        }
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            final List<BotsJournalRecord> records = journal.replay();
+            assertThat(records.size()).isEqualTo(3);
+
+            assertThat(records.get(0).getSequence()).isEqualTo(1L);
+            assertThat(records.get(0).getOperation()).isEqualTo(Operation.CREATE);
+            assertThat(records.get(0).getBot().getId()).isEqualTo(BOT_1_ID);
+            assertThat(records.get(0).getBot().getAlias()).isEqualTo(BOT_1_ALIAS);
+            assertThat(records.get(0).getBot().getBaseUrl()).isEqualTo(BOT_1_BASE_URL);
+            assertThat(records.get(0).getBot().getUsername()).isEqualTo(BOT_1_USERNAME);
+            assertThat(records.get(0).getBot().getPassword()).isEqualTo(BOT_1_PASSWORD);
+
+            assertThat(records.get(1).getOperation()).isEqualTo(Operation.UPDATE);
+            assertThat(records.get(1).getBot().getAlias()).isNull();
+            assertThat(records.get(1).getBot().getBaseUrl()).isEqualTo(BOT_2_BASE_URL);
+
+            assertThat(records.get(2).getOperation()).isEqualTo(Operation.DELETE);
+            assertThat(records.get(2).getBotId()).isEqualTo(BOT_2_ID);
+            assertThat(records.get(2).getBot()).isNull();
+
+            // sequence carries on from the last record
+            assertThat(journal.appendDelete(BOT_1_ID)).isEqualTo(4L);
+        }
+    }
+
+    @Test
+    public void testBatchAppendWritesConsecutiveRecordsThatAreReplayedWithVersions() {
+
+        final BotType updatedBot = bot(BOT_1_ID, BOT_1_ALIAS, BOT_2_BASE_URL);
+        updatedBot.setVersion(2L);
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            journal.appendCreate(bot(BOT_1_ID, BOT_1_ALIAS, BOT_1_BASE_URL));
+            final long lastSequence = journal.appendBatch(
+                    Collections.singletonList(bot(BOT_2_ID, null, BOT_2_BASE_URL)),
+                    Collections.singletonList(updatedBot));
+            assertThat(lastSequence).isEqualTo(3L);
+            journal.sync(lastSequence);
+        }
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            final List<BotsJournalRecord> records = journal.replay();
+            assertThat(records.size()).isEqualTo(3);
+
+            assertThat(records.get(1).getSequence()).isEqualTo(2L);
+            assertThat(records.get(1).getOperation()).isEqualTo(Operation.CREATE);
+            assertThat(records.get(1).getBotId()).isEqualTo(BOT_2_ID);
+            assertThat(records.get(1).getBot().getVersion()).isNull();
+
+            assertThat(records.get(2).getSequence()).isEqualTo(3L);
+            assertThat(records.get(2).getOperation()).isEqualTo(Operation.UPDATE);
+            assertThat(records.get(2).getBot().getBaseUrl()).isEqualTo(BOT_2_BASE_URL);
+            assertThat(records.get(2).getBot().getVersion()).isEqualTo(2L);
+        }
+    }
+
+    @Test
+    public void testTornRecordAtEndOfJournalIsDiscarded() throws Exception {
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            journal.appendCreate(bot(BOT_1_ID, BOT_1_ALIAS, BOT_1_BASE_URL));
+            journal.appendCreate(bot(BOT_2_ID, null, BOT_2_BASE_URL));
+        }
+
+        // simulate a crash part way through writing the last record
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            final List<BotsJournalRecord> records = journal.replay();
+            assertThat(records.size()).isEqualTo(1);
+            assertThat(records.get(0).getBotId()).isEqualTo(BOT_1_ID);
+            assertThat(journal.appendDelete(BOT_1_ID)).isEqualTo(2L);
+        }
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            assertThat(journal.replay().size()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void testTruncateDropsCompactedRecordsAndKeepsLaterOnes() {
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            journal.appendCreate(bot(BOT_1_ID, BOT_1_ALIAS, BOT_1_BASE_URL));
+            journal.appendCreate(bot(BOT_2_ID, null, BOT_2_BASE_URL));
+            journal.appendDelete(BOT_1_ID);
+
+            journal.truncateUpTo(2L);
+            assertThat(journal.appendDelete(BOT_2_ID)).isEqualTo(4L);
+        }
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            final List<BotsJournalRecord> records = journal.replay();
+            assertThat(records.size()).isEqualTo(2);
+            assertThat(records.get(0).getSequence()).isEqualTo(3L);
+            assertThat(records.get(1).getSequence()).isEqualTo(4L);
+
+            // sequence is kept in the header even when every record has been compacted
+            journal.truncateUpTo(4L);
+            assertThat(journal.replay()).isEmpty();
+        }
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            assertThat(journal.replay()).isEmpty();
+            assertThat(journal.appendDelete(BOT_2_ID)).isEqualTo(5L);
+        }
+    }
+
+    @Test
+    public void testConcurrentAppendsShareGroupCommitSyncs() throws Exception {
+
+        final int writerCount = 16;
+        final int appendsPerWriter = 20;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(writerCount);
+        try (BotsJournal journal = new BotsJournal(journalFile, 2000)) {
+            journal.replay();
+
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < writerCount; i++) {
+                final String botId = "bot-" + i;
+                writers.add(executor.submit(() -> {
+                    startLatch.await();
+                    for (int j = 0; j < appendsPerWriter; j++) {
+                        journal.sync(journal.appendUpdate(bot(botId, BOT_1_ALIAS, BOT_1_BASE_URL)));
+                    }
+                    return null;
+                }));
+            }
+            startLatch.countDown();
+            for (final Future<?> writer : writers) {
+                writer.get();
+            }
+
+            assertThat(journal.getSyncCount()).isLessThan(writerCount * appendsPerWriter);
+
+            // already durable, so no further fsync
+            final long syncCount = journal.getSyncCount();
+            journal.sync(1L);
+            assertThat(journal.getSyncCount()).isEqualTo(syncCount);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (BotsJournal journal = new BotsJournal(journalFile)) {
+            assertThat(journal.replay().size()).isEqualTo(writerCount * appendsPerWriter);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static BotType bot(String id, String alias, String baseUrl) {
+        final BotType bot = new BotType();
+        bot.setId(id);
+        bot.setAlias(alias);
+        bot.setBaseUrl(baseUrl);
+        bot.setUsername(BOT_1_USERNAME);
+        bot.setPassword(BOT_1_PASSWORD);
+        return bot;
+    }
+}
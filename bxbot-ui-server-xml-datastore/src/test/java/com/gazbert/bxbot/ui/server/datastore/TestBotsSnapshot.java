@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore;
+
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Tests the Bots binary snapshot behaves as expected.
+ *
+ * @author gazbert
+ */
+public class TestBotsSnapshot {
+
+    private static final String XML_SCHEMA_FILENAME = "com/gazbert/bxbot/ui/server/datastore/config/bots.xsd";
+    private static final String VALID_XML_CONFIG_FILENAME = "src/test/config/bots/valid-bots.xml";
+
+    private static final String BOT_1_ID = "bitstamp-bot-1";
+    private static final String BOT_1_ALIAS = "Bitstamp Bot";
+    private static final String BOT_2_ID = "gdax-bot-1";
+    private static final String BOT_2_BASE_URL = "https://hostname.two/api";
+    private static final String BOT_2_PASSWORD = "password";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path xmlConfigFile;
+    private Path snapshotFile;
+    private List<BotType> bots;
+
+    @Before
+    public void setup() throws Exception {
+        xmlConfigFile = folder.getRoot().toPath().resolve("bots.xml");
+        snapshotFile = folder.getRoot().toPath().resolve("bots.snapshot");
+        Files.copy(Paths.get(VALID_XML_CONFIG_FILENAME), xmlConfigFile);
+
+        bots = new ArrayList<>();
+        BotsConfigStreamer.readBots(xmlConfigFile.toString(), XML_SCHEMA_FILENAME, bots::add);
+    }
+
+    @Test
+    public void testSavedSnapshotIsLoadedWhenXmlConfigIsUnchanged() {
+
+        newSnapshot().save(bots);
+
+        final List<BotType> loadedBots = new ArrayList<>();
+        assertThat(newSnapshot().load(loadedBots::add)).isTrue();
+
+        assertThat(loadedBots.size()).isEqualTo(2);
+        assertThat(loadedBots.get(0).getId()).isEqualTo(BOT_1_ID);
+        assertThat(loadedBots.get(0).getAlias()).isEqualTo(BOT_1_ALIAS);
+        assertThat(loadedBots.get(1).getId()).isEqualTo(BOT_2_ID);
+        assertThat(loadedBots.get(1).getAlias()).isNull();
+        assertThat(loadedBots.get(1).getBaseUrl()).isEqualTo(BOT_2_BASE_URL);
+        assertThat(loadedBots.get(1).getPassword()).isEqualTo(BOT_2_PASSWORD);
+    }
+
+    @Test
+    public void testMissingSnapshotIsNotLoaded() {
+        assertThat(newSnapshot().load(bot -> {
+        })).isFalse();
+    }
+
+    @Test
+    public void testSnapshotIsNotLoadedWhenXmlConfigHasChanged() throws Exception {
+
+        newSnapshot().save(bots);
+        Files.setLastModifiedTime(xmlConfigFile,
+                FileTime.fromMillis(Files.getLastModifiedTime(xmlConfigFile).toMillis() + 5000));
+
+        assertThat(newSnapshot().load(bot -> {
+        })).isFalse();
+    }
+
+    @Test
+    public void testSnapshotIsNotLoadedWhenXmlConfigIsEditedWithoutChangingItsSizeOrModifiedTime() throws Exception {
+
+        newSnapshot().save(bots);
+        final FileTime lastModifiedTime = Files.getLastModifiedTime(xmlConfigFile);
+        final long size = Files.size(xmlConfigFile);
+        try (RandomAccessFile file = new RandomAccessFile(xmlConfigFile.toFile(), "rw")) {
+            file.seek(file.length() / 2);
+            final int original = file.read();
+            file.seek(file.length() / 2);
+            file.write(original ^ 0x01);
+        }
+        Files.setLastModifiedTime(xmlConfigFile, lastModifiedTime);
+        assertThat(Files.size(xmlConfigFile)).isEqualTo(size);
+
+        assertThat(newSnapshot().load(bot -> {
+        })).isFalse();
+    }
+
+    @Test
+    public void testCorruptSnapshotIsNotLoaded() throws Exception {
+
+        newSnapshot().save(bots);
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile.toFile(), "rw")) {
+            file.seek(file.length() / 2);
+            final int original = file.read();
+            file.seek(file.length() / 2);
+            file.write(original ^ 0xFF);
+        }
+
+        final List<BotType> loadedBots = new ArrayList<>();
+        assertThat(newSnapshot().load(loadedBots::add)).isFalse();
+        assertThat(loadedBots).isEmpty();
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private BotsSnapshot newSnapshot() {
+        return new BotsSnapshot(snapshotFile.toString(), xmlConfigFile.toString());
+    }
+}
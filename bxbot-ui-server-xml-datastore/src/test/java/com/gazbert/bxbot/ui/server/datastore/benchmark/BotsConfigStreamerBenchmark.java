@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore.benchmark;
+
+import com.gazbert.bxbot.ui.server.datastore.BotsConfigStreamer;
+import com.gazbert.bxbot.ui.server.datastore.ConfigurationManager;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotsType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing streaming the Bots config with the {@link BotsConfigStreamer} against unmarshalling the
+ * whole document with the {@link ConfigurationManager}, for generated files of 10k and 100k Bots.
+ * <p>
+ * The main method runs it with the GC profiler, so the allocation rate per load is reported as well as the time.
+ * Not run as part of the unit tests. Run the main method after a test-compile.
+ *
+ * @author gazbert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class BotsConfigStreamerBenchmark {
+
+    private static final String XML_SCHEMA_FILENAME = "com/gazbert/bxbot/ui/server/datastore/config/bots.xsd";
+
+    @Param({"10000", "100000"})
+    private int botCount;
+
+    private File xmlConfigFile;
+
+    @Setup(Level.Trial)
+    public void generateConfigFile() throws Exception {
+        xmlConfigFile = File.createTempFile("bots-benchmark", ".xml");
+        BotsConfigStreamer.writeBots(() -> generatedBots(botCount), xmlConfigFile.getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteConfigFile() throws Exception {
+        Files.deleteIfExists(xmlConfigFile.toPath());
+    }
+
+    @Benchmark
+    public int loadByStreaming(Blackhole blackhole) {
+        return BotsConfigStreamer.readBots(xmlConfigFile.getPath(), XML_SCHEMA_FILENAME, blackhole::consume);
+    }
+
+    @Benchmark
+    public BotsType loadByUnmarshallingWholeDocument() {
+        return ConfigurationManager.loadConfig(BotsType.class, xmlConfigFile.getPath(), XML_SCHEMA_FILENAME);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(BotsConfigStreamerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    // ------------------------------------------------------------------------------------------------
+    // Private utils
+    // ------------------------------------------------------------------------------------------------
+
+    private static Iterator<BotType> generatedBots(int count) {
+        return new Iterator<BotType>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public BotType next() {
+                final BotType bot = new BotType();
+                bot.setId("bot-" + next);
+                bot.setAlias("Bot " + next);
+                bot.setBaseUrl("https://host-" + (next % 100) + ".example.com:8443/api/v1/" + next);
+                bot.setUsername("admin");
+                bot.setPassword("password");
+                next++;
+                return bot;
+            }
+        };
+    }
+}
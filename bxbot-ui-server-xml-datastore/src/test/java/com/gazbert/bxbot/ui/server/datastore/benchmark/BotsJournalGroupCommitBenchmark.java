@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore.benchmark;
+
+import com.gazbert.bxbot.ui.server.datastore.BotsJournal;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH contention benchmark for concurrent Bot config writes to the {@link BotsJournal} at 1, 8, and 32 threads.
+ * <p>
+ * Compares group commit, where concurrent writers share an fsync, against appending and fsyncing each record in
+ * turn behind a mutex, which is what the journal used to do.
+ * <p>
+ * Not run as part of the unit tests. Run the main method after a test-compile.
+ *
+ * @author gazbert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BotsJournalGroupCommitBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 8, 32};
+
+    private final Object appendMutex = new Object();
+    private final BotType bot = new BotType();
+
+    private Path journalDir;
+    private BotsJournal groupCommitJournal;
+    private BotsJournal syncPerAppendJournal;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        bot.setId("bitstamp-bot-1");
+        bot.setAlias("Bitstamp Bot");
+        bot.setBaseUrl("https://hostname.one/api");
+        bot.setUsername("admin");
+        bot.setPassword("password");
+
+        journalDir = Files.createTempDirectory("bots-journal-benchmark");
+        groupCommitJournal = new BotsJournal(journalDir.resolve("group-commit.journal").toString());
+        syncPerAppendJournal = new BotsJournal(journalDir.resolve("sync-per-append.journal").toString(), 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        groupCommitJournal.close();
+        syncPerAppendJournal.close();
+        Files.deleteIfExists(journalDir.resolve("group-commit.journal"));
+        Files.deleteIfExists(journalDir.resolve("sync-per-append.journal"));
+        Files.deleteIfExists(journalDir);
+    }
+
+    @Benchmark
+    public long appendWithGroupCommit() {
+        final long sequence = groupCommitJournal.appendUpdate(bot);
+        groupCommitJournal.sync(sequence);
+        return sequence;
+    }
+
+    @Benchmark
+    public long appendWithSyncPerAppend() {
+        synchronized (appendMutex) {
+            final long sequence = syncPerAppendJournal.appendUpdate(bot);
+            syncPerAppendJournal.sync(sequence);
+            return sequence;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (final int threadCount : THREAD_COUNTS) {
+            new Runner(new OptionsBuilder()
+                    .include(BotsJournalGroupCommitBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore.benchmark;
+
+import com.gazbert.bxbot.ui.server.datastore.ConfigurationManager;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotsType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH contention benchmark for concurrent config loads at 1, 8, and 32 threads.
+ * <p>
+ * Compares the per-file optimistic locking in {@link ConfigurationManager} against serializing every load behind a
+ * single global mutex, which is what the ConfigurationManager used to do.
+ * <p>
+ * Not run as part of the unit tests. Run the main method from the module directory (so the test config
+ * files can be found) after a test-compile.
+ *
+ * @author gazbert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConfigFileLockingBenchmark {
+
+    private static final String XML_SCHEMA_FILENAME = "com/gazbert/bxbot/ui/server/datastore/config/bots.xsd";
+    private static final String XML_CONFIG_FILENAME = "src/test/config/bots/valid-bots.xml";
+
+    private static final Object GLOBAL_MUTEX = new Object();
+
+    private static final int[] THREAD_COUNTS = {1, 8, 32};
+
+    @Benchmark
+    public BotsType loadWithPerFileLocking() {
+        return ConfigurationManager.loadConfig(BotsType.class, XML_CONFIG_FILENAME, XML_SCHEMA_FILENAME);
+    }
+
+    @Benchmark
+    public BotsType loadBehindGlobalMutex() {
+        synchronized (GLOBAL_MUTEX) {
+            return ConfigurationManager.loadConfig(BotsType.class, XML_CONFIG_FILENAME, XML_SCHEMA_FILENAME);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (final int threadCount : THREAD_COUNTS) {
+            new Runner(new OptionsBuilder()
+                    .include(ConfigFileLockingBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017 Gareth Jon Lynch
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.gazbert.bxbot.ui.server.datastore.config.bots;
+
+import com.gazbert.bxbot.ui.server.datastore.BotsConfigStreamer;
+import com.gazbert.bxbot.ui.server.datastore.ConfigurationManager;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
+import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotsType;
+import org.junit.Test;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the Bots configuration is streamed as expected.
+ *
+ * @author gazbert
+ */
+public class TestBotsConfigStreaming {
+
+    /* Production XSD */
+    private static final String XML_SCHEMA_FILENAME = "com/gazbert/bxbot/ui/server/datastore/config/bots.xsd";
+
+    /* Test XML config */
+    private static final String VALID_XML_CONFIG_FILENAME = "src/test/config/bots/valid-bots.xml";
+    private static final String INVALID_XML_CONFIG_FILENAME = "src/test/config/bots/invalid-bots.xml";
+    private static final String MISSING_XML_CONFIG_FILENAME = "src/test/config/bots/missing-bots.xml";
+    private static final String XML_CONFIG_TO_SAVE_FILENAME = "src/test/config/bots/streamed-bots.xml";
+
+    private static final String BOT_1_ID = "bitstamp-bot-1";
+    private static final String BOT_1_ALIAS = "Bitstamp Bot";
+    private static final String BOT_1_BASE_URL = "https://hostname.one/api";
+    private static final String BOT_1_USERNAME = "admin";
+    private static final String BOT_1_PASSWORD = "password";
+
+    private static final String BOT_2_ID = "gdax-bot-1";
+    private static final String BOT_2_ALIAS = null; // optional
+    private static final String BOT_2_BASE_URL = "https://hostname.two/api";
+    private static final String BOT_2_USERNAME = "admin";
+    private static final String BOT_2_PASSWORD = "password";
+
+
+    @Test
+    public void testStreamingValidXmlConfigFileIsSuccessful() {
+
+        final List<BotType> bots = new ArrayList<>();
+        final int botCount = BotsConfigStreamer.readBots(VALID_XML_CONFIG_FILENAME, XML_SCHEMA_FILENAME, bots::add);
+
+        assertEquals(2, botCount);
+        assertEquals(2, bots.size());
+
+        assertEquals(BOT_1_ID, bots.get(0).getId());
+        assertEquals(BOT_1_ALIAS, bots.get(0).getAlias());
+        assertEquals(BOT_1_BASE_URL, bots.get(0).getBaseUrl());
+        assertEquals(BOT_1_USERNAME, bots.get(0).getUsername());
+        assertEquals(BOT_1_PASSWORD, bots.get(0).getPassword());
+
+        assertEquals(BOT_2_ID, bots.get(1).getId());
+        assertEquals(BOT_2_ALIAS, bots.get(1).getAlias());
+        assertEquals(BOT_2_BASE_URL, bots.get(1).getBaseUrl());
+        assertEquals(BOT_2_USERNAME, bots.get(1).getUsername());
+        assertEquals(BOT_2_PASSWORD, bots.get(1).getPassword());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStreamingMissingXmlConfigFileThrowsException() {
+        BotsConfigStreamer.readBots(MISSING_XML_CONFIG_FILENAME, XML_SCHEMA_FILENAME, bot -> {
+        });
+    }
+
+    @Test
+    public void testStreamingInvalidXmlConfigFileThrowsExceptionAtFirstInvalidBot() {
+
+        final List<BotType> bots = new ArrayList<>();
+        try {
+            BotsConfigStreamer.readBots(INVALID_XML_CONFIG_FILENAME, XML_SCHEMA_FILENAME, bots::add);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected - 2nd bot has no id
+        }
+
+        // only the valid bot before the invalid one was handed over
+        assertThat(bots.size()).isEqualTo(1);
+        assertThat(bots.get(0).getId()).isEqualTo(BOT_1_ID);
+    }
+
+    @Test
+    public void testStreamedConfigCanBeReadBackByStreamerAndJaxb() throws Exception {
+
+        final List<BotType> bots = new ArrayList<>();
+        BotsConfigStreamer.readBots(VALID_XML_CONFIG_FILENAME, XML_SCHEMA_FILENAME, bots::add);
+
+        BotsConfigStreamer.writeBots(bots, XML_CONFIG_TO_SAVE_FILENAME);
+
+        final List<BotType> botsReloaded = new ArrayList<>();
+        BotsConfigStreamer.readBots(XML_CONFIG_TO_SAVE_FILENAME, XML_SCHEMA_FILENAME, botsReloaded::add);
+        assertThat(botsReloaded.size()).isEqualTo(2);
+        assertThat(botsReloaded.get(0).getId()).isEqualTo(BOT_1_ID);
+        assertThat(botsReloaded.get(0).getAlias()).isEqualTo(BOT_1_ALIAS);
+        assertThat(botsReloaded.get(0).getBaseUrl()).isEqualTo(BOT_1_BASE_URL);
+        assertThat(botsReloaded.get(1).getId()).isEqualTo(BOT_2_ID);
+        assertThat(botsReloaded.get(1).getAlias()).isEqualTo(BOT_2_ALIAS);
+        assertThat(botsReloaded.get(1).getPassword()).isEqualTo(BOT_2_PASSWORD);
+
+        final BotsType botsUnmarshalled = ConfigurationManager.loadConfig(BotsType.class,
+                XML_CONFIG_TO_SAVE_FILENAME, XML_SCHEMA_FILENAME);
+        assertThat(botsUnmarshalled.getBots().size()).isEqualTo(2);
+        assertThat(botsUnmarshalled.getBots().get(0).getUsername()).isEqualTo(BOT_1_USERNAME);
+        assertThat(botsUnmarshalled.getBots().get(1).getBaseUrl()).isEqualTo(BOT_2_BASE_URL);
+
+        // cleanup
+        Files.delete(FileSystems.getDefault().getPath(XML_CONFIG_TO_SAVE_FILENAME));
+    }
+}
@@ -28,8 +28,19 @@ import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotType;
 import com.gazbert.bxbot.ui.server.datastore.bots.generated.BotsType;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
@@ -49,6 +60,9 @@ public class TestBotsConfigurationManagement {
     private static final String INVALID_XML_CONFIG_FILENAME = "src/test/config/bots/invalid-bots.xml";
     private static final String MISSING_XML_CONFIG_FILENAME = "src/test/config/bots/missing-bots.xml";
     private static final String XML_CONFIG_TO_SAVE_FILENAME = "src/test/config/bots/saved-bots.xml";
+    private static final String XML_CONFIG_TO_OVERWRITE_FILENAME = "src/test/config/bots/overwritten-bots.xml";
+    private static final String XML_CONFIG_CONTENDED_FILENAME = "src/test/config/bots/contended-bots.xml";
+    private static final String XML_CONFIG_CACHED_FILENAME = "src/test/config/bots/cached-bots.xml";
 
     private static final String BOT_1_ID = "bitstamp-bot-1";
     private static final String BOT_1_ALIAS = "Bitstamp Bot";
@@ -96,6 +110,24 @@ public class TestBotsConfigurationManagement {
                 INVALID_XML_CONFIG_FILENAME, XML_SCHEMA_FILENAME);
     }
 
+    @Test
+    public void testLoadingValidXmlConfigFileAfterInvalidOneReusesCachedJaxbObjectsSuccessfully() {
+
+        try {
+            ConfigurationManager.loadConfig(BotsType.class, INVALID_XML_CONFIG_FILENAME, XML_SCHEMA_FILENAME);
+        } catch (IllegalArgumentException e) {
+            // expected - pooled unmarshaller must still be usable
+        }
+
+        for (int i = 0; i < 3; i++) {
+            final BotsType botsType = ConfigurationManager.loadConfig(BotsType.class,
+                    VALID_XML_CONFIG_FILENAME, XML_SCHEMA_FILENAME);
+            assertEquals(2, botsType.getBots().size());
+            assertEquals(BOT_1_ID, botsType.getBots().get(0).getId());
+            assertEquals(BOT_2_ID, botsType.getBots().get(1).getId());
+        }
+    }
+
     @Test
     public void testSavingConfigToXmlIsSuccessful() throws Exception {
 
@@ -138,4 +170,180 @@ public class TestBotsConfigurationManagement {
         // cleanup
         Files.delete(FileSystems.getDefault().getPath(XML_CONFIG_TO_SAVE_FILENAME));
     }
+
+    @Test
+    public void testSavingConfigLeavesNoTempFilesBehind() throws Exception {
+
+        final BotType bot1 = new BotType();
+        bot1.setId(BOT_1_ID);
+        bot1.setBaseUrl(BOT_1_BASE_URL);
+        bot1.setUsername(BOT_1_USERNAME);
+        bot1.setPassword(BOT_1_PASSWORD);
+
+        final BotsType botsConfig = new BotsType();
+        botsConfig.getBots().add(bot1);
+
+        ConfigurationManager.saveConfig(BotsType.class, botsConfig, XML_CONFIG_TO_SAVE_FILENAME);
+        ConfigurationManager.saveConfig(BotsType.class, botsConfig, XML_CONFIG_TO_SAVE_FILENAME);
+
+        final Path configDir = FileSystems.getDefault().getPath(XML_CONFIG_TO_SAVE_FILENAME).getParent();
+        try (DirectoryStream<Path> tempFiles = Files.newDirectoryStream(configDir, "*.tmp")) {
+            assertThat(tempFiles.iterator().hasNext()).isFalse();
+        }
+
+        // cleanup
+        Files.delete(FileSystems.getDefault().getPath(XML_CONFIG_TO_SAVE_FILENAME));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailedSaveLeavesExistingConfigFileIntact() throws Exception {
+
+        final Path fileToOverwrite = FileSystems.getDefault().getPath(XML_CONFIG_TO_OVERWRITE_FILENAME);
+        Files.copy(FileSystems.getDefault().getPath(VALID_XML_CONFIG_FILENAME), fileToOverwrite,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        try {
+            // Not a JAXB type, so marshalling fails part way through the save
+            ConfigurationManager.saveConfig((Class) BotsType.class, "not-a-bots-config", XML_CONFIG_TO_OVERWRITE_FILENAME);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        final BotsType botsType = ConfigurationManager.loadConfig(BotsType.class,
+                XML_CONFIG_TO_OVERWRITE_FILENAME, XML_SCHEMA_FILENAME);
+        assertEquals(2, botsType.getBots().size());
+        assertEquals(BOT_1_ID, botsType.getBots().get(0).getId());
+
+        try (DirectoryStream<Path> tempFiles = Files.newDirectoryStream(fileToOverwrite.getParent(), "*.tmp")) {
+            assertThat(tempFiles.iterator().hasNext()).isFalse();
+        }
+
+        // cleanup
+        Files.delete(fileToOverwrite);
+    }
+
+    @Test
+    public void testLoadingUnchangedXmlConfigFileIsServedFromCache() throws Exception {
+
+        final Path cachedFile = FileSystems.getDefault().getPath(XML_CONFIG_CACHED_FILENAME);
+        Files.copy(FileSystems.getDefault().getPath(VALID_XML_CONFIG_FILENAME), cachedFile,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        final BotsType firstLoad = ConfigurationManager.loadConfig(BotsType.class,
+                XML_CONFIG_CACHED_FILENAME, XML_SCHEMA_FILENAME);
+
+        final long missCountBefore = ConfigurationManager.getCacheMissCount();
+        final long hitCountBefore = ConfigurationManager.getCacheHitCount();
+        final BotsType secondLoad = ConfigurationManager.loadConfig(BotsType.class,
+                XML_CONFIG_CACHED_FILENAME, XML_SCHEMA_FILENAME);
+        assertThat(ConfigurationManager.getCacheHitCount()).isEqualTo(hitCountBefore + 1);
+        assertThat(ConfigurationManager.getCacheMissCount()).isEqualTo(missCountBefore);
+
+        // Each load gets its own copy of the config
+        assertThat(secondLoad).isNotSameAs(firstLoad);
+        assertThat(secondLoad.getBots().get(0)).isNotSameAs(firstLoad.getBots().get(0));
+        assertEquals(2, secondLoad.getBots().size());
+        assertEquals(BOT_1_ALIAS, secondLoad.getBots().get(0).getAlias());
+        assertEquals(BOT_2_BASE_URL, secondLoad.getBots().get(1).getBaseUrl());
+
+        // ...so changing one does not leak into later loads
+        secondLoad.getBots().get(0).setAlias("Changed Alias");
+        secondLoad.getBots().remove(1);
+        final BotsType thirdLoad = ConfigurationManager.loadConfig(BotsType.class,
+                XML_CONFIG_CACHED_FILENAME, XML_SCHEMA_FILENAME);
+        assertEquals(2, thirdLoad.getBots().size());
+        assertEquals(BOT_1_ALIAS, thirdLoad.getBots().get(0).getAlias());
+
+        // cleanup
+        Files.delete(cachedFile);
+    }
+
+    @Test
+    public void testLoadingXmlConfigFileChangedWithSameSizeAndTimestampIsNotServedFromCache() throws Exception {
+
+        final Path cachedFile = FileSystems.getDefault().getPath(XML_CONFIG_CACHED_FILENAME);
+        Files.copy(FileSystems.getDefault().getPath(VALID_XML_CONFIG_FILENAME), cachedFile,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        ConfigurationManager.loadConfig(BotsType.class, XML_CONFIG_CACHED_FILENAME, XML_SCHEMA_FILENAME);
+
+        // Same length edit, with the modified time put back - only the content hash can spot it
+        final FileTime lastModifiedTime = Files.getLastModifiedTime(cachedFile);
+        final String content = new String(Files.readAllBytes(cachedFile), StandardCharsets.UTF_16);
+        Files.write(cachedFile, content.replace(BOT_1_ALIAS, "Bitstamp Bod").getBytes(StandardCharsets.UTF_16));
+        Files.setLastModifiedTime(cachedFile, lastModifiedTime);
+
+        final long missCountBefore = ConfigurationManager.getCacheMissCount();
+        final BotsType botsType = ConfigurationManager.loadConfig(BotsType.class,
+                XML_CONFIG_CACHED_FILENAME, XML_SCHEMA_FILENAME);
+        assertThat(ConfigurationManager.getCacheMissCount()).isEqualTo(missCountBefore + 1);
+        assertEquals("Bitstamp Bod", botsType.getBots().get(0).getAlias());
+
+        // cleanup
+        Files.delete(cachedFile);
+    }
+
+    @Test
+    public void testLoadingXmlConfigFileAfterSaveIsNotServedFromCache() throws Exception {
+
+        final Path cachedFile = FileSystems.getDefault().getPath(XML_CONFIG_CACHED_FILENAME);
+        Files.copy(FileSystems.getDefault().getPath(VALID_XML_CONFIG_FILENAME), cachedFile,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        final BotsType botsConfig = ConfigurationManager.loadConfig(BotsType.class,
+                XML_CONFIG_CACHED_FILENAME, XML_SCHEMA_FILENAME);
+        botsConfig.getBots().remove(1);
+        ConfigurationManager.saveConfig(BotsType.class, botsConfig, XML_CONFIG_CACHED_FILENAME);
+
+        final long missCountBefore = ConfigurationManager.getCacheMissCount();
+        final BotsType botsReloaded = ConfigurationManager.loadConfig(BotsType.class,
+                XML_CONFIG_CACHED_FILENAME, XML_SCHEMA_FILENAME);
+        assertThat(ConfigurationManager.getCacheMissCount()).isEqualTo(missCountBefore + 1);
+        assertEquals(1, botsReloaded.getBots().size());
+        assertEquals(BOT_1_ID, botsReloaded.getBots().get(0).getId());
+
+        // cleanup
+        Files.delete(cachedFile);
+    }
+
+    @Test
+    public void testConcurrentLoadsDuringSavesAlwaysSeeACompleteConfig() throws Exception {
+
+        final Path contendedFile = FileSystems.getDefault().getPath(XML_CONFIG_CONTENDED_FILENAME);
+        Files.copy(FileSystems.getDefault().getPath(VALID_XML_CONFIG_FILENAME), contendedFile,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        final BotsType botsConfig = ConfigurationManager.loadConfig(BotsType.class,
+                XML_CONFIG_CONTENDED_FILENAME, XML_SCHEMA_FILENAME);
+
+        final int readerCount = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(readerCount + 1);
+        try {
+            final List<Future<?>> tasks = new ArrayList<>();
+            tasks.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    ConfigurationManager.saveConfig(BotsType.class, botsConfig, XML_CONFIG_CONTENDED_FILENAME);
+                }
+            }));
+            for (int i = 0; i < readerCount; i++) {
+                tasks.add(executor.submit(() -> {
+                    for (int j = 0; j < 20; j++) {
+                        final BotsType botsType = ConfigurationManager.loadConfig(BotsType.class,
+                                XML_CONFIG_CONTENDED_FILENAME, XML_SCHEMA_FILENAME);
+                        assertEquals(2, botsType.getBots().size());
+                    }
+                }));
+            }
+
+            for (final Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS); // rethrows any reader or writer failure
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // cleanup
+        Files.delete(contendedFile);
+    }
 }